@@ -0,0 +1,32 @@
+package com.aseubel.yusi.common.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 人生图谱行变更事件
+ * 实体、关系或关系证据写入后发布，用于增量更新按用户缓存的图谱邻接结构
+ */
+@Getter
+public class LifeGraphChangedEvent extends ApplicationEvent {
+
+    private final String userId;
+
+    private final Kind kind;
+
+    /**
+     * 实体变更时为实体 ID；关系或关系证据变更时为关系 ID
+     */
+    private final Long id;
+
+    public LifeGraphChangedEvent(Object source, String userId, Kind kind, Long id) {
+        super(source);
+        this.userId = userId;
+        this.kind = kind;
+        this.id = id;
+    }
+
+    public enum Kind {
+        ENTITY, RELATION
+    }
+}
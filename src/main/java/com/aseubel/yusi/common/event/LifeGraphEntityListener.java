@@ -0,0 +1,44 @@
+package com.aseubel.yusi.common.event;
+
+import com.aseubel.yusi.pojo.entity.LifeGraphEntity;
+import com.aseubel.yusi.pojo.entity.LifeGraphRelation;
+import com.aseubel.yusi.pojo.entity.LifeGraphRelationEvidence;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA 实体监听器：人生图谱的实体、关系与关系证据写入后发布 {@link LifeGraphChangedEvent}。
+ * 图谱构建、手动编辑、合并与生命周期清理都经过实体保存/删除，挂在实体上不需要每条写入路径各自通知缓存。
+ * 批量 JPQL 更新不会触发，需要调用方自行发布事件。
+ */
+@Component
+public class LifeGraphEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public LifeGraphEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Object entity) {
+        LifeGraphChangedEvent event = switch (entity) {
+            case LifeGraphEntity node -> new LifeGraphChangedEvent(this, node.getUserId(),
+                    LifeGraphChangedEvent.Kind.ENTITY, node.getId());
+            case LifeGraphRelation relation -> new LifeGraphChangedEvent(this, relation.getUserId(),
+                    LifeGraphChangedEvent.Kind.RELATION, relation.getId());
+            // 证据决定自动关系能否参与检索，按所属关系处理
+            case LifeGraphRelationEvidence evidence -> new LifeGraphChangedEvent(this, evidence.getUserId(),
+                    LifeGraphChangedEvent.Kind.RELATION, evidence.getRelationId());
+            default -> null;
+        };
+        if (event != null && event.getUserId() != null && event.getId() != null) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+}
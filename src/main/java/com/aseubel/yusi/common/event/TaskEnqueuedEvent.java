@@ -0,0 +1,18 @@
+package com.aseubel.yusi.common.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 后台任务入队事件，事务提交后用于唤醒对应队列的 worker
+ */
+@Getter
+public class TaskEnqueuedEvent extends ApplicationEvent {
+
+    private final String queue;
+
+    public TaskEnqueuedEvent(Object source, String queue) {
+        super(source);
+        this.queue = queue;
+    }
+}
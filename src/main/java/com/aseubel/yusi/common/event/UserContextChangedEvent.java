@@ -0,0 +1,26 @@
+package com.aseubel.yusi.common.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * 用户对话上下文变更事件
+ * 用户资料、画像、Agent 人格配置、中期记忆、认知冲突或聊天记录发生变化时发布，
+ * 用于失效 System Message 的上下文快照
+ */
+@Getter
+public class UserContextChangedEvent extends ApplicationEvent {
+
+    private final String userId;
+
+    /**
+     * 变更来源，例如 User、UserPersona、MidTermMemory
+     */
+    private final String section;
+
+    public UserContextChangedEvent(Object source, String userId, String section) {
+        super(source);
+        this.userId = userId;
+        this.section = section;
+    }
+}
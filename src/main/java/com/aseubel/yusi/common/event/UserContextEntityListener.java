@@ -0,0 +1,44 @@
+package com.aseubel.yusi.common.event;
+
+import com.aseubel.yusi.pojo.entity.AgentPersonaConfig;
+import com.aseubel.yusi.pojo.entity.CognitiveConflict;
+import com.aseubel.yusi.pojo.entity.MidTermMemory;
+import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.pojo.entity.UserPersona;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA 实体监听器：参与构建对话上下文的实体写入后发布 {@link UserContextChangedEvent}。
+ * 挂在实体上而不是散落在各个 Service 的 save 调用处，新增写入路径时不会漏掉失效。
+ * 由 Hibernate 通过 Spring BeanContainer 获取实例；批量 JPQL 更新不会触发，需要调用方自行发布事件。
+ */
+@Component
+public class UserContextEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public UserContextEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Object entity) {
+        String userId = switch (entity) {
+            case User user -> user.getUserId();
+            case UserPersona persona -> persona.getUserId();
+            case AgentPersonaConfig config -> config.getUserId();
+            case MidTermMemory memory -> memory.getUserId();
+            case CognitiveConflict conflict -> conflict.getUserId();
+            default -> null;
+        };
+        if (userId != null) {
+            eventPublisher.publishEvent(new UserContextChangedEvent(this, userId, entity.getClass().getSimpleName()));
+        }
+    }
+}
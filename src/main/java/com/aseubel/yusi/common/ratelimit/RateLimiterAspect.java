@@ -1,18 +1,17 @@
 package com.aseubel.yusi.common.ratelimit;
 
+import cn.hutool.crypto.digest.DigestUtil;
 import com.aseubel.yusi.common.auth.UserContext;
 import com.aseubel.yusi.common.exception.RateLimitException;
 import com.aseubel.yusi.common.web.ClientIpResolver;
 import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.redis.service.IRedisService;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.redisson.api.RRateLimiter;
-import org.redisson.api.RateIntervalUnit;
-import org.redisson.api.RateType;
-import org.redisson.api.RedissonClient;
+import org.redisson.api.RScript;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -20,10 +19,15 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.core.annotation.Order;
 
 import java.lang.reflect.Method;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 限流切面（支持 Redis 故障降级到 Guava RateLimiter）
+ * <p>
+ * 分布式限流为令牌桶：容量为 count，每 time 秒匀速补满。初始化、补充、扣减和续期
+ * 在同一个 Lua 脚本里完成，每次请求只有一次 Redis 往返；时间取 Redis 服务端 TIME，
+ * 避免各节点时钟不一致导致补充速率偏差。
  */
 @Aspect
 @Component
@@ -31,8 +35,38 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class RateLimiterAspect {
 
-    @Autowired
-    private RedissonClient redissonClient;
+    /**
+     * KEYS[1]: 令牌桶 key；ARGV[1]: 桶容量；ARGV[2]: 补满整个桶所需毫秒数
+     * 桶不存在视为满桶；key 在补满所需时间后过期，过期与满桶等价
+     */
+    static final String TOKEN_BUCKET_SH = "local capacity = tonumber(ARGV[1])\n"
+            + "local windowMillis = tonumber(ARGV[2])\n"
+            + "local time = redis.call('TIME')\n"
+            + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n"
+            + "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n"
+            + "local tokens = tonumber(state[1])\n"
+            + "local ts = tonumber(state[2])\n"
+            + "if tokens == nil or ts == nil then\n"
+            + "  tokens = capacity\n"
+            + "else\n"
+            + "  tokens = math.min(capacity, tokens + math.max(0, now - ts) * capacity / windowMillis)\n"
+            + "end\n"
+            + "local allowed = 0\n"
+            + "if tokens >= 1 then\n"
+            + "  tokens = tokens - 1\n"
+            + "  allowed = 1\n"
+            + "end\n"
+            + "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))\n"
+            + "redis.call('PEXPIRE', KEYS[1], windowMillis)\n"
+            + "return allowed";
+
+    private static final String TOKEN_BUCKET_SH_SHA = DigestUtil.sha1Hex(TOKEN_BUCKET_SH);
+
+    // 与旧版 Redisson RRateLimiter 的 key 区分开，滚动发布期间两种实现互不干扰
+    private static final String BUCKET_SUFFIX = ":bucket";
+
+    @Autowired(required = false)
+    private IRedisService redisService;
 
     @Autowired
     private ClientIpResolver clientIpResolver;
@@ -55,6 +89,9 @@ public class RateLimiterAspect {
     // 最后一次 Redis 故障时间
     private volatile long lastRedisFailureTime = 0;
 
+    // 故障后正在用真实请求探测 Redis
+    private volatile boolean probing = false;
+
     @Before("@annotation(rateLimiter)")
     public void doBefore(JoinPoint point, RateLimiter rateLimiterAnnotation) {
         if (requiresSubject(rateLimiterAnnotation.limitType()) && !subjectEncoder.isConfigured()) {
@@ -91,22 +128,21 @@ public class RateLimiterAspect {
             int time = rateLimiterAnnotation.time();
             int count = rateLimiterAnnotation.count();
 
-            RRateLimiter rRateLimiter = redissonClient.getRateLimiter(combineKey);
-            // 尝试设置速率，如果已存在则忽略
-            rRateLimiter.trySetRate(RateType.OVERALL, count, time, RateIntervalUnit.SECONDS);
-
-            // 设置过期时间，避免 key 永久存在 (稍微长于限流窗口)
-            rRateLimiter.expire(java.time.Duration.ofSeconds(time + 10));
-
-            boolean acquired = rRateLimiter.tryAcquire();
+            Long acquired = redisService.execute(TOKEN_BUCKET_SH_SHA, TOKEN_BUCKET_SH, RScript.ReturnType.INTEGER,
+                    List.of(combineKey + BUCKET_SUFFIX), count, time * 1000L);
 
             // 成功访问 Redis，标记为可用
             redisAvailable = true;
-            return acquired;
+            if (probing) {
+                probing = false;
+                log.info("Rate limit backend recovered: operation=rate_limit");
+            }
+            return acquired != null && acquired == 1L;
 
         } catch (Exception e) {
             log.warn("Rate limit backend unavailable: operation=rate_limit, failure_category=dependency, fallback=bounded_local");
             redisAvailable = false;
+            probing = false;
             lastRedisFailureTime = System.currentTimeMillis();
             // 降级到本地限流
             return tryLocalRateLimit(rateLimiterAnnotation, point);
@@ -144,28 +180,20 @@ public class RateLimiterAspect {
 
     /**
      * 检查 Redis 可用性
-     * 定期探测 Redis 是否恢复
+     * 故障后每隔 REDIS_CHECK_INTERVAL 秒放一个请求直接走 Redis 限流脚本，
+     * 成功即恢复，失败则继续降级，不再额外发送探测命令
      */
     private void checkRedisAvailability() {
-        if (redissonClient == null) {
+        if (redisService == null) {
             redisAvailable = false;
             return;
         }
         if (!redisAvailable) {
             long currentTime = System.currentTimeMillis();
-            // 每隔 REDIS_CHECK_INTERVAL 秒尝试探测一次
             if (currentTime - lastRedisFailureTime > REDIS_CHECK_INTERVAL * 1000) {
-                try {
-                    // 尝试访问 Redis，检测是否恢复（通过创建一个临时 key 来测试）
-                    RRateLimiter testLimiter = redissonClient.getRateLimiter("yusi:rateLimiter:test:connection");
-                    testLimiter.trySetRate(RateType.OVERALL, 1, 1, RateIntervalUnit.SECONDS);
-                    testLimiter.expire(java.time.Duration.ofSeconds(1));
-                    redisAvailable = true;
-                    log.info("Rate limit backend recovered: operation=rate_limit");
-                } catch (Exception e) {
-                    // 仍然不可用
-                    log.debug("Rate limit backend remains unavailable: operation=rate_limit, fallback=bounded_local");
-                }
+                lastRedisFailureTime = currentTime;
+                probing = true;
+                redisAvailable = true;
             }
         }
     }
@@ -0,0 +1,37 @@
+package com.aseubel.yusi.common.task;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 逐用户批处理任务的进度断点，保存在 Redis 中；leader 中途宕机后由下一次调度从游标之后继续，
+ * 已处理过的条目不会重跑。
+ */
+@Data
+@NoArgsConstructor
+public class BatchJobCheckpoint {
+
+    public enum Status {
+        /** 正在处理，游标之前的条目均已完成 */
+        RUNNING,
+        /** 本轮已结束（全部处理完或达到单轮上限） */
+        DONE
+    }
+
+    /** 本轮的批次标识（如周报周期、问候的小时桶），批次变化时旧断点作废 */
+    private String runKey;
+    private Status status;
+    /** 已连续完成的最后一个条目 key，条目按 key 升序处理 */
+    private String cursor;
+    private Integer processed;
+    private Integer skipped;
+    private Integer failed;
+    private Long startedAt;
+    private Long updatedAt;
+
+    @JsonIgnore
+    public boolean isActive() {
+        return status == Status.RUNNING;
+    }
+}
@@ -0,0 +1,319 @@
+package com.aseubel.yusi.common.task;
+
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.redis.service.IRedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 逐用户批处理任务引擎
+ * <p>
+ * 周报、主动问候、记忆融合、中期记忆兜底扫描都是"遍历一批用户、每人一次阻塞的 LLM 调用"。
+ * 引擎在 batchJobExecutor 上按并发上限并行处理条目，单条失败按指数退避重试；
+ * 条目按 key 升序派发，连续完成的水位作为游标写入 Redis，leader 宕机后续跑调度从游标之后继续。
+ * 调用方仍在 DistributedJobRunner 的 leader 锁内调用，引擎等本轮所有条目结束后才返回，锁在此期间一直持有。
+ */
+@Slf4j
+@Component
+public class BatchJobEngine {
+
+    static final String CHECKPOINT_PREFIX = "yusi:batch-job:";
+    /** 断点只服务于同一批次的续跑，过期后自动清理 */
+    private static final long CHECKPOINT_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final IRedisService redisService;
+    private final Executor executor;
+    private final YusiMetrics metrics;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+
+    public BatchJobEngine(IRedisService redisService, Executor executor, YusiMetrics metrics) {
+        this(redisService, executor, metrics, 4, 3, 1000L);
+    }
+
+    @Autowired
+    public BatchJobEngine(IRedisService redisService,
+            @Qualifier("batchJobExecutor") Executor executor,
+            YusiMetrics metrics,
+            @Value("${yusi.batch-job.concurrency:4}") int concurrency,
+            @Value("${yusi.batch-job.max-attempts:3}") int maxAttempts,
+            @Value("${yusi.batch-job.retry-backoff-ms:1000}") long retryBackoffMillis) {
+        this.redisService = redisService;
+        this.executor = executor;
+        this.metrics = metrics;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = Math.max(0L, retryBackoffMillis);
+    }
+
+    /**
+     * 处理一轮批任务
+     *
+     * @param jobName 任务名，与调度锁同名
+     * @param runKey  批次标识，断点只在同一批次内续跑
+     * @param items   候选条目，按 keyOf 去重并升序处理
+     * @param limit   单轮最多计入处理量的条目数（handler 返回 true 的条目）
+     */
+    public <T> Result run(String jobName, String runKey, List<T> items, Function<T, String> keyOf,
+            int limit, ItemHandler<T> handler) {
+        long startedAt = System.nanoTime();
+        TreeMap<String, T> ordered = new TreeMap<>();
+        for (T item : items) {
+            String key = keyOf.apply(item);
+            if (key != null) {
+                ordered.putIfAbsent(key, item);
+            }
+        }
+
+        String checkpointKey = CHECKPOINT_PREFIX + jobName;
+        BatchJobCheckpoint checkpoint = redisService.getValue(checkpointKey);
+        boolean resumed = checkpoint != null && checkpoint.isActive()
+                && Objects.equals(runKey, checkpoint.getRunKey());
+        Map<String, T> remaining = ordered;
+        if (resumed) {
+            if (checkpoint.getCursor() != null) {
+                remaining = ordered.tailMap(checkpoint.getCursor(), false);
+            }
+            log.info("批处理任务从断点续跑: job={}, runKey={}, cursor={}, processed={}", jobName, runKey,
+                    checkpoint.getCursor(), checkpoint.getProcessed());
+        } else {
+            checkpoint = new BatchJobCheckpoint();
+            checkpoint.setRunKey(runKey);
+            checkpoint.setStatus(BatchJobCheckpoint.Status.RUNNING);
+            checkpoint.setProcessed(0);
+            checkpoint.setSkipped(0);
+            checkpoint.setFailed(0);
+            checkpoint.setStartedAt(System.currentTimeMillis());
+        }
+        save(checkpointKey, checkpoint);
+
+        Progress progress = new Progress(checkpointKey, checkpoint, Math.max(0, limit));
+        boolean interrupted = false;
+        try {
+            for (Map.Entry<String, T> entry : remaining.entrySet()) {
+                if (!progress.awaitSlot()) {
+                    break;
+                }
+                int index = progress.dispatch(entry.getKey());
+                dispatch(jobName, entry.getValue(), handler, progress, index);
+            }
+            progress.awaitIdle();
+        } catch (InterruptedException e) {
+            // 保持 RUNNING，未完成的条目由续跑调度接着处理
+            Thread.currentThread().interrupt();
+            interrupted = true;
+        }
+
+        int handled = progress.handled();
+        if (!interrupted && !progress.aborted()) {
+            progress.finish();
+        }
+        if (metrics != null) {
+            metrics.recordBatchJobRun(jobName, handled, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+        Result result = progress.result(resumed);
+        log.info("批处理任务本轮结束: job={}, runKey={}, handled={}, processed={}, skipped={}, failed={}, resumed={}",
+                jobName, runKey, handled, result.processed(), result.skipped(), result.failed(), resumed);
+        return result;
+    }
+
+    /**
+     * 对单个步骤按指数退避重试，供持有外部状态（如已抢占的 TaskExecution）的 handler 只重试可重放的部分
+     */
+    public <V> V withRetry(String jobName, Callable<V> step) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return step.call();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                if (metrics != null) {
+                    metrics.recordBatchJobRetry(jobName);
+                }
+                log.debug("批处理条目第 {} 次执行失败，准备重试: job={}, exceptionType={}", attempt, jobName,
+                        e.getClass().getSimpleName());
+                TimeUnit.MILLISECONDS.sleep(retryBackoffMillis << Math.min(attempt - 1, 10));
+            }
+        }
+    }
+
+    /**
+     * 是否存在未结束的一轮（leader 宕机或进程退出时遗留），供续跑调度判断
+     */
+    public boolean hasUnfinishedRun(String jobName) {
+        BatchJobCheckpoint checkpoint = currentCheckpoint(jobName);
+        return checkpoint != null && checkpoint.isActive();
+    }
+
+    public BatchJobCheckpoint currentCheckpoint(String jobName) {
+        return redisService.getValue(CHECKPOINT_PREFIX + jobName);
+    }
+
+    private <T> void dispatch(String jobName, T item, ItemHandler<T> handler, Progress progress, int index) {
+        Runnable task = () -> {
+            long itemStartedAt = System.nanoTime();
+            Outcome outcome = Outcome.ABORTED;
+            try {
+                outcome = withRetry(jobName, () -> handler.handle(item)) ? Outcome.PROCESSED : Outcome.SKIPPED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                outcome = Outcome.FAILED;
+                log.warn("批处理条目重试 {} 次后仍失败: job={}, key={}, exceptionType={}", maxAttempts, jobName,
+                        progress.keyAt(index), e.getClass().getSimpleName());
+            } finally {
+                if (metrics != null && outcome != Outcome.ABORTED) {
+                    metrics.recordBatchJobItem(jobName, outcome.result,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - itemStartedAt));
+                }
+                progress.complete(index, outcome);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private void save(String checkpointKey, BatchJobCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(System.currentTimeMillis());
+        try {
+            redisService.setValue(checkpointKey, checkpoint, CHECKPOINT_TTL_MILLIS);
+        } catch (RuntimeException e) {
+            // 断点写失败只影响宕机后的续跑位置，条目本身的幂等由各业务的 TaskExecution / 存在性检查保证
+            log.warn("批处理断点写入失败: key={}, exceptionType={}", checkpointKey, e.getClass().getSimpleName());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ItemHandler<T> {
+
+        /**
+         * 处理单个条目；抛出异常会按退避重试，重试用尽后记为失败并继续后面的条目
+         *
+         * @return true 表示产生了实际产出并计入单轮上限，false 表示条件不满足被跳过
+         */
+        boolean handle(T item) throws Exception;
+    }
+
+    public record Result(int processed, int skipped, int failed, boolean resumed) {
+    }
+
+    private enum Outcome {
+        PROCESSED("success"), SKIPPED("empty"), FAILED("failure"), ABORTED("unknown");
+
+        private final String result;
+
+        Outcome(String result) {
+            this.result = result;
+        }
+    }
+
+    /**
+     * 一轮内的派发与完成状态；游标只推进到连续完成的最后一个条目，乱序完成的条目等前面的都结束后再计入
+     */
+    private final class Progress {
+
+        private final String checkpointKey;
+        private final BatchJobCheckpoint checkpoint;
+        private final int limit;
+        private final List<String> keys = new ArrayList<>();
+        private final List<Boolean> done = new ArrayList<>();
+        private int watermark;
+        private int inFlight;
+        private int handled;
+        private boolean aborted;
+
+        private Progress(String checkpointKey, BatchJobCheckpoint checkpoint, int limit) {
+            this.checkpointKey = checkpointKey;
+            this.checkpoint = checkpoint;
+            this.limit = limit;
+        }
+
+        /**
+         * 等待可用并发槽；在途条目都可能计入处理量，因此达到上限前也要预留，避免超出单轮上限
+         */
+        private synchronized boolean awaitSlot() throws InterruptedException {
+            while (inFlight >= concurrency || (inFlight > 0 && checkpoint.getProcessed() + inFlight >= limit)) {
+                wait();
+            }
+            return !aborted && checkpoint.getProcessed() < limit;
+        }
+
+        private synchronized int dispatch(String key) {
+            keys.add(key);
+            done.add(Boolean.FALSE);
+            inFlight++;
+            return keys.size() - 1;
+        }
+
+        private synchronized String keyAt(int index) {
+            return keys.get(index);
+        }
+
+        private synchronized void complete(int index, Outcome outcome) {
+            inFlight--;
+            switch (outcome) {
+                case PROCESSED -> checkpoint.setProcessed(checkpoint.getProcessed() + 1);
+                case SKIPPED -> checkpoint.setSkipped(checkpoint.getSkipped() + 1);
+                case FAILED -> checkpoint.setFailed(checkpoint.getFailed() + 1);
+                case ABORTED -> aborted = true;
+            }
+            if (outcome != Outcome.ABORTED) {
+                handled++;
+                done.set(index, Boolean.TRUE);
+                int before = watermark;
+                while (watermark < done.size() && done.get(watermark)) {
+                    watermark++;
+                }
+                if (watermark > before) {
+                    checkpoint.setCursor(keys.get(watermark - 1));
+                    save(checkpointKey, checkpoint);
+                }
+            }
+            notifyAll();
+        }
+
+        private synchronized void awaitIdle() throws InterruptedException {
+            while (inFlight > 0) {
+                wait();
+            }
+        }
+
+        private synchronized boolean aborted() {
+            return aborted;
+        }
+
+        private synchronized int handled() {
+            return handled;
+        }
+
+        private synchronized void finish() {
+            checkpoint.setStatus(BatchJobCheckpoint.Status.DONE);
+            save(checkpointKey, checkpoint);
+        }
+
+        private synchronized Result result(boolean resumed) {
+            return new Result(checkpoint.getProcessed(), checkpoint.getSkipped(), checkpoint.getFailed(), resumed);
+        }
+    }
+}
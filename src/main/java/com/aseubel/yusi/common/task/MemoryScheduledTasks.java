@@ -6,7 +6,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * 记忆系统相关的定时任务（兜底扫描）
@@ -26,6 +29,11 @@ public class MemoryScheduledTasks {
 
     private final ChatMemoryMessageRepository chatMemoryMessageRepository;
     private final MemoryCompressionService memoryCompressionService;
+    private final BatchJobEngine batchJobEngine;
+
+    /** 与调度锁同名，断点和指标都按此归档 */
+    public static final String JOB_NAME = "memory-scan";
+
     /**
      * 定期兜底扫描并执行中期记忆总结
      * 使用配置文件中的 Cron 表达式（默认每 30 分钟，可通过 yusi.memory.mid-term-scan-cron 覆盖）
@@ -37,14 +45,15 @@ public class MemoryScheduledTasks {
         List<String> activeMemoryIds = chatMemoryMessageRepository.findMemoryIdsWithUnsummarizedMessages();
         log.debug("Found {} memoryIds with unsummarized messages", activeMemoryIds.size());
 
-        for (String memoryId : activeMemoryIds) {
-            try {
-                memoryCompressionService.checkAndSummarizeMidTermMemory(memoryId);
-            } catch (Exception e) {
-                log.error("Error during fallback summarization for memoryId: {}", memoryId, e);
-            }
-        }
+        // 各 memoryId 的总结互不依赖，交给批处理引擎并发执行；同一小时内宕机重跑时跳过已完成的部分
+        String runKey = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).toString();
+        BatchJobEngine.Result result = batchJobEngine.run(JOB_NAME, runKey, activeMemoryIds, Function.identity(),
+                Integer.MAX_VALUE, memoryId -> {
+                    memoryCompressionService.checkAndSummarizeMidTermMemory(memoryId);
+                    return true;
+                });
 
-        log.debug("Finished mid-term memory fallback scan.");
+        log.debug("Finished mid-term memory fallback scan: processed={}, failed={}",
+                result.processed(), result.failed());
     }
 }
@@ -0,0 +1,126 @@
+package com.aseubel.yusi.common.task;
+
+import com.aseubel.yusi.observability.trace.TraceIdSupport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按 key 分区的串行执行器
+ * <p>
+ * 同一个 key 的任务总是落在同一条单线程分区上、按提交顺序执行，不同分区之间并行。
+ * 在途任务（排队 + 执行中）有总量上限，调用方按 {@link #available()} 决定本轮还能接收多少任务；
+ * 分区内部队列本身不设界，超额提交由调用方负责避免。
+ */
+@Slf4j
+public class PartitionedExecutor {
+
+    private final ThreadPoolExecutor[] partitions;
+    private final int capacity;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Object idle = new Object();
+
+    public PartitionedExecutor(String name, int partitionCount, int capacity) {
+        int count = Math.max(1, partitionCount);
+        this.partitions = new ThreadPoolExecutor[count];
+        this.capacity = Math.max(count, capacity);
+        for (int i = 0; i < count; i++) {
+            String threadName = "yusi-" + name + "-p" + i;
+            partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * 提交到 key 所在分区；调用线程的 traceId 随任务传递
+     */
+    public void execute(String key, Runnable task) {
+        String traceId = TraceIdSupport.current();
+        inFlight.incrementAndGet();
+        try {
+            partitions[partitionOf(key)].execute(() -> {
+                try {
+                    TraceIdSupport.withTraceId(traceId, task);
+                } catch (RuntimeException e) {
+                    log.error("分区任务执行异常: key={}", key, e);
+                } finally {
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * 还能接收的任务数
+     */
+    public int available() {
+        return Math.max(0, capacity - inFlight.get());
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    int partitionOf(String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), partitions.length);
+    }
+
+    /**
+     * 等待所有已提交任务执行完毕
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idle) {
+            while (inFlight.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 停止接收新任务并等待在途任务结束；超时未完成的任务保持 PROCESSING，由超时回收兜底重试
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        for (ThreadPoolExecutor partition : partitions) {
+            partition.shutdown();
+        }
+        try {
+            if (!awaitIdle(timeout, unit)) {
+                log.warn("分区执行器关闭超时，仍有 {} 个任务未完成", inFlight.get());
+                for (ThreadPoolExecutor partition : partitions) {
+                    partition.shutdownNow();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void release() {
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.aseubel.yusi.common.task;
+
+import com.aseubel.yusi.common.event.TaskEnqueuedEvent;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 任务队列唤醒信号与自适应轮询
+ * <p>
+ * 任务落库的事务提交后发布 {@link TaskEnqueuedEvent}：本节点直接标记对应队列，
+ * 其他节点通过 Redis 频道收到通知，worker 在下一个 tick 就去抢占任务，不必等满固定轮询间隔。
+ * 队列为空时轮询间隔按倍数退避到上限；通知丢失、重试任务到期或回收超时任务时由退避后的轮询兜底。
+ */
+@Slf4j
+@Component
+public class TaskWakeup {
+
+    public static final String EMBEDDING = "embedding-worker";
+    public static final String LIFE_GRAPH = "lifegraph-worker";
+
+    static final String CHANNEL = "task:wakeup";
+    private static final Set<String> QUEUES = Set.of(EMBEDDING, LIFE_GRAPH);
+
+    private final RedissonClient redissonClient;
+    private final String channel;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final Map<String, Poll> polls = new ConcurrentHashMap<>();
+
+    public TaskWakeup(RedissonClient redissonClient) {
+        this(redissonClient, "yusi:", 1000L, 30_000L);
+    }
+
+    @Autowired
+    public TaskWakeup(ObjectProvider<RedissonClient> redissonClient,
+            @Value("${spring.cache.redis.key-prefix:yusi:}") String keyPrefix,
+            @Value("${yusi.task.wakeup.min-interval-ms:1000}") long minIntervalMillis,
+            @Value("${yusi.task.wakeup.max-interval-ms:30000}") long maxIntervalMillis) {
+        this(redissonClient.getIfAvailable(), keyPrefix, minIntervalMillis, maxIntervalMillis);
+    }
+
+    TaskWakeup(RedissonClient redissonClient, String keyPrefix, long minIntervalMillis, long maxIntervalMillis) {
+        this.redissonClient = redissonClient;
+        this.channel = keyPrefix + CHANNEL;
+        this.minIntervalMillis = Math.max(1L, minIntervalMillis);
+        this.maxIntervalMillis = Math.max(this.minIntervalMillis, maxIntervalMillis);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (redissonClient == null) {
+            return;
+        }
+        redissonClient.getTopic(channel, StringCodec.INSTANCE)
+                .addListener(String.class, (ignored, queue) -> signal(queue));
+    }
+
+    /**
+     * 任务所在事务提交后再通知，避免 worker 先于提交抢占而扑空
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTaskEnqueued(TaskEnqueuedEvent event) {
+        String queue = event.getQueue();
+        if (queue == null || !QUEUES.contains(queue)) {
+            return;
+        }
+        signal(queue);
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            redissonClient.getTopic(channel, StringCodec.INSTANCE).publish(queue);
+        } catch (RuntimeException e) {
+            log.warn("任务唤醒通知发布失败，其他节点按轮询兜底: queue={}", queue, e);
+        }
+    }
+
+    /**
+     * 本次 tick 是否需要去抢占任务：收到过唤醒通知，或者已到退避后的下一次轮询时间
+     */
+    public boolean shouldPoll(String queue) {
+        return shouldPoll(queue, System.currentTimeMillis());
+    }
+
+    boolean shouldPoll(String queue, long now) {
+        Poll poll = poll(queue);
+        synchronized (poll) {
+            if (!poll.signalled && now < poll.nextPollAt) {
+                return false;
+            }
+            poll.signalled = false;
+            return true;
+        }
+    }
+
+    /**
+     * 记录一次抢占结果：抢到任务时下个 tick 继续取，队列为空时间隔翻倍直到上限
+     */
+    public void completed(String queue, int claimed) {
+        completed(queue, claimed, System.currentTimeMillis());
+    }
+
+    void completed(String queue, int claimed, long now) {
+        Poll poll = poll(queue);
+        synchronized (poll) {
+            if (claimed > 0) {
+                poll.interval = minIntervalMillis;
+                poll.nextPollAt = now;
+                return;
+            }
+            poll.nextPollAt = now + poll.interval;
+            poll.interval = Math.min(maxIntervalMillis, poll.interval * 2);
+        }
+    }
+
+    /**
+     * 任务从可执行到被抢占的等待时长；重试任务从 nextRetryAt 起算，不把退避时间算进去
+     */
+    public static long pickupLatencyMillis(LocalDateTime createdAt, LocalDateTime nextRetryAt, LocalDateTime claimedAt) {
+        LocalDateTime dueAt = createdAt;
+        if (nextRetryAt != null && (dueAt == null || nextRetryAt.isAfter(dueAt))) {
+            dueAt = nextRetryAt;
+        }
+        if (dueAt == null || claimedAt == null) {
+            return 0L;
+        }
+        return Math.max(0L, Duration.between(dueAt, claimedAt).toMillis());
+    }
+
+    void signal(String queue) {
+        if (queue == null || !QUEUES.contains(queue)) {
+            return;
+        }
+        Poll poll = poll(queue);
+        synchronized (poll) {
+            poll.signalled = true;
+            poll.interval = minIntervalMillis;
+        }
+    }
+
+    long interval(String queue) {
+        Poll poll = poll(queue);
+        synchronized (poll) {
+            return poll.interval;
+        }
+    }
+
+    private Poll poll(String queue) {
+        return polls.computeIfAbsent(queue, ignored -> new Poll(minIntervalMillis));
+    }
+
+    private static final class Poll {
+
+        private long interval;
+        private long nextPollAt;
+        private boolean signalled;
+
+        private Poll(long interval) {
+            this.interval = interval;
+        }
+    }
+}
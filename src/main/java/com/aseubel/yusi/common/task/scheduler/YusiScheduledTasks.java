@@ -1,13 +1,16 @@
 package com.aseubel.yusi.common.task.scheduler;
 
+import com.aseubel.yusi.common.task.BatchJobEngine;
 import com.aseubel.yusi.common.task.DistributedJobRunner;
 import com.aseubel.yusi.common.task.MemoryScheduledTasks;
+import com.aseubel.yusi.common.task.TaskWakeup;
 import com.aseubel.yusi.monitor.InterfaceUsageMonitor;
 import com.aseubel.yusi.observability.metrics.YusiMetrics;
 import com.aseubel.yusi.observability.task.TaskHealthRegistry;
 import com.aseubel.yusi.observability.trace.TraceIdSupport;
 import com.aseubel.yusi.service.agent.AgentProactiveService;
 import com.aseubel.yusi.service.ai.embedding.EmbeddingBatchService;
+import com.aseubel.yusi.service.ai.embedding.EmbeddingReindexService;
 import com.aseubel.yusi.service.ai.model.ModelStateCenter;
 import com.aseubel.yusi.service.cognition.MidMemoryFusionService;
 import com.aseubel.yusi.service.lifegraph.LifeGraphMergeSuggestionService;
@@ -23,6 +26,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.context.annotation.Profile;
 
 import java.time.LocalDateTime;
+import java.util.function.IntSupplier;
 
 /**
  * Central registry for application-level scheduled entry points.
@@ -41,6 +45,7 @@ public class YusiScheduledTasks {
     private final MidMemoryFusionService midMemoryFusionService;
     private final AgentProactiveService agentProactiveService;
     private final EmbeddingBatchService embeddingBatchService;
+    private final EmbeddingReindexService embeddingReindexService;
     private final ModelStateCenter modelStateCenter;
     private final LifeGraphTaskBatchService lifeGraphTaskBatchService;
     private final LifeGraphMergeSuggestionService lifeGraphMergeSuggestionService;
@@ -50,6 +55,8 @@ public class YusiScheduledTasks {
     private final SecurityAuditService securityAuditService;
     private final TaskHealthRegistry taskHealthRegistry;
     private final YusiMetrics metrics;
+    private final TaskWakeup taskWakeup;
+    private final BatchJobEngine batchJobEngine;
     private static final long MODEL_STATE_SYNC_INTERVAL_MS = 30_000L;
 
     @Scheduled(cron = "0 0/30 * * * ?")
@@ -77,9 +84,9 @@ public class YusiScheduledTasks {
         jobRunner.runIfLeader("proactive-greeting", agentProactiveService::scanAndGreet);
     }
 
-    @Scheduled(fixedDelay = 1000)
+    @Scheduled(fixedDelayString = "${yusi.task.wakeup.tick-ms:100}")
     public void processEmbeddingTasks() {
-        runTracked("embedding-worker", embeddingBatchService::processPendingTasks);
+        pollIfDue(TaskWakeup.EMBEDDING, embeddingBatchService::processPendingTasks);
     }
 
     @Scheduled(fixedDelay = 60000)
@@ -92,14 +99,19 @@ public class YusiScheduledTasks {
         jobRunner.runIfLeader("embedding-cleanup", embeddingBatchService::cleanupCompletedTasks);
     }
 
+    @Scheduled(fixedDelay = 30000)
+    public void resumeEmbeddingReindex() {
+        jobRunner.runIfLeader("embedding-reindex", embeddingReindexService::resume);
+    }
+
     @Scheduled(fixedDelay = MODEL_STATE_SYNC_INTERVAL_MS)
     public void syncModelState() {
         runTracked("model-state-sync", modelStateCenter::syncToRedis);
     }
 
-    @Scheduled(fixedDelay = 2000)
+    @Scheduled(fixedDelayString = "${yusi.task.wakeup.tick-ms:100}")
     public void processLifeGraphTasks() {
-        runTracked("lifegraph-worker", lifeGraphTaskBatchService::processPendingTasks);
+        pollIfDue(TaskWakeup.LIFE_GRAPH, lifeGraphTaskBatchService::processPendingTasks);
     }
 
     @Scheduled(fixedDelay = 60000)
@@ -140,6 +152,39 @@ public class YusiScheduledTasks {
         jobRunner.runIfLeader("weekly-match", matchService::runWeeklyMatching);
     }
 
+    /**
+     * 逐用户批处理任务的 leader 中途退出时断点停留在 RUNNING，由新 leader 从游标处继续；
+     * 原 leader 仍在运行时调度锁抢不到，不会重复执行
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void resumeBatchJobs() {
+        resumeIfUnfinished("weekly-report", soulReportGenerator::generateWeeklyReports);
+        resumeIfUnfinished("proactive-greeting", agentProactiveService::scanAndGreet);
+        resumeIfUnfinished("memory-fusion", midMemoryFusionService::runFusion);
+        resumeIfUnfinished("memory-scan", memoryScheduledTasks::scanAndSummarizeMidTermMemory);
+    }
+
+    private void resumeIfUnfinished(String jobName, Runnable job) {
+        if (batchJobEngine.hasUnfinishedRun(jobName)) {
+            jobRunner.runIfLeader(jobName, job);
+        }
+    }
+
+    /**
+     * 队列 worker 每个 tick 只检查内存中的唤醒状态，收到入队通知或退避间隔到期才去数据库抢占任务
+     */
+    private void pollIfDue(String taskName, IntSupplier worker) {
+        if (!taskWakeup.shouldPoll(taskName)) {
+            return;
+        }
+        int[] claimed = new int[1];
+        try {
+            runTracked(taskName, () -> claimed[0] = worker.getAsInt());
+        } finally {
+            taskWakeup.completed(taskName, claimed[0]);
+        }
+    }
+
     private void runTracked(String taskName, Runnable task) {
         taskHealthRegistry.recordStart(taskName);
         try {
@@ -1,7 +1,9 @@
 package com.aseubel.yusi.config;
 
 import com.aseubel.yusi.common.auth.UserContext;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -14,13 +16,23 @@ import java.util.Map;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 
+/**
+ * 线程池配置
+ * <p>
+ * threadPoolExecutor 承担通用后台任务（@Async 等）；对话流式输出、外部 IO 扇出、记忆检索扇出、缓存刷新、批处理
+ * 各自使用独立线程池，队列和拒绝策略分开配置，一类负载打满不会饿死其他负载。
+ * 所有线程池共用同一个 MDC / UserContext 传递装饰器，拒绝时记录 executor_rejected_total。
+ */
 @EnableAsync
 @Configuration
 @EnableConfigurationProperties(ThreadPoolConfigProperties.class)
 public class ThreadPoolConfig {
 
+    @Autowired(required = false)
+    private YusiMetrics metrics;
+
     @Bean
-    @ConditionalOnMissingBean(ThreadPoolTaskExecutor.class)
+    @ConditionalOnMissingBean(name = "threadPoolExecutor")
     public ThreadPoolTaskExecutor threadPoolExecutor(ThreadPoolConfigProperties properties) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(properties.getCorePoolSize());
@@ -28,7 +40,7 @@ public class ThreadPoolConfig {
         executor.setKeepAliveSeconds(properties.getKeepAliveSeconds());
         executor.setQueueCapacity(properties.getBlockQueueSize());
         executor.setThreadNamePrefix("yusi-service-");
-        executor.setRejectedExecutionHandler(createRejectedExecutionHandler(properties.getPolicy()));
+        executor.setRejectedExecutionHandler(meteredRejectedExecutionHandler("service", properties.getPolicy()));
         executor.setTaskDecorator(contextTaskDecorator());
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
@@ -36,8 +48,65 @@ public class ThreadPoolConfig {
         return executor;
     }
 
+    @Bean
+    public ThreadPoolTaskExecutor chatStreamExecutor(ThreadPoolConfigProperties properties) {
+        return bulkhead("chat-stream", properties.getChatStream(), properties.getKeepAliveSeconds());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor ioFanoutExecutor(ThreadPoolConfigProperties properties) {
+        return bulkhead("io-fanout", properties.getIoFanout(), properties.getKeepAliveSeconds());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor memorySearchExecutor(ThreadPoolConfigProperties properties) {
+        return bulkhead("memory-search", properties.getMemorySearch(), properties.getKeepAliveSeconds());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor(ThreadPoolConfigProperties properties) {
+        return bulkhead("cache-refresh", properties.getCacheRefresh(), properties.getKeepAliveSeconds());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor batchJobExecutor(ThreadPoolConfigProperties properties) {
+        return bulkhead("batch", properties.getBatch(), properties.getKeepAliveSeconds());
+    }
+
+    private ThreadPoolTaskExecutor bulkhead(String name, ThreadPoolConfigProperties.Bulkhead config,
+            int keepAliveSeconds) {
+        int corePoolSize = Math.max(1, config.getCorePoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(Math.max(corePoolSize, config.getMaxPoolSize()));
+        executor.setKeepAliveSeconds(keepAliveSeconds);
+        executor.setQueueCapacity(Math.max(0, config.getQueueCapacity()));
+        executor.setThreadNamePrefix("yusi-" + name + "-");
+        if (Boolean.TRUE.equals(config.getVirtualThreads())) {
+            // 虚拟线程不值得常驻，空闲后连核心线程一起回收
+            executor.setThreadFactory(Thread.ofVirtual().name("yusi-" + name + "-v", 1).factory());
+            executor.setAllowCoreThreadTimeOut(true);
+        }
+        executor.setRejectedExecutionHandler(meteredRejectedExecutionHandler(name, config.getPolicy()));
+        executor.setTaskDecorator(contextTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    private RejectedExecutionHandler meteredRejectedExecutionHandler(String executorName, String policy) {
+        RejectedExecutionHandler delegate = createRejectedExecutionHandler(policy);
+        return (runnable, executor) -> {
+            if (metrics != null) {
+                metrics.recordExecutorRejected(executorName);
+            }
+            delegate.rejectedExecution(runnable, executor);
+        };
+    }
+
     private RejectedExecutionHandler createRejectedExecutionHandler(String policy) {
-        return switch (policy) {
+        return switch (policy == null ? "AbortPolicy" : policy) {
             case "DiscardPolicy" -> new ThreadPoolExecutor.DiscardPolicy();
             case "DiscardOldestPolicy" -> new ThreadPoolExecutor.DiscardOldestPolicy();
             case "CallerRunsPolicy" -> new ThreadPoolExecutor.CallerRunsPolicy();
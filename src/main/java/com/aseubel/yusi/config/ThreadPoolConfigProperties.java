@@ -1,6 +1,8 @@
 package com.aseubel.yusi.config;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @Data
@@ -23,4 +25,36 @@ public class ThreadPoolConfigProperties {
      * */
     private String policy = "AbortPolicy";
 
+    /** AI 对话流式输出（SSE 准备上下文、检索记忆后发起流式调用） */
+    private Bulkhead chatStream = new Bulkhead(32, 32, 64, "AbortPolicy", false);
+    /** 外部 IO 扇出（匹配推荐信生成等模型调用） */
+    private Bulkhead ioFanout = new Bulkhead(16, 16, 256, "CallerRunsPolicy", false);
+    /** 记忆检索工具的图谱 / 日记 / 中期记忆并行检索，队列满时拒绝，该来源按部分结果返回 */
+    private Bulkhead memorySearch = new Bulkhead(8, 8, 64, "AbortPolicy", false);
+    /** @QueryCache 过期数据的异步刷新，队列满时放弃本次刷新，下次访问会再次触发 */
+    private Bulkhead cacheRefresh = new Bulkhead(2, 4, 256, "AbortPolicy", false);
+    /** 定时批处理任务 */
+    private Bulkhead batch = new Bulkhead(4, 4, 1000, "CallerRunsPolicy", false);
+
+    /**
+     * 按负载隔离的线程池配置，互相之间不共享线程和队列
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bulkhead {
+        /** 核心线程数 */
+        private Integer corePoolSize;
+        /** 最大线程数 */
+        private Integer maxPoolSize;
+        /** 最大队列数 */
+        private Integer queueCapacity;
+        /** 拒绝策略，取值同上 */
+        private String policy;
+        /**
+         * 使用虚拟线程，适合阻塞在网络 IO 上的负载；
+         * 线程数仍受 maxPoolSize 限制，可以调得比平台线程大得多
+         */
+        private Boolean virtualThreads;
+    }
 }
@@ -0,0 +1,68 @@
+package com.aseubel.yusi.config.ai;
+
+import io.milvus.v2.client.MilvusClientV2;
+import io.milvus.v2.common.DataType;
+import io.milvus.v2.common.IndexParam;
+import io.milvus.v2.service.collection.request.AddFieldReq;
+import io.milvus.v2.service.collection.request.CreateCollectionReq;
+import io.milvus.v2.service.index.request.CreateIndexReq;
+
+import java.util.Collections;
+
+/**
+ * Milvus 混合检索集合（稠密向量 + BM25 稀疏向量）的统一建表逻辑，
+ * 供启动初始化与 Embedding 影子集合重建共用，保证两者 schema 一致。
+ */
+public final class MilvusCollectionSchemas {
+
+        private MilvusCollectionSchemas() {
+        }
+
+        public static void createHybridCollection(MilvusClientV2 client, String collectionName, int dimension) {
+                CreateCollectionReq.CollectionSchema schema = CreateCollectionReq.CollectionSchema.builder()
+                                .build();
+                schema.addField(AddFieldReq.builder().fieldName("id").dataType(DataType.VarChar).maxLength(36)
+                                .isPrimaryKey(true).autoID(false).build());
+                schema.addField(AddFieldReq.builder().fieldName("text").dataType(DataType.VarChar)
+                                .maxLength(65535)
+                                .enableAnalyzer(true).build());
+                schema.addField(AddFieldReq.builder().fieldName("metadata").dataType(DataType.JSON).build());
+                schema.addField(AddFieldReq.builder().fieldName("vector").dataType(DataType.FloatVector)
+                                .dimension(dimension).build());
+                schema.addField(
+                                AddFieldReq.builder().fieldName("text_sparse")
+                                                .dataType(DataType.SparseFloatVector).build());
+
+                schema.addFunction(CreateCollectionReq.Function.builder()
+                                .name("bm25_text_func")
+                                .functionType(io.milvus.common.clientenum.FunctionType.BM25)
+                                .inputFieldNames(Collections.singletonList("text"))
+                                .outputFieldNames(Collections.singletonList("text_sparse"))
+                                .build());
+
+                client.createCollection(CreateCollectionReq.builder()
+                                .collectionName(collectionName)
+                                .collectionSchema(schema)
+                                .build());
+
+                IndexParam indexParamForVectorField = IndexParam.builder()
+                                .fieldName("vector")
+                                .indexType(IndexParam.IndexType.HNSW)
+                                .metricType(IndexParam.MetricType.COSINE)
+                                .build();
+                client.createIndex(CreateIndexReq.builder()
+                                .collectionName(collectionName)
+                                .indexParams(Collections.singletonList(indexParamForVectorField))
+                                .build());
+
+                IndexParam indexParamForSparseField = IndexParam.builder()
+                                .fieldName("text_sparse")
+                                .indexType(IndexParam.IndexType.SPARSE_INVERTED_INDEX)
+                                .metricType(IndexParam.MetricType.BM25)
+                                .build();
+                client.createIndex(CreateIndexReq.builder()
+                                .collectionName(collectionName)
+                                .indexParams(Collections.singletonList(indexParamForSparseField))
+                                .build());
+        }
+}
@@ -4,20 +4,13 @@ import com.aseubel.yusi.config.ai.properties.MilvusConfigProperties;
 import com.aseubel.yusi.config.ai.properties.EmbeddingModelConfigProperties;
 import io.milvus.v2.client.ConnectConfig;
 import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.common.DataType;
-import io.milvus.v2.common.IndexParam;
-import io.milvus.v2.service.collection.request.AddFieldReq;
-import io.milvus.v2.service.collection.request.CreateCollectionReq;
 import io.milvus.v2.service.collection.request.HasCollectionReq;
-import io.milvus.v2.service.index.request.CreateIndexReq;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
-import java.util.Collections;
-
 /**
  * @author Aseubel
  * @date 2025/5/7 上午10:43
@@ -49,54 +42,10 @@ public class MilvusConfig {
                                 .collectionName(collectionName)
                                 .build());
 
+                // yusi_embedding_collection 在影子重建后是指向物理集合的别名，hasCollection 对别名同样返回 true
                 if (!hasCollection) {
                         log.info("初始化 Milvus 混合检索集合: {}", collectionName);
-
-                        CreateCollectionReq.CollectionSchema schema = CreateCollectionReq.CollectionSchema.builder()
-                                        .build();
-                        schema.addField(AddFieldReq.builder().fieldName("id").dataType(DataType.VarChar).maxLength(36)
-                                        .isPrimaryKey(true).autoID(false).build());
-                        schema.addField(AddFieldReq.builder().fieldName("text").dataType(DataType.VarChar)
-                                        .maxLength(65535)
-                                        .enableAnalyzer(true).build());
-                        schema.addField(AddFieldReq.builder().fieldName("metadata").dataType(DataType.JSON).build());
-                        schema.addField(AddFieldReq.builder().fieldName("vector").dataType(DataType.FloatVector)
-                                        .dimension(dimension).build());
-                        schema.addField(
-                                        AddFieldReq.builder().fieldName("text_sparse")
-                                                        .dataType(DataType.SparseFloatVector).build());
-
-                        schema.addFunction(CreateCollectionReq.Function.builder()
-                                        .name("bm25_text_func")
-                                        .functionType(io.milvus.common.clientenum.FunctionType.BM25)
-                                        .inputFieldNames(Collections.singletonList("text"))
-                                        .outputFieldNames(Collections.singletonList("text_sparse"))
-                                        .build());
-
-                        client.createCollection(CreateCollectionReq.builder()
-                                        .collectionName(collectionName)
-                                        .collectionSchema(schema)
-                                        .build());
-
-                        IndexParam indexParamForVectorField = IndexParam.builder()
-                                        .fieldName("vector")
-                                        .indexType(IndexParam.IndexType.HNSW)
-                                        .metricType(IndexParam.MetricType.COSINE)
-                                        .build();
-                        client.createIndex(CreateIndexReq.builder()
-                                        .collectionName(collectionName)
-                                        .indexParams(Collections.singletonList(indexParamForVectorField))
-                                        .build());
-
-                        IndexParam indexParamForSparseField = IndexParam.builder()
-                                        .fieldName("text_sparse")
-                                        .indexType(IndexParam.IndexType.SPARSE_INVERTED_INDEX)
-                                        .metricType(IndexParam.MetricType.BM25)
-                                        .build();
-                        client.createIndex(CreateIndexReq.builder()
-                                        .collectionName(collectionName)
-                                        .indexParams(Collections.singletonList(indexParamForSparseField))
-                                        .build());
+                        MilvusCollectionSchemas.createHybridCollection(client, collectionName, dimension);
                         log.info("Milvus 混合检索集合 {} 初始化完成", collectionName);
                 }
         }
@@ -21,4 +21,28 @@ public class EmbeddingModelConfigProperties {
      * 连接超时时间（秒），默认10秒
      */
     private Integer connectTimeoutSeconds = 10;
+
+    /**
+     * 查询向量缓存配置（检索类调用的进程内 LRU 缓存）
+     */
+    private QueryCache queryCache = new QueryCache();
+
+    @Data
+    public static class QueryCache {
+
+        /**
+         * 是否启用查询向量缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 最大缓存条目数，超出后按 LRU 淘汰
+         */
+        private long maxSize = 2000;
+
+        /**
+         * 缓存条目写入后的存活时间（秒）
+         */
+        private long ttlSeconds = 600;
+    }
 }
@@ -29,6 +29,8 @@ public class ModelGatewayAdmissionProperties {
 
     private ScopeLimit provider = new ScopeLimit();
 
+    private Lease lease = new Lease();
+
     @PostConstruct
     public void validate() {
         if (keyPrefix == null || keyPrefix.isBlank()) {
@@ -44,6 +46,19 @@ public class ModelGatewayAdmissionProperties {
         validateLimit("user", user);
         validateLimit("model", model);
         validateLimit("provider", provider);
+        if (lease != null && lease.enabled) {
+            if (lease.sliceFraction <= 0 || lease.sliceFraction > 1) {
+                throw new IllegalArgumentException(
+                        "model.gateway.admission.lease.slice-fraction must be in (0, 1]");
+            }
+            if (lease.ttlMillis <= 0) {
+                throw new IllegalArgumentException("model.gateway.admission.lease.ttl-millis must be positive");
+            }
+        }
+    }
+
+    public boolean isLeaseEnabled() {
+        return lease != null && lease.enabled;
     }
 
     public boolean hasConfiguredLimit() {
@@ -66,4 +81,22 @@ public class ModelGatewayAdmissionProperties {
         private long maxRequests;
         private long maxTokens;
     }
+
+    /**
+     * Node-local budget leases. Instead of one Redis round trip per reserve and
+     * settle, a node takes a slice of each bucket ahead of time and admits
+     * locally until the slice runs out or the lease expires; unused budget is
+     * then returned to the bucket.
+     *
+     * <p>Leased budget is charged to the shared bucket when it is taken, so the
+     * global limit is never overbooked. The trade-off is fairness: at most
+     * {@code sliceFraction * limit} per bucket can sit idle on one node for up
+     * to {@code ttlMillis} while other nodes are denied.</p>
+     */
+    @Data
+    public static class Lease {
+        private boolean enabled;
+        private double sliceFraction = 0.05;
+        private long ttlMillis = 2_000L;
+    }
 }
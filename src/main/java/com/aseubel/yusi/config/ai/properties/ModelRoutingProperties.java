@@ -41,6 +41,33 @@ public class ModelRoutingProperties {
 
     private double halfOpenProbeRatio = 0.1;
 
+    /**
+     * 实例近期指标的滑动窗口长度与分桶粒度
+     */
+    private long latencyWindowMs = 300_000L;
+
+    private long latencyBucketMs = 10_000L;
+
+    /**
+     * TAIL_LATENCY 策略：窗口内错误率超过该预算的实例排到预算内实例之后
+     */
+    private double tailLatencyErrorBudget = 0.05;
+
+    /**
+     * TAIL_LATENCY 策略：窗口样本数低于该值时不按分位数排序
+     */
+    private long tailLatencyMinSamples = 20L;
+
+    /**
+     * 是否缓存路由计划（策略匹配、tier 展开结果），配置更新或实例健康状态切换时失效
+     */
+    private boolean routePlanCacheEnabled = true;
+
+    /**
+     * 路由计划中实例状态快照的最长复用时间，用于跟上定时同步的延迟、负载等指标
+     */
+    private long routePlanStateTtlMs = 1_000L;
+
     private List<ModelDefinition> models = new ArrayList<>();
 
     private Map<String, ModelTierDefinition> tiers = new LinkedHashMap<>();
@@ -30,6 +30,7 @@ import com.aseubel.yusi.pojo.entity.SituationScenario;
 import com.aseubel.yusi.pojo.entity.Suggestion;
 import com.aseubel.yusi.pojo.entity.User;
 import com.aseubel.yusi.service.ai.embedding.EmbeddingBatchService;
+import com.aseubel.yusi.service.ai.embedding.EmbeddingReindexService;
 import com.aseubel.yusi.service.notification.NotificationService;
 import com.aseubel.yusi.service.suggestion.SuggestionService;
 import com.aseubel.yusi.service.security.SecurityAuditService;
@@ -64,6 +65,7 @@ public class AdminController {
     private final AdminService adminService;
     private final SuggestionService suggestionService;
     private final EmbeddingBatchService embeddingBatchService;
+    private final EmbeddingReindexService embeddingReindexService;
     private final MemoryConfigProperties memoryConfigProperties;
     private final NotificationService notificationService;
     private final SecurityAuditService securityAuditService;
@@ -248,9 +250,10 @@ public class AdminController {
 
     @PostMapping("/embeddings/full-sync")
     @RateLimiter(key = "admin-embeddings-full-sync", time = 3600, count = 1, limitType = LimitType.USER)
-    public Response<Integer> fullSyncEmbeddings() {
+    public Response<Integer> fullSyncEmbeddings(@RequestParam(defaultValue = "reset") String mode) {
         checkSuperAdminPermission();
-        int count = embeddingBatchService.fullSync();
+        // shadow：写入影子集合后切换别名，重建期间检索不中断；reset：清空集合并重置全部任务
+        int count = "shadow".equals(mode) ? embeddingReindexService.start() : embeddingBatchService.fullSync();
         securityAuditService.recordAdmin(SecurityAuditAction.EMBEDDINGS_FULL_SYNC, UserContext.getUserId(), null,
                 SecurityAuditResourceType.EMBEDDING_SYNC, "all", SecurityAuditOutcome.SUCCESS,
                 SecurityAuditReasonCode.ADMIN_MUTATION,
@@ -47,7 +47,6 @@ import com.aseubel.yusi.service.oss.OssService;
 import com.aseubel.yusi.service.report.constant.SoulReportType;
 import com.aseubel.yusi.pojo.entity.UserNotification;
 import com.aseubel.yusi.repository.UserNotificationRepository;
-import com.aseubel.yusi.redis.service.IRedisService;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 
@@ -111,7 +110,8 @@ public class AiController {
     @Autowired
     private ObjectMapper objectMapper = new ObjectMapper();
 
-    private final ThreadPoolTaskExecutor threadPoolExecutor;
+    @Qualifier("chatStreamExecutor")
+    private final ThreadPoolTaskExecutor chatStreamExecutor;
 
     private final SensitiveWordUtils sensitiveWordUtils;
 
@@ -136,9 +136,6 @@ public class AiController {
     @Autowired
     private UserNotificationRepository notificationRepository;
 
-    @Autowired
-    private IRedisService redisService;
-
     @Autowired
     private ChatStreamCancellationRegistry chatStreamCancellationRegistry;
 
@@ -284,7 +281,7 @@ public class AiController {
         sendAgentEvent(emitter, session, AgentStreamEvent.runStarted(requestId));
 
         try {
-            threadPoolExecutor.execute(() -> {
+            chatStreamExecutor.execute(() -> {
             AtomicReference<String> lastStage = new AtomicReference<>("preparing");
             try {
                 if (!session.isActive()) {
@@ -788,7 +785,7 @@ public class AiController {
         chatMemoryMessageRepository.save(entity);
 
         // 更新 Redis 缓存
-        redisService.remove("yusi:langchain:" + userId);
+        chatMemoryStore.evictCache(userId);
 
         // 更新通知的 extraData
         notification.setExtraData("{\"injected\":true}");
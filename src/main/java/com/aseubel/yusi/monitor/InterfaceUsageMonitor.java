@@ -3,19 +3,23 @@ package com.aseubel.yusi.monitor;
 import com.aseubel.yusi.pojo.entity.InterfaceDailyUsage;
 import com.aseubel.yusi.redis.service.IRedisService;
 import com.aseubel.yusi.repository.InterfaceDailyUsageRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RMap;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.aseubel.yusi.redis.common.RedisKey.USAGE_PREFIX;
 import static com.aseubel.yusi.redis.common.RedisKey.SEPARATOR;
@@ -27,22 +31,25 @@ public class InterfaceUsageMonitor {
 
     private final IRedisService redissonService;
     private final InterfaceDailyUsageRepository repository;
-    private final ThreadPoolTaskExecutor threadPoolExecutor;
-
-    // 批量写入缓冲区
-    private final ConcurrentHashMap<String, AtomicLong> usageBuffer = new ConcurrentHashMap<>();
-    
-    // 批量写入阈值
-    private static final int BATCH_SIZE_THRESHOLD = 100;
-    
-    // 缓冲区计数器
-    private final AtomicLong bufferCount = new AtomicLong(0);
-    
+
+    /**
+     * 本地计数缓冲区，每个 (日期, 用户, IP, 接口) 一个 LongAdder，记录时无锁
+     * 刷写时逐个 sumThenReset：每个分段原子地取出并清零，刷写期间的新增计数留给下一轮，
+     * 不需要暂停记录，也不会丢失或重复计数
+     */
+    private final ConcurrentHashMap<UsageKey, LongAdder> usageBuffer = new ConcurrentHashMap<>();
+
+    // 刷写之间互斥，不影响记录
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Redis 中按日统计的保留时间
+    private static final Duration USAGE_TTL = Duration.ofDays(2);
+
     // field 内部分隔符，使用不会在数据中出现的字符
     private static final String FIELD_SEPARATOR = "\u0001";
 
     /**
-     * 记录接口使用情况到 Redis（带批量缓冲）
+     * 记录接口使用情况（只写本地缓冲，由 {@link #flushBuffer()} 定期批量写入 Redis 和数据库）
      */
     public void recordUsage(String userId, String ip, String interfaceName) {
         try {
@@ -55,19 +62,12 @@ public class InterfaceUsageMonitor {
             String redisKey = USAGE_PREFIX + dateStr;
             String field = userId + FIELD_SEPARATOR + ip + FIELD_SEPARATOR + interfaceName;
 
-            // 先写入本地缓冲区
-            AtomicLong count = usageBuffer.computeIfAbsent(redisKey + ":" + field, k -> new AtomicLong(0));
-            count.incrementAndGet();
-            bufferCount.incrementAndGet();
-
-            // 使用 Redisson 的 addAndGet 进行原子递增
-            RMap<String, Object> map = redissonService.getMap(redisKey);
-            map.addAndGet(field, 1L);
-
-            // 当缓冲区达到阈值时，批量同步到数据库
-            if (bufferCount.get() >= BATCH_SIZE_THRESHOLD) {
-                syncBufferToDatabaseAsync();
+            UsageKey key = new UsageKey(redisKey, field);
+            LongAdder count = usageBuffer.get(key);
+            if (count == null) {
+                count = usageBuffer.computeIfAbsent(key, k -> new LongAdder());
             }
+            count.increment();
 
         } catch (Exception e) {
             log.error("Failed to record interface usage", e);
@@ -82,8 +82,8 @@ public class InterfaceUsageMonitor {
         LocalDate today = LocalDate.now();
         LocalDate yesterday = today.minusDays(1);
 
-        // 先落本地增量，再用 Redis 的累计值校准，避免增量覆盖累计统计。
-        syncBufferToDatabase();
+        // 先落本地增量，再用 Redis 的累计值校准，覆盖其他节点刷写时的乱序写入。
+        flushBuffer();
         syncDate(yesterday);
         syncDate(today);
 
@@ -91,140 +91,101 @@ public class InterfaceUsageMonitor {
     }
 
     /**
-     * 异步批量同步缓冲区数据到数据库
-     */
-    private void syncBufferToDatabaseAsync() {
-        // 使用独立线程异步处理，避免阻塞主线程
-        threadPoolExecutor.execute(() -> {
-            try {
-                syncBufferToDatabase();
-            } catch (Exception e) {
-                log.error("异步批量同步失败", e);
-            }
-        });
-    }
-
-    /**
-     * 批量同步缓冲区数据到数据库
+     * 将本地缓冲的增量批量写入 Redis 和数据库
+     * <p>
+     * 所有增量在一次 pipeline 中 HINCRBY，返回的累计值再批量 upsert 到数据库；
+     * Redis 写入失败时把增量放回缓冲区，下次重试
      */
-    private synchronized void syncBufferToDatabase() {
-        if (bufferCount.get() == 0) {
-            return;
-        }
-
-        log.debug("开始批量同步缓冲区数据，当前缓冲记录数：{}", bufferCount.get());
-
+    @Scheduled(fixedDelayString = "${yusi.monitor.usage.flush-interval-ms:5000}")
+    public void flushBuffer() {
+        flushLock.lock();
         try {
-            // 按日期分组批量处理
-            Map<String, List<UsageRecord>> groupedByDate = new ConcurrentHashMap<>();
-            
-            for (Map.Entry<String, AtomicLong> entry : usageBuffer.entrySet()) {
-                String key = entry.getKey();
-                long count = entry.getValue().get();
-                
-                if (count == 0) {
-                    continue;
-                }
-
-                // 解析 key: redisKey:field
-                int lastColonIndex = key.lastIndexOf(':');
-                if (lastColonIndex == -1) {
-                    continue;
-                }
-
-                String redisKey = key.substring(0, lastColonIndex);
-                String field = key.substring(lastColonIndex + 1);
-
-                // 提取日期
-                String dateStr = redisKey.replace(USAGE_PREFIX, "");
-                
-                // 兼容新旧分隔符格式
-                String[] parts = field.contains(FIELD_SEPARATOR) 
-                    ? field.split(FIELD_SEPARATOR) 
-                    : field.split(SEPARATOR);
-                if (parts.length != 3) {
-                    log.warn("Invalid usage field format: {}", field);
-                    continue;
-                }
+            Map<UsageKey, Long> deltas = drain();
+            if (deltas.isEmpty()) {
+                return;
+            }
 
-                String userId = parts[0];
-                String ip = parts[1];
-                String interfaceName = parts[2];
+            Map<String, Map<String, Long>> increments = new HashMap<>();
+            deltas.forEach((key, delta) -> increments
+                    .computeIfAbsent(key.redisKey(), k -> new HashMap<>())
+                    .put(key.field(), delta));
 
-                UsageRecord record = new UsageRecord(key, userId, ip, interfaceName, count);
-                groupedByDate.computeIfAbsent(dateStr, k -> new ArrayList<>()).add(record);
+            Map<String, Map<String, Long>> totals;
+            try {
+                totals = redissonService.incrMapsPipelined(increments, USAGE_TTL);
+            } catch (Exception e) {
+                log.error("批量写入接口使用统计到 Redis 失败，{} 条增量放回缓冲区", deltas.size(), e);
+                deltas.forEach((key, delta) -> usageBuffer.computeIfAbsent(key, k -> new LongAdder()).add(delta));
+                return;
             }
 
-            // 批量写入数据库
-            for (Map.Entry<String, List<UsageRecord>> entry : groupedByDate.entrySet()) {
-                String dateStr = entry.getKey();
-                List<UsageRecord> records = entry.getValue();
-                
+            log.debug("批量同步接口使用统计 {} 条增量", deltas.size());
+            // Redis 已记录累计值；数据库写失败只记日志，由定时校准补齐
+            for (Map.Entry<String, Map<String, Long>> entry : totals.entrySet()) {
+                LocalDate date;
                 try {
-                    LocalDate date = LocalDate.parse(dateStr, DateTimeFormatter.ISO_LOCAL_DATE);
-                    
-                    // 转换为实体对象
-                    List<InterfaceDailyUsage> entities = records.stream()
-                        .map(record -> InterfaceDailyUsage.builder()
-                            .userId(record.userId)
-                            .ip(record.ip)
-                            .interfaceName(record.interfaceName)
-                            .usageDate(date)
-                            .requestCount(record.count)
-                            .build())
-                        .toList();
-                    
-                    // 检查是否有有效记录，避免空列表导致 SQL 错误
-                    if (entities.isEmpty()) {
-                        log.debug("日期 {} 没有有效记录需要写入数据库", dateStr);
-                        continue;
-                    }
-                    
-                    // 使用真正的批量 SQL 操作
-                    repository.batchUpsertUsage(entities);
-                    records.forEach(this::acknowledgeBufferRecord);
-                    
-                    log.debug("批量同步日期 {} 的 {} 条记录", dateStr, records.size());
-                    
+                    date = LocalDate.parse(entry.getKey().substring(USAGE_PREFIX.length()),
+                            DateTimeFormatter.ISO_LOCAL_DATE);
                 } catch (Exception e) {
-                    log.error("批量同步日期 {} 失败", dateStr, e);
+                    log.warn("Invalid usage key: {}", entry.getKey());
+                    continue;
                 }
+                List<UsageEntry> batchEntries = new ArrayList<>();
+                entry.getValue().forEach((field, total) -> {
+                    UsageEntry usage = toEntry(field, total);
+                    if (usage != null) {
+                        batchEntries.add(usage);
+                    }
+                });
+                flushBatchToDatabase(batchEntries, date);
             }
-
         } catch (Exception e) {
             log.error("批量同步缓冲区数据失败", e);
+        } finally {
+            flushLock.unlock();
         }
     }
 
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushBuffer();
+    }
+
     /**
-     * 只确认本次快照已成功写入的计数，并保留同步期间新产生的计数。
+     * 取出全部计数的快照；前天及更早的计数器取出后移除，此时已不会再有写入
      */
-    private void acknowledgeBufferRecord(UsageRecord record) {
-        usageBuffer.computeIfPresent(record.bufferKey, (key, current) -> {
-            long acknowledged = Math.min(record.count, current.get());
-            long remaining = current.addAndGet(-acknowledged);
-            bufferCount.addAndGet(-acknowledged);
-            return remaining > 0 ? current : null;
+    private Map<UsageKey, Long> drain() {
+        String expiredBefore = USAGE_PREFIX
+                + LocalDate.now().minusDays(1).format(DateTimeFormatter.ISO_LOCAL_DATE);
+        Map<UsageKey, Long> deltas = new HashMap<>();
+        usageBuffer.forEach((key, adder) -> {
+            long count = adder.sumThenReset();
+            if (key.redisKey().compareTo(expiredBefore) < 0 && usageBuffer.remove(key, adder)) {
+                count += adder.sumThenReset();
+            }
+            if (count != 0) {
+                deltas.put(key, count);
+            }
         });
+        return deltas;
+    }
+
+    private static UsageEntry toEntry(String field, long count) {
+        // 兼容新旧分隔符格式
+        String[] parts = field.contains(FIELD_SEPARATOR)
+            ? field.split(FIELD_SEPARATOR)
+            : field.split(SEPARATOR);
+        if (parts.length != 3) {
+            log.warn("Invalid usage field format: {}", field);
+            return null;
+        }
+        return new UsageEntry(parts[0], parts[1], parts[2], count);
     }
 
     /**
-     * 内部记录类，用于批量处理
+     * 缓冲区 key：Redis Hash key 与 field
      */
-    private static class UsageRecord {
-        String bufferKey;
-        String userId;
-        String ip;
-        String interfaceName;
-        long count;
-
-        UsageRecord(String bufferKey, String userId, String ip, String interfaceName, long count) {
-            this.bufferKey = bufferKey;
-            this.userId = userId;
-            this.ip = ip;
-            this.interfaceName = interfaceName;
-            this.count = count;
-        }
+    private record UsageKey(String redisKey, String field) {
     }
 
     private void syncDate(LocalDate date) {
@@ -239,7 +200,7 @@ public class InterfaceUsageMonitor {
             RMap<String, Object> map = redissonService.getMap(redisKey);
 
             // 设置过期时间，确保清理（例如 2 天）
-            map.expire(java.time.Duration.ofDays(2));
+            map.expire(USAGE_TTL);
 
             // 批量收集数据
             List<UsageEntry> batchEntries = new ArrayList<>();
@@ -268,19 +229,12 @@ public class InterfaceUsageMonitor {
                         continue;
                     }
 
-                    String[] parts = field.contains(FIELD_SEPARATOR)
-                        ? field.split(FIELD_SEPARATOR)
-                        : field.split(SEPARATOR);
-                    if (parts.length != 3) {
-                        log.warn("Invalid usage field format: {}", field);
+                    UsageEntry usage = toEntry(field, count);
+                    if (usage == null) {
                         continue;
                     }
 
-                    String userId = parts[0];
-                    String ip = parts[1];
-                    String interfaceName = parts[2];
-
-                    batchEntries.add(new UsageEntry(userId, ip, interfaceName, count));
+                    batchEntries.add(usage);
                     batchSize++;
 
                     // 每 100 条批量写入一次
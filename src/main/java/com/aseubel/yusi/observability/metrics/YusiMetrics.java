@@ -33,7 +33,8 @@ public class YusiMetrics {
             "embedding-cleanup", "lifegraph-cleanup", "task-execution-recovery",
             "security-audit-cleanup", "lifegraph-merge-suggestion", "weekly-report", "weekly-match",
             "embedding-worker", "lifegraph-worker", "model-state-sync", "readiness", "db", "redis",
-            "milvus", "model_gateway", "tasks", "model_admission");
+            "milvus", "model_gateway", "tasks", "model_admission", "query_embedding", "embedding-reindex",
+            "chat_context", "life_graph_adjacency");
     private static final Set<String> RATE_LIMIT_OPERATIONS = Set.of(
             "admin-user-permission", "admin-scenario-audit", "admin-suggestion-reply",
             "admin-suggestion-status", "admin-announcement-publish", "admin-embeddings-full-sync",
@@ -62,6 +63,12 @@ public class YusiMetrics {
             "platform-stats");
     private static final Set<String> RESULTS = Set.of(
             "success", "empty", "failure", "rejected", "unavailable", "unknown", "denied");
+    private static final Set<String> CACHE_RESULTS = Set.of("hit", "miss");
+    private static final Set<String> CACHE_TIERS = Set.of("l1", "l2");
+    private static final Set<String> EXECUTORS = Set.of(
+            "service", "chat-stream", "io-fanout", "cache-refresh", "batch");
+    private static final Set<String> EMBEDDING_BATCH_STAGES = Set.of(
+            "embedding-claim", "embedding-load", "embedding-chunk", "embedding-embed", "embedding-write");
     private static final Set<String> DEPENDENCY_RESULTS = Set.of("up", "down", "unknown");
     private static final Set<String> TASK_RESULTS = Set.of(
             "running", "overdue", "on_time", "not_running", "unknown");
@@ -69,7 +76,7 @@ public class YusiMetrics {
             "usage-sync", "memory-scan", "room-cleanup", "memory-fusion", "proactive-greeting",
             "embedding-cleanup", "lifegraph-cleanup", "task-execution-recovery",
             "security-audit-cleanup", "lifegraph-merge-suggestion", "weekly-report", "weekly-match",
-            "embedding-worker", "lifegraph-worker", "model-state-sync");
+            "embedding-worker", "lifegraph-worker", "model-state-sync", "embedding-reindex");
     private static final Set<String> FAILURE_CATEGORIES = Set.of(
             "none", "timeout", "connection_failure", "unavailable", "validation", "rejected",
             "authentication", "model_not_found", "rate_limited", "server_error", "context_limit",
@@ -147,6 +154,90 @@ public class YusiMetrics {
         }
     }
 
+    public void recordQueryEmbeddingCache(String result) {
+        try {
+            String normalizedResult = normalize(result, CACHE_RESULTS);
+            Counter.builder("query_embedding_cache_total")
+                    .description("Query embedding cache lookups")
+                    .tags(tags("system", "query_embedding", normalizedResult, "none"))
+                    .register(registry)
+                    .increment();
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordChatContextSnapshotCache(String result) {
+        try {
+            String normalizedResult = normalize(result, CACHE_RESULTS);
+            Counter.builder("chat_context_snapshot_total")
+                    .description("Chat system message context snapshot lookups")
+                    .tags(tags("system", "chat_context", normalizedResult, "none"))
+                    .register(registry)
+                    .increment();
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordLifeGraphAdjacencyCache(String result) {
+        try {
+            String normalizedResult = normalize(result, CACHE_RESULTS);
+            Counter.builder("life_graph_adjacency_cache_total")
+                    .description("Per-user life graph adjacency cache lookups")
+                    .tags(tags("system", "life_graph_adjacency", normalizedResult, "none"))
+                    .register(registry)
+                    .increment();
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordConversationMaskCache(String result) {
+        try {
+            String normalizedResult = normalize(result, CACHE_RESULTS);
+            Counter.builder("conversation_mask_segment_total")
+                    .description("Per-message sensitive entity detection cache lookups")
+                    .tags(tags("system", "mask", normalizedResult, "none"))
+                    .register(registry)
+                    .increment();
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordQueryCache(String tier, String result) {
+        try {
+            String normalizedTier = normalize(tier, CACHE_TIERS);
+            String normalizedResult = normalize(result, CACHE_RESULTS);
+            Counter.builder("query_cache_total")
+                    .description("@QueryCache lookups per tier (l1 = in-process, l2 = Redis)")
+                    .tags(tags("cache", normalizedTier, normalizedResult, "none"))
+                    .register(registry)
+                    .increment();
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordEmbeddingBatchStage(String stage, String result, long durationMs, int itemCount) {
+        try {
+            String[] tags = tags("task", normalize(stage, EMBEDDING_BATCH_STAGES), normalize(result, RESULTS), "none");
+            Timer.builder("embedding_batch_stage_latency")
+                    .description("Embedding batch worker stage latency")
+                    .tags(tags)
+                    .register(registry)
+                    .record(Duration.ofMillis(Math.max(0L, durationMs)));
+            DistributionSummary.builder("embedding_batch_stage_items")
+                    .description("Items handled by an embedding batch worker stage")
+                    .tags(tags)
+                    .register(registry)
+                    .record(Math.max(0, itemCount));
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
     public void recordTask(String taskName, String status) {
         try {
             String normalizedTask = normalize(operationForTask(taskName), OPERATIONS);
@@ -157,6 +248,64 @@ public class YusiMetrics {
         }
     }
 
+    public void recordTaskPickupLatency(String taskName, long latencyMs) {
+        try {
+            String normalizedTask = normalize(operationForTask(taskName), OPERATIONS);
+            Timer.builder("task_pickup_latency")
+                    .description("Delay between a queued task becoming due and a worker claiming it")
+                    .tags(tags("task", normalizedTask, "success", "none"))
+                    .register(registry)
+                    .record(Duration.ofMillis(Math.max(0L, latencyMs)));
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordBatchJobItem(String jobName, String result, long latencyMs) {
+        try {
+            String normalizedJob = normalize(operationForTask(jobName), OPERATIONS);
+            String normalizedResult = normalize(result, RESULTS);
+            Timer.builder("batch_job_item_latency")
+                    .description("Per-item latency of a per-user batch job, including retries")
+                    .tags(tags("task", normalizedJob, normalizedResult,
+                            "failure".equals(normalizedResult) ? "dependency" : "none"))
+                    .register(registry)
+                    .record(Duration.ofMillis(Math.max(0L, latencyMs)));
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordBatchJobRetry(String jobName) {
+        try {
+            Counter.builder("batch_job_item_retries_total")
+                    .description("Per-item retries scheduled by the batch job engine")
+                    .tags(tags("task", normalize(operationForTask(jobName), OPERATIONS), "failure", "dependency"))
+                    .register(registry)
+                    .increment();
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
+    public void recordBatchJobRun(String jobName, int items, long durationMs) {
+        try {
+            String[] tags = tags("task", normalize(operationForTask(jobName), OPERATIONS), "success", "none");
+            Timer.builder("batch_job_run_duration")
+                    .description("Wall-clock duration of one batch job run")
+                    .tags(tags)
+                    .register(registry)
+                    .record(Duration.ofMillis(Math.max(0L, durationMs)));
+            DistributionSummary.builder("batch_job_run_items")
+                    .description("Items handled by one batch job run")
+                    .tags(tags)
+                    .register(registry)
+                    .record(Math.max(0, items));
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort.
+        }
+    }
+
     public void recordDependencyHealth(String dependency, String result, String failureCategory,
             boolean available) {
         try {
@@ -219,6 +368,18 @@ public class YusiMetrics {
         }
     }
 
+    public void recordExecutorRejected(String executor) {
+        try {
+            Counter.builder("executor_rejected_total")
+                    .description("Tasks that overflowed an executor bulkhead's queue")
+                    .tags(tags("system", normalize(executor, EXECUTORS), "rejected", "rejected"))
+                    .register(registry)
+                    .increment();
+        } catch (RuntimeException ignored) {
+            // Metrics are best effort and must not mask the rejection policy.
+        }
+    }
+
     private String operationForTask(String taskName) {
         if (taskName == null) {
             return "unknown";
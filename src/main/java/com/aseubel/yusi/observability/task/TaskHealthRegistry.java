@@ -30,7 +30,8 @@ public class TaskHealthRegistry {
             "weekly-match",
             "embedding-worker",
             "lifegraph-worker",
-            "model-state-sync");
+            "model-state-sync",
+            "embedding-reindex");
 
     private static final Set<String> ALLOWED_FAILURE_CATEGORIES = Set.of(
             "none",
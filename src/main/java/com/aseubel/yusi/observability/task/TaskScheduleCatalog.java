@@ -19,9 +19,10 @@ public class TaskScheduleCatalog {
             Map.entry("lifegraph-merge-suggestion", Duration.ofDays(1)),
             Map.entry("weekly-report", Duration.ofDays(7)),
             Map.entry("weekly-match", Duration.ofDays(7)),
-            Map.entry("embedding-worker", Duration.ofSeconds(1)),
-            Map.entry("lifegraph-worker", Duration.ofSeconds(2)),
-            Map.entry("model-state-sync", Duration.ofSeconds(30)));
+            Map.entry("embedding-worker", Duration.ofSeconds(30)),
+            Map.entry("lifegraph-worker", Duration.ofSeconds(30)),
+            Map.entry("model-state-sync", Duration.ofSeconds(30)),
+            Map.entry("embedding-reindex", Duration.ofSeconds(30)));
 
     public Duration expectedInterval(String taskName) {
         String normalized = TaskHealthRegistry.normalizeTaskName(taskName);
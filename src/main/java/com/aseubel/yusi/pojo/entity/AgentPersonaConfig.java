@@ -1,6 +1,7 @@
 package com.aseubel.yusi.pojo.entity;
 
 import jakarta.persistence.*;
+import com.aseubel.yusi.common.event.UserContextEntityListener;
 import com.aseubel.yusi.pojo.constant.AgentPersonaStyle;
 import com.aseubel.yusi.pojo.constant.ProactiveFrequency;
 import lombok.AllArgsConstructor;
@@ -30,7 +31,7 @@ import java.time.LocalDateTime;
 @DynamicUpdate
 @AllArgsConstructor
 @NoArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, UserContextEntityListener.class})
 public class AgentPersonaConfig {
 
     @Id
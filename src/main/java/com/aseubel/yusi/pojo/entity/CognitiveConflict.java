@@ -1,6 +1,7 @@
 package com.aseubel.yusi.pojo.entity;
 
 import jakarta.persistence.*;
+import com.aseubel.yusi.common.event.UserContextEntityListener;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,7 +24,7 @@ import java.time.LocalDateTime;
 @Table(name = "cognitive_conflict")
 @AllArgsConstructor
 @NoArgsConstructor
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, UserContextEntityListener.class})
 public class CognitiveConflict {
 
     @Id
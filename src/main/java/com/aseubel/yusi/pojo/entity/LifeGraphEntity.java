@@ -1,5 +1,6 @@
 package com.aseubel.yusi.pojo.entity;
 
+import com.aseubel.yusi.common.event.LifeGraphEntityListener;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -9,6 +10,7 @@ import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
@@ -31,6 +33,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@EntityListeners(LifeGraphEntityListener.class)
 @Builder
 @Table(name = "life_graph_entity", uniqueConstraints = {
         @UniqueConstraint(name = "uk_life_graph_entity_user_type_norm", columnNames = { "user_id", "type", "name_norm" })
@@ -1,8 +1,10 @@
 package com.aseubel.yusi.pojo.entity;
 
+import com.aseubel.yusi.common.event.LifeGraphEntityListener;
 import java.math.BigDecimal;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
@@ -24,6 +26,7 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
+@EntityListeners(LifeGraphEntityListener.class)
 @Builder
 @Table(name = "life_graph_relation", uniqueConstraints = {
         @UniqueConstraint(name = "uk_life_graph_relation_user_semantic_edge",
@@ -1,7 +1,9 @@
 package com.aseubel.yusi.pojo.entity;
 
+import com.aseubel.yusi.common.event.LifeGraphEntityListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -22,6 +24,7 @@ import java.time.LocalDateTime;
 /** A user-scoped source contribution to an aggregated LifeGraph relation. */
 @Data
 @Entity
+@EntityListeners(LifeGraphEntityListener.class)
 @Builder
 @Table(name = "life_graph_relation_evidence", uniqueConstraints = {
         @UniqueConstraint(name = "uk_life_graph_relation_evidence_source",
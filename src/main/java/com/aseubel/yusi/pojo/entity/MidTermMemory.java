@@ -1,6 +1,7 @@
 package com.aseubel.yusi.pojo.entity;
 
 import jakarta.persistence.*;
+import com.aseubel.yusi.common.event.UserContextEntityListener;
 import com.aseubel.yusi.common.constant.SourceType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity
 @Table(name = "mid_term_memory")
+@EntityListeners(UserContextEntityListener.class)
 public class MidTermMemory {
 
     @Id
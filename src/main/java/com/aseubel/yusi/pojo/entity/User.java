@@ -1,5 +1,6 @@
 package com.aseubel.yusi.pojo.entity;
 
+import com.aseubel.yusi.common.event.UserContextEntityListener;
 import com.aseubel.yusi.common.utils.UuidUtils;
 import com.aseubel.yusi.pojo.constant.KeyMode;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -25,6 +26,7 @@ import java.util.UUID;
 @DynamicUpdate
 @AllArgsConstructor
 @NoArgsConstructor
+@EntityListeners(UserContextEntityListener.class)
 public class User {
 
     @Id
@@ -27,6 +27,13 @@ public @interface QueryCache {
      */
     String key() default "";
 
+    /**
+     * 所属的缓存命名空间，支持 SpEL，例如 {"'plaza:feed:'"}
+     * 实际写入 Redis 的 key 会带上这些命名空间的当前代数，
+     * 配合 {@link UpdateCache#namespace()} 做整空间失效；key 需要以各命名空间开头
+     */
+    String[] namespaces() default {};
+
     SpelResolver spelResolver() default @SpelResolver(expression = "");
 
     /**
@@ -41,4 +48,16 @@ public @interface QueryCache {
      * 默认关闭
      */
     boolean compress() default false;
+
+    /**
+     * 进程内一级缓存（L1）最大条目数，0 表示不启用
+     * 需要同时指定 cacheNames，取第一个名字作为本地缓存名，同名方法共用同一个本地缓存
+     */
+    long localMaxSize() default 0;
+
+    /**
+     * 进程内一级缓存过期时间，单位秒
+     * 跨节点失效依赖广播，应明显短于 ttl，作为广播丢失时的兜底
+     */
+    long localTtl() default 10;
 }
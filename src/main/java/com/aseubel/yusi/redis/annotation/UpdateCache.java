@@ -26,6 +26,12 @@ public @interface UpdateCache {
 
     String key() default "";
 
+    /**
+     * 需要整体失效的缓存命名空间，支持 SpEL，例如 "'notifications:user:' + #userId + ':'"
+     * 设置后只递增该命名空间的代数（一次 INCR），不再按 key 模式扫描删除，key 可以不填
+     */
+    String namespace() default "";
+
     /**
      * 是否仅失效缓存而不更新
      * 默认为 false，即会尝试将返回值写入缓存
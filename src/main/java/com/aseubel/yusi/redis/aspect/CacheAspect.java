@@ -5,18 +5,22 @@ import cn.hutool.crypto.digest.DigestUtil;
 import com.aseubel.yusi.common.utils.CompressUtils;
 import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
 import com.aseubel.yusi.common.utils.SpelResolverHelper;
+import com.aseubel.yusi.redis.service.CacheLoadSignals;
+import com.aseubel.yusi.redis.service.CacheNamespaces;
 import com.aseubel.yusi.redis.service.IRedisService;
+import com.aseubel.yusi.redis.service.NearCache;
 import com.aseubel.yusi.redis.annotation.QueryCache;
 import com.aseubel.yusi.redis.annotation.UpdateCache;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.redisson.api.RScript;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
@@ -24,7 +28,15 @@ import org.springframework.context.annotation.Profile;
 
 import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.aseubel.yusi.redis.common.CacheConstants.*;
 
@@ -38,7 +50,6 @@ import static com.aseubel.yusi.redis.common.CacheConstants.*;
 @Aspect
 @Component
 @Profile("!test")
-@RequiredArgsConstructor
 public class CacheAspect {
 
     @Value("${spring.cache.redis.key-prefix:yusi:}")
@@ -46,11 +57,18 @@ public class CacheAspect {
     @Value("${spring.cache.redis.time-to-live:1s}")
     private Duration ttl;
     private static final long lockTime = 10000;
+    /** 其他节点持锁加载时的最长等待时间，超时后直接查询源数据 */
+    private static final long lockWaitTime = 1500;
 
-    private final ThreadPoolTaskExecutor threadPoolExecutor;
+    private final ThreadPoolTaskExecutor cacheRefreshExecutor;
     private final SpelResolverHelper spelResolverHelper;
     private final IRedisService redisService;
     private final ObjectMapper objectMapper;
+    private final NearCache nearCache;
+    private final CacheNamespaces cacheNamespaces;
+    private final CacheLoadSignals cacheLoadSignals;
+    /** 本节点正在加载的 key，同一 key 的并发未命中共享同一次加载 */
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
 
     private static final String SET_SH = "local key = KEYS[1]\n"
             + "local value = ARGV[1]\n"
@@ -62,6 +80,7 @@ public class CacheAspect {
             + "    redis.call('HMSET', key, '" + LOCK_INFO + "', 'unlocked', '" + VALUE + "', value)\n"
             + "    redis.call('HDEL', key, '" + UNLOCK_TIME + "')\n"
             + "    if ttl and ttl > 0 then redis.call('EXPIRE', key, ttl) end\n"
+            + "    redis.call('PUBLISH', ARGV[4], key)\n"
             + "    return 0\n"
             + "end\n"
             + "return 1";
@@ -74,6 +93,7 @@ public class CacheAspect {
             + "local lockOwner = redis.call('HGET', key, '" + OWNER + "')\n"
             + "if lockOwner and lockOwner == owner then\n"
             + "    redis.call('HDEL', key, '" + OWNER + "', '" + UNLOCK_TIME + "', '" + LOCK_INFO + "')\n"
+            + "    redis.call('PUBLISH', ARGV[2], key)\n"
             + "end\n"
             + "return 0";
 
@@ -107,6 +127,26 @@ public class CacheAspect {
     private static final String GET_SH_SHA = DigestUtil.sha1Hex(GET_SH);
     private static final String RELEASE_LOCK_SH_SHA = DigestUtil.sha1Hex(RELEASE_LOCK_SH);
 
+    public CacheAspect(ThreadPoolTaskExecutor cacheRefreshExecutor, SpelResolverHelper spelResolverHelper,
+            IRedisService redisService, ObjectMapper objectMapper) {
+        this(cacheRefreshExecutor, spelResolverHelper, redisService, objectMapper,
+                new NearCache(null, null, false, "yusi:"), new CacheNamespaces(redisService),
+                new CacheLoadSignals(null));
+    }
+
+    @Autowired
+    public CacheAspect(@Qualifier("cacheRefreshExecutor") ThreadPoolTaskExecutor cacheRefreshExecutor,
+            SpelResolverHelper spelResolverHelper, IRedisService redisService, ObjectMapper objectMapper,
+            NearCache nearCache, CacheNamespaces cacheNamespaces, CacheLoadSignals cacheLoadSignals) {
+        this.cacheRefreshExecutor = cacheRefreshExecutor;
+        this.spelResolverHelper = spelResolverHelper;
+        this.redisService = redisService;
+        this.objectMapper = objectMapper;
+        this.nearCache = nearCache;
+        this.cacheNamespaces = cacheNamespaces;
+        this.cacheLoadSignals = cacheLoadSignals;
+    }
+
     @Around("@annotation(updateCache)")
     public Object updateCache(ProceedingJoinPoint joinPoint, UpdateCache updateCache) throws Throwable {
         return processUpdateCache(joinPoint, updateCache);
@@ -130,67 +170,105 @@ public class CacheAspect {
      * 仅处理缓存失效（不执行方法）
      */
     private void processEvictOnly(UpdateCache updateCache, ProceedingJoinPoint joinPoint) throws Throwable {
-        String key = keyPrefix + spelResolverHelper.resolveSpel(joinPoint, updateCache.key());
-        if (key.contains("*")) {
-            redisService.removeByPattern(key);
-        } else {
-            redisService.remove(key);
-        }
+        evict(joinPoint, updateCache);
     }
 
     /**
      * 处理单个 @UpdateCache 注解: 使用淘汰策略保障一致性
      */
     private Object processUpdateCache(ProceedingJoinPoint joinPoint, UpdateCache updateCache) throws Throwable {
-        String key = keyPrefix + spelResolverHelper.resolveSpel(joinPoint, updateCache.key());
-
         // 无论是哪种模式，更新时为了一致性直接清除缓存（延迟双删模式）
-        if (key.contains("*")) {
-            redisService.removeByPattern(key);
-        } else {
-            redisService.remove(key);
-        }
+        evict(joinPoint, updateCache);
 
         Object result = joinPoint.proceed();
 
         // 延迟双删保证数据一致性（防止在 DB 更新期间，其他线程将旧数据重新载入缓存）
+        evict(joinPoint, updateCache);
+
+        return result;
+    }
+
+    /**
+     * 指定了命名空间时只递增代数；否则按 key 删除，带通配符的 key 按模式删除
+     */
+    private void evict(ProceedingJoinPoint joinPoint, UpdateCache updateCache) throws Throwable {
+        if (!updateCache.namespace().isEmpty()) {
+            String namespace = String.valueOf(spelResolverHelper.resolveSpel(joinPoint, updateCache.namespace()));
+            cacheNamespaces.bump(namespace);
+            nearCache.invalidate(keyPrefix + namespace + "*");
+            return;
+        }
+        String key = keyPrefix + spelResolverHelper.resolveSpel(joinPoint, updateCache.key());
         if (key.contains("*")) {
             redisService.removeByPattern(key);
         } else {
             redisService.remove(key);
         }
-
-        return result;
+        nearCache.invalidate(key);
     }
 
     /**
      * 如果数据为空且锁已过期: 则锁定缓存，返回 NEED_QUERY，同步执行"取数据"并返回结果
-     * 如果数据为空且被锁定: 则返回 NEED_WAIT，休眠100ms并再次查询
+     * 如果数据为空且被锁定: 则返回 NEED_WAIT，等待持锁方的加载完成通知后再次查询
      * 如果数据不为空且被锁定: 则立即返回SUCCESS_NEED_QUERY和缓存数据，异步执行"取数据"
      * 如果数据不为空且未锁定: 则立即返回SUCCESS和缓存数据
+     * 启用了 L1（localMaxSize > 0）时先查本地缓存，命中直接返回；L2 返回 SUCCESS 时回填 L1
+     * 声明了 namespaces 时，Redis 中的 key 带上各命名空间的当前代数，L1 仍按原 key 存放
+     * 同一节点上同一 key 的并发请求只有一个去 Redis 和数据源，其余等待它的结果（single-flight）
      */
     @Around("@annotation(queryCache)")
     public Object queryCache(ProceedingJoinPoint joinPoint, QueryCache queryCache) throws Throwable {
 
         String key = keyPrefix + spelResolverHelper.resolveSpel(joinPoint, queryCache.key());
-        String newUnlockTime = String.valueOf(System.currentTimeMillis() + lockTime);
+        // 提前获取目标方法的返回类型（包含泛型信息），用于后续的反序列化
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        JavaType returnType = objectMapper.getTypeFactory().constructType(method.getGenericReturnType());
+
+        String localName = localCacheName(queryCache);
+        long localStamp = 0;
+        if (localName != null) {
+            String localValue = nearCache.get(localName, key);
+            if (localValue != null) {
+                return readCached(localValue, returnType);
+            }
+            localStamp = nearCache.stamp();
+        }
+        String redisKey = cacheNamespaces.versionedKey(key, resolveNamespaces(joinPoint, queryCache));
+
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlight.putIfAbsent(redisKey, flight);
+        if (leader != null) {
+            // 各自反序列化，调用方拿到的是独立对象
+            return readCached(awaitLeader(leader), returnType);
+        }
+        try {
+            Loaded loaded = load(joinPoint, queryCache, redisKey, returnType);
+            flight.complete(loaded.json());
+            if (localName != null && loaded.cacheable()) {
+                nearCache.put(localName, queryCache.localMaxSize(), queryCache.localTtl(), key, loaded.json(),
+                        localStamp);
+            }
+            return loaded.value();
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(redisKey, flight);
+        }
+    }
+
+    private Loaded load(ProceedingJoinPoint joinPoint, QueryCache queryCache, String key, JavaType returnType)
+            throws Throwable {
         // 使用UUID替换线程名称，防止多台机器相同线程名称覆盖锁
         String owner = java.util.UUID.randomUUID().toString();
-        String currentTime = String.valueOf(System.currentTimeMillis());
-
         // 计算TTL
         long effectiveTtl = queryCache.ttl() > 0 ? queryCache.ttl() : ttl.getSeconds();
         boolean compress = queryCache.compress();
 
-        List<Object> result = redisService.execute(GET_SH_SHA, GET_SH, RScript.ReturnType.MULTI, List.of(key),
-                newUnlockTime, owner, currentTime);
-
+        List<Object> result = getOrLock(key, owner);
         String sign = (String) result.get(1);
-        long maxWaitTime = System.currentTimeMillis() + 1500; // 最多等待1.5秒
-        while (sign.equals(NEED_WAIT) && System.currentTimeMillis() < maxWaitTime) {
-            Thread.sleep(100); // 缩短休眠间隔，提高响应性
-            result = redisService.execute(GET_SH_SHA, GET_SH, RScript.ReturnType.MULTI, List.of(key), newUnlockTime,
-                    owner, currentTime);
+        if (sign.equals(NEED_WAIT)) {
+            result = awaitPeerLoad(key, owner);
             sign = (String) result.get(1);
         }
 
@@ -198,7 +276,8 @@ public class CacheAspect {
             // 超时未获取到锁，直接查询源数据（兜底），避免大面积 5xx
             log.warn("Cache lock wait timed out: operation=cache_lock_timeout, keyLengthBucket={}",
                     LowSensitivityLogSummary.lengthBucket(key));
-            return joinPoint.proceed();
+            Object value = joinPoint.proceed();
+            return new Loaded(value, objectMapper.writeValueAsString(value), false);
         }
 
         // 从返回结果中获取原始的、未经处理的业务数据字符串
@@ -207,45 +286,110 @@ public class CacheAspect {
         if (compress && valueStr != null) {
             valueStr = CompressUtils.decompress(valueStr);
         }
-        // 提前获取目标方法的返回类型（包含泛型信息），用于后续的反序列化
-        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
-        JavaType returnType = objectMapper.getTypeFactory().constructType(method.getGenericReturnType());
+        nearCache.recordRemote(!sign.equals(NEED_QUERY));
 
         switch (sign) {
             case NEED_QUERY:
                 // 缓存未命中，直接查询源数据并返回
                 return queryData(joinPoint, key, effectiveTtl, compress, owner);
             case SUCCESS_NEED_QUERY:
-                // 缓存命中，但数据陈旧，需要异步更新（当前项目已配置 ThreadPoolTaskExecutor 复制了 MDC 和 UserContext
+                // 缓存命中，但数据陈旧，需要异步更新（缓存刷新线程池复制了 MDC 和 UserContext
                 // 等上下文，可安全异步执行）
-                threadPoolExecutor.execute(() -> {
-                    try {
-                        // 异步刷新的时候由于生成了新的调用对象，最好生成一个新的 owner 继续加锁，或者复用但已不再占用当前请求的主流程
-                        queryData(joinPoint, key, effectiveTtl, compress, owner);
-                    } catch (Throwable e) {
-                        log.error("Cache async refresh failed: operation=cache_async_refresh, keyLengthBucket={}, exceptionType={}",
-                                LowSensitivityLogSummary.lengthBucket(key), LowSensitivityLogSummary.exceptionType(e));
-                    }
-                });
-                if (valueStr == null)
-                    return null;
-                // 空缓存防穿透值处理 (如果写入的是特殊值)
-                if ("\"\"".equals(valueStr) || "null".equals(valueStr)) {
-                    return null;
+                try {
+                    cacheRefreshExecutor.execute(() -> {
+                        try {
+                            // 异步刷新的时候由于生成了新的调用对象，最好生成一个新的 owner 继续加锁，或者复用但已不再占用当前请求的主流程
+                            queryData(joinPoint, key, effectiveTtl, compress, owner);
+                        } catch (Throwable e) {
+                            log.error("Cache async refresh failed: operation=cache_async_refresh, keyLengthBucket={}, exceptionType={}",
+                                    LowSensitivityLogSummary.lengthBucket(key), LowSensitivityLogSummary.exceptionType(e));
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // 刷新队列已满，放弃本次刷新并释放锁，下一次访问会重新触发
+                    releaseLock(key, owner);
                 }
-                return objectMapper.readValue(valueStr, returnType);
+                return new Loaded(readCached(valueStr, returnType), valueStr, false);
             case SUCCESS:
-                if (valueStr == null)
-                    return null;
-                if ("\"\"".equals(valueStr) || "null".equals(valueStr)) {
-                    return null;
+                return new Loaded(readCached(valueStr, returnType), valueStr, valueStr != null);
+        }
+        Object value = joinPoint.proceed();
+        return new Loaded(value, objectMapper.writeValueAsString(value), false);
+    }
+
+    private List<Object> getOrLock(String key, String owner) {
+        String newUnlockTime = String.valueOf(System.currentTimeMillis() + lockTime);
+        String currentTime = String.valueOf(System.currentTimeMillis());
+        return redisService.execute(GET_SH_SHA, GET_SH, RScript.ReturnType.MULTI, List.of(key), newUnlockTime,
+                owner, currentTime);
+    }
+
+    /**
+     * 其他节点正在加载：先登记通知再重新读取，读到的仍是 NEED_WAIT 时等待通知或超时，
+     * 避免在登记之前发出的通知被错过
+     */
+    private List<Object> awaitPeerLoad(String key, String owner) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + lockWaitTime;
+        List<Object> result;
+        while (true) {
+            CompletableFuture<Void> signal = cacheLoadSignals.expect(key);
+            try {
+                result = getOrLock(key, owner);
+                long remaining = deadline - System.currentTimeMillis();
+                if (!NEED_WAIT.equals(result.get(1)) || remaining <= 0) {
+                    return result;
                 }
-                return objectMapper.readValue(valueStr, returnType);
+                signal.get(remaining, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException ignored) {
+                // 超时后再读一次，仍在加载则由调用方兜底
+            } finally {
+                cacheLoadSignals.cancel(key, signal);
+            }
         }
-        return joinPoint.proceed();
     }
 
-    private Object queryData(ProceedingJoinPoint joinPoint, String key, long ttl, boolean compress, String owner)
+    private String awaitLeader(CompletableFuture<String> leader) throws Throwable {
+        try {
+            return leader.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
+    private Object readCached(String valueStr, JavaType returnType) throws Exception {
+        if (valueStr == null)
+            return null;
+        // 空缓存防穿透值处理 (如果写入的是特殊值)
+        if ("\"\"".equals(valueStr) || "null".equals(valueStr)) {
+            return null;
+        }
+        return objectMapper.readValue(valueStr, returnType);
+    }
+
+    private List<String> resolveNamespaces(ProceedingJoinPoint joinPoint, QueryCache queryCache) throws Throwable {
+        String[] expressions = queryCache.namespaces();
+        if (expressions == null || expressions.length == 0) {
+            return List.of();
+        }
+        List<String> namespaces = new ArrayList<>(expressions.length);
+        for (String expression : expressions) {
+            namespaces.add(String.valueOf(spelResolverHelper.resolveSpel(joinPoint, expression)));
+        }
+        return namespaces;
+    }
+
+    /**
+     * 启用 L1 时返回本地缓存名，否则返回 null
+     */
+    private String localCacheName(QueryCache queryCache) {
+        if (queryCache.localMaxSize() <= 0 || !nearCache.isEnabled()) {
+            return null;
+        }
+        String[] names = queryCache.cacheNames().length > 0 ? queryCache.cacheNames() : queryCache.value();
+        return names.length > 0 && !names[0].isBlank() ? names[0] : null;
+    }
+
+    private Loaded queryData(ProceedingJoinPoint joinPoint, String key, long ttl, boolean compress, String owner)
             throws Throwable {
         try {
             Object value = joinPoint.proceed();
@@ -255,30 +399,40 @@ public class CacheAspect {
                 // 这样确保了存入 Redis 的是标准、可反序列化的 JSON
                 String valueAsJson = objectMapper.writeValueAsString(value);
                 // 如果启用压缩，压缩数据后再存储
-                if (compress) {
-                    valueAsJson = CompressUtils.compress(valueAsJson);
-                }
-                redisService.execute(SET_SH_SHA, SET_SH, RScript.ReturnType.INTEGER, List.of(key), valueAsJson,
-                        owner, ttl);
-            } else {
-                // 解决缓存穿透问题，缓存一个特殊的标识值防止反复穿透数据库。这里存为特殊的JSON null "" (看业务需要，这里存 "null" 也可以)
-                redisService.execute(SET_SH_SHA, SET_SH, RScript.ReturnType.INTEGER, List.of(key), "null",
-                        owner, 60); // 空值缓存时间短一点，60秒即可
+                String stored = compress ? CompressUtils.compress(valueAsJson) : valueAsJson;
+                redisService.execute(SET_SH_SHA, SET_SH, RScript.ReturnType.INTEGER, List.of(key), stored,
+                        owner, ttl, cacheLoadSignals.channel());
+                return new Loaded(value, valueAsJson, false);
             }
-            return value;
+            // 解决缓存穿透问题，缓存一个特殊的标识值防止反复穿透数据库。这里存为特殊的JSON null "" (看业务需要，这里存 "null" 也可以)
+            redisService.execute(SET_SH_SHA, SET_SH, RScript.ReturnType.INTEGER, List.of(key), "null",
+                    owner, 60, cacheLoadSignals.channel()); // 空值缓存时间短一点，60秒即可
+            return new Loaded(null, "null", false);
         } catch (Throwable e) {
             log.error("Cache query data failed: operation=cache_query_data, keyLengthBucket={}, exceptionType={}",
                     LowSensitivityLogSummary.lengthBucket(key), LowSensitivityLogSummary.exceptionType(e));
             // 异常时也要释放锁
-            try {
-                redisService.execute(RELEASE_LOCK_SH_SHA, RELEASE_LOCK_SH, RScript.ReturnType.INTEGER, List.of(key),
-                        owner);
-            } catch (Exception ex) {
-                log.warn("Cache lock release failed: operation=cache_release_lock, keyLengthBucket={}, exceptionType={}",
-                        LowSensitivityLogSummary.lengthBucket(key), LowSensitivityLogSummary.exceptionType(ex));
-            }
+            releaseLock(key, owner);
             throw e;
         }
     }
 
+    private void releaseLock(String key, String owner) {
+        try {
+            redisService.execute(RELEASE_LOCK_SH_SHA, RELEASE_LOCK_SH, RScript.ReturnType.INTEGER, List.of(key),
+                    owner, cacheLoadSignals.channel());
+        } catch (Exception ex) {
+            log.warn("Cache lock release failed: operation=cache_release_lock, keyLengthBucket={}, exceptionType={}",
+                    LowSensitivityLogSummary.lengthBucket(key), LowSensitivityLogSummary.exceptionType(ex));
+        }
+    }
+
+    /**
+     * 一次加载的结果：value 给发起加载的请求直接返回，json 给同节点等待的请求各自反序列化
+     *
+     * @param cacheable 是否是可以放进 L1 的 L2 命中结果
+     */
+    private record Loaded(Object value, String json, boolean cacheable) {
+    }
+
 }
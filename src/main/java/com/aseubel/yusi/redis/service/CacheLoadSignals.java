@@ -0,0 +1,80 @@
+package com.aseubel.yusi.redis.service;
+
+import jakarta.annotation.PostConstruct;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code @QueryCache} 跨节点加载完成通知
+ * <p>
+ * 持有缓存锁的节点写回数据或释放锁时，由 Lua 脚本在同一次调用里 PUBLISH 缓存 key；
+ * 其他节点上等锁的请求在这里登记，收到通知后立即重新读取，不再固定间隔 sleep 轮询。
+ * 每个节点只订阅一个频道，通知丢失时等待方按超时兜底。
+ */
+@Component
+@Profile("!test")
+public class CacheLoadSignals {
+
+    static final String CHANNEL = "cache:loaded";
+
+    private final RedissonClient redissonClient;
+    private final String channel;
+    private final Map<String, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+
+    public CacheLoadSignals(RedissonClient redissonClient) {
+        this(redissonClient, "yusi:");
+    }
+
+    @Autowired
+    public CacheLoadSignals(RedissonClient redissonClient,
+            @Value("${spring.cache.redis.key-prefix:yusi:}") String keyPrefix) {
+        this.redissonClient = redissonClient;
+        this.channel = keyPrefix + CHANNEL;
+    }
+
+    @PostConstruct
+    public void init() {
+        redissonClient.getTopic(channel, StringCodec.INSTANCE)
+                .addListener(String.class, (ignored, key) -> signal(key));
+    }
+
+    /**
+     * 写回数据和释放锁的脚本向这个频道发布通知
+     */
+    public String channel() {
+        return channel;
+    }
+
+    /**
+     * 登记等待某个 key 的下一次通知；需要在重新读取缓存之前登记，避免错过两次读取之间的通知
+     */
+    public CompletableFuture<Void> expect(String key) {
+        return waiters.computeIfAbsent(key, ignored -> new CompletableFuture<>());
+    }
+
+    public void cancel(String key, CompletableFuture<Void> waiter) {
+        waiters.remove(key, waiter);
+    }
+
+    void signal(String key) {
+        if (key == null) {
+            return;
+        }
+        CompletableFuture<Void> waiter = waiters.remove(key);
+        if (waiter != null) {
+            waiter.complete(null);
+        }
+    }
+
+    int waiting() {
+        return waiters.size();
+    }
+}
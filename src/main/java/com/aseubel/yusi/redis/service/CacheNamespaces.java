@@ -0,0 +1,94 @@
+package com.aseubel.yusi.redis.service;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import org.redisson.api.RScript;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存命名空间版本号
+ * <p>
+ * 每个命名空间（如 {@code notifications:user:u1:}、{@code plaza:feed:}）在 Redis 中有一个代数计数器，
+ * 属于该命名空间的缓存 key 会带上当前代数。整空间失效只需一次 INCR，旧代数的缓存不再被读到，
+ * 由各自的 TTL 自然过期，不再需要按模式 SCAN 全部 key。
+ * <p>
+ * 计数器不存在视为第 0 代；计数器本身的过期时间需要长于命名空间内最长的缓存 TTL，
+ * 否则计数器过期归零后可能重新读到残留的第 0 代数据。
+ */
+@Component
+public class CacheNamespaces {
+
+    static final String GENERATION_KEY = "cache:ns:";
+
+    private static final String GET_SH = "return redis.call('MGET', unpack(KEYS))";
+
+    private static final String BUMP_SH = "local generation = redis.call('INCR', KEYS[1])\n"
+            + "redis.call('EXPIRE', KEYS[1], tonumber(ARGV[1]))\n"
+            + "return generation";
+
+    private static final String GET_SH_SHA = DigestUtil.sha1Hex(GET_SH);
+    private static final String BUMP_SH_SHA = DigestUtil.sha1Hex(BUMP_SH);
+
+    private final IRedisService redisService;
+    private final String keyPrefix;
+    private final long generationTtlSeconds;
+
+    public CacheNamespaces(IRedisService redisService) {
+        this(redisService, "yusi:", 86400);
+    }
+
+    @Autowired
+    public CacheNamespaces(IRedisService redisService,
+            @Value("${spring.cache.redis.key-prefix:yusi:}") String keyPrefix,
+            @Value("${yusi.cache.namespace.generation-ttl-seconds:86400}") long generationTtlSeconds) {
+        this.redisService = redisService;
+        this.keyPrefix = keyPrefix;
+        this.generationTtlSeconds = generationTtlSeconds;
+    }
+
+    /**
+     * 在缓存 key 后追加所属命名空间的当前代数，一次 MGET 读取全部计数器
+     *
+     * @param key        完整缓存 key
+     * @param namespaces 不带前缀的命名空间，为空时原样返回 key
+     */
+    public String versionedKey(String key, List<String> namespaces) {
+        if (namespaces == null || namespaces.isEmpty()) {
+            return key;
+        }
+        List<Object> generationKeys = new ArrayList<>(namespaces.size());
+        for (String namespace : namespaces) {
+            generationKeys.add(generationKey(namespace));
+        }
+        List<Object> generations = redisService.execute(GET_SH_SHA, GET_SH, RScript.ReturnType.MULTI,
+                generationKeys);
+        StringBuilder versioned = new StringBuilder(key.length() + 8).append(key).append("@g");
+        for (int i = 0; i < namespaces.size(); i++) {
+            Object generation = generations == null || i >= generations.size() ? null : generations.get(i);
+            if (i > 0) {
+                versioned.append('.');
+            }
+            versioned.append(generation == null ? "0" : generation);
+        }
+        return versioned.toString();
+    }
+
+    /**
+     * 使命名空间内全部缓存失效
+     *
+     * @return 新的代数
+     */
+    public long bump(String namespace) {
+        Long generation = redisService.execute(BUMP_SH_SHA, BUMP_SH, RScript.ReturnType.INTEGER,
+                List.of(generationKey(namespace)), generationTtlSeconds);
+        return generation == null ? 0L : generation;
+    }
+
+    private String generationKey(String namespace) {
+        return keyPrefix + GENERATION_KEY + namespace;
+    }
+}
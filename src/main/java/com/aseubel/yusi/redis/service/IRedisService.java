@@ -358,4 +358,13 @@ public interface IRedisService {
     <T> T execute(String luaScript, RScript.ReturnType returnType, List<Object> keys, Object... values);
 
     void incrMap(String key, String field, int delta);
+
+    /**
+     * 批量递增多个 Hash 的字段，全部命令在一次 pipeline 中发送
+     *
+     * @param increments key -> (field -> 增量)
+     * @param expired    每个 key 的过期时间
+     * @return key -> (field -> 递增后的值)
+     */
+    Map<String, Map<String, Long>> incrMapsPipelined(Map<String, Map<String, Long>> increments, Duration expired);
 }
@@ -0,0 +1,169 @@
+package com.aseubel.yusi.redis.service;
+
+import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * {@code @QueryCache} 的进程内一级缓存（L1）
+ * <p>
+ * 按缓存名各自维护一个有容量和过期时间上限的本地缓存，保存的是 Redis（L2）里解压后的 JSON，
+ * 命中时省掉一次网络往返和 Deflate 解压；每次命中仍会重新反序列化，调用方拿到的始终是独立对象，
+ * 不会因为修改返回值而污染缓存。
+ * <p>
+ * {@code @UpdateCache} 失效某个 key（或通配符模式）时，先清本机 L1，再通过 Redisson Topic
+ * 广播给其他节点。广播是尽力而为的，丢失时靠 L1 自身较短的过期时间兜底。
+ */
+@Slf4j
+@Component
+@Profile("!test")
+public class NearCache {
+
+    static final String INVALIDATION_TOPIC = "cache:near:invalidate";
+
+    private final RedissonClient redissonClient;
+    private final YusiMetrics metrics;
+    private final boolean enabled;
+    private final String topicName;
+    private final Map<String, Cache<String, String>> tiers = new ConcurrentHashMap<>();
+    /** 每次失效递增，读 L2 前后比对，防止失效期间读到的旧值被写回 L1 */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public NearCache(RedissonClient redissonClient) {
+        this(redissonClient, null, true, "yusi:");
+    }
+
+    @Autowired
+    public NearCache(RedissonClient redissonClient, YusiMetrics metrics,
+            @Value("${yusi.cache.near.enabled:true}") boolean enabled,
+            @Value("${spring.cache.redis.key-prefix:yusi:}") String keyPrefix) {
+        this.redissonClient = redissonClient;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.topicName = keyPrefix + INVALIDATION_TOPIC;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || redissonClient == null) {
+            return;
+        }
+        redissonClient.getTopic(topicName).addListener(String.class, (channel, key) -> evictLocal(key));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 查询 L1，未启用或未命中返回 null
+     */
+    public String get(String cacheName, String key) {
+        Cache<String, String> tier = tiers.get(cacheName);
+        String value = tier == null ? null : tier.getIfPresent(key);
+        record("l1", value != null);
+        return value;
+    }
+
+    /**
+     * 读取 L2 之前取一次版本号，写回 L1 时传入
+     */
+    public long stamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * 写入 L1；同名缓存第一次写入时按给定上限创建，之后沿用
+     *
+     * @param stamp 读取 L2 之前的 {@link #stamp()}，期间发生过失效则放弃写入
+     */
+    public void put(String cacheName, long maxSize, long ttlSeconds, String key, String value, long stamp) {
+        if (!enabled || value == null || maxSize <= 0 || ttlSeconds <= 0) {
+            return;
+        }
+        Cache<String, String> tier = tiers.computeIfAbsent(cacheName, ignored -> CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build());
+        tier.put(key, value);
+        if (invalidations.get() != stamp) {
+            tier.invalidate(key);
+        }
+    }
+
+    /**
+     * 记录一次 L2（Redis）查询结果
+     */
+    public void recordRemote(boolean hit) {
+        record("l2", hit);
+    }
+
+    /**
+     * 失效本机 L1 并广播给其他节点，key 支持 {@code *} 通配符
+     */
+    public void invalidate(String key) {
+        if (!enabled) {
+            return;
+        }
+        evictLocal(key);
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            redissonClient.getTopic(topicName).publish(key);
+        } catch (RuntimeException e) {
+            log.warn("Near cache invalidation publish failed: operation=near_cache_invalidate, keyLengthBucket={}, exceptionType={}",
+                    LowSensitivityLogSummary.lengthBucket(key), LowSensitivityLogSummary.exceptionType(e));
+        }
+    }
+
+    void evictLocal(String key) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+        invalidations.incrementAndGet();
+        if (tiers.isEmpty()) {
+            return;
+        }
+        if (!key.contains("*")) {
+            tiers.values().forEach(tier -> tier.invalidate(key));
+            return;
+        }
+        Pattern pattern = globPattern(key);
+        for (Cache<String, String> tier : tiers.values()) {
+            tier.asMap().keySet().removeIf(cached -> pattern.matcher(cached).matches());
+        }
+    }
+
+    private static Pattern globPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        int star;
+        while ((star = glob.indexOf('*', start)) >= 0) {
+            regex.append(Pattern.quote(glob.substring(start, star))).append(".*");
+            start = star + 1;
+        }
+        regex.append(Pattern.quote(glob.substring(start)));
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private void record(String tier, boolean hit) {
+        if (metrics != null) {
+            metrics.recordQueryCache(tier, hit ? "hit" : "miss");
+        }
+    }
+}
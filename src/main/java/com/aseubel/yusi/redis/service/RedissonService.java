@@ -8,6 +8,7 @@ import org.redisson.client.codec.StringCodec;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -261,4 +262,31 @@ public class RedissonService implements IRedisService {
         redissonClient.getMap(key).addAndGet(field, delta);
     }
 
+    @Override
+    public Map<String, Map<String, Long>> incrMapsPipelined(Map<String, Map<String, Long>> increments,
+            Duration expired) {
+        RBatch batch = redissonClient.createBatch();
+        Map<String, Map<String, RFuture<Object>>> futures = new LinkedHashMap<>();
+        increments.forEach((key, fields) -> {
+            RMapAsync<String, Object> map = batch.getMap(key);
+            Map<String, RFuture<Object>> fieldFutures = new LinkedHashMap<>();
+            fields.forEach((field, delta) -> fieldFutures.put(field, map.addAndGetAsync(field, delta)));
+            map.expireAsync(expired);
+            futures.put(key, fieldFutures);
+        });
+        batch.execute();
+
+        Map<String, Map<String, Long>> totals = new LinkedHashMap<>();
+        futures.forEach((key, fieldFutures) -> {
+            Map<String, Long> fieldTotals = new LinkedHashMap<>();
+            fieldFutures.forEach((field, future) -> {
+                Object total = future.toCompletableFuture().join();
+                fieldTotals.put(field, total instanceof Number number ? number.longValue()
+                        : Long.parseLong(String.valueOf(total)));
+            });
+            totals.put(key, fieldTotals);
+        });
+        return totals;
+    }
+
 }
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,6 +25,16 @@ public interface DiaryRepository extends JpaRepository<Diary, Long> {
 
     Diary findByDiaryIdAndUserId(String diaryId, String userId);
 
+    /**
+     * 按主键顺序分页扫描全部日记（Embedding 影子集合重建用，以主键作为断点续传游标）
+     */
+    List<Diary> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * 批量获取日记（Embedding 批处理预取用，带上分片键 userId）
+     */
+    List<Diary> findByUserIdInAndDiaryIdIn(Collection<String> userIds, Collection<String> diaryIds);
+
     @Query("SELECT d FROM Diary d WHERE d.userId = :userId")
     Page<Diary> findByUserId(@Param("userId") String userId, Pageable pageable);
 
@@ -39,6 +50,19 @@ public interface DiaryRepository extends JpaRepository<Diary, Long> {
      */
     long countByUserId(String userId);
 
+    /**
+     * 批量统计日记数量（周匹配粗排用），没有日记的用户不出现在结果中
+     */
+    @Query("SELECT d.userId AS userId, COUNT(d) AS diaryCount FROM Diary d WHERE d.userId IN :userIds GROUP BY d.userId")
+    List<UserDiaryCount> countGroupByUserIdIn(@Param("userIds") Collection<String> userIds);
+
+    interface UserDiaryCount {
+
+        String getUserId();
+
+        long getDiaryCount();
+    }
+
     /**
      * 统计用户在指定时间范围内的日记数量（F8.3 周报用）。
      */
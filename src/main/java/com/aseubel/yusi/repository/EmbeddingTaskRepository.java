@@ -117,6 +117,16 @@ public interface EmbeddingTaskRepository extends JpaRepository<EmbeddingTask, Lo
     @Query("UPDATE EmbeddingTask t SET t.status = 'PENDING', t.retryCount = 0, t.errorMessage = null, t.updatedAt = :now")
     int resetAllToPending(@Param("now") LocalDateTime now);
 
+    /**
+     * 重置指定时间之后变更过的任务为 PENDING（影子集合切换后回放重建期间的写入）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmbeddingTask t SET t.status = 'PENDING', t.retryCount = 0, t.errorMessage = null, " +
+            "t.nextRetryAt = :now, t.updatedAt = :now WHERE t.updatedAt >= :since " +
+            "AND t.status <> 'PROCESSING'")
+    int resetUpdatedSinceToPending(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
     /**
      * 插入缺失的日记任务（用于全量同步）
      */
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -107,4 +108,32 @@ public interface LifeGraphEntityRepository extends JpaRepository<LifeGraphEntity
             Pageable pageable);
 
     Optional<LifeGraphEntity> findByIdAndUserId(Long id, String userId);
+
+    /**
+     * 图谱邻接缓存用的节点投影，只取遍历需要的可见性与排序字段
+     */
+    @Query("""
+            SELECT e.id AS id, e.hidden AS hidden, e.validUntil AS validUntil, e.mentionCount AS mentionCount
+            FROM LifeGraphEntity e
+            WHERE e.userId = :userId
+            """)
+    List<EntityNode> findNodesByUserId(@Param("userId") String userId);
+
+    @Query("""
+            SELECT e.id AS id, e.hidden AS hidden, e.validUntil AS validUntil, e.mentionCount AS mentionCount
+            FROM LifeGraphEntity e
+            WHERE e.userId = :userId AND e.id IN :ids
+            """)
+    List<EntityNode> findNodesByUserIdAndIdIn(@Param("userId") String userId, @Param("ids") Collection<Long> ids);
+
+    interface EntityNode {
+
+        Long getId();
+
+        Boolean getHidden();
+
+        LocalDateTime getValidUntil();
+
+        Integer getMentionCount();
+    }
 }
@@ -2,8 +2,11 @@ package com.aseubel.yusi.repository;
 
 import com.aseubel.yusi.pojo.entity.LifeGraphRelationEvidence;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
 
@@ -12,6 +15,35 @@ public interface LifeGraphRelationEvidenceRepository extends JpaRepository<LifeG
 
     List<LifeGraphRelationEvidence> findByUserIdAndRelationId(String userId, Long relationId);
 
+    List<LifeGraphRelationEvidence> findByUserIdAndRelationIdIn(String userId, Collection<Long> relationIds);
+
+    /**
+     * 存在可用自动来源证据的关系 ID，条件与 LifeGraphQueryService 的证据校验一致
+     */
+    @Query("""
+            SELECT DISTINCT e.relationId FROM LifeGraphRelationEvidence e
+            WHERE e.userId = :userId
+              AND UPPER(TRIM(e.sourceType)) IN :sourceTypes
+              AND TRIM(e.sourceId) <> ''
+              AND e.occurrenceCount >= 1
+              AND e.confidence >= :minConfidence
+            """)
+    List<Long> findUsableRelationIds(@Param("userId") String userId,
+            @Param("sourceTypes") Collection<String> sourceTypes, @Param("minConfidence") BigDecimal minConfidence);
+
+    @Query("""
+            SELECT DISTINCT e.relationId FROM LifeGraphRelationEvidence e
+            WHERE e.userId = :userId
+              AND e.relationId IN :relationIds
+              AND UPPER(TRIM(e.sourceType)) IN :sourceTypes
+              AND TRIM(e.sourceId) <> ''
+              AND e.occurrenceCount >= 1
+              AND e.confidence >= :minConfidence
+            """)
+    List<Long> findUsableRelationIdsIn(@Param("userId") String userId,
+            @Param("relationIds") Collection<Long> relationIds, @Param("sourceTypes") Collection<String> sourceTypes,
+            @Param("minConfidence") BigDecimal minConfidence);
+
     java.util.Optional<LifeGraphRelationEvidence> findByUserIdAndRelationIdAndSourceTypeAndSourceId(
             String userId, Long relationId, String sourceType, String sourceId);
 
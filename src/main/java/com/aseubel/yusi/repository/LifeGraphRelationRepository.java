@@ -2,8 +2,12 @@ package com.aseubel.yusi.repository;
 
 import com.aseubel.yusi.pojo.entity.LifeGraphRelation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -29,4 +33,42 @@ public interface LifeGraphRelationRepository extends JpaRepository<LifeGraphRela
     List<LifeGraphRelation> findByUserId(String userId);
 
     void deleteByUserIdAndSourceIdOrTargetId(String userId, Long sourceId, Long targetId);
+
+    /**
+     * 图谱邻接缓存用的关系投影，不加载 props 等大字段
+     */
+    @Query("""
+            SELECT r.id AS id, r.sourceId AS sourceId, r.targetId AS targetId, r.type AS type,
+                   r.origin AS origin, r.confidence AS confidence, r.weight AS weight, r.updatedAt AS updatedAt
+            FROM LifeGraphRelation r
+            WHERE r.userId = :userId
+            """)
+    List<RelationEdge> findEdgesByUserId(@Param("userId") String userId);
+
+    @Query("""
+            SELECT r.id AS id, r.sourceId AS sourceId, r.targetId AS targetId, r.type AS type,
+                   r.origin AS origin, r.confidence AS confidence, r.weight AS weight, r.updatedAt AS updatedAt
+            FROM LifeGraphRelation r
+            WHERE r.userId = :userId AND r.id IN :ids
+            """)
+    List<RelationEdge> findEdgesByUserIdAndIdIn(@Param("userId") String userId, @Param("ids") Collection<Long> ids);
+
+    interface RelationEdge {
+
+        Long getId();
+
+        Long getSourceId();
+
+        Long getTargetId();
+
+        String getType();
+
+        LifeGraphRelation.Origin getOrigin();
+
+        BigDecimal getConfidence();
+
+        Integer getWeight();
+
+        LocalDateTime getUpdatedAt();
+    }
 }
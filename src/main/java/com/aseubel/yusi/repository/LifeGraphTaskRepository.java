@@ -15,11 +15,16 @@ import java.util.Optional;
 @Repository
 public interface LifeGraphTaskRepository extends JpaRepository<LifeGraphTask, Long> {
 
-    @Query(value = "SELECT * FROM life_graph_task " +
-            "WHERE status = 'PENDING' AND next_retry_at <= :now " +
-            "ORDER BY created_at ASC " +
+    /**
+     * 同一用户已有任务在处理时跳过该用户，保证一个用户的图谱写入不会在多个 worker 之间交错
+     */
+    @Query(value = "SELECT * FROM life_graph_task t " +
+            "WHERE t.status = 'PENDING' AND t.next_retry_at <= :now " +
+            "AND NOT EXISTS (SELECT 1 FROM life_graph_task p " +
+            "WHERE p.user_id = t.user_id AND p.status = 'PROCESSING') " +
+            "ORDER BY t.created_at ASC " +
             "LIMIT :limit " +
-            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+            "FOR UPDATE OF t SKIP LOCKED", nativeQuery = true)
     List<LifeGraphTask> findPendingTasksForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
 
     @Modifying
@@ -53,6 +58,16 @@ public interface LifeGraphTaskRepository extends JpaRepository<LifeGraphTask, Lo
     @Query("UPDATE LifeGraphTask t SET t.status = 'COMPLETED', t.updatedAt = :now WHERE t.id = :id")
     int markAsCompleted(@Param("id") Long id, @Param("now") LocalDateTime now);
 
+    /**
+     * 同一用户的任务正由其他实例处理时，把已抢占的任务放回队列，不计入重试次数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE LifeGraphTask t SET t.status = 'PENDING', t.nextRetryAt = :nextRetryAt, t.updatedAt = :now " +
+            "WHERE t.id = :id AND t.status = 'PROCESSING'")
+    int deferProcessing(@Param("id") Long id, @Param("nextRetryAt") LocalDateTime nextRetryAt,
+            @Param("now") LocalDateTime now);
+
     @Modifying
     @Transactional
     @Query("UPDATE LifeGraphTask t SET " +
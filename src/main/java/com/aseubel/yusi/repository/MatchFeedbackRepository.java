@@ -2,6 +2,7 @@ package com.aseubel.yusi.repository;
 
 import com.aseubel.yusi.pojo.entity.MatchFeedback;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -19,6 +20,10 @@ public interface MatchFeedbackRepository extends JpaRepository<MatchFeedback, Lo
     /** 统计一次匹配是否出现过强负面连接信号。 */
     long countByMatchIdAndActionIn(Long matchId, Collection<String> actions);
 
+    /** 批量找出出现过指定反馈的匹配 id。 */
+    @Query("SELECT DISTINCT f.matchId FROM MatchFeedback f WHERE f.matchId IN ?1 AND f.action IN ?2")
+    List<Long> findMatchIdsWithActions(Collection<Long> matchIds, Collection<String> actions);
+
     boolean existsByConnectionIdAndUserIdAndActionIn(Long connectionId, String userId,
             Collection<String> actions);
 }
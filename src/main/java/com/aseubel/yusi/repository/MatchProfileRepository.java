@@ -4,10 +4,14 @@ import com.aseubel.yusi.pojo.entity.MatchProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MatchProfileRepository extends JpaRepository<MatchProfile, Long> {
 
     Optional<MatchProfile> findByUserId(String userId);
+
+    List<MatchProfile> findByUserIdIn(Collection<String> userIds);
 }
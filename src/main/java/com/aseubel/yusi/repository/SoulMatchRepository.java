@@ -5,6 +5,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -36,4 +37,10 @@ public interface SoulMatchRepository extends JpaRepository<SoulMatch, Long> {
             ORDER BY s.createTime DESC
             """)
     List<SoulMatch> findPairHistory(String userAId, String userBId);
+
+    /**
+     * 批量加载一批用户参与过的全部匹配（周匹配粗排前一次性取历史，替代逐对查询）
+     */
+    @Query("SELECT s FROM SoulMatch s WHERE s.userAId IN ?1 OR s.userBId IN ?1 ORDER BY s.createTime DESC")
+    List<SoulMatch> findAllInvolving(Collection<String> userIds);
 }
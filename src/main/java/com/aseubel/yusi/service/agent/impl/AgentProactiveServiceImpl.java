@@ -2,6 +2,7 @@ package com.aseubel.yusi.service.agent.impl;
 
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
+import com.aseubel.yusi.common.task.BatchJobEngine;
 import com.aseubel.yusi.pojo.constant.AgentPersonaStyle;
 import com.aseubel.yusi.pojo.constant.ProactiveFrequency;
 import com.aseubel.yusi.pojo.constant.TaskExecutionKeys;
@@ -39,6 +40,7 @@ import java.time.LocalDateTime;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -57,6 +59,8 @@ public class AgentProactiveServiceImpl implements AgentProactiveService {
     private static final String WORKER_ID = "proactive-greeting";
     private static final String RUN_SCENE = "proactive_greeting";
     private static final String GREETING_SOURCE_ID = "greeting";
+    /** 与调度锁同名，断点和指标都按此归档 */
+    public static final String JOB_NAME = "proactive-greeting";
 
     /** 默认未互动天数阈值 */
     private static final int DEFAULT_INACTIVE_DAYS = 3;
@@ -72,6 +76,7 @@ public class AgentProactiveServiceImpl implements AgentProactiveService {
     private final ChatModel chatModel;
     private final TaskExecutionService taskExecutionService;
     private final AgentRunTraceService agentRunTraceService;
+    private final BatchJobEngine batchJobEngine;
 
     @Override
     // Called by the centralized scheduler and can also be triggered by an application workflow.
@@ -79,33 +84,10 @@ public class AgentProactiveServiceImpl implements AgentProactiveService {
         log.debug("开始扫描主动问候候选人...");
         try {
             List<User> matchEnabledUsers = userService.getMatchEnabledUsers();
-            int processed = 0;
+            String runKey = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).toString();
 
-            for (User user : matchEnabledUsers) {
-                if (processed >= MAX_BATCH_SIZE) {
-                    break;
-                }
-
-                AgentPersonaConfig config = getOrCreateConfig(user.getUserId());
-                if (!shouldConsiderGreeting(config)) {
-                    continue;
-                }
-                if (recentlyGreeted(user.getUserId(), config)) {
-                    continue;
-                }
-                if (!meetsInactiveThreshold(user.getUserId())) {
-                    continue;
-                }
-                // 不在静默时段
-                if (isInQuietHours(config)) {
-                    continue;
-                }
-
-                // 条件满足，生成主动问候通知
-                if (processGreeting(user, config)) {
-                    processed++;
-                }
-            }
+            int processed = batchJobEngine.run(JOB_NAME, runKey, matchEnabledUsers, User::getUserId,
+                    MAX_BATCH_SIZE, this::greetIfEligible).processed();
 
             if (processed > 0) {
                 log.info("主动问候扫描完成，发送了 {} 条问候通知", processed);
@@ -115,6 +97,26 @@ public class AgentProactiveServiceImpl implements AgentProactiveService {
         }
     }
 
+    private boolean greetIfEligible(User user) {
+        AgentPersonaConfig config = getOrCreateConfig(user.getUserId());
+        if (!shouldConsiderGreeting(config)) {
+            return false;
+        }
+        if (recentlyGreeted(user.getUserId(), config)) {
+            return false;
+        }
+        if (!meetsInactiveThreshold(user.getUserId())) {
+            return false;
+        }
+        // 不在静默时段
+        if (isInQuietHours(config)) {
+            return false;
+        }
+
+        // 条件满足，生成主动问候通知
+        return processGreeting(user, config);
+    }
+
     private boolean processGreeting(User user, AgentPersonaConfig config) {
         TaskExecution execution = null;
         AgentRunTraceService.RunScope scope = null;
@@ -254,7 +256,9 @@ public class AgentProactiveServiceImpl implements AgentProactiveService {
                     .build());
             AiMessage aiMessage;
             try {
-                aiMessage = chatModel.chat(UserMessage.from(prompt)).aiMessage();
+                // 问候任务已被抢占，只在模型调用这一步重试，重试用尽后回退到模板
+                aiMessage = batchJobEngine.withRetry(JOB_NAME,
+                        () -> chatModel.chat(UserMessage.from(prompt)).aiMessage());
             } finally {
                 ModelRouteContextHolder.clear();
             }
@@ -0,0 +1,192 @@
+package com.aseubel.yusi.service.ai.chat;
+
+import com.aseubel.yusi.common.event.MessageSavedEvent;
+import com.aseubel.yusi.common.event.UserContextChangedEvent;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * System Message 上下文快照的进程内缓存。
+ *
+ * 每个用户的快照记录构建时的版本号，版本号按 userId 哈希分段保存在 {@link AtomicLongArray} 中：
+ * 收到 {@link UserContextChangedEvent}（事务提交后）时递增对应分段，读取时版本不一致即视为失效并重建。
+ * 构建前先读取版本号，构建期间发生的变更会让这份快照在下一次读取时直接失效，不会把旧数据当成新版本缓存。
+ * 单个用户的失效同时通过 Redis 频道广播，其他实例收到后同样递增版本；广播丢失时由 TTL 兜底收敛。
+ */
+@Slf4j
+@Component
+public class ChatContextSnapshotCache {
+
+    static final String INVALIDATION_CHANNEL = "chat:context-snapshot:invalidate";
+    private static final int VERSION_STRIPES = 1024;
+
+    private final boolean enabled;
+    private final Cache<String, ChatContextSnapshot> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final YusiMetrics metrics;
+    private final RedissonClient redissonClient;
+    private final String channel;
+
+    public ChatContextSnapshotCache(boolean enabled, long maxSize, long ttlSeconds) {
+        this(enabled, maxSize, ttlSeconds, null);
+    }
+
+    public ChatContextSnapshotCache(boolean enabled, long maxSize, long ttlSeconds, YusiMetrics metrics) {
+        this(enabled, maxSize, ttlSeconds, metrics, (RedissonClient) null, "yusi:");
+    }
+
+    @Autowired
+    public ChatContextSnapshotCache(
+            @Value("${yusi.chat.context-snapshot.enabled:true}") boolean enabled,
+            @Value("${yusi.chat.context-snapshot.max-size:10000}") long maxSize,
+            @Value("${yusi.chat.context-snapshot.ttl-seconds:600}") long ttlSeconds,
+            YusiMetrics metrics,
+            ObjectProvider<RedissonClient> redissonClient,
+            @Value("${spring.cache.redis.key-prefix:yusi:}") String keyPrefix) {
+        this(enabled, maxSize, ttlSeconds, metrics, redissonClient.getIfAvailable(), keyPrefix);
+    }
+
+    ChatContextSnapshotCache(boolean enabled, long maxSize, long ttlSeconds, YusiMetrics metrics,
+            RedissonClient redissonClient, String keyPrefix) {
+        this.enabled = enabled && maxSize > 0;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, maxSize))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1L, ttlSeconds)))
+                .build();
+        this.metrics = metrics;
+        this.redissonClient = redissonClient;
+        this.channel = keyPrefix + INVALIDATION_CHANNEL;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (redissonClient == null) {
+            return;
+        }
+        redissonClient.getTopic(channel, StringCodec.INSTANCE)
+                .addListener(String.class, (ignored, userId) -> invalidateLocal(userId));
+    }
+
+    /**
+     * 获取用户的上下文快照，缺失或版本过期时调用 loader 重建
+     */
+    public ChatContextSnapshot get(String userId, Function<String, ChatContextSnapshot.Sections> loader) {
+        long version = versions.get(stripe(userId));
+        if (!enabled) {
+            return new ChatContextSnapshot(version, loader.apply(userId));
+        }
+        ChatContextSnapshot cached = cache.getIfPresent(userId);
+        if (cached != null && cached.version() == version) {
+            record("hit");
+            return cached;
+        }
+        record("miss");
+        ChatContextSnapshot rebuilt = new ChatContextSnapshot(version, loader.apply(userId));
+        cache.put(userId, rebuilt);
+        return rebuilt;
+    }
+
+    /**
+     * 失效本实例的快照并广播给其他实例，用于注销账号等不发布上下文变更事件的批量删除
+     */
+    public void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidateLocal(userId);
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            redissonClient.getTopic(channel, StringCodec.INSTANCE).publish(userId);
+        } catch (RuntimeException e) {
+            log.warn("Chat context snapshot invalidation publish failed: operation=context_snapshot_invalidate");
+        }
+    }
+
+    void invalidateLocal(String userId) {
+        if (userId == null || userId.isEmpty()) {
+            return;
+        }
+        versions.incrementAndGet(stripe(userId));
+        cache.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 上下文输入变更：事务提交后再递增版本，保证重建时能读到已提交的数据
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserContextChanged(UserContextChangedEvent event) {
+        log.debug("Chat context snapshot invalidated: userId={}, section={}", event.getUserId(), event.getSection());
+        invalidate(event.getUserId());
+    }
+
+    /**
+     * AI 回复落库意味着用户又完成了一轮对话，只累加快照里的轮数，不触发重建
+     */
+    @EventListener
+    public void onMessageSaved(MessageSavedEvent event) {
+        if (event.getMemoryId() == null) {
+            return;
+        }
+        ChatContextSnapshot cached = cache.getIfPresent(event.getMemoryId());
+        if (cached != null) {
+            cached.chatTurns().incrementAndGet();
+        }
+    }
+
+    private int stripe(String userId) {
+        return Math.floorMod(userId.hashCode(), VERSION_STRIPES);
+    }
+
+    private void record(String result) {
+        if (metrics != null) {
+            metrics.recordChatContextSnapshotCache(result);
+        }
+    }
+
+    /**
+     * 用户上下文快照：需要查库的 System Message 段落，以及用于推导关系阶段的对话轮数。
+     * 人格风格只记录风格编码，具体文案在渲染时从提示词解析，提示词热更新无需失效快照
+     */
+    public record ChatContextSnapshot(long version, String personalityStyle, boolean proactive, String userProfile,
+            String midMemory, String cognitiveConflicts, AtomicLong chatTurns) {
+
+        ChatContextSnapshot(long version, Sections sections) {
+            this(version, sections.personalityStyle(), sections.proactive(), sections.userProfile(),
+                    sections.midMemory(), sections.cognitiveConflicts(), new AtomicLong(sections.chatTurns()));
+        }
+
+        public record Sections(String personalityStyle, boolean proactive, String userProfile, String midMemory,
+                String cognitiveConflicts, long chatTurns) {
+        }
+    }
+}
@@ -27,6 +27,7 @@ import dev.langchain4j.data.message.SystemMessage;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -75,6 +76,12 @@ public class ContextBuilderService {
     private final MidTermMemoryRepository midTermMemoryRepository;
     private final CognitiveConflictDetector conflictDetector;
     private final ObjectMapper objectMapper;
+    private final ChatContextSnapshotCache snapshotCache;
+
+    /**
+     * 最近一次解析的人格风格配置，提示词内容未变化时复用，避免每次构建都重新反序列化 JSON
+     */
+    private volatile ParsedPersonaStyles parsedPersonaStyles;
 
     /**
      * 构建 System Message 内容
@@ -89,17 +96,20 @@ public class ContextBuilderService {
         String basePrompt = loadBasePrompt();
         log.debug("Building system message for user: {}, basePrompt length: {}", userId, basePrompt.length());
 
+        // 除时间上下文外，需要查库的段落来自按版本失效的用户快照
+        ChatContextSnapshotCache.ChatContextSnapshot snapshot = snapshotCache.get(userId, this::loadSnapshotSections);
+
         StringBuilder systemMessage = new StringBuilder();
         systemMessage.append(basePrompt).append("\n\n");
         systemMessage.append(CONTEXT_START).append("\n");
 
         injectTimeContext(systemMessage);
-        injectAgentPersona(systemMessage, userId);
-        injectUserProfile(systemMessage, userId);
-        injectMidMemoryContext(systemMessage, userId);
-        injectCognitiveConflicts(systemMessage, userId);
+        injectAgentPersona(systemMessage, snapshot.personalityStyle(), snapshot.proactive());
+        systemMessage.append(snapshot.userProfile());
+        systemMessage.append(snapshot.midMemory());
+        systemMessage.append(snapshot.cognitiveConflicts());
         injectMemoryGuidelines(systemMessage);
-        injectRelationshipStage(systemMessage, userId);
+        injectRelationshipStage(systemMessage, snapshot.chatTurns().get());
 
         systemMessage.append(CONTEXT_END).append("\n");
 
@@ -108,6 +118,29 @@ public class ContextBuilderService {
         return result;
     }
 
+    /**
+     * 查库构建用户快照的各个段落
+     */
+    private ChatContextSnapshotCache.ChatContextSnapshot.Sections loadSnapshotSections(String userId) {
+        AgentPersonaConfig config = agentPersonaConfigRepository.findByUserId(userId).orElse(null);
+        if (config == null) {
+            config = AgentPersonaConfig.builder().userId(userId).build();
+        }
+        boolean proactive = ProactiveFrequency.fromCode(config.getProactiveFrequency()) != ProactiveFrequency.OFF;
+
+        StringBuilder userProfile = new StringBuilder();
+        injectUserProfile(userProfile, userId);
+        StringBuilder midMemory = new StringBuilder();
+        injectMidMemoryContext(midMemory, userId);
+        StringBuilder conflicts = new StringBuilder();
+        injectCognitiveConflicts(conflicts, userId);
+        // 获取用户的对话轮数 (以用户发言次数作为轮数)
+        long chatTurns = chatMemoryMessageRepository.countByMemoryIdAndRole(userId, "user");
+
+        return new ChatContextSnapshotCache.ChatContextSnapshot.Sections(config.getPersonalityStyle(), proactive,
+                userProfile.toString(), midMemory.toString(), conflicts.toString(), chatTurns);
+    }
+
     /**
      * 构建 System Message 对象
      * 用于 LangChain4j 的 AI 服务
@@ -187,19 +220,13 @@ public class ContextBuilderService {
     /**
      * 注入 Agent 人格配置，让 Agent 保持稳定的性格和陪伴风格。
      */
-    private void injectAgentPersona(StringBuilder sb, String userId) {
-        AgentPersonaConfig config = agentPersonaConfigRepository.findByUserId(userId).orElse(null);
-        if (config == null) {
-            config = AgentPersonaConfig.builder().userId(userId).build();
-        }
-
+    private void injectAgentPersona(StringBuilder sb, String style, boolean proactive) {
         sb.append("    ").append(AGENT_PERSONA_START).append("\n");
 
-        String style = config.getPersonalityStyle();
         String personaInstruction = resolvePersonaInstruction(style);
         sb.append("        ").append("<style>").append(personaInstruction).append("</style>").append("\n");
 
-        if (ProactiveFrequency.fromCode(config.getProactiveFrequency()) != ProactiveFrequency.OFF) {
+        if (proactive) {
             sb.append("        ").append("<proactive>").append("你在合适的时机关心对方的状态，但始终保持舒适的距离感。")
                     .append("</proactive>").append("\n");
         }
@@ -209,12 +236,18 @@ public class ContextBuilderService {
 
     /**
      * 从 PromptManager 解析 JSON 格式的人格风格配置，支持管理后台热更新。
+     * 解析结果按提示词原文缓存，提示词被热更新后内容不同，会自动重新解析。
      */
     private String resolvePersonaInstruction(String style) {
         try {
             String personaJson = promptManager.getPrompt(PromptKey.AGENT_PERSONA);
-            java.util.Map<String, String> styles = objectMapper.readValue(
-                    personaJson, new TypeReference<java.util.Map<String, String>>() {});
+            ParsedPersonaStyles parsed = parsedPersonaStyles;
+            if (parsed == null || !parsed.json().equals(personaJson)) {
+                parsed = new ParsedPersonaStyles(personaJson, objectMapper.readValue(
+                        personaJson, new TypeReference<Map<String, String>>() {}));
+                parsedPersonaStyles = parsed;
+            }
+            Map<String, String> styles = parsed.styles();
             return styles.getOrDefault(style, styles.getOrDefault("default",
                     "你是一个温柔、善解人意的知己。"));
         } catch (Exception e) {
@@ -281,10 +314,7 @@ public class ContextBuilderService {
     }
 
     // 在 ContextBuilderService 中注入关系阶段
-    private void injectRelationshipStage(StringBuilder sb, String userId) {
-        // 获取用户的对话轮数 (以用户发言次数作为轮数)
-        long chatTurns = chatMemoryMessageRepository.countByMemoryIdAndRole(userId, "user");
-
+    private void injectRelationshipStage(StringBuilder sb, long chatTurns) {
         sb.append("    <relationship_stage>\n");
         if (chatTurns < 10) {
             sb.append("        你们刚刚认识，这是前几次交流。请保持友好、好奇但克制的距离感，不要假装你们有很久的过去，不要凭空捏造回忆。\n");
@@ -302,4 +332,7 @@ public class ContextBuilderService {
     private String loadBasePrompt() {
         return promptManager.getPrompt(PromptKey.CHAT);
     }
+
+    private record ParsedPersonaStyles(String json, Map<String, String> styles) {
+    }
 }
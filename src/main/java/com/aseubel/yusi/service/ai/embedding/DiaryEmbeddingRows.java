@@ -0,0 +1,56 @@
+package com.aseubel.yusi.service.ai.embedding;
+
+import com.aseubel.yusi.pojo.entity.Diary;
+import com.aseubel.yusi.service.ai.rag.DiaryChunker;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.List;
+
+/**
+ * 日记分片写入 Milvus 的行格式，增量批处理与影子集合重建共用，保证两条写入路径的元数据一致。
+ */
+final class DiaryEmbeddingRows {
+
+    /**
+     * 随整篇日记变化、而不随分片内容变化的元数据字段；分片内容未变但这些字段变了时也要重写该行
+     */
+    static final List<String> DOCUMENT_METADATA_FIELDS = List.of("chunkCount", "sourceRevision", "entryDate");
+
+    private DiaryEmbeddingRows() {
+    }
+
+    static String chunkId(DiaryChunker.DiaryChunk chunk) {
+        return chunk.diaryId() + "_" + chunk.index();
+    }
+
+    static JsonObject toRow(DiaryChunker.DiaryChunk chunk, float[] vector, Diary diary, Long sourceRevision) {
+        JsonObject row = new JsonObject();
+        row.addProperty("id", chunkId(chunk));
+        row.addProperty("text", chunk.text());
+
+        JsonArray vectorArray = new JsonArray();
+        for (float v : vector) {
+            vectorArray.add(v);
+        }
+        row.add("vector", vectorArray);
+        row.add("metadata", metadata(chunk, diary, sourceRevision));
+        return row;
+    }
+
+    static JsonObject metadata(DiaryChunker.DiaryChunk chunk, Diary diary, Long sourceRevision) {
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("userId", diary.getUserId());
+        metadata.addProperty("diaryId", chunk.diaryId());
+        metadata.addProperty("chunkIndex", chunk.index());
+        metadata.addProperty("chunkCount", chunk.count());
+        metadata.addProperty("contentHash", chunk.contentHash());
+        if (sourceRevision != null) {
+            metadata.addProperty("sourceRevision", sourceRevision);
+        }
+        if (diary.getEntryDate() != null) {
+            metadata.addProperty("entryDate", diary.getEntryDate().toString());
+        }
+        return metadata;
+    }
+}
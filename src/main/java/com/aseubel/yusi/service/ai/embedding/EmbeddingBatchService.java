@@ -1,5 +1,7 @@
 package com.aseubel.yusi.service.ai.embedding;
 
+import com.aseubel.yusi.common.task.TaskWakeup;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
 import com.aseubel.yusi.pojo.entity.Diary;
 import com.aseubel.yusi.pojo.entity.EmbeddingTask;
 import com.aseubel.yusi.pojo.entity.User;
@@ -12,14 +14,14 @@ import com.aseubel.yusi.service.diary.DiaryService;
 import com.aseubel.yusi.service.ai.rag.DiaryChunker;
 import com.aseubel.yusi.service.task.TaskExecutionService;
 
-import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.ai.retrieval.MilvusHybridRetrievalBackend;
 import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.service.vector.request.InsertReq;
-import io.milvus.v2.service.vector.request.DeleteReq;
 import dev.langchain4j.data.embedding.Embedding;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -41,19 +43,62 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class EmbeddingBatchService {
 
+    private static final String COLLECTION = "yusi_embedding_collection";
+
     private final EmbeddingTaskRepository taskRepository;
     private final EmbeddingTaskClaimService taskClaimService;
     private final EmbeddingTaskMaintenanceService taskMaintenanceService;
     private final DiaryRepository diaryRepository;
     private final UserRepository userRepository;
-    private final MilvusClientV2 milvusClientV2;
+    private final HybridRetrievalBackend retrievalBackend;
     private final EmbeddingGateway embeddingGateway;
     private final DiaryChunker diaryChunker;
     private final DiaryService diaryService;
     private final TaskExecutionService taskExecutionService;
+    private final YusiMetrics metrics;
+
+    public EmbeddingBatchService(EmbeddingTaskRepository taskRepository,
+            EmbeddingTaskClaimService taskClaimService,
+            EmbeddingTaskMaintenanceService taskMaintenanceService,
+            DiaryRepository diaryRepository,
+            UserRepository userRepository,
+            MilvusClientV2 milvusClientV2,
+            EmbeddingGateway embeddingGateway,
+            DiaryChunker diaryChunker,
+            DiaryService diaryService,
+            TaskExecutionService taskExecutionService,
+            YusiMetrics metrics) {
+        this(taskRepository, taskClaimService, taskMaintenanceService, diaryRepository, userRepository,
+                new MilvusHybridRetrievalBackend(milvusClientV2), embeddingGateway, diaryChunker, diaryService,
+                taskExecutionService, metrics);
+    }
+
+    @Autowired
+    public EmbeddingBatchService(EmbeddingTaskRepository taskRepository,
+            EmbeddingTaskClaimService taskClaimService,
+            EmbeddingTaskMaintenanceService taskMaintenanceService,
+            DiaryRepository diaryRepository,
+            UserRepository userRepository,
+            HybridRetrievalBackend retrievalBackend,
+            EmbeddingGateway embeddingGateway,
+            DiaryChunker diaryChunker,
+            DiaryService diaryService,
+            TaskExecutionService taskExecutionService,
+            YusiMetrics metrics) {
+        this.taskRepository = taskRepository;
+        this.taskClaimService = taskClaimService;
+        this.taskMaintenanceService = taskMaintenanceService;
+        this.diaryRepository = diaryRepository;
+        this.userRepository = userRepository;
+        this.retrievalBackend = retrievalBackend;
+        this.embeddingGateway = embeddingGateway;
+        this.diaryChunker = diaryChunker;
+        this.diaryService = diaryService;
+        this.taskExecutionService = taskExecutionService;
+        this.metrics = metrics;
+    }
 
     /**
      * 每批处理的最大任务数
@@ -63,24 +108,35 @@ public class EmbeddingBatchService {
     private static final String WORKER_ID = "embedding-batch";
 
     /**
-     * 定时扫描并处理待处理任务
-     * 每秒执行一次，将多个日记变更打包成批处理
+     * 扫描并处理待处理任务，将多个日记变更打包成批处理
+     * 由调度器在收到入队通知或自适应轮询到期时调用
+     *
+     * @return 本次抢占到的任务数
      */
-    public void processPendingTasks() {
+    public int processPendingTasks() {
         LocalDateTime now = LocalDateTime.now();
 
         // 1. 在短事务内获取并抢占任务
+        long stageStartedAt = System.nanoTime();
         List<EmbeddingTask> tasks = taskClaimService.claimPendingTasks(now, BATCH_SIZE);
         if (tasks.isEmpty()) {
-            return;
+            return 0;
         }
 
         for (EmbeddingTask task : tasks) {
             claimExecution(task, now);
+            metrics.recordTaskPickupLatency(TaskWakeup.EMBEDDING,
+                    TaskWakeup.pickupLatencyMillis(task.getCreatedAt(), task.getNextRetryAt(), now));
         }
+        recordStage("embedding-claim", stageStartedAt, tasks.size());
 
         log.info("开始处理 {} 个 Embedding 任务", tasks.size());
 
+        // 批量预取本批次涉及的日记与用户 RAG 设置，避免逐任务查询
+        stageStartedAt = System.nanoTime();
+        BatchContext context = prefetch(tasks);
+        recordStage("embedding-load", stageStartedAt, context.diaries().size() + context.users().size());
+
         // 2. 分组处理：UPSERT 和 DELETE 分开处理。外部调用不在数据库事务内。
         Map<EmbeddingTask.TaskType, List<EmbeddingTask>> grouped = tasks.stream()
                 .collect(Collectors.groupingBy(EmbeddingTask::getTaskType));
@@ -88,14 +144,15 @@ public class EmbeddingBatchService {
         // 处理 UPSERT 任务（批量）
         List<EmbeddingTask> upsertTasks = grouped.getOrDefault(EmbeddingTask.TaskType.UPSERT, List.of());
         if (!upsertTasks.isEmpty()) {
-            processUpsertBatch(upsertTasks, now);
+            processUpsertBatch(upsertTasks, context, now);
         }
 
         // 处理 DELETE 任务
         List<EmbeddingTask> deleteTasks = grouped.getOrDefault(EmbeddingTask.TaskType.DELETE, List.of());
         for (EmbeddingTask task : deleteTasks) {
-            processDeleteTask(task, now);
+            processDeleteTask(task, context, now);
         }
+        return tasks.size();
     }
 
     /**
@@ -115,27 +172,19 @@ public class EmbeddingBatchService {
     /**
      * 批量处理 UPSERT 任务
      */
-    private void processUpsertBatch(List<EmbeddingTask> tasks, LocalDateTime now) {
-        // 收集所有需要处理的日记 ID
-        Set<String> diaryIds = tasks.stream()
-                .map(EmbeddingTask::getDiaryId)
-                .collect(Collectors.toSet());
-
-        // 批量查询日记
+    private void processUpsertBatch(List<EmbeddingTask> tasks, BatchContext context, LocalDateTime now) {
+        // 同一日记只取其首个任务所属用户的日记，与逐条查询时的语义保持一致
         Map<String, Diary> diaryMap = new HashMap<>();
-        for (String diaryId : diaryIds) {
-            String userId = tasks.stream()
-                    .filter(task -> diaryId.equals(task.getDiaryId()))
-                    .map(EmbeddingTask::getUserId)
-                    .findFirst()
-                    .orElse(null);
-            Diary diary = userId == null ? null : diaryRepository.findByDiaryIdAndUserId(diaryId, userId);
-            if (diary != null) {
-                diaryMap.put(diaryId, diary);
+        for (EmbeddingTask task : tasks) {
+            if (!diaryMap.containsKey(task.getDiaryId())) {
+                Diary diary = context.diary(task.getDiaryId(), task.getUserId());
+                diaryMap.put(task.getDiaryId(), diary);
             }
         }
+        diaryMap.values().removeIf(Objects::isNull);
 
         // 准备批量 Embedding 数据
+        long stageStartedAt = System.nanoTime();
         List<DiaryChunker.DiaryChunk> allChunks = new ArrayList<>();
         List<EmbeddingTask> successTasks = new ArrayList<>();
         Map<String, EmbeddingTask> taskByDiaryId = new HashMap<>();
@@ -160,7 +209,7 @@ public class EmbeddingBatchService {
             }
 
             // 检查用户隐私设置
-            if (!isRagAllowed(task.getUserId())) {
+            if (!isRagAllowed(context.users().get(task.getUserId()))) {
                 log.info("用户 {} 不允许 RAG，标记任务 {} 为完成", task.getUserId(), task.getId());
                 markCompleted(task, now);
                 continue;
@@ -194,76 +243,76 @@ public class EmbeddingBatchService {
         }
 
         if (allChunks.isEmpty()) {
+            recordStage("embedding-chunk", stageStartedAt, 0);
             return;
         }
 
+        String stage = "embedding-chunk";
         try {
-            // 批量删除旧 Embedding
-            for (String id : toRemoveIds) {
-                try {
-                    milvusClientV2.delete(DeleteReq.builder()
-                            .collectionName("yusi_embedding_collection")
-                            .filter("id like '" + id + "_%'")
-                            .build());
-                } catch (Exception e) {
-                    log.warn("删除旧 Embedding {} 失败: {}", id, e.getMessage());
+            // 按内容哈希比对已入库分片，只为新增或变化的分片调用 Embedding
+            ChunkPlan plan = planChunks(allChunks, toRemoveIds, diaryMap, taskByDiaryId);
+            recordStage(stage, stageStartedAt, allChunks.size());
+
+            List<ChunkVector> rowsToWrite = new ArrayList<>(plan.reused());
+            EmbeddingGateway.EmbeddingBatchResult embeddingResult = null;
+            if (!plan.toEmbed().isEmpty()) {
+                // 批量调用 Embedding API（先向量化再删旧数据，向量化失败时旧向量仍可检索）
+                stage = "embedding-embed";
+                stageStartedAt = System.nanoTime();
+                embeddingResult = embeddingGateway.embedAll(plan.toEmbed().stream()
+                        .map(chunk -> dev.langchain4j.data.segment.TextSegment.from(chunk.text()))
+                        .toList());
+                List<Embedding> embeddings = embeddingResult.embeddings();
+                for (int i = 0; i < plan.toEmbed().size(); i++) {
+                    rowsToWrite.add(new ChunkVector(plan.toEmbed().get(i), embeddings.get(i).vector()));
                 }
+                recordStage(stage, stageStartedAt, plan.toEmbed().size());
             }
 
-            // 批量调用 Embedding API
-            EmbeddingGateway.EmbeddingBatchResult embeddingResult = embeddingGateway.embedAll(allChunks.stream()
-                    .map(chunk -> dev.langchain4j.data.segment.TextSegment.from(chunk.text()))
-                    .toList());
-            List<Embedding> embeddings = embeddingResult.embeddings();
-
-            // 批量写入 Milvus（使用 V2 客户端，避免 text_sparse 字段校验问题）
-            List<JsonObject> insertData = new ArrayList<>();
-            for (int i = 0; i < allChunks.size(); i++) {
-                DiaryChunker.DiaryChunk chunk = allChunks.get(i);
-                JsonObject row = new JsonObject();
-                row.addProperty("id", chunkId(chunk));
-                row.addProperty("text", chunk.text());
-
-                JsonArray vectorArray = new JsonArray();
-                for (float v : embeddings.get(i).vector()) {
-                    vectorArray.add(v);
-                }
-                row.add("vector", vectorArray);
-
-                JsonObject metadata = new JsonObject();
-                Diary diary = diaryMap.get(chunk.diaryId());
-                metadata.addProperty("userId", diary.getUserId());
-                metadata.addProperty("diaryId", chunk.diaryId());
-                metadata.addProperty("chunkIndex", chunk.index());
-                metadata.addProperty("chunkCount", chunk.count());
-                EmbeddingTask task = taskByDiaryId.get(diary.getDiaryId());
-                if (task != null && task.getSourceRevision() != null) {
-                    metadata.addProperty("sourceRevision", task.getSourceRevision());
-                }
-                if (diary.getEntryDate() != null) {
-                    metadata.addProperty("entryDate", diary.getEntryDate().toString());
+            stage = "embedding-write";
+            stageStartedAt = System.nanoTime();
+
+            // 删除旧 Embedding：增量模式只删除失效/变化的分片，无法读取旧分片时按日记整体删除
+            if (plan.incremental()) {
+                deleteChunkIds(plan.staleIds());
+            } else {
+                for (String id : toRemoveIds) {
+                    try {
+                        deleteEmbeddings(id);
+                    } catch (Exception e) {
+                        log.warn("删除旧 Embedding {} 失败: {}", id, e.getMessage());
+                    }
                 }
-                row.add("metadata", metadata);
-
-                insertData.add(row);
             }
 
-            InsertReq insertReq = InsertReq.builder()
-                    .collectionName("yusi_embedding_collection")
-                    .data(insertData)
-                    .build();
-            milvusClientV2.insert(insertReq);
+            if (!rowsToWrite.isEmpty()) {
+                // 批量写入检索后端（Milvus 走 V2 客户端，避免 text_sparse 字段校验问题）
+                List<JsonObject> insertData = new ArrayList<>();
+                for (ChunkVector chunkVector : rowsToWrite) {
+                    DiaryChunker.DiaryChunk chunk = chunkVector.chunk();
+                    EmbeddingTask task = taskByDiaryId.get(chunk.diaryId());
+                    insertData.add(DiaryEmbeddingRows.toRow(chunk, chunkVector.vector(), diaryMap.get(chunk.diaryId()),
+                            task == null ? null : task.getSourceRevision()));
+                }
+                retrievalBackend.insert(COLLECTION, insertData);
+            }
 
             // 标记所有成功的任务
             for (EmbeddingTask task : successTasks) {
                 markCompleted(task, now);
             }
+            recordStage(stage, stageStartedAt, rowsToWrite.size() + plan.staleIds().size());
 
-            log.info("批量写入 {} 个 Embedding 完成，涉及 {} 个任务，模型={}，维度={}，输入Token={}，耗时={}ms",
-                    embeddings.size(), successTasks.size(), embeddingResult.modelName(),
-                    embeddingResult.dimension(), embeddingResult.inputTokenCount(), embeddingResult.latencyMillis());
+            log.info("批量写入 {} 个 Embedding 完成（新向量化 {}，复用向量 {}，未变化 {}，删除 {}），涉及 {} 个任务，模型={}，维度={}，输入Token={}，耗时={}ms",
+                    rowsToWrite.size(), plan.toEmbed().size(), plan.reused().size(), plan.unchangedCount(),
+                    plan.staleIds().size(), successTasks.size(),
+                    embeddingResult == null ? null : embeddingResult.modelName(),
+                    embeddingResult == null ? null : embeddingResult.dimension(),
+                    embeddingResult == null ? null : embeddingResult.inputTokenCount(),
+                    embeddingResult == null ? 0 : embeddingResult.latencyMillis());
 
         } catch (Exception e) {
+            recordStage(stage, "failure", stageStartedAt, 0);
             log.error("批量处理 UPSERT 任务失败", e);
             // 增加重试次数
             for (EmbeddingTask task : successTasks) {
@@ -272,16 +321,221 @@ public class EmbeddingBatchService {
         }
     }
 
+    /**
+     * 比对新分片与 Milvus 中已有分片的内容哈希：
+     * 同 ID 同哈希且分片数、修订号、日期都没变的分片跳过；同哈希但这些整篇字段变了的分片用旧向量重写元数据；
+     * 哈希在同一日记的旧分片中出现过则复用旧向量；其余分片才需要重新向量化。
+     * 旧分片中不再存在或需要重写的 ID 需要删除。读取旧分片失败时退化为整篇日记重建。
+     */
+    private ChunkPlan planChunks(List<DiaryChunker.DiaryChunk> chunks, List<String> diaryIds,
+            Map<String, Diary> diaryMap, Map<String, EmbeddingTask> taskByDiaryId) {
+        Map<String, StoredChunk> storedChunks;
+        try {
+            storedChunks = loadStoredChunks(diaryIds);
+        } catch (Exception e) {
+            log.warn("读取已有 Embedding 分片失败，退化为整篇重建: {}", e.getMessage());
+            return new ChunkPlan(false, chunks, List.of(), List.of(), 0);
+        }
+
+        Map<String, float[]> vectorsByDiaryAndHash = new HashMap<>();
+        for (StoredChunk stored : storedChunks.values()) {
+            if (stored.contentHash() != null && stored.vector() != null) {
+                vectorsByDiaryAndHash.putIfAbsent(stored.diaryId() + ":" + stored.contentHash(), stored.vector());
+            }
+        }
+
+        List<DiaryChunker.DiaryChunk> toEmbed = new ArrayList<>();
+        List<ChunkVector> reused = new ArrayList<>();
+        Set<String> staleIds = new LinkedHashSet<>();
+        Set<String> currentIds = new HashSet<>();
+        int unchanged = 0;
+        for (DiaryChunker.DiaryChunk chunk : chunks) {
+            String id = chunkId(chunk);
+            String hash = chunk.contentHash();
+            currentIds.add(id);
+            StoredChunk stored = storedChunks.get(id);
+            if (stored != null && hash.equals(stored.contentHash())) {
+                EmbeddingTask task = taskByDiaryId.get(chunk.diaryId());
+                JsonObject expected = DiaryEmbeddingRows.metadata(chunk, diaryMap.get(chunk.diaryId()),
+                        task == null ? null : task.getSourceRevision());
+                if (sameDocumentMetadata(stored.metadata(), expected)) {
+                    unchanged++;
+                    continue;
+                }
+                if (stored.vector() != null) {
+                    staleIds.add(id);
+                    reused.add(new ChunkVector(chunk, stored.vector()));
+                    continue;
+                }
+            }
+            if (stored != null) {
+                staleIds.add(id);
+            }
+            float[] vector = vectorsByDiaryAndHash.get(chunk.diaryId() + ":" + hash);
+            if (vector != null) {
+                reused.add(new ChunkVector(chunk, vector));
+            } else {
+                toEmbed.add(chunk);
+            }
+        }
+        for (String storedId : storedChunks.keySet()) {
+            if (!currentIds.contains(storedId)) {
+                staleIds.add(storedId);
+            }
+        }
+        return new ChunkPlan(true, toEmbed, reused, new ArrayList<>(staleIds), unchanged);
+    }
+
+    private Map<String, StoredChunk> loadStoredChunks(List<String> diaryIds) {
+        if (diaryIds.isEmpty()) {
+            return Map.of();
+        }
+        String filter = diaryIds.stream()
+                .map(id -> "id like '" + id + "_%'")
+                .collect(Collectors.joining(" or "));
+        List<Map<String, Object>> rows = retrievalBackend.query(COLLECTION, filter, List.of("id", "metadata", "vector"));
+        Map<String, StoredChunk> stored = new HashMap<>();
+        for (Map<String, Object> entity : rows) {
+            Object id = entity.get("id");
+            if (id == null) {
+                continue;
+            }
+            Object metadata = entity.get("metadata");
+            stored.put(id.toString(), new StoredChunk(
+                    metadataString(metadata, "diaryId"),
+                    metadataString(metadata, "contentHash"),
+                    metadata,
+                    toVector(entity.get("vector"))));
+        }
+        return stored;
+    }
+
+    private boolean sameDocumentMetadata(Object storedMetadata, JsonObject expected) {
+        for (String field : DiaryEmbeddingRows.DOCUMENT_METADATA_FIELDS) {
+            String expectedValue = expected.has(field) ? expected.get(field).getAsString() : null;
+            if (!Objects.equals(metadataString(storedMetadata, field), expectedValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String metadataString(Object metadataValue, String key) {
+        if (metadataValue instanceof Map<?, ?> metadata) {
+            Object value = metadata.get(key);
+            // JSON 数字反序列化后可能是 Double，整数值统一按整数比较
+            if (value instanceof Number number && number.doubleValue() == Math.rint(number.doubleValue())) {
+                return String.valueOf(number.longValue());
+            }
+            return value == null ? null : value.toString();
+        }
+        if (metadataValue instanceof JsonObject metadata && metadata.has(key)) {
+            JsonElement value = metadata.get(key);
+            return value.isJsonPrimitive() ? value.getAsString() : null;
+        }
+        return null;
+    }
+
+    private float[] toVector(Object value) {
+        if (!(value instanceof List<?> list) || list.isEmpty()) {
+            return null;
+        }
+        float[] vector = new float[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            if (!(list.get(i) instanceof Number number)) {
+                return null;
+            }
+            vector[i] = number.floatValue();
+        }
+        return vector;
+    }
+
+    /**
+     * 失效分片会以原 ID 重新写入，删除失败时必须中止本批次走重试，否则同一 ID 会留下新旧两行
+     */
+    private void deleteChunkIds(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        retrievalBackend.deleteByIds(COLLECTION, ids);
+    }
+
+    /**
+     * 一次性批量加载本批次任务涉及的日记与用户，替代逐任务的 findByDiaryIdAndUserId / findByUserId
+     */
+    private BatchContext prefetch(List<EmbeddingTask> tasks) {
+        Set<String> userIds = new HashSet<>();
+        Set<String> diaryIds = new HashSet<>();
+        Set<String> upsertUserIds = new HashSet<>();
+        for (EmbeddingTask task : tasks) {
+            if (task.getUserId() == null || task.getDiaryId() == null) {
+                continue;
+            }
+            userIds.add(task.getUserId());
+            diaryIds.add(task.getDiaryId());
+            if (task.getTaskType() == EmbeddingTask.TaskType.UPSERT) {
+                upsertUserIds.add(task.getUserId());
+            }
+        }
+
+        Map<String, Diary> diaries = new HashMap<>();
+        if (!diaryIds.isEmpty()) {
+            for (Diary diary : diaryRepository.findByUserIdInAndDiaryIdIn(userIds, diaryIds)) {
+                diaries.put(diaryKey(diary.getDiaryId(), diary.getUserId()), diary);
+            }
+        }
+        Map<String, User> users = new HashMap<>();
+        if (!upsertUserIds.isEmpty()) {
+            for (User user : userRepository.findByUserIdIn(upsertUserIds)) {
+                users.put(user.getUserId(), user);
+            }
+        }
+        return new BatchContext(diaries, users);
+    }
+
+    private static String diaryKey(String diaryId, String userId) {
+        return userId + ":" + diaryId;
+    }
+
+    private void recordStage(String stage, long startedAt, int itemCount) {
+        recordStage(stage, "success", startedAt, itemCount);
+    }
+
+    private void recordStage(String stage, String result, long startedAt, int itemCount) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.recordEmbeddingBatchStage(stage, result,
+                java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), itemCount);
+    }
+
+    private record BatchContext(Map<String, Diary> diaries, Map<String, User> users) {
+
+        Diary diary(String diaryId, String userId) {
+            return diaryId == null || userId == null ? null : diaries.get(diaryKey(diaryId, userId));
+        }
+    }
+
+    private record StoredChunk(String diaryId, String contentHash, Object metadata, float[] vector) {
+    }
+
+    private record ChunkVector(DiaryChunker.DiaryChunk chunk, float[] vector) {
+    }
+
+    private record ChunkPlan(boolean incremental, List<DiaryChunker.DiaryChunk> toEmbed, List<ChunkVector> reused,
+            List<String> staleIds, int unchangedCount) {
+    }
+
     private String chunkId(DiaryChunker.DiaryChunk chunk) {
-        return chunk.diaryId() + "_" + chunk.index();
+        return DiaryEmbeddingRows.chunkId(chunk);
     }
 
     /**
      * 处理单个 DELETE 任务
      */
-    private void processDeleteTask(EmbeddingTask task, LocalDateTime now) {
+    private void processDeleteTask(EmbeddingTask task, BatchContext context, LocalDateTime now) {
         try {
-            Diary currentDiary = diaryRepository.findByDiaryIdAndUserId(task.getDiaryId(), task.getUserId());
+            Diary currentDiary = context.diary(task.getDiaryId(), task.getUserId());
             if (currentDiary != null && isSuperseded(task.getSourceRevision(), currentDiary.getSourceRevision())) {
                 markCompleted(task, now);
                 return;
@@ -317,10 +571,7 @@ public class EmbeddingBatchService {
     }
 
     private void deleteEmbeddings(String diaryId) {
-        milvusClientV2.delete(DeleteReq.builder()
-                .collectionName("yusi_embedding_collection")
-                .filter("id like '" + diaryId + "_%'")
-                .build());
+        retrievalBackend.delete(COLLECTION, "id like '" + diaryId + "_%'");
     }
 
     private boolean isSuperseded(Long taskRevision, Long currentRevision) {
@@ -342,8 +593,7 @@ public class EmbeddingBatchService {
     /**
      * 检查用户是否允许 RAG 功能
      */
-    private boolean isRagAllowed(String userId) {
-        User user = userRepository.findByUserId(userId);
+    static boolean isRagAllowed(User user) {
         if (user == null) {
             return false;
         }
@@ -381,10 +631,7 @@ public class EmbeddingBatchService {
 
         // 1. 清空 Milvus collection
         try {
-            milvusClientV2.delete(DeleteReq.builder()
-                    .collectionName("yusi_embedding_collection")
-                    .filter("id != ''")
-                    .build());
+            retrievalBackend.delete(COLLECTION, "id != ''");
             log.info("Milvus collection 清空完成");
         } catch (Exception e) {
             log.error("清空 Milvus collection 失败", e);
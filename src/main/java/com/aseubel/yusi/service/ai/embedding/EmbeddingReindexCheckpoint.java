@@ -0,0 +1,40 @@
+package com.aseubel.yusi.service.ai.embedding;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Embedding 影子集合重建的断点，保存在 Redis 中，节点中途宕机后由下一次调度从游标处继续。
+ */
+@Data
+@NoArgsConstructor
+public class EmbeddingReindexCheckpoint {
+
+    public enum Status {
+        /** 正在按主键分页写入影子集合 */
+        RUNNING,
+        /** 别名已切换，等待二次回放在途任务 */
+        SWAPPED,
+        /** 重建完成 */
+        DONE,
+        /** 行数校验失败，影子集合保留待排查，别名未切换 */
+        FAILED
+    }
+
+    private String shadowCollection;
+    private Status status;
+    /** 已完整写入影子集合的最后一篇日记主键 */
+    private Long lastDiaryPk;
+    private Long scannedDiaries;
+    private Long skippedDiaries;
+    private Long insertedRows;
+    private Long startedAt;
+    private Long swappedAt;
+    private String failureReason;
+
+    @JsonIgnore
+    public boolean isActive() {
+        return status == Status.RUNNING || status == Status.SWAPPED;
+    }
+}
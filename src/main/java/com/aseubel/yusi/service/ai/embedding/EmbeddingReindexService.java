@@ -0,0 +1,419 @@
+package com.aseubel.yusi.service.ai.embedding;
+
+import com.aseubel.yusi.common.exception.BusinessException;
+import com.aseubel.yusi.common.exception.ErrorCode;
+import com.aseubel.yusi.config.ai.MilvusCollectionSchemas;
+import com.aseubel.yusi.config.ai.properties.EmbeddingModelConfigProperties;
+import com.aseubel.yusi.pojo.entity.Diary;
+import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.redis.service.IRedisService;
+import com.aseubel.yusi.repository.DiaryRepository;
+import com.aseubel.yusi.repository.UserRepository;
+import com.aseubel.yusi.service.ai.rag.DiaryChunker;
+import com.aseubel.yusi.service.diary.DiaryService;
+import com.google.gson.JsonObject;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import io.milvus.v2.client.MilvusClientV2;
+import io.milvus.v2.common.ConsistencyLevel;
+import io.milvus.v2.service.collection.request.DropCollectionReq;
+import io.milvus.v2.service.collection.request.HasCollectionReq;
+import io.milvus.v2.service.collection.request.LoadCollectionReq;
+import io.milvus.v2.service.collection.request.RenameCollectionReq;
+import io.milvus.v2.service.collection.response.ListCollectionsResp;
+import io.milvus.v2.service.utility.request.AlterAliasReq;
+import io.milvus.v2.service.utility.request.CreateAliasReq;
+import io.milvus.v2.service.utility.request.DescribeAliasReq;
+import io.milvus.v2.service.utility.response.DescribeAliasResp;
+import io.milvus.v2.service.vector.request.DeleteReq;
+import io.milvus.v2.service.vector.request.InsertReq;
+import io.milvus.v2.service.vector.request.QueryReq;
+import io.milvus.v2.service.vector.response.QueryResp;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Embedding 零停机全量重建
+ *
+ * 流程：
+ * 1. 新建影子集合 yusi_embedding_collection_v{时间戳}，schema 与线上集合一致
+ * 2. 按日记主键分页扫描全部日记，分片、向量化后写入影子集合，每页完成后在 Redis 中推进断点
+ * 3. 全部写完后以强一致 count(*) 校验行数，校验通过才把别名 yusi_embedding_collection 原子切换到影子集合
+ * 4. 切换后回放重建期间变更过的 Embedding 任务，使期间的新增/修改/删除落到新集合
+ *
+ * 所有读写方（DiarySearchTool、EmbeddingBatchService、账号注销）都只使用别名，重建期间检索不受影响。
+ * 首次从历史物理集合迁移时需要先把物理集合改名再创建同名别名，两步之间存在短暂的不可用窗口。
+ *
+ * @author Aseubel
+ * @date 2026/10/17
+ */
+@Slf4j
+@Service
+public class EmbeddingReindexService {
+
+    static final String ALIAS = "yusi_embedding_collection";
+    static final String CHECKPOINT_KEY = "yusi:embedding:reindex:checkpoint";
+    /** 与 DistributedJobRunner 的调度锁同名，保证发起重建与调度续跑互斥 */
+    static final String LOCK_KEY = "yusi:scheduler:embedding-reindex";
+    private static final String SHADOW_PREFIX = ALIAS + "_v";
+    private static final String LEGACY_PREFIX = ALIAS + "_legacy_";
+    private static final long FINISHED_CHECKPOINT_TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final DateTimeFormatter GENERATION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final MilvusClientV2 milvusClientV2;
+    private final DiaryRepository diaryRepository;
+    private final UserRepository userRepository;
+    private final DiaryService diaryService;
+    private final DiaryChunker diaryChunker;
+    private final EmbeddingGateway embeddingGateway;
+    private final EmbeddingTaskMaintenanceService taskMaintenanceService;
+    private final IRedisService redisService;
+    private final EmbeddingModelConfigProperties embeddingProperties;
+    private final int pageSize;
+    private final int pagesPerRun;
+    private final int embedBatchSize;
+    /** 影子集合与别名切换依赖 Milvus，进程内检索后端下不可用 */
+    private final boolean shadowSupported;
+
+    public EmbeddingReindexService(MilvusClientV2 milvusClientV2,
+            DiaryRepository diaryRepository,
+            UserRepository userRepository,
+            DiaryService diaryService,
+            DiaryChunker diaryChunker,
+            EmbeddingGateway embeddingGateway,
+            EmbeddingTaskMaintenanceService taskMaintenanceService,
+            IRedisService redisService,
+            EmbeddingModelConfigProperties embeddingProperties,
+            int pageSize,
+            int pagesPerRun,
+            int embedBatchSize) {
+        this(milvusClientV2, diaryRepository, userRepository, diaryService, diaryChunker, embeddingGateway,
+                taskMaintenanceService, redisService, embeddingProperties, pageSize, pagesPerRun, embedBatchSize,
+                "milvus");
+    }
+
+    @Autowired
+    public EmbeddingReindexService(MilvusClientV2 milvusClientV2,
+            DiaryRepository diaryRepository,
+            UserRepository userRepository,
+            DiaryService diaryService,
+            DiaryChunker diaryChunker,
+            EmbeddingGateway embeddingGateway,
+            EmbeddingTaskMaintenanceService taskMaintenanceService,
+            IRedisService redisService,
+            EmbeddingModelConfigProperties embeddingProperties,
+            @Value("${yusi.embedding.reindex.page-size:200}") int pageSize,
+            @Value("${yusi.embedding.reindex.pages-per-run:20}") int pagesPerRun,
+            @Value("${yusi.embedding.reindex.embed-batch-size:32}") int embedBatchSize,
+            @Value("${yusi.retrieval.backend:milvus}") String retrievalBackend) {
+        this.milvusClientV2 = milvusClientV2;
+        this.diaryRepository = diaryRepository;
+        this.userRepository = userRepository;
+        this.diaryService = diaryService;
+        this.diaryChunker = diaryChunker;
+        this.embeddingGateway = embeddingGateway;
+        this.taskMaintenanceService = taskMaintenanceService;
+        this.redisService = redisService;
+        this.embeddingProperties = embeddingProperties;
+        this.pageSize = Math.max(1, pageSize);
+        this.pagesPerRun = Math.max(1, pagesPerRun);
+        this.embedBatchSize = Math.max(1, embedBatchSize);
+        this.shadowSupported = !"in-process".equals(retrievalBackend);
+    }
+
+    /**
+     * 发起一次影子集合重建：只负责建表和写入初始断点，实际写入由调度任务分批续跑。
+     *
+     * @return 待扫描的日记总数
+     */
+    public int start() {
+        if (!shadowSupported) {
+            throw new BusinessException(ErrorCode.OPERATION_FAILED, "当前检索后端不支持影子集合重建，请使用全量同步");
+        }
+        RLock lock = redisService.getLock(LOCK_KEY);
+        if (!lock.tryLock()) {
+            throw new BusinessException(ErrorCode.OPERATION_FAILED, "Embedding 重建正在执行，请稍后再试");
+        }
+        try {
+            EmbeddingReindexCheckpoint existing = redisService.getValue(CHECKPOINT_KEY);
+            if (existing != null && existing.isActive()) {
+                throw new BusinessException(ErrorCode.OPERATION_FAILED, "已有 Embedding 重建任务在进行中");
+            }
+
+            long startedAt = System.currentTimeMillis();
+            String shadow = SHADOW_PREFIX + generationSuffix(startedAt);
+            MilvusCollectionSchemas.createHybridCollection(milvusClientV2, shadow, embeddingProperties.getDimension());
+            milvusClientV2.loadCollection(LoadCollectionReq.builder().collectionName(shadow).build());
+
+            EmbeddingReindexCheckpoint checkpoint = new EmbeddingReindexCheckpoint();
+            checkpoint.setShadowCollection(shadow);
+            checkpoint.setStatus(EmbeddingReindexCheckpoint.Status.RUNNING);
+            checkpoint.setLastDiaryPk(0L);
+            checkpoint.setScannedDiaries(0L);
+            checkpoint.setSkippedDiaries(0L);
+            checkpoint.setInsertedRows(0L);
+            checkpoint.setStartedAt(startedAt);
+            redisService.setValue(CHECKPOINT_KEY, checkpoint);
+
+            int total = (int) Math.min(Integer.MAX_VALUE, diaryRepository.count());
+            log.info("Embedding 影子集合重建已创建: shadow={}, diaries={}", shadow, total);
+            return total;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 由调度任务在集群 leader 上周期调用：按断点续写影子集合，写完后校验并切换别名。
+     * 每次最多处理 pagesPerRun 页，进程中途退出时从最后一个已提交的页继续。
+     */
+    public void resume() {
+        if (!shadowSupported) {
+            return;
+        }
+        EmbeddingReindexCheckpoint checkpoint = redisService.getValue(CHECKPOINT_KEY);
+        if (checkpoint == null || !checkpoint.isActive()) {
+            return;
+        }
+        if (checkpoint.getStatus() == EmbeddingReindexCheckpoint.Status.SWAPPED) {
+            replayInFlightTasks(checkpoint);
+            return;
+        }
+
+        for (int page = 0; page < pagesPerRun; page++) {
+            List<Diary> diaries = diaryRepository.findByIdGreaterThanOrderByIdAsc(
+                    checkpoint.getLastDiaryPk(), PageRequest.of(0, pageSize));
+            if (diaries.isEmpty()) {
+                finish(checkpoint);
+                return;
+            }
+            // 续跑的第一页可能在上次宕机前已部分写入，先按日记清理影子集合中的残留行，保证重放幂等
+            if (page == 0) {
+                deleteShadowRows(checkpoint.getShadowCollection(), diaries);
+            }
+            writePage(checkpoint, diaries);
+            redisService.setValue(CHECKPOINT_KEY, checkpoint);
+        }
+        log.info("Embedding 影子集合重建进行中: shadow={}, scanned={}, rows={}",
+                checkpoint.getShadowCollection(), checkpoint.getScannedDiaries(), checkpoint.getInsertedRows());
+    }
+
+    public EmbeddingReindexCheckpoint currentCheckpoint() {
+        return redisService.getValue(CHECKPOINT_KEY);
+    }
+
+    private void writePage(EmbeddingReindexCheckpoint checkpoint, List<Diary> diaries) {
+        Set<String> userIds = diaries.stream()
+                .map(Diary::getUserId)
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, User> users = new HashMap<>();
+        if (!userIds.isEmpty()) {
+            for (User user : userRepository.findByUserIdIn(userIds)) {
+                users.put(user.getUserId(), user);
+            }
+        }
+
+        List<DiaryChunker.DiaryChunk> chunks = new ArrayList<>();
+        Map<String, Diary> diaryById = new HashMap<>();
+        long skipped = 0;
+        for (Diary diary : diaries) {
+            if (!EmbeddingBatchService.isRagAllowed(users.get(diary.getUserId()))) {
+                skipped++;
+                continue;
+            }
+            String text = diary.getPlainContent();
+            try {
+                if (text == null || text.isEmpty()) {
+                    text = diaryService.decryptDiaryContent(diary);
+                }
+            } catch (RuntimeException e) {
+                log.warn("重建时日记 {} 解密失败，跳过: {}", diary.getDiaryId(), e.getClass().getSimpleName());
+                text = null;
+            }
+            if (text == null || text.isEmpty()) {
+                skipped++;
+                continue;
+            }
+            chunks.addAll(diaryChunker.split(diary, text));
+            diaryById.put(diary.getDiaryId(), diary);
+        }
+
+        long inserted = 0;
+        for (int start = 0; start < chunks.size(); start += embedBatchSize) {
+            List<DiaryChunker.DiaryChunk> batch = chunks.subList(start, Math.min(start + embedBatchSize, chunks.size()));
+            List<Embedding> embeddings = embeddingGateway.embedAll(batch.stream()
+                    .map(chunk -> TextSegment.from(chunk.text()))
+                    .toList()).embeddings();
+            List<JsonObject> rows = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                DiaryChunker.DiaryChunk chunk = batch.get(i);
+                Diary diary = diaryById.get(chunk.diaryId());
+                rows.add(DiaryEmbeddingRows.toRow(chunk, embeddings.get(i).vector(), diary, diary.getSourceRevision()));
+            }
+            milvusClientV2.insert(InsertReq.builder()
+                    .collectionName(checkpoint.getShadowCollection())
+                    .data(rows)
+                    .build());
+            inserted += rows.size();
+        }
+
+        checkpoint.setLastDiaryPk(diaries.get(diaries.size() - 1).getId());
+        checkpoint.setScannedDiaries(checkpoint.getScannedDiaries() + diaries.size());
+        checkpoint.setSkippedDiaries(checkpoint.getSkippedDiaries() + skipped);
+        checkpoint.setInsertedRows(checkpoint.getInsertedRows() + inserted);
+    }
+
+    private void deleteShadowRows(String shadow, List<Diary> diaries) {
+        String filter = diaries.stream()
+                .map(diary -> "id like '" + diary.getDiaryId() + "_%'")
+                .collect(Collectors.joining(" or "));
+        milvusClientV2.delete(DeleteReq.builder()
+                .collectionName(shadow)
+                .filter(filter)
+                .build());
+    }
+
+    private void finish(EmbeddingReindexCheckpoint checkpoint) {
+        String shadow = checkpoint.getShadowCollection();
+        long actualRows = countRows(shadow);
+        if (actualRows != checkpoint.getInsertedRows()) {
+            checkpoint.setStatus(EmbeddingReindexCheckpoint.Status.FAILED);
+            checkpoint.setFailureReason("row_count_mismatch");
+            redisService.setValue(CHECKPOINT_KEY, checkpoint, FINISHED_CHECKPOINT_TTL_MILLIS);
+            log.error("Embedding 影子集合行数校验失败，保留原集合: shadow={}, expected={}, actual={}",
+                    shadow, checkpoint.getInsertedRows(), actualRows);
+            return;
+        }
+
+        String previous = swapAlias(shadow, checkpoint.getStartedAt());
+        long swappedAt = System.currentTimeMillis();
+        checkpoint.setStatus(EmbeddingReindexCheckpoint.Status.SWAPPED);
+        checkpoint.setSwappedAt(swappedAt);
+        redisService.setValue(CHECKPOINT_KEY, checkpoint);
+
+        // 重建期间的增量写入都进了旧集合，切换后按任务变更时间回放；内容哈希比对会跳过未变化的分片
+        int replayed = taskMaintenanceService.replayTasksUpdatedSince(toLocalDateTime(checkpoint.getStartedAt()),
+                LocalDateTime.now());
+        dropStaleGenerations(shadow, previous);
+        log.info("Embedding 别名已切换: alias={}, current={}, previous={}, rows={}, replayedTasks={}",
+                ALIAS, shadow, previous, actualRows, replayed);
+    }
+
+    /**
+     * 切换别名前仍在处理中的任务可能已写入旧集合，再回放一次切换之后才完成的任务。
+     */
+    private void replayInFlightTasks(EmbeddingReindexCheckpoint checkpoint) {
+        int replayed = taskMaintenanceService.replayTasksUpdatedSince(toLocalDateTime(checkpoint.getSwappedAt()),
+                LocalDateTime.now());
+        checkpoint.setStatus(EmbeddingReindexCheckpoint.Status.DONE);
+        redisService.setValue(CHECKPOINT_KEY, checkpoint, FINISHED_CHECKPOINT_TTL_MILLIS);
+        log.info("Embedding 影子集合重建完成: current={}, replayedTasks={}", checkpoint.getShadowCollection(), replayed);
+    }
+
+    private long countRows(String collectionName) {
+        QueryResp response = milvusClientV2.query(QueryReq.builder()
+                .collectionName(collectionName)
+                .filter("id != ''")
+                .outputFields(List.of("count(*)"))
+                .consistencyLevel(ConsistencyLevel.STRONG)
+                .build());
+        if (response == null || response.getQueryResults() == null || response.getQueryResults().isEmpty()) {
+            return 0L;
+        }
+        Object count = response.getQueryResults().get(0).getEntity().get("count(*)");
+        return count instanceof Number number ? number.longValue() : 0L;
+    }
+
+    /**
+     * 把别名指向新集合，返回切换前别名指向的物理集合。
+     */
+    private String swapAlias(String shadow, long startedAt) {
+        if (physicalCollections().contains(ALIAS)) {
+            // 历史部署中 yusi_embedding_collection 是物理集合：改名保留为上一代，再创建同名别名
+            String legacy = LEGACY_PREFIX + generationSuffix(startedAt);
+            milvusClientV2.renameCollection(RenameCollectionReq.builder()
+                    .collectionName(ALIAS)
+                    .newCollectionName(legacy)
+                    .build());
+            milvusClientV2.createAlias(CreateAliasReq.builder()
+                    .alias(ALIAS)
+                    .collectionName(shadow)
+                    .build());
+            return legacy;
+        }
+        if (Boolean.TRUE.equals(milvusClientV2.hasCollection(HasCollectionReq.builder()
+                .collectionName(ALIAS)
+                .build()))) {
+            DescribeAliasResp current = milvusClientV2.describeAlias(DescribeAliasReq.builder()
+                    .alias(ALIAS)
+                    .build());
+            milvusClientV2.alterAlias(AlterAliasReq.builder()
+                    .alias(ALIAS)
+                    .collectionName(shadow)
+                    .build());
+            return current == null ? null : current.getCollectionName();
+        }
+        milvusClientV2.createAlias(CreateAliasReq.builder()
+                .alias(ALIAS)
+                .collectionName(shadow)
+                .build());
+        return null;
+    }
+
+    /**
+     * 只保留当前与上一代集合（用于回滚），更早的代以及失败遗留的影子集合一并删除。
+     */
+    private void dropStaleGenerations(String current, String previous) {
+        Set<String> keep = new HashSet<>();
+        keep.add(current);
+        if (previous != null) {
+            keep.add(previous);
+        }
+        for (String name : physicalCollections()) {
+            if ((name.startsWith(SHADOW_PREFIX) || name.startsWith(LEGACY_PREFIX)) && !keep.contains(name)) {
+                try {
+                    milvusClientV2.dropCollection(DropCollectionReq.builder().collectionName(name).build());
+                    log.info("删除过期 Embedding 集合: {}", name);
+                } catch (Exception e) {
+                    log.warn("删除过期 Embedding 集合 {} 失败: {}", name, e.getClass().getSimpleName());
+                }
+            }
+        }
+    }
+
+    private List<String> physicalCollections() {
+        ListCollectionsResp response = milvusClientV2.listCollections();
+        if (response == null || response.getCollectionNames() == null) {
+            return List.of();
+        }
+        return response.getCollectionNames();
+    }
+
+    private static String generationSuffix(long epochMillis) {
+        return GENERATION_FORMAT.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()));
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
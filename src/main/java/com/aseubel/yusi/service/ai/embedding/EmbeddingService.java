@@ -1,6 +1,8 @@
 package com.aseubel.yusi.service.ai.embedding;
 
 import com.aseubel.yusi.common.event.DiaryChangedEvent;
+import com.aseubel.yusi.common.event.TaskEnqueuedEvent;
+import com.aseubel.yusi.common.task.TaskWakeup;
 import com.aseubel.yusi.pojo.constant.TaskExecutionKeys;
 import com.aseubel.yusi.pojo.constant.TaskExecutionSourceType;
 import com.aseubel.yusi.pojo.constant.TaskExecutionType;
@@ -12,6 +14,7 @@ import com.aseubel.yusi.service.task.TaskExecutionCommand;
 import com.aseubel.yusi.service.task.TaskExecutionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
@@ -39,6 +42,7 @@ public class EmbeddingService {
 
     private final EmbeddingTaskRepository taskRepository;
     private final TaskExecutionService taskExecutionService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 异步监听日记变更事件，创建相应的 Embedding 任务
@@ -86,6 +90,7 @@ public class EmbeddingService {
                 sourceRevision, triggerEventId);
         task.setTaskExecutionId(execution.getTaskId());
         taskRepository.save(task);
+        eventPublisher.publishEvent(new TaskEnqueuedEvent(this, TaskWakeup.EMBEDDING));
         log.debug("创建 Embedding UPSERT 任务: diaryId={}, userId={}, triggerEventId={}",
                 diary.getDiaryId(), diary.getUserId(), triggerEventId);
     }
@@ -113,6 +118,7 @@ public class EmbeddingService {
                 sourceRevision, triggerEventId);
         task.setTaskExecutionId(execution.getTaskId());
         taskRepository.save(task);
+        eventPublisher.publishEvent(new TaskEnqueuedEvent(this, TaskWakeup.EMBEDDING));
         log.debug("创建 Embedding DELETE 任务: diaryId={}, triggerEventId={}", diary.getDiaryId(), triggerEventId);
     }
 }
@@ -22,4 +22,12 @@ public class EmbeddingTaskMaintenanceService {
         int insertedCount = taskRepository.insertMissingTasks(now);
         return resetCount + insertedCount;
     }
+
+    /**
+     * 影子集合切换后回放重建期间产生或变更的任务，使其写入新集合。
+     */
+    @Transactional
+    public int replayTasksUpdatedSince(LocalDateTime since, LocalDateTime now) {
+        return taskRepository.resetUpdatedSinceToPending(since, now);
+    }
 }
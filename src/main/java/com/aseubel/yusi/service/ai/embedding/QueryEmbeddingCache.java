@@ -0,0 +1,115 @@
+package com.aseubel.yusi.service.ai.embedding;
+
+import com.aseubel.yusi.config.ai.properties.EmbeddingModelConfigProperties;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * 检索查询向量的进程内 LRU 缓存。
+ * 以"模型名 + 归一化查询文本"为键，带容量与 TTL 上限；同一键的并发未命中只会触发一次向量模型调用，
+ * 其余线程等待并复用该结果。仅用于检索查询，日记入库的批量向量化仍走 {@link EmbeddingGateway}。
+ */
+@Slf4j
+@Component
+public class QueryEmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingModel embeddingModel;
+    private final YusiMetrics metrics;
+    private final boolean enabled;
+    private final Cache<String, Embedding> cache;
+
+    public QueryEmbeddingCache(EmbeddingModel embeddingModel, EmbeddingModelConfigProperties properties) {
+        this(embeddingModel, properties, null);
+    }
+
+    @Autowired
+    public QueryEmbeddingCache(EmbeddingModel embeddingModel,
+            EmbeddingModelConfigProperties properties,
+            YusiMetrics metrics) {
+        EmbeddingModelConfigProperties.QueryCache config = properties.getQueryCache();
+        this.embeddingModel = embeddingModel;
+        this.metrics = metrics;
+        this.enabled = config.isEnabled() && config.getMaxSize() > 0;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, config.getMaxSize()))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1L, config.getTtlSeconds())))
+                .build();
+    }
+
+    /**
+     * 获取查询文本的向量，命中缓存时不调用向量模型
+     */
+    public Embedding embed(String query) {
+        if (!enabled) {
+            return embeddingModel.embed(query).content();
+        }
+        String key = cacheKey(query);
+        boolean[] loaded = new boolean[1];
+        try {
+            Embedding embedding = cache.get(key, () -> {
+                loaded[0] = true;
+                return embeddingModel.embed(query).content();
+            });
+            record(loaded[0] ? "miss" : "hit");
+            return embedding;
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            record("miss");
+            throw rethrow(e.getCause());
+        } catch (ExecutionException e) {
+            record("miss");
+            throw rethrow(e.getCause());
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    String cacheKey(String query) {
+        return embeddingModel.modelName() + ":" + normalize(query);
+    }
+
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException("Query embedding failed", cause);
+    }
+
+    private void record(String result) {
+        if (metrics != null) {
+            metrics.recordQueryEmbeddingCache(result);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.aseubel.yusi.service.ai.mask;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话级脱敏缓存
+ * <p>
+ * 多轮对话每次都会带上完整历史，逐轮对整段历史做 HanLP 分词的开销随轮数线性增长。
+ * 这里按会话保存每段文本（按内容哈希）识别出的实体，以及会话内统一的"原始值 → 占位符"映射：
+ * 每轮只对没见过的文本做识别，新实体按类型续编号并入映射，已分配的占位符在整个会话内保持不变，
+ * 模型在前几轮看到的 [人名_1] 到后面仍然指向同一个人。
+ * <p>
+ * 会话状态只存在本实例内存中，过期或被淘汰后下一轮重新识别、重新编号，等价于一个新会话。
+ * 聊天记录被清空或账号注销时由调用方按用户失效，映射数超过上限时在下一轮开始前重置会话。
+ */
+@Component
+public class ConversationMaskCache {
+
+    /** 单个会话最多缓存的文本段数，超出后按 LRU 淘汰 */
+    static final int MAX_SEGMENTS_PER_CONVERSATION = 512;
+
+    /** 单个会话最多保留的"原始值 → 占位符"映射数，超出后下一轮从头编号 */
+    static final int MAX_MAPPINGS_PER_CONVERSATION = 2048;
+
+    private static final String KEY_SEPARATOR = ":";
+
+    private final SensitiveDataMaskService maskService;
+    private final boolean enabled;
+    private final Cache<String, ConversationState> conversations;
+    private final YusiMetrics metrics;
+
+    public ConversationMaskCache(SensitiveDataMaskService maskService) {
+        this(maskService, true, 10000, 30, null);
+    }
+
+    @Autowired
+    public ConversationMaskCache(SensitiveDataMaskService maskService,
+            @Value("${yusi.chat.mask-cache.enabled:true}") boolean enabled,
+            @Value("${yusi.chat.mask-cache.max-conversations:10000}") long maxConversations,
+            @Value("${yusi.chat.mask-cache.ttl-minutes:30}") long ttlMinutes,
+            YusiMetrics metrics) {
+        this.maskService = maskService;
+        this.enabled = enabled && maxConversations > 0;
+        this.conversations = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, maxConversations))
+                .expireAfterAccess(Duration.ofMinutes(Math.max(1L, ttlMinutes)))
+                .build();
+        this.metrics = metrics;
+    }
+
+    /**
+     * 对一轮请求中的全部文本段做脱敏分析
+     *
+     * @param conversationId 会话标识，为空时不跨轮缓存
+     * @param segments       本轮请求中的全部文本段（按消息顺序）
+     * @return 本轮使用的映射表快照与替换器
+     */
+    public MaskTurn analyze(String conversationId, List<String> segments) {
+        ConversationState state = conversationId == null || !enabled
+                ? new ConversationState()
+                : getState(conversationId);
+        synchronized (state) {
+            // 只在轮次之间重置，本轮已识别的实体必须都留在映射表里，否则会漏脱敏
+            if (state.mappingCount() > MAX_MAPPINGS_PER_CONVERSATION) {
+                state.reset();
+            }
+            for (String segment : segments) {
+                state.absorb(segment);
+            }
+            return state.turn();
+        }
+    }
+
+    /**
+     * 同一用户在同一场景下的对话视为一个会话，共享占位符编号
+     */
+    public static String conversationId(String userId, String scene) {
+        return userId + KEY_SEPARATOR + scene;
+    }
+
+    public void invalidate(String conversationId) {
+        if (conversationId != null) {
+            conversations.invalidate(conversationId);
+        }
+    }
+
+    /**
+     * 失效该用户在所有场景下的会话，聊天记录清空、账号注销后映射不再保留原始值
+     */
+    public void invalidateUser(String userId) {
+        if (userId == null) {
+            return;
+        }
+        String prefix = userId + KEY_SEPARATOR;
+        conversations.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    public long size() {
+        return conversations.size();
+    }
+
+    private ConversationState getState(String conversationId) {
+        ConversationState state = conversations.getIfPresent(conversationId);
+        if (state == null) {
+            synchronized (conversations) {
+                state = conversations.getIfPresent(conversationId);
+                if (state == null) {
+                    state = new ConversationState();
+                    conversations.put(conversationId, state);
+                }
+            }
+        }
+        return state;
+    }
+
+    private void record(String result) {
+        if (metrics != null) {
+            metrics.recordConversationMaskCache(result);
+        }
+    }
+
+    /**
+     * 一轮请求的脱敏结果：映射表是本轮的不可变快照，后续轮次新增实体不会影响进行中的流式还原
+     */
+    public static final class MaskTurn {
+
+        private final Map<String, String> mappingTable;
+        private final MaskAutomaton masker;
+        private final ConversationState state;
+        private final int version;
+
+        private MaskTurn(Map<String, String> mappingTable, MaskAutomaton masker, ConversationState state,
+                int version) {
+            this.mappingTable = mappingTable;
+            this.masker = masker;
+            this.state = state;
+            this.version = version;
+        }
+
+        /** 占位符 → 原始值 */
+        public Map<String, String> getMappingTable() {
+            return mappingTable;
+        }
+
+        public boolean isHasMasked() {
+            return !mappingTable.isEmpty();
+        }
+
+        /**
+         * 用本轮映射表脱敏一段文本，同一段文本在映射表未变化时直接复用上次的结果
+         */
+        public String mask(String text) {
+            if (text == null || text.isEmpty() || mappingTable.isEmpty()) {
+                return text;
+            }
+            String hash = DigestUtil.sha1Hex(text);
+            synchronized (state) {
+                Segment segment = state.segments.get(hash);
+                if (segment != null && segment.maskedVersion == version) {
+                    return segment.maskedText;
+                }
+            }
+            String masked = masker.replace(text);
+            synchronized (state) {
+                Segment segment = state.segments.get(hash);
+                if (segment != null) {
+                    segment.maskedVersion = version;
+                    segment.maskedText = masked;
+                }
+            }
+            return masked;
+        }
+    }
+
+    /** 单段文本的识别结果（原始值 → 识别时给出的占位符）与上次的脱敏输出 */
+    private static final class Segment {
+        private final Map<String, String> entities;
+        private int maskedVersion = -1;
+        private String maskedText;
+
+        private Segment(Map<String, String> entities) {
+            this.entities = entities;
+        }
+    }
+
+    /**
+     * 单个会话的状态，所有访问都在 synchronized(this) 内
+     */
+    private final class ConversationState {
+
+        private final Map<String, Segment> segments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Segment> eldest) {
+                return size() > MAX_SEGMENTS_PER_CONVERSATION;
+            }
+        };
+        /** 原始值 → 占位符，只增不减 */
+        private final Map<String, String> valueToPlaceholder = new HashMap<>();
+        private final Map<String, String> mappingTable = new LinkedHashMap<>();
+        private final Map<SensitiveEntityType, Integer> typeCounters = new EnumMap<>(SensitiveEntityType.class);
+        private int version;
+        private MaskTurn lastTurn;
+
+        private int mappingCount() {
+            return valueToPlaceholder.size();
+        }
+
+        /**
+         * 清空映射与编号，已识别的文本段保留：段内只记录实体和类型，重新分配占位符即可，不用再做 NER。
+         * version 继续递增，避免新映射命中旧版本的脱敏结果
+         */
+        private void reset() {
+            valueToPlaceholder.clear();
+            mappingTable.clear();
+            typeCounters.clear();
+            version++;
+            lastTurn = null;
+        }
+
+        private void absorb(String text) {
+            if (text == null || text.isBlank()) {
+                return;
+            }
+            String hash = DigestUtil.sha1Hex(text);
+            Segment segment = segments.get(hash);
+            if (segment == null) {
+                record("miss");
+                segment = new Segment(detect(text));
+                segments.put(hash, segment);
+            } else {
+                record("hit");
+            }
+            for (Map.Entry<String, String> entity : segment.entities.entrySet()) {
+                assign(entity.getKey(), entity.getValue());
+            }
+        }
+
+        /**
+         * 识别单段文本中的实体。识别结果里的占位符编号只在这段文本内有效，
+         * 这里只用它确定实体类型，会话内的占位符由 assign 统一分配
+         */
+        private Map<String, String> detect(String text) {
+            MaskResult result = maskService.mask(text);
+            if (result == null || !result.isHasMasked() || result.getMappingTable().isEmpty()) {
+                return Map.of();
+            }
+            Map<String, String> entities = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : result.getMappingTable().entrySet()) {
+                entities.putIfAbsent(entry.getValue(), entry.getKey());
+            }
+            return entities;
+        }
+
+        private void assign(String value, String detectedPlaceholder) {
+            if (value == null || value.isEmpty() || valueToPlaceholder.containsKey(value)) {
+                return;
+            }
+            SensitiveEntityType type = SensitiveEntityType.fromPlaceholder(detectedPlaceholder);
+            // 不是标准格式的占位符时原样沿用
+            String placeholder = type != null
+                    ? type.getPlaceholder(typeCounters.merge(type, 1, Integer::sum))
+                    : detectedPlaceholder;
+            valueToPlaceholder.put(value, placeholder);
+            mappingTable.put(placeholder, value);
+            version++;
+            lastTurn = null;
+        }
+
+        private MaskTurn turn() {
+            if (lastTurn == null) {
+                lastTurn = new MaskTurn(Collections.unmodifiableMap(new LinkedHashMap<>(mappingTable)),
+                        MaskAutomaton.of(valueToPlaceholder), this, version);
+            }
+            return lastTurn;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.aseubel.yusi.service.ai.mask;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多模式替换自动机（Aho-Corasick）
+ * <p>
+ * 按一份"查找串 → 替换串"映射构建一次，之后对任意文本一次线性扫描完成全部替换。
+ * 重叠时取最左、最长的匹配，例如同时存在"张三"和"张三丰"时，"张三丰"整体替换，
+ * 结果与映射表的遍历顺序无关。mask 时传入 原始值→占位符，unmask 时传入 占位符→原始值。
+ * <p>
+ * 构建完成后只读，可在多线程间共享。
+ */
+public final class MaskAutomaton {
+
+    private static final MaskAutomaton EMPTY = new MaskAutomaton(
+            new char[][] { new char[0] }, new int[][] { new int[0] }, new int[] { 0 }, new int[] { 0 },
+            new int[] { 0 }, new String[] { null }, 0);
+
+    /** 每个节点的出边字符（升序）与对应子节点 */
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] fail;
+    /** 沿失败链最近的终止节点（不含自身），0 表示没有 */
+    private final int[] dictLink;
+    private final int[] depth;
+    /** 终止节点对应的替换串，非终止节点为 null */
+    private final String[] replacement;
+    private final int patternCount;
+
+    private MaskAutomaton(char[][] edgeChars, int[][] edgeTargets, int[] fail, int[] dictLink, int[] depth,
+            String[] replacement, int patternCount) {
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.dictLink = dictLink;
+        this.depth = depth;
+        this.replacement = replacement;
+        this.patternCount = patternCount;
+    }
+
+    /**
+     * 按映射构建自动机，空的查找串会被忽略
+     *
+     * @param replacements 查找串 → 替换串
+     */
+    public static MaskAutomaton of(Map<String, String> replacements) {
+        if (replacements == null || replacements.isEmpty()) {
+            return EMPTY;
+        }
+
+        // 1) 构建 Trie
+        List<TrieNode> nodes = new ArrayList<>();
+        nodes.add(new TrieNode());
+        int patternCount = 0;
+        for (Map.Entry<String, String> entry : replacements.entrySet()) {
+            String pattern = entry.getKey();
+            if (pattern == null || pattern.isEmpty() || entry.getValue() == null) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int next = nodes.get(state).child(c);
+                if (next < 0) {
+                    next = nodes.size();
+                    TrieNode node = new TrieNode();
+                    node.depth = i + 1;
+                    nodes.add(node);
+                    nodes.get(state).addChild(c, next);
+                }
+                state = next;
+            }
+            nodes.get(state).replacement = entry.getValue();
+            patternCount++;
+        }
+        if (patternCount == 0) {
+            return EMPTY;
+        }
+
+        // 2) 压缩出边并按 BFS 计算失败链与输出链
+        int size = nodes.size();
+        char[][] edgeChars = new char[size][];
+        int[][] edgeTargets = new int[size][];
+        int[] depth = new int[size];
+        String[] replacement = new String[size];
+        for (int i = 0; i < size; i++) {
+            TrieNode node = nodes.get(i);
+            node.seal();
+            edgeChars[i] = node.chars;
+            edgeTargets[i] = node.targets;
+            depth[i] = node.depth;
+            replacement[i] = node.replacement;
+        }
+        MaskAutomaton automaton = new MaskAutomaton(edgeChars, edgeTargets, new int[size], new int[size], depth,
+                replacement, patternCount);
+        automaton.link();
+        return automaton;
+    }
+
+    public boolean isEmpty() {
+        return patternCount == 0;
+    }
+
+    /**
+     * 一次扫描完成全部替换；没有任何匹配时返回原字符串实例
+     */
+    public String replace(String text) {
+        if (text == null || text.isEmpty() || patternCount == 0) {
+            return text;
+        }
+        int[] bestAtStart = new int[text.length()];
+        scan(text, bestAtStart);
+        if (!hasMatch(bestAtStart, text.length())) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        emit(text, bestAtStart, text.length(), sb);
+        return sb.toString();
+    }
+
+    /**
+     * 创建流式替换器，用于逐段到达的文本（如流式响应的 token）
+     */
+    public Streaming streaming() {
+        return new Streaming();
+    }
+
+    /**
+     * 扫描文本，记录每个起点上最长的匹配（终止节点），返回扫描结束时的状态
+     */
+    private int scan(CharSequence text, int[] bestAtStart) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            int output = replacement[state] != null ? state : dictLink[state];
+            while (output != 0) {
+                int start = i - depth[output] + 1;
+                if (depth[output] > depth[bestAtStart[start]]) {
+                    bestAtStart[start] = output;
+                }
+                output = dictLink[output];
+            }
+        }
+        return state;
+    }
+
+    private static boolean hasMatch(int[] bestAtStart, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bestAtStart[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从左到右输出起点小于 limit 的部分，返回下一个未输出的位置（命中的匹配可能越过 limit）
+     */
+    private int emit(CharSequence text, int[] bestAtStart, int limit, StringBuilder out) {
+        int i = 0;
+        while (i < limit) {
+            int match = bestAtStart[i];
+            if (match != 0) {
+                out.append(replacement[match]);
+                i += depth[match];
+            } else {
+                out.append(text.charAt(i));
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 流式替换器：只缓存末尾仍可能是某个查找串开头的最短后缀，其余部分立即输出，
+     * 保证被拆到多个分片里的查找串也能完整替换。单个实例只供一条流顺序使用，非线程安全。
+     * <p>
+     * 自动机扫描结束时的状态深度 d 即"文本后缀与某个查找串前缀的最长重合"，
+     * 起点早于末尾 d 个字符的位置不可能再出现更长的匹配，可以安全输出。
+     */
+    public final class Streaming {
+
+        private final StringBuilder pending = new StringBuilder();
+        private int[] bestAtStart = new int[0];
+
+        private Streaming() {
+        }
+
+        /**
+         * 输入一个分片，返回当前可以确定的输出（可能为空串）
+         */
+        public String feed(String chunk) {
+            if (chunk == null || chunk.isEmpty()) {
+                return "";
+            }
+            if (patternCount == 0) {
+                return chunk;
+            }
+            pending.append(chunk);
+            int length = pending.length();
+            if (bestAtStart.length < length) {
+                bestAtStart = new int[Math.max(length, bestAtStart.length * 2)];
+            } else {
+                Arrays.fill(bestAtStart, 0, length, 0);
+            }
+            int state = scan(pending, bestAtStart);
+            int safe = length - depth[state];
+            if (safe <= 0) {
+                return "";
+            }
+            if (safe == length && pending.length() == chunk.length() && !hasMatch(bestAtStart, length)) {
+                pending.setLength(0);
+                return chunk;
+            }
+            StringBuilder out = new StringBuilder(length + 16);
+            int consumed = emit(pending, bestAtStart, safe, out);
+            pending.delete(0, consumed);
+            return out.toString();
+        }
+
+        /**
+         * 流结束时输出缓存的剩余文本
+         */
+        public String flush() {
+            if (pending.isEmpty()) {
+                return "";
+            }
+            String rest = replace(pending.toString());
+            pending.setLength(0);
+            return rest;
+        }
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int next = child(state, c);
+            if (next >= 0) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int child(int state, char c) {
+        char[] chars = edgeChars[state];
+        if (chars.length <= 8) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return edgeTargets[state][i];
+                }
+            }
+            return -1;
+        }
+        int index = Arrays.binarySearch(chars, c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+
+    private void link() {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[0]) {
+            fail[target] = 0;
+            dictLink[target] = 0;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            char[] chars = edgeChars[state];
+            int[] targets = edgeTargets[state];
+            for (int i = 0; i < chars.length; i++) {
+                int target = targets[i];
+                int f = fail[state];
+                int next;
+                while ((next = child(f, chars[i])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[target] = next >= 0 && next != target ? next : 0;
+                int failState = fail[target];
+                dictLink[target] = replacement[failState] != null ? failState : dictLink[failState];
+                queue.add(target);
+            }
+        }
+    }
+
+    private static final class TrieNode {
+        private char[] chars = new char[0];
+        private int[] targets = new int[0];
+        private int size;
+        private int depth;
+        private String replacement;
+
+        private int child(char c) {
+            for (int i = 0; i < size; i++) {
+                if (chars[i] == c) {
+                    return targets[i];
+                }
+            }
+            return -1;
+        }
+
+        private void addChild(char c, int target) {
+            if (size == chars.length) {
+                int capacity = Math.max(2, size * 2);
+                chars = Arrays.copyOf(chars, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+            }
+            chars[size] = c;
+            targets[size] = target;
+            size++;
+        }
+
+        /** 截断多余容量并按字符排序，供二分查找 */
+        private void seal() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Character.compare(chars[a], chars[b]));
+            char[] sortedChars = new char[size];
+            int[] sortedTargets = new int[size];
+            for (int i = 0; i < size; i++) {
+                sortedChars[i] = chars[order[i]];
+                sortedTargets[i] = targets[order[i]];
+            }
+            chars = sortedChars;
+            targets = sortedTargets;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.aseubel.yusi.service.ai.mask;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.hankcs.hanlp.HanLP;
 import com.hankcs.hanlp.seg.common.Term;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +36,15 @@ public class SensitiveDataMaskService {
     /** 身份证号（18位） */
     private static final Pattern ID_CARD_PATTERN = Pattern.compile("(?<!\\d)\\d{17}[\\dXx](?!\\d)");
 
+    /**
+     * 映射表 → 还原自动机。同一次调用链（尤其是流式响应的每个 token）反复使用同一个映射表实例，
+     * 按实例身份缓存（weakKeys 使用 == 比较），映射表被回收后缓存随之失效
+     */
+    private final Cache<Map<String, String>, MaskAutomaton> unmaskAutomata = CacheBuilder.newBuilder()
+            .weakKeys()
+            .maximumSize(1024)
+            .build();
+
     /**
      * 对明文进行脱敏
      *
@@ -65,18 +76,29 @@ public class SensitiveDataMaskService {
             return maskedText;
         }
 
-        String result = maskedText;
-        for (Map.Entry<String, String> entry : mappingTable.entrySet()) {
-            result = result.replace(entry.getKey(), entry.getValue());
+        return unmaskAutomaton(mappingTable).replace(maskedText);
+    }
+
+    /**
+     * 获取映射表对应的还原自动机（占位符 → 原始值）
+     */
+    public MaskAutomaton unmaskAutomaton(Map<String, String> mappingTable) {
+        if (mappingTable == null || mappingTable.isEmpty()) {
+            return MaskAutomaton.of(Map.of());
+        }
+        MaskAutomaton automaton = unmaskAutomata.getIfPresent(mappingTable);
+        if (automaton == null) {
+            automaton = MaskAutomaton.of(mappingTable);
+            unmaskAutomata.put(mappingTable, automaton);
         }
-        return result;
+        return automaton;
     }
 
     // ── 内部逻辑 ──────────────────────────────
 
     private MaskResult doMask(String text) {
         // 收集所有识别到的实体：offset → (原始文本, 类型)
-        // 使用 TreeMap 按偏移量排序，方便从后往前替换
+        // 使用 TreeMap 按偏移量排序（倒序，便于检查重叠）
         TreeMap<Integer, DetectedEntity> detected = new TreeMap<>(Comparator.reverseOrder());
 
         // 1) HanLP 词性标注识别人名/地名/机构名
@@ -91,15 +113,15 @@ public class SensitiveDataMaskService {
             return MaskResult.noMask(text);
         }
 
-        // 3) 生成映射表并替换（从后往前替换以保持偏移量正确）
+        // 3) 生成映射表并按偏移量从前往后一次拼接出脱敏文本
         Map<String, String> mappingTable = new LinkedHashMap<>();
         Map<SensitiveEntityType, Integer> typeCounters = new EnumMap<>(SensitiveEntityType.class);
         // 去重：同一原始值只分配一个占位符
         Map<String, String> valueToPlaceholder = new HashMap<>();
 
-        StringBuilder sb = new StringBuilder(text);
-
-        for (Map.Entry<Integer, DetectedEntity> entry : detected.entrySet()) {
+        StringBuilder sb = new StringBuilder(text.length() + detected.size() * 8);
+        int cursor = 0;
+        for (Map.Entry<Integer, DetectedEntity> entry : detected.descendingMap().entrySet()) {
             int offset = entry.getKey();
             DetectedEntity entity = entry.getValue();
 
@@ -111,8 +133,10 @@ public class SensitiveDataMaskService {
                 mappingTable.put(placeholder, entity.text);
             }
 
-            sb.replace(offset, offset + entity.text.length(), placeholder);
+            sb.append(text, cursor, offset).append(placeholder);
+            cursor = offset + entity.text.length();
         }
+        sb.append(text, cursor, text.length());
 
         log.info("脱敏完成: 识别 {} 个实体, 类型分布={}", detected.size(), typeCounters);
 
@@ -160,17 +184,12 @@ public class SensitiveDataMaskService {
     }
 
     /**
-     * 检查新区间 [start, end) 是否与已有实体重叠
+     * 检查新区间 [start, end) 是否与已有实体重叠。
+     * 已有实体之间互不重叠，只需检查起点在 end 之前的最后一个实体（倒序 TreeMap 的 ceiling 即自然序的 floor）
      */
     private boolean isOverlapping(int start, int end, TreeMap<Integer, DetectedEntity> detected) {
-        for (Map.Entry<Integer, DetectedEntity> entry : detected.entrySet()) {
-            int existStart = entry.getKey();
-            int existEnd = existStart + entry.getValue().text.length();
-            if (start < existEnd && end > existStart) {
-                return true;
-            }
-        }
-        return false;
+        Map.Entry<Integer, DetectedEntity> previous = detected.ceilingEntry(end - 1);
+        return previous != null && previous.getKey() + previous.getValue().text.length() > start;
     }
 
     /** 内部检测到的实体 */
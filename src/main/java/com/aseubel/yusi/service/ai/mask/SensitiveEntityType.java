@@ -39,6 +39,29 @@ public enum SensitiveEntityType {
         return String.format(template, index);
     }
 
+    /**
+     * 根据占位符反查实体类型，如 [人名_3] → PERSON
+     *
+     * @return 对应的类型，不是本枚举生成的占位符返回 null
+     */
+    public static SensitiveEntityType fromPlaceholder(String placeholder) {
+        if (placeholder == null) {
+            return null;
+        }
+        for (SensitiveEntityType type : values()) {
+            int index = type.template.indexOf("%d");
+            String prefix = type.template.substring(0, index);
+            String suffix = type.template.substring(index + 2);
+            if (placeholder.length() > prefix.length() + suffix.length()
+                    && placeholder.startsWith(prefix) && placeholder.endsWith(suffix)
+                    && placeholder.substring(prefix.length(), placeholder.length() - suffix.length())
+                            .chars().allMatch(Character::isDigit)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
     /**
      * 根据 HanLP 词性标签查找对应的实体类型
      *
@@ -2,24 +2,35 @@ package com.aseubel.yusi.service.ai.model;
 
 import com.aseubel.yusi.config.ai.properties.ModelGatewayAdmissionProperties;
 import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.StringCodec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
+import java.util.function.LongSupplier;
 
 /**
  * Atomically reserves and reconciles request/token buckets for each provider
  * attempt. The Redis scripts keep the check-and-increment operation atomic
  * across all configured dimensions, so concurrent requests cannot overbook a
  * bucket between a read and a write.
+ *
+ * <p>With {@code model.gateway.admission.lease.enabled} the node serves
+ * admissions from locally leased budget slices instead (see
+ * {@link ModelBudgetLeases}) and only falls back to the per-call scripts when
+ * the slices are heavily contended.</p>
  */
 @Slf4j
 @Component
@@ -28,6 +39,7 @@ public class ModelBudgetAdmission {
     private static final String RESERVED = "RESERVED";
     private static final String SETTLED = "SETTLED";
     private static final String RELEASED = "RELEASED";
+    private static final String LEASE_RESERVATION_PREFIX = "lease:";
 
     private static final String RESERVE_SCRIPT = """
             if redis.call('EXISTS', KEYS[1]) == 1 then
@@ -86,11 +98,24 @@ public class ModelBudgetAdmission {
 
     private final ModelGatewayAdmissionProperties properties;
     private final RedissonClient redissonClient;
+    private final ModelBudgetLeases leases;
+    /** Lease-backed reservations that have not been settled yet; guards against double settlement. */
+    private final Cache<String, Boolean> openLeaseReservations;
 
     @Autowired
     public ModelBudgetAdmission(ModelGatewayAdmissionProperties properties, RedissonClient redissonClient) {
+        this(properties, redissonClient, System::currentTimeMillis);
+    }
+
+    ModelBudgetAdmission(ModelGatewayAdmissionProperties properties, RedissonClient redissonClient,
+            LongSupplier clock) {
         this.properties = properties;
         this.redissonClient = redissonClient;
+        this.leases = properties.isLeaseEnabled() && redissonClient != null
+                ? new ModelBudgetLeases(properties, redissonClient, clock) : null;
+        this.openLeaseReservations = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(properties.getReservationTtlSeconds()))
+                .build();
     }
 
     /**
@@ -98,8 +123,7 @@ public class ModelBudgetAdmission {
      * such as isolated unit tests.
      */
     public ModelBudgetAdmission() {
-        this.properties = new ModelGatewayAdmissionProperties();
-        this.redissonClient = null;
+        this(new ModelGatewayAdmissionProperties(), null);
     }
 
     public ModelBudgetPermit reserve(ModelRouteContext context, ModelRouteCandidate candidate,
@@ -117,6 +141,13 @@ public class ModelBudgetAdmission {
             return ModelBudgetPermit.noop(safeBudget);
         }
 
+        if (leases != null) {
+            ModelBudgetPermit leased = reserveFromLeases(charges, safeBudget);
+            if (leased != null) {
+                return leased;
+            }
+        }
+
         String reservationKey = properties.getKeyPrefix() + "reservation:" + UUID.randomUUID();
         List<Object> keys = new ArrayList<>(charges.size() + 1);
         keys.add(reservationKey);
@@ -165,6 +196,56 @@ public class ModelBudgetAdmission {
         settle(permit, null, true);
     }
 
+    /**
+     * Returns the unused part of expired leases so other nodes can use it.
+     */
+    @Scheduled(fixedDelayString = "${model.gateway.admission.lease.ttl-millis:2000}")
+    public void returnExpiredLeases() {
+        if (leases != null) {
+            leases.returnExpired();
+        }
+    }
+
+    @PreDestroy
+    public void returnAllLeases() {
+        if (leases != null) {
+            leases.returnAll();
+        }
+    }
+
+    /**
+     * Budget this node currently holds in a lease for one bucket key; 0 when
+     * lease mode is off.
+     */
+    long outstandingLease(String chargeKey) {
+        return leases == null ? 0L : leases.outstanding(chargeKey);
+    }
+
+    /**
+     * Returns a permit, a denial, or {@code null} when the leases are too
+     * contended and the caller should reserve directly.
+     */
+    private ModelBudgetPermit reserveFromLeases(List<ModelBudgetPermit.Charge> charges, ModelTokenBudget budget) {
+        try {
+            ModelBudgetLeases.Outcome outcome = leases.acquire(charges);
+            if (outcome == ModelBudgetLeases.Outcome.DENIED) {
+                return ModelBudgetPermit.denied("LIMIT_EXCEEDED");
+            }
+            if (outcome == ModelBudgetLeases.Outcome.CONTENDED) {
+                return null;
+            }
+        } catch (RuntimeException exception) {
+            log.warn("Model admission store failed: operation=model_admission_lease, "
+                    + "failure_category=admission_store_unavailable, exceptionType={}",
+                    LowSensitivityLogSummary.exceptionType(exception));
+            return ModelBudgetPermit.denied("ADMISSION_STORE_UNAVAILABLE");
+        }
+        String reservationKey = LEASE_RESERVATION_PREFIX + UUID.randomUUID();
+        openLeaseReservations.put(reservationKey, Boolean.TRUE);
+        return new ModelBudgetPermit(reservationKey, charges, budget.estimatedInputTokens(),
+                budget.reservedOutputTokens(), true);
+    }
+
     private void settle(ModelBudgetPermit permit, ModelUsageSnapshot usage, boolean release) {
         if (permit == null || !permit.granted() || permit.charges().isEmpty()
                 || "noop".equals(permit.reservationKey())) {
@@ -176,18 +257,24 @@ public class ModelBudgetAdmission {
                 ? permit.reservedOutputTokens() : Math.max(0L, usage.outputTokens());
         long actualTokens = release ? 0L : actualInput + actualOutput;
 
+        if (permit.reservationKey().startsWith(LEASE_RESERVATION_PREFIX)) {
+            if (leases == null || openLeaseReservations.asMap().remove(permit.reservationKey()) == null) {
+                return;
+            }
+            for (ModelBudgetPermit.Charge charge : permit.charges()) {
+                leases.settle(charge, actualAmount(charge, release, actualTokens));
+            }
+            return;
+        }
+
         List<Object> keys = new ArrayList<>(permit.charges().size() + 1);
         keys.add(permit.reservationKey());
         permit.charges().forEach(charge -> keys.add(charge.key()));
         List<Object> arguments = new ArrayList<>(2 + permit.charges().size() * 2);
         arguments.add(properties.getWindowSeconds());
         for (ModelBudgetPermit.Charge charge : permit.charges()) {
-            long actual = switch (charge.type()) {
-                case REQUEST -> release ? 0L : 1L;
-                case TOKEN -> release ? 0L : actualTokens;
-            };
             arguments.add(charge.reservedAmount());
-            arguments.add(actual);
+            arguments.add(actualAmount(charge, release, actualTokens));
         }
         arguments.add(release ? RELEASED : SETTLED);
         arguments.add(properties.getReservationTtlSeconds());
@@ -202,6 +289,13 @@ public class ModelBudgetAdmission {
         }
     }
 
+    private long actualAmount(ModelBudgetPermit.Charge charge, boolean release, long actualTokens) {
+        return switch (charge.type()) {
+            case REQUEST -> release ? 0L : 1L;
+            case TOKEN -> release ? 0L : actualTokens;
+        };
+    }
+
     private Long eval(String script, List<Object> keys, List<Object> arguments) {
         RScript redisScript = redissonClient.getScript(StringCodec.INSTANCE);
         return redisScript.eval(RScript.Mode.READ_WRITE, script, RScript.ReturnType.INTEGER,
@@ -0,0 +1,254 @@
+package com.aseubel.yusi.service.ai.model;
+
+import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
+import com.aseubel.yusi.config.ai.properties.ModelGatewayAdmissionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Node-local budget leases for {@link ModelBudgetAdmission}.
+ *
+ * <p>Each lease is a slice of one window bucket that has already been added
+ * to the shared Redis counter. Admissions and settlements are served from the
+ * local slice; Redis is only touched to take a new slice, to return the unused
+ * part of an expired slice, and to charge overage that no local slice can
+ * cover. Because a slice is charged before it is handed out, the shared
+ * counter is always at least the budget actually admitted on every node.</p>
+ *
+ * <p>All local state is guarded by this object's monitor; Redis calls are made
+ * outside of it.</p>
+ */
+@Slf4j
+class ModelBudgetLeases {
+
+    /**
+     * Grants {@code max(slice, needed)} capped by what is left in the bucket,
+     * or 0 when even {@code needed} does not fit.
+     */
+    static final String LEASE_SCRIPT = """
+            local limit = tonumber(ARGV[1])
+            local needed = tonumber(ARGV[2])
+            local slice = tonumber(ARGV[3])
+            local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local available = limit - current
+            if available < needed then
+              return 0
+            end
+            local grant = math.min(math.max(slice, needed), available)
+            redis.call('INCRBY', KEYS[1], grant)
+            redis.call('EXPIRE', KEYS[1], tonumber(ARGV[4]))
+            return grant
+            """;
+
+    /**
+     * Adjusts a bucket by a signed amount; decrements never go below zero.
+     */
+    static final String ADJUST_SCRIPT = """
+            local delta = tonumber(ARGV[1])
+            if delta > 0 then
+              redis.call('INCRBY', KEYS[1], delta)
+              redis.call('EXPIRE', KEYS[1], tonumber(ARGV[2]))
+              return delta
+            end
+            local current = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local reduction = math.min(current, -delta)
+            if reduction > 0 then
+              redis.call('INCRBY', KEYS[1], -reduction)
+            end
+            return -reduction
+            """;
+
+    private static final int MAX_REFILL_ATTEMPTS = 3;
+
+    private final ModelGatewayAdmissionProperties properties;
+    private final RedissonClient redissonClient;
+    private final LongSupplier clock;
+    private final Map<String, Lease> leases = new HashMap<>();
+    /** Unused budget of leases that were replaced before expiring; returned on the next sweep. */
+    private final Map<String, Long> pendingReturns = new HashMap<>();
+
+    ModelBudgetLeases(ModelGatewayAdmissionProperties properties, RedissonClient redissonClient,
+            LongSupplier clock) {
+        this.properties = properties;
+        this.redissonClient = redissonClient;
+        this.clock = clock;
+    }
+
+    /**
+     * Takes every charge from local leases, refilling short slices from Redis.
+     */
+    Outcome acquire(List<ModelBudgetPermit.Charge> charges) {
+        for (int attempt = 0; attempt < MAX_REFILL_ATTEMPTS; attempt++) {
+            Map<ModelBudgetPermit.Charge, Long> shortfalls = tryTakeLocally(charges);
+            if (shortfalls.isEmpty()) {
+                return Outcome.LEASED;
+            }
+            for (Map.Entry<ModelBudgetPermit.Charge, Long> shortfall : shortfalls.entrySet()) {
+                ModelBudgetPermit.Charge charge = shortfall.getKey();
+                long grant = lease(charge, shortfall.getValue());
+                if (grant <= 0) {
+                    return Outcome.DENIED;
+                }
+                synchronized (this) {
+                    long now = clock.getAsLong();
+                    Lease lease = leases.get(charge.key());
+                    if (lease == null || lease.expiresAt <= now) {
+                        if (lease != null && lease.remaining > 0) {
+                            pendingReturns.merge(charge.key(), lease.remaining, Long::sum);
+                        }
+                        leases.put(charge.key(), new Lease(grant, now + properties.getLease().getTtlMillis()));
+                    } else {
+                        lease.remaining += grant;
+                    }
+                }
+            }
+        }
+        // Other threads keep draining the fresh slices; let the caller fall
+        // back to a direct reservation for this call.
+        return Outcome.CONTENDED;
+    }
+
+    /**
+     * Settles a lease-backed charge. Refunds go back to the local lease;
+     * overage is taken from the lease first and charged to Redis otherwise.
+     */
+    void settle(ModelBudgetPermit.Charge charge, long actual) {
+        long delta = actual - charge.reservedAmount();
+        if (delta == 0) {
+            return;
+        }
+        long toRedis;
+        synchronized (this) {
+            Lease lease = leases.get(charge.key());
+            boolean live = lease != null && lease.expiresAt > clock.getAsLong();
+            if (delta < 0) {
+                if (live) {
+                    lease.remaining += -delta;
+                    return;
+                }
+                toRedis = delta;
+            } else {
+                long fromLease = live ? Math.min(lease.remaining, delta) : 0L;
+                if (live) {
+                    lease.remaining -= fromLease;
+                }
+                toRedis = delta - fromLease;
+            }
+        }
+        if (toRedis != 0) {
+            adjust(charge.key(), toRedis);
+        }
+    }
+
+    /**
+     * Returns the unused part of every expired lease to Redis.
+     */
+    void returnExpired() {
+        returnLeases(false);
+    }
+
+    /**
+     * Returns every lease, e.g. on shutdown.
+     */
+    void returnAll() {
+        returnLeases(true);
+    }
+
+    /**
+     * Budget currently held by this node and not yet admitted.
+     */
+    synchronized long outstanding(String key) {
+        Lease lease = leases.get(key);
+        return lease == null ? 0L : lease.remaining;
+    }
+
+    /**
+     * Takes all charges from live leases at once, or nothing. Returns how much
+     * each short bucket is missing, counting what its live lease still holds.
+     */
+    private synchronized Map<ModelBudgetPermit.Charge, Long> tryTakeLocally(List<ModelBudgetPermit.Charge> charges) {
+        long now = clock.getAsLong();
+        Map<ModelBudgetPermit.Charge, Long> shortfalls = new LinkedHashMap<>();
+        for (ModelBudgetPermit.Charge charge : charges) {
+            Lease lease = leases.get(charge.key());
+            long available = lease == null || lease.expiresAt <= now ? 0L : lease.remaining;
+            if (available < charge.reservedAmount()) {
+                shortfalls.put(charge, charge.reservedAmount() - available);
+            }
+        }
+        if (shortfalls.isEmpty()) {
+            for (ModelBudgetPermit.Charge charge : charges) {
+                leases.get(charge.key()).remaining -= charge.reservedAmount();
+            }
+        }
+        return shortfalls;
+    }
+
+    private void returnLeases(boolean all) {
+        Map<String, Long> returns = new HashMap<>();
+        synchronized (this) {
+            long now = clock.getAsLong();
+            Iterator<Map.Entry<String, Lease>> iterator = leases.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Lease> entry = iterator.next();
+                if (all || entry.getValue().expiresAt <= now) {
+                    if (entry.getValue().remaining > 0) {
+                        returns.put(entry.getKey(), entry.getValue().remaining);
+                    }
+                    iterator.remove();
+                }
+            }
+            pendingReturns.forEach((key, amount) -> returns.merge(key, amount, Long::sum));
+            pendingReturns.clear();
+        }
+        returns.forEach((key, amount) -> adjust(key, -amount));
+    }
+
+    private long lease(ModelBudgetPermit.Charge charge, long needed) {
+        long slice = Math.max(needed, (long) Math.ceil(charge.limit() * properties.getLease().getSliceFraction()));
+        Long granted = eval(LEASE_SCRIPT, charge.key(), charge.limit(), needed, slice,
+                properties.getWindowSeconds());
+        return granted == null ? 0L : granted;
+    }
+
+    private void adjust(String key, long delta) {
+        try {
+            eval(ADJUST_SCRIPT, key, delta, properties.getWindowSeconds());
+        } catch (RuntimeException exception) {
+            log.warn("Model admission lease adjustment failed: operation=model_admission_lease, "
+                    + "failure_category=dependency, exceptionType={}",
+                    LowSensitivityLogSummary.exceptionType(exception));
+        }
+    }
+
+    private Long eval(String script, String key, Object... arguments) {
+        RScript redisScript = redissonClient.getScript(StringCodec.INSTANCE);
+        return redisScript.eval(RScript.Mode.READ_WRITE, script, RScript.ReturnType.INTEGER,
+                List.of(key), arguments);
+    }
+
+    enum Outcome {
+        LEASED,
+        DENIED,
+        CONTENDED
+    }
+
+    private static final class Lease {
+        private long remaining;
+        private final long expiresAt;
+
+        private Lease(long remaining, long expiresAt) {
+            this.remaining = remaining;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -18,6 +18,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -29,6 +30,8 @@ public class ModelInstanceRegistry {
     private final ChatModelProviderRegistry providerRegistry;
 
     private final AtomicReference<Map<String, ModelInstance>> instances = new AtomicReference<>(Map.of());
+    /** 每次 reload 后递增，路由计划缓存据此判断 tier 成员是否已变化 */
+    private final AtomicLong generation = new AtomicLong();
 
     @PostConstruct
     public void init() {
@@ -79,6 +82,11 @@ public class ModelInstanceRegistry {
             next.put(instance.getId(), instance);
         }
         instances.set(Map.copyOf(next));
+        generation.incrementAndGet();
+    }
+
+    public long getGeneration() {
+        return generation.get();
     }
 
     public Optional<ModelInstance> getById(String modelId) {
@@ -2,7 +2,8 @@ package com.aseubel.yusi.service.ai.model;
 
 import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
 import com.aseubel.yusi.observability.metrics.YusiMetrics;
-import com.aseubel.yusi.service.ai.mask.MaskResult;
+import com.aseubel.yusi.service.ai.mask.ConversationMaskCache;
+import com.aseubel.yusi.service.ai.mask.MaskAutomaton;
 import com.aseubel.yusi.service.ai.mask.SensitiveDataMaskService;
 import com.aseubel.yusi.service.ai.runtime.ModelCallAttemptEvent;
 import com.aseubel.yusi.common.constant.ModelCallStatus;
@@ -48,6 +49,7 @@ public class ModelProxyFactory {
     private final ModelTokenEstimator tokenEstimator;
     private final ModelBudgetAdmission budgetAdmission;
     private final YusiMetrics metrics;
+    private final ConversationMaskCache conversationMaskCache;
 
     public ModelProxyFactory(ModelRouterService modelRouterService, ModelStateCenter modelStateCenter,
             SensitiveDataMaskService maskService) {
@@ -77,11 +79,20 @@ public class ModelProxyFactory {
                 tokenEstimator, budgetAdmission, null);
     }
 
-    @Autowired
     public ModelProxyFactory(ModelRouterService modelRouterService, ModelStateCenter modelStateCenter,
             SensitiveDataMaskService maskService, ApplicationEventPublisher eventPublisher,
             ModelUsageExtractor usageExtractor, ModelTokenEstimator tokenEstimator,
             ModelBudgetAdmission budgetAdmission, YusiMetrics metrics) {
+        this(modelRouterService, modelStateCenter, maskService, eventPublisher, usageExtractor,
+                tokenEstimator, budgetAdmission, metrics, new ConversationMaskCache(maskService));
+    }
+
+    @Autowired
+    public ModelProxyFactory(ModelRouterService modelRouterService, ModelStateCenter modelStateCenter,
+            SensitiveDataMaskService maskService, ApplicationEventPublisher eventPublisher,
+            ModelUsageExtractor usageExtractor, ModelTokenEstimator tokenEstimator,
+            ModelBudgetAdmission budgetAdmission, YusiMetrics metrics,
+            ConversationMaskCache conversationMaskCache) {
         this.modelRouterService = modelRouterService;
         this.modelStateCenter = modelStateCenter;
         this.maskService = maskService;
@@ -90,6 +101,7 @@ public class ModelProxyFactory {
         this.tokenEstimator = tokenEstimator;
         this.budgetAdmission = budgetAdmission;
         this.metrics = metrics;
+        this.conversationMaskCache = conversationMaskCache;
     }
 
     public ChatModel createChatProxy(String defaultScene) {
@@ -655,7 +667,7 @@ public class ModelProxyFactory {
                 return method.invoke(delegate, args);
             }
 
-            // 1. 规范化消息并拼接所有文本，统一脱敏
+            // 1. 规范化消息，按会话增量识别：历史消息复用上一轮的识别结果，只对新消息做 NER
             List<ChatMessage> originalMessages = chatRequest.messages();
             List<ChatMessage> normalizedMessages = normalizeMessages(originalMessages);
             ChatRequest normalizedRequest = chatRequest.toBuilder()
@@ -663,18 +675,18 @@ public class ModelProxyFactory {
                     .build();
             Object[] normalizedArgs = args.clone();
             normalizedArgs[0] = normalizedRequest;
-            String allText = extractAllText(normalizedMessages);
-            MaskResult maskResult = maskService.mask(allText);
+            ConversationMaskCache.MaskTurn maskTurn = conversationMaskCache.analyze(
+                    conversationId(context), extractTexts(normalizedMessages));
 
-            if (!maskResult.isHasMasked()) {
+            if (!maskTurn.isHasMasked()) {
                 return method.invoke(delegate, normalizedArgs);
             }
 
-            Map<String, String> mapping = maskResult.getMappingTable();
+            Map<String, String> mapping = maskTurn.getMappingTable();
             log.debug("脱敏拦截: 映射表大小={}", mapping.size());
 
             // 2. 构建脱敏后的 ChatRequest
-            List<ChatMessage> maskedMessages = maskMessages(normalizedMessages, mapping);
+            List<ChatMessage> maskedMessages = maskMessages(normalizedMessages, maskTurn);
             ChatRequest maskedRequest = chatRequest.toBuilder()
                     .messages(maskedMessages)
                     .build();
@@ -702,56 +714,58 @@ public class ModelProxyFactory {
         }
 
         /**
-         * 提取所有消息的文本内容，拼接为一个字符串用于统一脱敏
+         * 同一用户在同一场景下的对话视为一个会话，共享占位符编号
          */
-        private String extractAllText(List<ChatMessage> messages) {
-            StringBuilder sb = new StringBuilder();
+        private String conversationId(ModelRouteContext context) {
+            if (context.getUserId() == null) {
+                return null;
+            }
+            String scene = context.getScene() != null ? context.getScene() : defaultScene;
+            return ConversationMaskCache.conversationId(context.getUserId(), scene);
+        }
+
+        private List<String> extractTexts(List<ChatMessage> messages) {
+            List<String> texts = new ArrayList<>();
             for (ChatMessage msg : messages) {
                 if (msg instanceof SystemMessage sm) {
-                    sb.append(sm.text()).append("\n");
+                    texts.add(sm.text());
                 } else if (msg instanceof UserMessage um) {
                     if (um.contents() != null) {
                         for (Content content : um.contents()) {
                             if (content instanceof TextContent tc) {
-                                sb.append(tc.text()).append("\n");
+                                texts.add(tc.text());
                             }
                         }
                     }
                 } else if (msg instanceof AiMessage am) {
                     if (am.text() != null) {
-                        sb.append(am.text()).append("\n");
+                        texts.add(am.text());
                     }
                     if (am.thinking() != null) {
-                        sb.append(am.thinking()).append("\n");
+                        texts.add(am.thinking());
                     }
                 } else if (msg instanceof ToolExecutionResultMessage tm) {
-                    sb.append(tm.text()).append("\n");
+                    texts.add(tm.text());
                 }
             }
-            return sb.toString();
+            return texts;
         }
 
         /**
          * 对每条消息的文本内容应用脱敏替换
          */
-        private List<ChatMessage> maskMessages(List<ChatMessage> messages, Map<String, String> mapping) {
-            // 反转映射表：原始值 → 占位符
-            Map<String, String> reverseMapping = new HashMap<>();
-            for (Map.Entry<String, String> entry : mapping.entrySet()) {
-                reverseMapping.put(entry.getValue(), entry.getKey());
-            }
-
-            return messages.stream().map(msg -> maskSingleMessage(msg, reverseMapping)).collect(Collectors.toList());
+        private List<ChatMessage> maskMessages(List<ChatMessage> messages, ConversationMaskCache.MaskTurn maskTurn) {
+            return messages.stream().map(msg -> maskSingleMessage(msg, maskTurn)).collect(Collectors.toList());
         }
 
-        private ChatMessage maskSingleMessage(ChatMessage msg, Map<String, String> reverseMapping) {
+        private ChatMessage maskSingleMessage(ChatMessage msg, ConversationMaskCache.MaskTurn maskTurn) {
             if (msg instanceof SystemMessage sm) {
-                return SystemMessage.from(replaceAll(sm.text(), reverseMapping));
+                return SystemMessage.from(maskTurn.mask(sm.text()));
             } else if (msg instanceof UserMessage um) {
                 // UserMessage 可能包含多种 Content（文本 + 图片），只替换文本部分
                 List<Content> maskedContents = um.contents().stream().map(content -> {
                     if (content instanceof TextContent tc) {
-                        return (Content) TextContent.from(replaceAll(tc.text(), reverseMapping));
+                        return (Content) TextContent.from(maskTurn.mask(tc.text()));
                     }
                     return content;
                 }).collect(Collectors.toList());
@@ -760,48 +774,46 @@ public class ModelProxyFactory {
                 AiMessage normalized = normalizeAssistantMessage(am);
                 AiMessage.Builder builder = normalized.toBuilder();
                 if (normalized.text() != null) {
-                    builder.text(replaceAll(normalized.text(), reverseMapping));
+                    builder.text(maskTurn.mask(normalized.text()));
                 }
                 if (normalized.thinking() != null) {
-                    builder.thinking(replaceAll(normalized.thinking(), reverseMapping));
+                    builder.thinking(maskTurn.mask(normalized.thinking()));
                 }
                 return builder.build();
             } else if (msg instanceof ToolExecutionResultMessage tm) {
                 return ToolExecutionResultMessage.from(tm.id(), tm.toolName(),
-                        replaceAll(tm.text(), reverseMapping));
+                        maskTurn.mask(tm.text()));
             }
             return msg;
         }
 
         /**
-         * 批量替换：将文本中的原始值替换为占位符
-         */
-        private String replaceAll(String text, Map<String, String> reverseMapping) {
-            if (text == null || text.isEmpty()) return text;
-            String result = text;
-            for (Map.Entry<String, String> entry : reverseMapping.entrySet()) {
-                result = result.replace(entry.getKey(), entry.getValue());
-            }
-            return result;
-        }
-
-        /**
-         * 包装流式响应处理器，对每个 token 和最终响应做 unmask
+         * 包装流式响应处理器，对每个 token 和最终响应做 unmask。
+         * 占位符可能被拆到相邻的多个 token 里，token 经流式替换器处理：
+         * 可能是占位符开头的末尾片段先缓存，确定后再输出，流结束（或出错）时补发剩余部分
          */
         private StreamingChatResponseHandler wrapStreamingHandler(
                 StreamingChatResponseHandler original, Map<String, String> mapping) {
+            MaskAutomaton.Streaming unmasker = MaskAutomaton.of(mapping).streaming();
             return new StreamingChatResponseHandler() {
+                private PartialResponseContext lastContext;
+
                 @Override
                 public void onPartialResponse(String partialResponse) {
-                    original.onPartialResponse(maskService.unmask(mapping, partialResponse));
+                    String unmasked = unmasker.feed(partialResponse);
+                    if (!unmasked.isEmpty()) {
+                        original.onPartialResponse(unmasked);
+                    }
                 }
 
                 @Override
                 public void onPartialResponse(PartialResponse partialResponse,
                         PartialResponseContext context) {
-                    PartialResponse unmasked = new PartialResponse(
-                            maskService.unmask(mapping, partialResponse.text()));
-                    original.onPartialResponse(unmasked, context);
+                    lastContext = context;
+                    String unmasked = unmasker.feed(partialResponse.text());
+                    if (!unmasked.isEmpty()) {
+                        original.onPartialResponse(new PartialResponse(unmasked), context);
+                    }
                 }
 
                 @Override
@@ -838,13 +850,27 @@ public class ModelProxyFactory {
 
                 @Override
                 public void onCompleteResponse(ChatResponse completeResponse) {
+                    flushPending();
                     original.onCompleteResponse(unmaskChatResponse(completeResponse, mapping));
                 }
 
                 @Override
                 public void onError(Throwable error) {
+                    flushPending();
                     original.onError(error);
                 }
+
+                private void flushPending() {
+                    String rest = unmasker.flush();
+                    if (rest.isEmpty()) {
+                        return;
+                    }
+                    if (lastContext != null) {
+                        original.onPartialResponse(new PartialResponse(rest), lastContext);
+                    } else {
+                        original.onPartialResponse(rest);
+                    }
+                }
             };
         }
 
@@ -8,6 +8,7 @@ import com.aseubel.yusi.service.ai.model.constant.ModelRouteExclusionReason;
 import com.aseubel.yusi.service.ai.model.strategy.ModelSelectionStrategy;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -17,11 +18,15 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 public class ModelRouterService {
 
+    /** 场景数量有限，超出说明传入了非预期的场景值，直接清空防止无界增长 */
+    private static final int MAX_CACHED_PLANS = 256;
+
     private final ModelConfigCenter modelConfigCenter;
     private final ModelInstanceRegistry modelInstanceRegistry;
     private final ModelStrategyRegistry modelStrategyRegistry;
@@ -29,6 +34,7 @@ public class ModelRouterService {
 
     private final ModelRoutePolicyMatcher routePolicyMatcher = new ModelRoutePolicyMatcher();
     private Map<ModelSelectionStrategyType, ModelSelectionStrategy> strategies = Map.of();
+    private final Map<String, RoutePlan> planCache = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
@@ -36,41 +42,18 @@ public class ModelRouterService {
     }
 
     public ModelRouteDecision plan(ModelRouteContext context) {
-        ModelRoutingProperties properties = modelConfigCenter.getEffectiveConfig();
+        RoutePlan routePlan = routePlan(context == null ? null : context.getScene());
+        ModelRoutingProperties properties = routePlan.properties();
+        RoutePolicyDefinition policy = routePlan.policy();
         ModelRouteContext normalizedContext = normalizeContext(context, properties);
-        RoutePolicyDefinition policy = routePolicyMatcher.match(properties, normalizedContext);
-        if (policy == null || policy.getPrimaryTier() == null || policy.getPrimaryTier().isBlank()) {
-            throw new IllegalStateException("No model route configured for scene: "
-                    + normalizedContext.getScene());
-        }
         ModelRouteContext budgetContext = applyRouteBudget(normalizedContext, policy);
-
-        List<String> fallbackTiers = policy.getFallbackTiers() == null
-                ? List.of() : policy.getFallbackTiers().stream()
-                .filter(Objects::nonNull)
-                .map(this::normalize)
-                .filter(tier -> !tier.isBlank())
-                .toList();
-        String primaryTier = policy.getPrimaryTier();
-        List<String> tierOrder = new ArrayList<>();
-        tierOrder.add(primaryTier);
-        fallbackTiers.stream().filter(tier -> !tier.equals(primaryTier)).forEach(tierOrder::add);
-
-        List<String> modelIds = tierOrder.stream()
-                .flatMap(tier -> modelInstanceRegistry.getTierMembers(tier).stream())
-                .map(ModelInstance::getId)
-                .filter(Objects::nonNull)
-                .toList();
-        Map<String, ModelRuntimeState> states = modelIds.isEmpty()
-                ? Map.of() : modelStateCenter.snapshot(modelIds);
+        Map<String, ModelRuntimeState> states = routePlan.states(modelStateCenter);
 
         List<ModelRouteCandidate> candidates = new ArrayList<>();
         Set<String> healthReasons = new LinkedHashSet<>();
-        for (int index = 0; index < tierOrder.size(); index++) {
-            String tierId = tierOrder.get(index);
-            boolean fallback = index > 0;
+        for (int index = 0; index < routePlan.tiers().size(); index++) {
             List<ModelRouteCandidate> tierCandidates = routeTier(
-                    properties, tierId, policy, budgetContext, states, fallback);
+                    routePlan.tiers().get(index), policy, budgetContext, states, index > 0);
             candidates.addAll(tierCandidates);
             tierCandidates.stream()
                     .map(ModelRouteCandidate::excludedReason)
@@ -79,45 +62,104 @@ public class ModelRouterService {
                     .forEach(healthReasons::add);
         }
 
-        ModelTierDefinition primaryDefinition = properties.getTiers().get(primaryTier);
-        ModelSelectionStrategyType strategy = primaryDefinition == null || primaryDefinition.getStrategy() == null
-                ? ModelSelectionStrategyType.ROUND_ROBIN : primaryDefinition.getStrategy();
         String routeReason = "policy=" + safe(policy.getId(), "default")
                 + ";policy-version=" + properties.getVersion()
                 + ";scene=" + normalizedContext.getScene()
                 + ";risk=" + safe(normalizedContext.getRiskLevel(), policy.getRiskLevel())
                 + ";estimated-input-tokens=" + numberOrUnknown(budgetContext.getEstimatedInputTokens())
                 + ";reserved-output-tokens=" + numberOrUnknown(budgetContext.getReservedOutputTokens())
-                + ";primary-tier=" + primaryTier
-                + ";strategy=" + strategy.name()
-                + ";fallback-tiers=" + String.join(",", fallbackTiers)
+                + ";primary-tier=" + routePlan.primaryTier()
+                + ";strategy=" + routePlan.strategy().name()
+                + ";fallback-tiers=" + String.join(",", routePlan.fallbackTiers())
                 + ";health-filter=" + (healthReasons.isEmpty() ? "none" : String.join(",", healthReasons));
         return new ModelRouteDecision(budgetContext.getRequestId(), policy.getId(),
-                properties.getVersion(), primaryTier, fallbackTiers, candidates, routeReason,
+                properties.getVersion(), routePlan.primaryTier(), routePlan.fallbackTiers(), candidates, routeReason,
                 ModelRouteParameters.from(policy));
     }
 
-    private List<ModelRouteCandidate> routeTier(ModelRoutingProperties properties, String tierId,
-            RoutePolicyDefinition policy, ModelRouteContext context,
-            Map<String, ModelRuntimeState> states, boolean fallback) {
-        ModelTierDefinition tier = properties.getTiers().get(tierId);
-        List<ModelInstance> members = modelInstanceRegistry.getTierMembers(tierId);
-        ModelSelectionStrategy strategy = strategies.getOrDefault(
-                tier == null || tier.getStrategy() == null
-                        ? ModelSelectionStrategyType.ROUND_ROBIN : tier.getStrategy(),
-                strategies.get(ModelSelectionStrategyType.ROUND_ROBIN));
-        if (strategy == null) {
+    /**
+     * 配置更新后丢弃全部路由计划；实例注册表 reload 后的 tier 成员变化由计划里记录的注册表版本兜底
+     */
+    @EventListener
+    public void handleModelConfigUpdated(ModelConfigUpdatedEvent event) {
+        planCache.clear();
+    }
+
+    /**
+     * 取场景对应的路由计划：策略匹配、tier 展开与实例列表只依赖配置和注册表，缓存后按场景复用
+     */
+    private RoutePlan routePlan(String requestedScene) {
+        String cacheKey = requestedScene == null ? "" : requestedScene;
+        long registryGeneration = modelInstanceRegistry.getGeneration();
+        RoutePlan cached = planCache.get(cacheKey);
+        if (cached != null && cached.registryGeneration() == registryGeneration) {
+            return cached;
+        }
+        RoutePlan built = buildRoutePlan(requestedScene, registryGeneration);
+        if (built.properties().isRoutePlanCacheEnabled()) {
+            if (planCache.size() >= MAX_CACHED_PLANS) {
+                planCache.clear();
+            }
+            planCache.put(cacheKey, built);
+        }
+        return built;
+    }
+
+    private RoutePlan buildRoutePlan(String requestedScene, long registryGeneration) {
+        ModelRoutingProperties properties = modelConfigCenter.getEffectiveConfig();
+        String scene = normalize(valueOrDefault(requestedScene, properties.getDefaultScene()));
+        RoutePolicyDefinition policy = routePolicyMatcher.match(properties,
+                ModelRouteContext.builder().scene(scene).build());
+        if (policy == null || policy.getPrimaryTier() == null || policy.getPrimaryTier().isBlank()) {
+            throw new IllegalStateException("No model route configured for scene: " + scene);
+        }
+
+        List<String> fallbackTiers = policy.getFallbackTiers() == null
+                ? List.of() : policy.getFallbackTiers().stream()
+                .filter(Objects::nonNull)
+                .map(this::normalize)
+                .filter(tier -> !tier.isBlank())
+                .toList();
+        String primaryTier = policy.getPrimaryTier();
+        List<String> tierOrder = new ArrayList<>();
+        tierOrder.add(primaryTier);
+        fallbackTiers.stream().filter(tier -> !tier.equals(primaryTier)).forEach(tierOrder::add);
+
+        List<TierPlan> tiers = new ArrayList<>(tierOrder.size());
+        List<String> modelIds = new ArrayList<>();
+        for (String tierId : tierOrder) {
+            ModelTierDefinition tier = properties.getTiers().get(tierId);
+            List<ModelInstance> members = modelInstanceRegistry.getTierMembers(tierId);
+            ModelSelectionStrategy strategy = strategies.getOrDefault(
+                    tier == null || tier.getStrategy() == null
+                            ? ModelSelectionStrategyType.ROUND_ROBIN : tier.getStrategy(),
+                    strategies.get(ModelSelectionStrategyType.ROUND_ROBIN));
+            tiers.add(new TierPlan(tierId, tier, List.copyOf(members), strategy));
+            members.stream().map(ModelInstance::getId).filter(Objects::nonNull).forEach(modelIds::add);
+        }
+
+        ModelTierDefinition primaryDefinition = properties.getTiers().get(primaryTier);
+        ModelSelectionStrategyType strategy = primaryDefinition == null || primaryDefinition.getStrategy() == null
+                ? ModelSelectionStrategyType.ROUND_ROBIN : primaryDefinition.getStrategy();
+        return new RoutePlan(registryGeneration, properties, policy, primaryTier, fallbackTiers,
+                List.copyOf(tiers), List.copyOf(modelIds), strategy);
+    }
+
+    private List<ModelRouteCandidate> routeTier(TierPlan tierPlan, RoutePolicyDefinition policy,
+            ModelRouteContext context, Map<String, ModelRuntimeState> states, boolean fallback) {
+        if (tierPlan.strategy() == null) {
             return List.of();
         }
-        List<ModelInstance> ordered = strategy.order(tierId, members, states);
+        List<ModelInstance> ordered = tierPlan.strategy().order(tierPlan.tierId(), tierPlan.members(), states);
         List<ModelRouteCandidate> result = new ArrayList<>(ordered.size());
         for (ModelInstance instance : ordered) {
-            String excludedReason = exclusionReason(policy, tier, instance, context, states.get(instance.getId()));
+            String excludedReason = exclusionReason(policy, tierPlan.tier(), instance, context,
+                    states.get(instance.getId()));
             boolean available = excludedReason == null;
             if (fallback && available) {
                 excludedReason = ModelRouteExclusionReason.FALLBACK_TIER.code();
             }
-            result.add(new ModelRouteCandidate(tierId, instance, available, excludedReason));
+            result.add(new ModelRouteCandidate(tierPlan.tierId(), instance, available, excludedReason));
         }
         return List.copyOf(result);
     }
@@ -227,4 +269,86 @@ public class ModelRouterService {
     private String numberOrUnknown(Integer value) {
         return value == null ? "unknown" : value.toString();
     }
+
+    private record TierPlan(String tierId, ModelTierDefinition tier, List<ModelInstance> members,
+            ModelSelectionStrategy strategy) {
+    }
+
+    /**
+     * 单个场景的路由计划。实例状态快照挂在计划上复用：
+     * 任一实例熔断阶段切换（healthGeneration 变化）或超过 routePlanStateTtlMs 后重新拉取
+     */
+    private static final class RoutePlan {
+
+        private final long registryGeneration;
+        private final ModelRoutingProperties properties;
+        private final RoutePolicyDefinition policy;
+        private final String primaryTier;
+        private final List<String> fallbackTiers;
+        private final List<TierPlan> tiers;
+        private final List<String> modelIds;
+        private final ModelSelectionStrategyType strategy;
+        private volatile StateSnapshot stateSnapshot;
+
+        private RoutePlan(long registryGeneration, ModelRoutingProperties properties, RoutePolicyDefinition policy,
+                String primaryTier, List<String> fallbackTiers, List<TierPlan> tiers, List<String> modelIds,
+                ModelSelectionStrategyType strategy) {
+            this.registryGeneration = registryGeneration;
+            this.properties = properties;
+            this.policy = policy;
+            this.primaryTier = primaryTier;
+            this.fallbackTiers = fallbackTiers;
+            this.tiers = tiers;
+            this.modelIds = modelIds;
+            this.strategy = strategy;
+        }
+
+        private Map<String, ModelRuntimeState> states(ModelStateCenter stateCenter) {
+            if (modelIds.isEmpty()) {
+                return Map.of();
+            }
+            long generation = stateCenter.healthGeneration();
+            long now = System.currentTimeMillis();
+            StateSnapshot current = stateSnapshot;
+            if (current != null && current.generation() == generation
+                    && now - current.takenAt() < properties.getRoutePlanStateTtlMs()) {
+                return current.states();
+            }
+            Map<String, ModelRuntimeState> states = stateCenter.snapshot(modelIds);
+            Map<String, ModelRuntimeState> frozen = states == null ? Map.of() : Map.copyOf(states);
+            stateSnapshot = new StateSnapshot(generation, now, frozen);
+            return frozen;
+        }
+
+        private long registryGeneration() {
+            return registryGeneration;
+        }
+
+        private ModelRoutingProperties properties() {
+            return properties;
+        }
+
+        private RoutePolicyDefinition policy() {
+            return policy;
+        }
+
+        private String primaryTier() {
+            return primaryTier;
+        }
+
+        private List<String> fallbackTiers() {
+            return fallbackTiers;
+        }
+
+        private List<TierPlan> tiers() {
+            return tiers;
+        }
+
+        private ModelSelectionStrategyType strategy() {
+            return strategy;
+        }
+    }
+
+    private record StateSnapshot(long generation, long takenAt, Map<String, ModelRuntimeState> states) {
+    }
 }
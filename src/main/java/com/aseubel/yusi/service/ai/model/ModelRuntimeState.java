@@ -14,9 +14,19 @@ public class ModelRuntimeState {
     private String modelName;
     private boolean available;
     private double healthScore;
+    /**
+     * QPS、错误率、窗口请求数与延迟分位数均按近期滑动窗口统计
+     */
     private double qps;
+    /**
+     * 近期滑动窗口内的平均延迟；窗口内没有请求时为历史 EWMA
+     */
     private double avgLatencyMs;
     private double errorRate;
+    private long windowRequests;
+    private double p50LatencyMs;
+    private double p95LatencyMs;
+    private double p99LatencyMs;
     private long totalRequests;
     private long successRequests;
     private long failureRequests;
@@ -4,5 +4,6 @@ public enum ModelSelectionStrategyType {
     ROUND_ROBIN,
     LEAST_LATENCY,
     WEIGHTED_RANDOM,
-    FAIL_OVER
+    FAIL_OVER,
+    TAIL_LATENCY
 }
@@ -17,25 +17,44 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ModelStateCenter {
 
+    /**
+     * 单个实例的本地状态。累计计数与连续成功/失败次数用原子变量维护，
+     * 熔断阶段的切换通过 CAS 完成，近期 QPS、错误率与延迟分位数来自滑动窗口。
+     */
     private static class LocalWindow {
-        private volatile long firstRequestAt = System.currentTimeMillis();
-        private volatile long totalRequests;
-        private volatile long successRequests;
-        private volatile long failureRequests;
+        private final SlidingLatencyWindow recent;
+        private final AtomicLong totalRequests = new AtomicLong();
+        private final AtomicLong successRequests = new AtomicLong();
+        private final AtomicLong failureRequests = new AtomicLong();
         private volatile double avgLatencyMs;
-        private volatile int consecutiveFailures;
-        private volatile int consecutiveSuccesses;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicInteger consecutiveSuccesses = new AtomicInteger();
         private volatile long nextProbeAt;
         private volatile String lastError;
-        private volatile ModelHealthPhase phase = ModelHealthPhase.UP;
+        private final AtomicReference<ModelHealthPhase> phase = new AtomicReference<>(ModelHealthPhase.UP);
         private volatile ModelHealthPhase previousPhase = ModelHealthPhase.UP;
         private final AtomicBoolean probing = new AtomicBoolean(false);
+
+        private LocalWindow(long windowMs, long bucketMs) {
+            this.recent = new SlidingLatencyWindow(windowMs, bucketMs, System.currentTimeMillis());
+        }
+
+        /**
+         * 窗口内没有样本时沿用历史 EWMA，避免空闲实例的平均延迟归零
+         */
+        private void updateEwma(long latencyMs) {
+            double current = avgLatencyMs;
+            avgLatencyMs = current == 0 ? latencyMs : (current * 0.8 + latencyMs * 0.2);
+        }
     }
 
     private final ModelRoutingProperties properties;
@@ -43,6 +62,8 @@ public class ModelStateCenter {
     private final RedissonClient redissonClient;
     private final Map<String, LocalWindow> localWindows = new ConcurrentHashMap<>();
     private final Map<String, ModelRuntimeState> remoteStateCache = new ConcurrentHashMap<>();
+    /** 本地或远端任一实例发生熔断阶段切换时递增，供路由计划缓存判断状态快照是否过期 */
+    private final AtomicLong healthGeneration = new AtomicLong();
 
     @PostConstruct
     public void init() {
@@ -51,86 +72,87 @@ public class ModelStateCenter {
                 return;
             }
             remoteStateCache.put(message.getInstanceId(), message.getState());
+            healthGeneration.incrementAndGet();
         });
 
         RMap<String, ModelRuntimeState> stateMap = redissonClient.getMap(properties.getInstanceStateMapKey());
         for (Map.Entry<String, ModelRuntimeState> entry : stateMap.readAllMap().entrySet()) {
             ModelRuntimeState state = entry.getValue();
             if (state != null && state.getInstanceId() != null) {
-                LocalWindow window = localWindows.computeIfAbsent(entry.getKey(), id -> new LocalWindow());
-                window.totalRequests = state.getTotalRequests();
-                window.successRequests = state.getSuccessRequests();
-                window.failureRequests = state.getFailureRequests();
+                LocalWindow window = window(entry.getKey());
+                window.totalRequests.set(state.getTotalRequests());
+                window.successRequests.set(state.getSuccessRequests());
+                window.failureRequests.set(state.getFailureRequests());
                 window.avgLatencyMs = state.getAvgLatencyMs();
-                window.consecutiveFailures = state.getConsecutiveFailures();
-                window.consecutiveSuccesses = state.getConsecutiveSuccesses();
-                window.phase = phaseOrDefault(state.getPhase());
-                window.previousPhase = window.phase;
+                window.consecutiveFailures.set(state.getConsecutiveFailures());
+                window.consecutiveSuccesses.set(state.getConsecutiveSuccesses());
+                window.phase.set(phaseOrDefault(state.getPhase()));
+                window.previousPhase = window.phase.get();
                 window.nextProbeAt = state.getNextProbeAt();
                 window.lastError = state.getLastError();
                 log.info("Restored state for instance {}: phase={}, totalRequests={}",
-                        entry.getKey(), window.phase, window.totalRequests);
+                        entry.getKey(), window.phase.get(), window.totalRequests.get());
             }
         }
     }
 
     public boolean allowRequest(String instanceId) {
-        LocalWindow window = localWindows.computeIfAbsent(instanceId, id -> new LocalWindow());
+        LocalWindow window = window(instanceId);
         long now = System.currentTimeMillis();
-        if (window.phase == ModelHealthPhase.UP) {
+        ModelHealthPhase phase = window.phase.get();
+        if (phase == ModelHealthPhase.UP) {
             return true;
         }
-        if (window.phase == ModelHealthPhase.DOWN && now >= window.nextProbeAt) {
+        if (phase == ModelHealthPhase.DOWN && now >= window.nextProbeAt) {
             if (window.probing.compareAndSet(false, true)) {
-                window.previousPhase = window.phase;
-                window.phase = ModelHealthPhase.HALF_OPEN;
+                window.previousPhase = phase;
+                window.phase.set(ModelHealthPhase.HALF_OPEN);
                 publishState(instanceId, "", window, ModelStateAction.PHASE_CHANGE.code());
                 return true;
             }
             return false;
         }
-        if (window.phase == ModelHealthPhase.HALF_OPEN) {
+        if (phase == ModelHealthPhase.HALF_OPEN) {
             return window.probing.compareAndSet(false, true);
         }
         return false;
     }
 
     public void recordSuccess(String instanceId, String modelName, long latencyMs) {
-        LocalWindow window = localWindows.computeIfAbsent(instanceId, id -> new LocalWindow());
-        synchronized (window) {
-            window.totalRequests++;
-            window.successRequests++;
-            window.consecutiveFailures = 0;
-            window.consecutiveSuccesses++;
-            window.avgLatencyMs = window.avgLatencyMs == 0 ? latencyMs : (window.avgLatencyMs * 0.8 + latencyMs * 0.2);
-            if (window.phase == ModelHealthPhase.HALF_OPEN
-                    && window.consecutiveSuccesses >= modelConfigCenter.getEffectiveConfig().getRecoverySuccessThreshold()) {
-                window.previousPhase = window.phase;
-                window.phase = ModelHealthPhase.UP;
-                window.nextProbeAt = 0L;
-                publishState(instanceId, modelName, window, ModelStateAction.PHASE_CHANGE.code());
-            }
+        LocalWindow window = window(instanceId);
+        window.recent.record(System.currentTimeMillis(), latencyMs, true);
+        window.totalRequests.incrementAndGet();
+        window.successRequests.incrementAndGet();
+        window.consecutiveFailures.set(0);
+        int successes = window.consecutiveSuccesses.incrementAndGet();
+        window.updateEwma(latencyMs);
+        if (window.phase.get() == ModelHealthPhase.HALF_OPEN
+                && successes >= modelConfigCenter.getEffectiveConfig().getRecoverySuccessThreshold()
+                && window.phase.compareAndSet(ModelHealthPhase.HALF_OPEN, ModelHealthPhase.UP)) {
+            window.previousPhase = ModelHealthPhase.HALF_OPEN;
+            window.nextProbeAt = 0L;
+            publishState(instanceId, modelName, window, ModelStateAction.PHASE_CHANGE.code());
         }
         window.probing.set(false);
     }
 
     public void recordFailure(String instanceId, String modelName, long latencyMs, Throwable throwable) {
-        LocalWindow window = localWindows.computeIfAbsent(instanceId, id -> new LocalWindow());
-        synchronized (window) {
-            window.totalRequests++;
-            window.failureRequests++;
-            window.consecutiveFailures++;
-            window.consecutiveSuccesses = 0;
-            window.avgLatencyMs = window.avgLatencyMs == 0 ? latencyMs : (window.avgLatencyMs * 0.8 + latencyMs * 0.2);
-            window.lastError = throwable == null ? "" : throwable.getMessage();
-            if (window.phase == ModelHealthPhase.HALF_OPEN
-                    || window.consecutiveFailures >= modelConfigCenter.getEffectiveConfig().getFailureThreshold()) {
-                window.previousPhase = window.phase;
-                window.phase = ModelHealthPhase.DOWN;
-                window.nextProbeAt = System.currentTimeMillis()
-                        + modelConfigCenter.getEffectiveConfig().getRecoveryProbeIntervalMs();
-                publishState(instanceId, modelName, window, ModelStateAction.PHASE_CHANGE.code());
-            }
+        LocalWindow window = window(instanceId);
+        window.recent.record(System.currentTimeMillis(), latencyMs, false);
+        window.totalRequests.incrementAndGet();
+        window.failureRequests.incrementAndGet();
+        int failures = window.consecutiveFailures.incrementAndGet();
+        window.consecutiveSuccesses.set(0);
+        window.updateEwma(latencyMs);
+        window.lastError = throwable == null ? "" : throwable.getMessage();
+        ModelHealthPhase current = window.phase.get();
+        if ((current == ModelHealthPhase.HALF_OPEN
+                || failures >= modelConfigCenter.getEffectiveConfig().getFailureThreshold())
+                && window.phase.compareAndSet(current, ModelHealthPhase.DOWN)) {
+            window.previousPhase = current;
+            window.nextProbeAt = System.currentTimeMillis()
+                    + modelConfigCenter.getEffectiveConfig().getRecoveryProbeIntervalMs();
+            publishState(instanceId, modelName, window, ModelStateAction.PHASE_CHANGE.code());
         }
         window.probing.set(false);
     }
@@ -175,7 +197,12 @@ public class ModelStateCenter {
         log.debug("Synced {} model states to Redis", localWindows.size());
     }
 
+    public long healthGeneration() {
+        return healthGeneration.get();
+    }
+
     private void publishState(String instanceId, String modelName, LocalWindow window, String action) {
+        healthGeneration.incrementAndGet();
         ModelRuntimeState state = toState(instanceId, modelName, window);
         redissonClient.<String, ModelRuntimeState>getMap(properties.getInstanceStateMapKey()).put(instanceId, state);
         ModelStateEvent event = ModelStateEvent.builder()
@@ -188,30 +215,38 @@ public class ModelStateCenter {
         topic.publish(event);
     }
 
+    private LocalWindow window(String instanceId) {
+        return localWindows.computeIfAbsent(instanceId,
+                id -> new LocalWindow(properties.getLatencyWindowMs(), properties.getLatencyBucketMs()));
+    }
+
     private ModelRuntimeState toState(String instanceId, String modelName, LocalWindow window) {
-        double errorRate = window.totalRequests == 0 ? 0 : (double) window.failureRequests / (double) window.totalRequests;
-        double qps = window.totalRequests == 0 ? 0
-                : (window.totalRequests * 1000D) / Math.max(1L, System.currentTimeMillis() - window.firstRequestAt);
-        double healthScore = Math.max(0D, 1D - errorRate);
-        if (window.phase == ModelHealthPhase.DOWN) {
+        SlidingLatencyWindow.Snapshot recent = window.recent.snapshot(System.currentTimeMillis());
+        ModelHealthPhase phase = window.phase.get();
+        double healthScore = Math.max(0D, 1D - recent.errorRate());
+        if (phase == ModelHealthPhase.DOWN) {
             healthScore = Math.min(healthScore, 0.2D);
         }
         return ModelRuntimeState.builder()
                 .instanceId(instanceId)
                 .modelName(modelName)
-                .available(window.phase != ModelHealthPhase.DOWN)
+                .available(phase != ModelHealthPhase.DOWN)
                 .healthScore(healthScore)
-                .qps(qps)
-                .avgLatencyMs(window.avgLatencyMs)
-                .errorRate(errorRate)
-                .totalRequests(window.totalRequests)
-                .successRequests(window.successRequests)
-                .failureRequests(window.failureRequests)
-                .consecutiveFailures(window.consecutiveFailures)
-                .consecutiveSuccesses(window.consecutiveSuccesses)
+                .qps(recent.qps())
+                .avgLatencyMs(recent.requests() > 0 ? recent.avgLatencyMs() : window.avgLatencyMs)
+                .errorRate(recent.errorRate())
+                .windowRequests(recent.requests())
+                .p50LatencyMs(recent.p50LatencyMs())
+                .p95LatencyMs(recent.p95LatencyMs())
+                .p99LatencyMs(recent.p99LatencyMs())
+                .totalRequests(window.totalRequests.get())
+                .successRequests(window.successRequests.get())
+                .failureRequests(window.failureRequests.get())
+                .consecutiveFailures(window.consecutiveFailures.get())
+                .consecutiveSuccesses(window.consecutiveSuccesses.get())
                 .lastUpdatedAt(System.currentTimeMillis())
                 .nextProbeAt(window.nextProbeAt)
-                .phase(window.phase.code())
+                .phase(phase.code())
                 .lastError(window.lastError)
                 .build();
     }
@@ -4,6 +4,7 @@ import com.aseubel.yusi.service.ai.model.strategy.FailOverSelectionStrategy;
 import com.aseubel.yusi.service.ai.model.strategy.LeastLatencySelectionStrategy;
 import com.aseubel.yusi.service.ai.model.strategy.ModelSelectionStrategy;
 import com.aseubel.yusi.service.ai.model.strategy.RoundRobinSelectionStrategy;
+import com.aseubel.yusi.service.ai.model.strategy.TailLatencySelectionStrategy;
 import com.aseubel.yusi.service.ai.model.strategy.WeightedRandomSelectionStrategy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -19,6 +20,7 @@ public class ModelStrategyRegistry {
     private final LeastLatencySelectionStrategy leastLatencySelectionStrategy;
     private final WeightedRandomSelectionStrategy weightedRandomSelectionStrategy;
     private final FailOverSelectionStrategy failOverSelectionStrategy;
+    private final TailLatencySelectionStrategy tailLatencySelectionStrategy;
 
     public Map<ModelSelectionStrategyType, ModelSelectionStrategy> build() {
         Map<ModelSelectionStrategyType, ModelSelectionStrategy> map = new EnumMap<>(ModelSelectionStrategyType.class);
@@ -26,6 +28,7 @@ public class ModelStrategyRegistry {
         map.put(ModelSelectionStrategyType.LEAST_LATENCY, leastLatencySelectionStrategy);
         map.put(ModelSelectionStrategyType.WEIGHTED_RANDOM, weightedRandomSelectionStrategy);
         map.put(ModelSelectionStrategyType.FAIL_OVER, failOverSelectionStrategy);
+        map.put(ModelSelectionStrategyType.TAIL_LATENCY, tailLatencySelectionStrategy);
         return map;
     }
 }
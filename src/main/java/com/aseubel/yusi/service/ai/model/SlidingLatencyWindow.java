@@ -0,0 +1,137 @@
+package com.aseubel.yusi.service.ai.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按时间分桶的滑动窗口，记录单个模型实例近期的请求数、失败数与延迟分布。
+ *
+ * 窗口由固定数量的时间桶组成环形数组（默认 10 秒一桶、共 5 分钟），写入只做原子累加，不加锁。
+ * 时间桶轮转时由抢到 CAS 的线程清零旧数据；清零与并发写入交错时可能丢失极少量样本，对路由决策可以接受。
+ * 延迟用对数分桶直方图记录（每个 2 的幂区间再分 4 档，相对误差不超过 25%），分位数取所在档的上界。
+ */
+final class SlidingLatencyWindow {
+
+    static final int HISTOGRAM_BUCKETS = 96;
+    private static final long MAX_TRACKED_LATENCY_MS = (1L << 25) - 1;
+
+    private final long bucketMs;
+    private final Slot[] slots;
+    private final long createdAt;
+
+    SlidingLatencyWindow(long windowMs, long bucketMs, long now) {
+        this.bucketMs = Math.max(1L, bucketMs);
+        int slotCount = (int) Math.max(1L, (Math.max(windowMs, this.bucketMs) + this.bucketMs - 1) / this.bucketMs);
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+        this.createdAt = now;
+    }
+
+    void record(long now, long latencyMs, boolean success) {
+        Slot slot = current(now);
+        long latency = Math.max(0L, Math.min(latencyMs, MAX_TRACKED_LATENCY_MS));
+        slot.requests.incrementAndGet();
+        if (!success) {
+            slot.failures.incrementAndGet();
+        }
+        slot.latencySum.addAndGet(latency);
+        slot.histogram.incrementAndGet(bucketOf(latency));
+    }
+
+    Snapshot snapshot(long now) {
+        long currentEpoch = now / bucketMs;
+        long oldestEpoch = currentEpoch - slots.length + 1;
+        long requests = 0;
+        long failures = 0;
+        long latencySum = 0;
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (Slot slot : slots) {
+            long epoch = slot.epoch.get();
+            if (epoch < oldestEpoch || epoch > currentEpoch) {
+                continue;
+            }
+            requests += slot.requests.get();
+            failures += slot.failures.get();
+            latencySum += slot.latencySum.get();
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                histogram[i] += slot.histogram.get(i);
+            }
+        }
+        if (requests <= 0) {
+            return Snapshot.EMPTY;
+        }
+        long coveredMs = Math.max(bucketMs, Math.min((long) slots.length * bucketMs, now - createdAt));
+        return new Snapshot(requests, failures,
+                (double) failures / requests,
+                requests * 1000D / coveredMs,
+                (double) latencySum / requests,
+                percentile(histogram, requests, 0.50),
+                percentile(histogram, requests, 0.95),
+                percentile(histogram, requests, 0.99));
+    }
+
+    private Slot current(long now) {
+        long epoch = now / bucketMs;
+        Slot slot = slots[(int) Math.floorMod(epoch, (long) slots.length)];
+        long seen = slot.epoch.get();
+        if (seen < epoch && slot.epoch.compareAndSet(seen, epoch)) {
+            slot.reset();
+        }
+        return slot;
+    }
+
+    static int bucketOf(long latencyMs) {
+        if (latencyMs < 8) {
+            return (int) Math.max(0L, latencyMs);
+        }
+        int bits = 64 - Long.numberOfLeadingZeros(latencyMs);
+        int sub = (int) ((latencyMs >>> (bits - 3)) & 0b11);
+        return Math.min(HISTOGRAM_BUCKETS - 1, 8 + (bits - 4) * 4 + sub);
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < 8) {
+            return bucket;
+        }
+        int bits = (bucket - 8) / 4 + 4;
+        int sub = (bucket - 8) % 4;
+        return ((4L + sub + 1) << (bits - 3)) - 1;
+    }
+
+    private static double percentile(long[] histogram, long total, double quantile) {
+        long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+        long cumulative = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            cumulative += histogram[i];
+            if (cumulative >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(histogram.length - 1);
+    }
+
+    private static final class Slot {
+        private final AtomicLong epoch = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong latencySum = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+        private void reset() {
+            requests.set(0);
+            failures.set(0);
+            latencySum.set(0);
+            for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+                histogram.set(i, 0);
+            }
+        }
+    }
+
+    record Snapshot(long requests, long failures, double errorRate, double qps, double avgLatencyMs,
+            double p50LatencyMs, double p95LatencyMs, double p99LatencyMs) {
+
+        static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.aseubel.yusi.service.ai.model.strategy;
+
+import com.aseubel.yusi.config.ai.properties.ModelRoutingProperties;
+import com.aseubel.yusi.service.ai.model.ModelInstance;
+import com.aseubel.yusi.service.ai.model.ModelRuntimeState;
+import com.aseubel.yusi.service.ai.model.constant.ModelHealthPhase;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按近期尾延迟与错误预算排序：
+ * 1. 样本充足且错误率在预算内的实例，按 p95、p99 升序
+ * 2. 近期样本不足的实例，按优先级
+ * 3. 错误率超出预算的实例，按错误率、p95 升序
+ * 4. 不可用实例
+ */
+@Component
+@RequiredArgsConstructor
+public class TailLatencySelectionStrategy implements ModelSelectionStrategy {
+
+    private final ModelRoutingProperties properties;
+
+    @Override
+    public List<ModelInstance> order(String tierId, List<ModelInstance> candidates,
+            Map<String, ModelRuntimeState> states) {
+        List<ModelInstance> withinBudget = new ArrayList<>();
+        List<ModelInstance> unsampled = new ArrayList<>();
+        List<ModelInstance> overBudget = new ArrayList<>();
+        List<ModelInstance> unavailable = new ArrayList<>();
+        for (ModelInstance candidate : candidates) {
+            ModelRuntimeState state = states.get(candidate.getId());
+            if (!isAvailable(state)) {
+                unavailable.add(candidate);
+            } else if (state == null || state.getWindowRequests() < properties.getTailLatencyMinSamples()) {
+                unsampled.add(candidate);
+            } else if (state.getErrorRate() > properties.getTailLatencyErrorBudget()) {
+                overBudget.add(candidate);
+            } else {
+                withinBudget.add(candidate);
+            }
+        }
+        withinBudget.sort(Comparator.<ModelInstance>comparingDouble(candidate -> states.get(candidate.getId())
+                        .getP95LatencyMs())
+                .thenComparingDouble(candidate -> states.get(candidate.getId()).getP99LatencyMs())
+                .thenComparing(ModelInstance::getId));
+        unsampled.sort(Comparator.comparingInt(ModelInstance::getPriority).thenComparing(ModelInstance::getId));
+        overBudget.sort(Comparator.<ModelInstance>comparingDouble(candidate -> states.get(candidate.getId())
+                        .getErrorRate())
+                .thenComparingDouble(candidate -> states.get(candidate.getId()).getP95LatencyMs())
+                .thenComparing(ModelInstance::getId));
+        unavailable.sort(Comparator.comparing(ModelInstance::getId));
+
+        List<ModelInstance> result = new ArrayList<>(candidates.size());
+        result.addAll(withinBudget);
+        result.addAll(unsampled);
+        result.addAll(overBudget);
+        result.addAll(unavailable);
+        return List.copyOf(result);
+    }
+
+    private boolean isAvailable(ModelRuntimeState state) {
+        return state == null || state.isAvailable()
+                || ModelHealthPhase.HALF_OPEN.code().equalsIgnoreCase(state.getPhase());
+    }
+}
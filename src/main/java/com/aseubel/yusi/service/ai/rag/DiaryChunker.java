@@ -1,5 +1,6 @@
 package com.aseubel.yusi.service.ai.rag;
 
+import cn.hutool.crypto.digest.DigestUtil;
 import com.aseubel.yusi.pojo.entity.Diary;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
@@ -75,5 +76,12 @@ public class DiaryChunker {
         public String text() {
             return header.isBlank() ? body : header + "\n\n" + body;
         }
+
+        /**
+         * 分片向量化文本的内容哈希，与向量一起存入 metadata，用于判断重新处理时分片是否变化
+         */
+        public String contentHash() {
+            return DigestUtil.sha256Hex(text());
+        }
     }
 }
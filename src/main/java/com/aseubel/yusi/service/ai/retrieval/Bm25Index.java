@@ -0,0 +1,140 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * BM25 倒排索引，参数与 Milvus BM25 函数默认值一致：k1=1.2、b=0.75。
+ *
+ * 分词近似 Milvus standard analyzer：转小写，连续字母数字作为一个词，CJK 字符逐字切分。
+ * 非线程安全，由调用方加锁。
+ */
+final class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+    private final Map<String, Map<String, Integer>> termsByDocument = new HashMap<>();
+    private final Map<String, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+
+    void add(String documentId, String text) {
+        remove(documentId);
+        List<String> tokens = tokenize(text);
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        for (String token : tokens) {
+            termFrequencies.merge(token, 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), ignored -> new HashMap<>()).put(documentId, entry.getValue());
+        }
+        termsByDocument.put(documentId, termFrequencies);
+        documentLengths.put(documentId, tokens.size());
+        totalLength += tokens.size();
+    }
+
+    void remove(String documentId) {
+        Map<String, Integer> terms = termsByDocument.remove(documentId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(documentId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Integer length = documentLengths.remove(documentId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+
+    List<ScoredDocument> search(String query, int k, Predicate<String> accept) {
+        int documentCount = documentLengths.size();
+        if (documentCount == 0 || k <= 0) {
+            return List.of();
+        }
+        double averageLength = (double) totalLength / documentCount;
+        Map<String, Double> scores = new HashMap<>();
+        for (String term : tokenize(query)) {
+            Map<String, Integer> posting = postings.get(term);
+            if (posting == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+            for (Map.Entry<String, Integer> entry : posting.entrySet()) {
+                double tf = entry.getValue();
+                double length = documentLengths.get(entry.getKey());
+                double normalization = K1 * (1 - B + B * length / Math.max(averageLength, 1e-9));
+                scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + normalization), Double::sum);
+            }
+        }
+
+        PriorityQueue<ScoredDocument> top = new PriorityQueue<>(Comparator.comparingDouble(ScoredDocument::score));
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            if (accept != null && !accept.test(entry.getKey())) {
+                continue;
+            }
+            top.add(new ScoredDocument(entry.getKey(), entry.getValue()));
+            if (top.size() > k) {
+                top.poll();
+            }
+        }
+        List<ScoredDocument> ordered = new ArrayList<>(top);
+        ordered.sort(Comparator.comparingDouble(ScoredDocument::score).reversed());
+        return ordered;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        while (i < lower.length()) {
+            int codePoint = lower.codePointAt(i);
+            if (isCjk(codePoint)) {
+                flush(word, tokens);
+                tokens.add(new String(Character.toChars(codePoint)));
+            } else if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(codePoint);
+            } else {
+                flush(word, tokens);
+            }
+            i += Character.charCount(codePoint);
+        }
+        flush(word, tokens);
+        return tokens;
+    }
+
+    private static void flush(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    record ScoredDocument(String id, double score) {
+    }
+}
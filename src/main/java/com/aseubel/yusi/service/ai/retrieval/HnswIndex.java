@@ -0,0 +1,319 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * 余弦距离的 HNSW 近邻索引（Malkov &amp; Yashunin），参数默认值与 Milvus HNSW 索引一致：M=16、efConstruction=200。
+ *
+ * 向量写入时归一化，距离为 1 - 点积。删除采用墓碑标记，被删节点仍参与图遍历但不会出现在结果中，
+ * 墓碑比例过高时由上层重建索引。非线程安全，由调用方加锁。
+ */
+final class HnswIndex {
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final List<Node> nodes = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    /**
+     * 插入向量，返回节点编号
+     */
+    int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Vector dimension mismatch: expected " + dimension
+                    + ", actual " + vector.length);
+        }
+        float[] normalized = normalize(vector);
+        int level = (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        int nodeId = nodes.size();
+        Node node = new Node(normalized, level);
+        nodes.add(node);
+
+        if (entryPoint < 0) {
+            entryPoint = nodeId;
+            maxLevel = level;
+            return nodeId;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(normalized, current, layer);
+        }
+
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            List<Candidate> candidates = searchLayer(normalized, List.of(current), efConstruction, layer, null);
+            int maxConnections = layer == 0 ? maxM0 : m;
+            List<Candidate> selected = selectNeighbors(candidates, m);
+            for (Candidate neighbor : selected) {
+                node.connect(layer, neighbor.node());
+                Node neighborNode = nodes.get(neighbor.node());
+                neighborNode.connect(layer, nodeId);
+                if (neighborNode.linkCount(layer) > maxConnections) {
+                    shrink(neighbor.node(), layer, maxConnections);
+                }
+            }
+            current = candidates.get(0).node();
+        }
+
+        if (level > maxLevel) {
+            entryPoint = nodeId;
+            maxLevel = level;
+        }
+        return nodeId;
+    }
+
+    void markDeleted(int nodeId) {
+        Node node = nodes.get(nodeId);
+        if (!node.deleted) {
+            node.deleted = true;
+            deletedCount++;
+        }
+    }
+
+    boolean isDeleted(int nodeId) {
+        return nodes.get(nodeId).deleted;
+    }
+
+    /**
+     * 近似 topK 检索，accept 为 null 时不过滤；被过滤或已删除的节点只用于导航。
+     */
+    List<Candidate> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        float[] normalized = normalize(query);
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            current = greedyClosest(normalized, current, layer);
+        }
+        IntPredicate resultFilter = nodeId -> !nodes.get(nodeId).deleted && (accept == null || accept.test(nodeId));
+        List<Candidate> results = searchLayer(normalized, List.of(current), Math.max(ef, k), 0, resultFilter);
+        return results.size() > k ? new ArrayList<>(results.subList(0, k)) : results;
+    }
+
+    /**
+     * 精确余弦距离，供暴力检索使用；query 需已经过 {@link #normalize(float[])}
+     */
+    float distance(float[] normalizedQuery, int nodeId) {
+        return distanceNormalized(normalizedQuery, nodeId);
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float currentDistance = distanceNormalized(query, current);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            Node node = nodes.get(current);
+            int[] links = node.links[layer];
+            for (int i = 0; i < node.linkCounts[layer]; i++) {
+                int neighbor = links[i];
+                float d = distanceNormalized(query, neighbor);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbor;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 单层 beam search，返回按距离升序的结果。resultFilter 不为 null 时，只有通过过滤的节点进入结果集，
+     * 结果集未满 ef 时会继续扩展候选，保证过滤条件较宽时仍能返回足量结果。
+     */
+    private List<Candidate> searchLayer(float[] query, List<Integer> entryPoints, int ef, int layer,
+            IntPredicate resultFilter) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> results = new PriorityQueue<>(
+                Comparator.comparingDouble(Candidate::distance).reversed());
+
+        for (int entry : entryPoints) {
+            visited.set(entry);
+            Candidate candidate = new Candidate(entry, distanceNormalized(query, entry));
+            candidates.add(candidate);
+            if (resultFilter == null || resultFilter.test(entry)) {
+                results.add(candidate);
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.distance() > results.peek().distance()) {
+                break;
+            }
+            Node node = nodes.get(closest.node());
+            if (layer >= node.links.length) {
+                continue;
+            }
+            int[] links = node.links[layer];
+            for (int i = 0; i < node.linkCounts[layer]; i++) {
+                int neighbor = links[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float d = distanceNormalized(query, neighbor);
+                if (results.size() < ef || d < results.peek().distance()) {
+                    candidates.add(new Candidate(neighbor, d));
+                    if (resultFilter == null || resultFilter.test(neighbor)) {
+                        results.add(new Candidate(neighbor, d));
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.comparingDouble(Candidate::distance));
+        return ordered;
+    }
+
+    /**
+     * 启发式邻居选择：只保留比已选邻居更靠近目标的候选，保持图的多样性；不足 M 个时用被剪掉的候选补齐。
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidates, int maxCount) {
+        List<Candidate> selected = new ArrayList<>(maxCount);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= maxCount) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (distanceBetween(candidate.node(), chosen.node()) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < maxCount; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void shrink(int nodeId, int layer, int maxConnections) {
+        Node node = nodes.get(nodeId);
+        List<Candidate> current = new ArrayList<>(node.linkCounts[layer]);
+        for (int i = 0; i < node.linkCounts[layer]; i++) {
+            int neighbor = node.links[layer][i];
+            current.add(new Candidate(neighbor, distanceBetween(nodeId, neighbor)));
+        }
+        current.sort(Comparator.comparingDouble(Candidate::distance));
+        List<Candidate> kept = selectNeighbors(current, maxConnections);
+        node.linkCounts[layer] = 0;
+        for (Candidate candidate : kept) {
+            node.connect(layer, candidate.node());
+        }
+    }
+
+    private float distanceBetween(int a, int b) {
+        return distanceNormalized(nodes.get(a).vector, b);
+    }
+
+    private float distanceNormalized(float[] query, int nodeId) {
+        float[] vector = nodes.get(nodeId).vector;
+        float dot = 0f;
+        for (int i = 0; i < vector.length; i++) {
+            dot += query[i] * vector[i];
+        }
+        return 1f - dot;
+    }
+
+    static float[] normalize(float[] vector) {
+        double norm = 0d;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0d) {
+            return normalized;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    record Candidate(int node, float distance) {
+    }
+
+    private final class Node {
+
+        private final float[] vector;
+        private final int[][] links;
+        private final int[] linkCounts;
+        private boolean deleted;
+
+        private Node(float[] vector, int level) {
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int layer = 0; layer <= level; layer++) {
+                links[layer] = new int[(layer == 0 ? maxM0 : m) + 1];
+            }
+        }
+
+        private int linkCount(int layer) {
+            return linkCounts[layer];
+        }
+
+        private void connect(int layer, int neighbor) {
+            for (int i = 0; i < linkCounts[layer]; i++) {
+                if (links[layer][i] == neighbor) {
+                    return;
+                }
+            }
+            if (linkCounts[layer] == links[layer].length) {
+                links[layer] = Arrays.copyOf(links[layer], links[layer].length * 2);
+            }
+            links[layer][linkCounts[layer]++] = neighbor;
+        }
+    }
+}
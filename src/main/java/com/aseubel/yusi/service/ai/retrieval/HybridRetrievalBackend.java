@@ -0,0 +1,55 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonObject;
+import io.milvus.v2.service.vector.response.SearchResp;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RAG 检索后端抽象。
+ *
+ * 线上默认由 Milvus 执行混合检索（{@link MilvusHybridRetrievalBackend}）；
+ * 配置 yusi.retrieval.backend=in-process 时使用进程内 HNSW + BM25 + RRF 实现
+ * （{@link InProcessHybridRetrievalBackend}），用于无 Milvus 环境下的测试、评测与基准对比。
+ * 日记分片、中期记忆、匹配画像的写入与账号注销清理都经过同一个后端，检索读到的就是写入的数据。
+ * 结果沿用 Milvus SDK 的 SearchResult 结构，调用方的结果组装逻辑无需区分后端。
+ */
+public interface HybridRetrievalBackend {
+
+    /**
+     * 执行混合检索，返回按 RRF 分数降序排列的结果
+     */
+    List<SearchResp.SearchResult> hybridSearch(HybridSearchQuery query);
+
+    /**
+     * 写入行数据，行格式与 Milvus 集合一致：id、text、vector、metadata
+     */
+    void insert(String collectionName, List<JsonObject> rows);
+
+    /**
+     * 按 Milvus 布尔表达式删除数据
+     */
+    void delete(String collectionName, String filter);
+
+    /**
+     * 按主键删除数据
+     */
+    void deleteByIds(String collectionName, Collection<String> ids);
+
+    /**
+     * 按 Milvus 布尔表达式查询行，每行只包含 outputFields 中的字段
+     */
+    List<Map<String, Object>> query(String collectionName, String filter, List<String> outputFields);
+
+    /**
+     * 后端中现有的集合名，包括重建索引留下的影子集合
+     */
+    List<String> listCollections();
+
+    /**
+     * 按主键批量读取已入库的稠密向量，不存在或没有向量的 id 不出现在结果中
+     */
+    Map<String, float[]> fetchVectors(String collectionName, Collection<String> ids);
+}
@@ -0,0 +1,38 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * 与后端无关的混合检索请求：稠密向量召回 + BM25 全文召回，按 RRF 融合。
+ *
+ * @param collectionName 集合名（Milvus 集合或别名）
+ * @param denseVector    查询向量
+ * @param text           BM25 检索使用的原始查询文本
+ * @param filter         Milvus 布尔表达式，两路召回共用；为空表示不过滤
+ * @param candidateLimit 每一路召回的候选数
+ * @param limit          融合后返回的结果数
+ * @param outputFields   需要返回的字段，如 text、metadata
+ * @param rrfK           RRF 平滑参数
+ */
+@Builder
+public record HybridSearchQuery(
+        String collectionName,
+        float[] denseVector,
+        String text,
+        String filter,
+        int candidateLimit,
+        int limit,
+        List<String> outputFields,
+        int rrfK) {
+
+    public static final int DEFAULT_RRF_K = 60;
+
+    public HybridSearchQuery {
+        if (rrfK <= 0) {
+            rrfK = DEFAULT_RRF_K;
+        }
+        outputFields = outputFields == null ? List.of() : List.copyOf(outputFields);
+    }
+}
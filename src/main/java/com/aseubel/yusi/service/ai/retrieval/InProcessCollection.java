@@ -0,0 +1,235 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内的一个检索集合：行数据 + HNSW 稠密索引 + BM25 倒排索引，读写锁保护。
+ *
+ * 过滤语义按 Milvus 的“先过滤再取 topK”实现：过滤后剩余文档不超过 exactSearchThreshold 时直接精确扫描，
+ * 否则在 HNSW 遍历时只把满足条件的节点放入结果集。
+ */
+final class InProcessCollection {
+
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int exactSearchThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, RetrievalDocument> documents = new LinkedHashMap<>();
+    private final Map<String, Integer> nodeByDocumentId = new HashMap<>();
+    private final List<String> documentIdByNode = new ArrayList<>();
+    private final Bm25Index bm25 = new Bm25Index();
+    private HnswIndex hnsw;
+
+    InProcessCollection(int m, int efConstruction, int efSearch, int exactSearchThreshold) {
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.exactSearchThreshold = exactSearchThreshold;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Map<String, float[]> vectors(Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Map<String, float[]> vectors = new HashMap<>();
+            for (String id : ids) {
+                RetrievalDocument document = documents.get(id);
+                if (document != null && document.vector() != null) {
+                    vectors.put(id, document.vector());
+                }
+            }
+            return vectors;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    void upsert(List<RetrievalDocument> rows) {
+        lock.writeLock().lock();
+        try {
+            for (RetrievalDocument row : rows) {
+                removeInternal(row.id());
+                documents.put(row.id(), row);
+                bm25.add(row.id(), row.text());
+                if (row.vector() != null) {
+                    if (hnsw == null) {
+                        hnsw = new HnswIndex(row.vector().length, m, efConstruction, 42L);
+                    }
+                    int node = hnsw.add(row.vector());
+                    nodeByDocumentId.put(row.id(), node);
+                    documentIdByNode.add(row.id());
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int deleteWhere(MilvusFilterExpression filter) {
+        lock.writeLock().lock();
+        try {
+            List<String> matched = documents.values().stream()
+                    .filter(filter)
+                    .map(RetrievalDocument::id)
+                    .toList();
+            matched.forEach(this::removeInternal);
+            compactIfNeeded();
+            return matched.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int deleteIds(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (String id : ids) {
+                if (documents.containsKey(id)) {
+                    removeInternal(id);
+                    removed++;
+                }
+            }
+            compactIfNeeded();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<RetrievalDocument> documentsWhere(MilvusFilterExpression filter) {
+        lock.readLock().lock();
+        try {
+            return documents.values().stream().filter(filter).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 稠密 + BM25 两路召回后按 RRF 融合：score = Σ 1 / (k + rank)，rank 从 1 开始
+     */
+    List<FusedHit> hybridSearch(float[] vector, String text, MilvusFilterExpression filter,
+            int candidateLimit, int limit, int rrfK) {
+        lock.readLock().lock();
+        try {
+            List<String> dense = vector == null ? List.of() : denseSearch(vector, candidateLimit, filter);
+            List<String> sparse = text == null || text.isBlank() ? List.of()
+                    : bm25.search(text, candidateLimit, id -> filter.test(documents.get(id))).stream()
+                            .map(Bm25Index.ScoredDocument::id)
+                            .toList();
+
+            Map<String, Double> fused = new LinkedHashMap<>();
+            accumulate(fused, dense, rrfK);
+            accumulate(fused, sparse, rrfK);
+            return fused.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(entry -> new FusedHit(documents.get(entry.getKey()), entry.getValue()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void accumulate(Map<String, Double> fused, List<String> ranked, int rrfK) {
+        for (int i = 0; i < ranked.size(); i++) {
+            fused.merge(ranked.get(i), 1.0 / (rrfK + i + 1), Double::sum);
+        }
+    }
+
+    private List<String> denseSearch(float[] vector, int k, MilvusFilterExpression filter) {
+        if (hnsw == null || documents.isEmpty()) {
+            return List.of();
+        }
+        if (!filter.isMatchAll() || nodeByDocumentId.size() <= exactSearchThreshold) {
+            List<Integer> allowed = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : nodeByDocumentId.entrySet()) {
+                if (filter.test(documents.get(entry.getKey()))) {
+                    allowed.add(entry.getValue());
+                }
+            }
+            if (allowed.size() <= exactSearchThreshold) {
+                return exactSearch(vector, k, allowed);
+            }
+            BitSet accepted = new BitSet(hnsw.size());
+            allowed.forEach(accepted::set);
+            return toDocumentIds(hnsw.search(vector, k, Math.max(efSearch, k), accepted::get));
+        }
+        return toDocumentIds(hnsw.search(vector, k, Math.max(efSearch, k), null));
+    }
+
+    private List<String> exactSearch(float[] vector, int k, List<Integer> nodes) {
+        PriorityQueue<HnswIndex.Candidate> top = new PriorityQueue<>(
+                Comparator.comparingDouble(HnswIndex.Candidate::distance).reversed());
+        float[] normalized = HnswIndex.normalize(vector);
+        for (int node : nodes) {
+            top.add(new HnswIndex.Candidate(node, hnsw.distance(normalized, node)));
+            if (top.size() > k) {
+                top.poll();
+            }
+        }
+        List<HnswIndex.Candidate> ordered = new ArrayList<>(top);
+        ordered.sort(Comparator.comparingDouble(HnswIndex.Candidate::distance));
+        return toDocumentIds(ordered);
+    }
+
+    private List<String> toDocumentIds(List<HnswIndex.Candidate> candidates) {
+        return candidates.stream()
+                .map(candidate -> documentIdByNode.get(candidate.node()))
+                .toList();
+    }
+
+    private void removeInternal(String id) {
+        if (documents.remove(id) == null) {
+            return;
+        }
+        bm25.remove(id);
+        Integer node = nodeByDocumentId.remove(id);
+        if (node != null) {
+            hnsw.markDeleted(node);
+        }
+    }
+
+    /**
+     * 墓碑超过一半时用存活数据重建 HNSW，避免图中堆积无效节点拖慢检索
+     */
+    private void compactIfNeeded() {
+        if (hnsw == null || hnsw.deletedCount() * 2 < hnsw.size()) {
+            return;
+        }
+        HnswIndex rebuilt = new HnswIndex(hnsw.dimension(), m, efConstruction, 42L);
+        nodeByDocumentId.clear();
+        documentIdByNode.clear();
+        for (RetrievalDocument document : documents.values()) {
+            if (document.vector() != null) {
+                nodeByDocumentId.put(document.id(), rebuilt.add(document.vector()));
+                documentIdByNode.add(document.id());
+            }
+        }
+        hnsw = rebuilt;
+    }
+
+    record FusedHit(RetrievalDocument document, double score) {
+    }
+}
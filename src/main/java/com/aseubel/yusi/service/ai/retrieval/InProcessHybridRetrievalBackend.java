@@ -0,0 +1,192 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.milvus.v2.service.vector.response.SearchResp;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内混合检索后端：每个集合维护一份 HNSW（COSINE）稠密索引和 BM25 倒排索引，两路召回后按 RRF 融合。
+ *
+ * 过滤表达式由 {@link MilvusFilterExpression} 解释，语义与线上 Milvus 保持一致。
+ * 与 Milvus 的差异：同 id 重复写入视为覆盖（Milvus insert 会保留两行），BM25 分词为近似实现。
+ * 索引只在内存中，进程启动时为空：新写入经各写入方实时进入索引，历史日记需要通过全量同步重新写入。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "yusi.retrieval.backend", havingValue = "in-process")
+public class InProcessHybridRetrievalBackend implements HybridRetrievalBackend {
+
+    private final ConcurrentHashMap<String, InProcessCollection> collections = new ConcurrentHashMap<>();
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int exactSearchThreshold;
+
+    public InProcessHybridRetrievalBackend() {
+        this(16, 200, 64, 2000);
+    }
+
+    /**
+     * @param exactSearchThreshold 过滤后文档数不超过该值时走精确扫描；设为 Integer.MAX_VALUE 即为纯暴力检索，可作为召回率基准
+     */
+    @Autowired
+    public InProcessHybridRetrievalBackend(
+            @Value("${yusi.retrieval.in-process.hnsw-m:16}") int m,
+            @Value("${yusi.retrieval.in-process.ef-construction:200}") int efConstruction,
+            @Value("${yusi.retrieval.in-process.ef-search:64}") int efSearch,
+            @Value("${yusi.retrieval.in-process.exact-search-threshold:2000}") int exactSearchThreshold) {
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.exactSearchThreshold = exactSearchThreshold;
+    }
+
+    @PostConstruct
+    void warnEmptyIndex() {
+        log.warn("进程内检索后端已启用，索引从空开始；历史日记需要在管理端执行 Embedding 全量同步后才能被检索");
+    }
+
+    @Override
+    public List<SearchResp.SearchResult> hybridSearch(HybridSearchQuery query) {
+        InProcessCollection collection = collections.get(query.collectionName());
+        if (collection == null || query.limit() <= 0) {
+            return List.of();
+        }
+        MilvusFilterExpression filter = MilvusFilterExpression.parse(query.filter());
+        int candidateLimit = query.candidateLimit() > 0 ? query.candidateLimit() : query.limit();
+        List<InProcessCollection.FusedHit> hits = collection.hybridSearch(query.denseVector(), query.text(), filter,
+                candidateLimit, query.limit(), query.rrfK());
+
+        List<SearchResp.SearchResult> results = new ArrayList<>(hits.size());
+        for (InProcessCollection.FusedHit hit : hits) {
+            results.add(SearchResp.SearchResult.builder()
+                    .id(hit.document().id())
+                    .score((float) hit.score())
+                    .entity(entityOf(hit.document(), query.outputFields()))
+                    .build());
+        }
+        return results;
+    }
+
+    @Override
+    public void insert(String collectionName, List<JsonObject> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+        List<RetrievalDocument> documents = rows.stream().map(this::toDocument).toList();
+        collections.computeIfAbsent(collectionName,
+                ignored -> new InProcessCollection(m, efConstruction, efSearch, exactSearchThreshold))
+                .upsert(documents);
+    }
+
+    @Override
+    public void delete(String collectionName, String filter) {
+        InProcessCollection collection = collections.get(collectionName);
+        if (collection != null) {
+            collection.deleteWhere(MilvusFilterExpression.parse(filter));
+        }
+    }
+
+    @Override
+    public void deleteByIds(String collectionName, Collection<String> ids) {
+        InProcessCollection collection = collections.get(collectionName);
+        if (collection != null && ids != null && !ids.isEmpty()) {
+            collection.deleteIds(ids);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> query(String collectionName, String filter, List<String> outputFields) {
+        InProcessCollection collection = collections.get(collectionName);
+        if (collection == null) {
+            return List.of();
+        }
+        MilvusFilterExpression expression = MilvusFilterExpression.parse(filter);
+        return collection.documentsWhere(expression).stream()
+                .map(document -> entityOf(document, outputFields == null ? List.of() : outputFields))
+                .toList();
+    }
+
+    @Override
+    public List<String> listCollections() {
+        return List.copyOf(collections.keySet());
+    }
+
+    @Override
+    public Map<String, float[]> fetchVectors(String collectionName, Collection<String> ids) {
+        InProcessCollection collection = collections.get(collectionName);
+        if (collection == null || ids == null || ids.isEmpty()) {
+            return Map.of();
+        }
+        return collection.vectors(ids);
+    }
+
+    public int size(String collectionName) {
+        InProcessCollection collection = collections.get(collectionName);
+        return collection == null ? 0 : collection.size();
+    }
+
+    private RetrievalDocument toDocument(JsonObject row) {
+        if (!row.has("id") || row.get("id").isJsonNull()) {
+            throw new IllegalArgumentException("Row without id cannot be indexed");
+        }
+        String text = row.has("text") && !row.get("text").isJsonNull() ? row.get("text").getAsString() : null;
+        JsonObject metadata = row.has("metadata") && row.get("metadata").isJsonObject()
+                ? row.getAsJsonObject("metadata").deepCopy()
+                : new JsonObject();
+        float[] vector = null;
+        if (row.has("vector") && row.get("vector").isJsonArray()) {
+            JsonArray values = row.getAsJsonArray("vector");
+            vector = new float[values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                vector[i] = values.get(i).getAsFloat();
+            }
+        }
+        return new RetrievalDocument(row.get("id").getAsString(), text, metadata, vector);
+    }
+
+    private Map<String, Object> entityOf(RetrievalDocument document, List<String> outputFields) {
+        Map<String, Object> entity = new LinkedHashMap<>();
+        for (String field : outputFields) {
+            switch (field) {
+                case "id" -> entity.put("id", document.id());
+                case "text" -> {
+                    if (document.text() != null) {
+                        entity.put("text", document.text());
+                    }
+                }
+                case "metadata" -> entity.put("metadata", document.metadata().deepCopy());
+                case "vector" -> {
+                    if (document.vector() != null) {
+                        List<Float> vector = new ArrayList<>(document.vector().length);
+                        for (float value : document.vector()) {
+                            vector.add(value);
+                        }
+                        entity.put("vector", vector);
+                    }
+                }
+                default -> {
+                    JsonElement value = document.metadata().get(field);
+                    if (value != null) {
+                        entity.put(field, value);
+                    }
+                }
+            }
+        }
+        return entity;
+    }
+}
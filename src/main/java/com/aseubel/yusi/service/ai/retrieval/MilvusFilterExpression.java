@@ -0,0 +1,354 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Milvus 布尔表达式的进程内解释器，覆盖本项目实际使用的子集：
+ * <ul>
+ * <li>字段：id、text、metadata["key"]</li>
+ * <li>比较：==、!=、&gt;、&gt;=、&lt;、&lt;=，字符串按字典序、数字按数值比较</li>
+ * <li>like：% 匹配任意串，_ 匹配单个字符（与 Milvus 一致）</li>
+ * <li>in / not in 列表、and / or / not（及 &amp;&amp; / || / !）、括号</li>
+ * </ul>
+ * 与 Milvus 一致，JSON 中缺失的键参与任何比较都返回 false。
+ */
+public final class MilvusFilterExpression implements Predicate<RetrievalDocument> {
+
+    private static final MilvusFilterExpression MATCH_ALL = new MilvusFilterExpression(document -> true);
+
+    private final Predicate<RetrievalDocument> predicate;
+
+    private MilvusFilterExpression(Predicate<RetrievalDocument> predicate) {
+        this.predicate = predicate;
+    }
+
+    public static MilvusFilterExpression parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            return MATCH_ALL;
+        }
+        Parser parser = new Parser(tokenize(expression));
+        Predicate<RetrievalDocument> predicate = parser.parseOr();
+        if (!parser.atEnd()) {
+            throw new IllegalArgumentException("Unexpected token in filter at " + parser.position);
+        }
+        return new MilvusFilterExpression(predicate);
+    }
+
+    public boolean isMatchAll() {
+        return this == MATCH_ALL;
+    }
+
+    @Override
+    public boolean test(RetrievalDocument document) {
+        return predicate.test(document);
+    }
+
+    private enum TokenType {
+        IDENTIFIER, STRING, NUMBER, OPERATOR, LPAREN, RPAREN, LBRACKET, RBRACKET, COMMA
+    }
+
+    private record Token(TokenType type, String text) {
+    }
+
+    private static List<Token> tokenize(String expression) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                StringBuilder value = new StringBuilder();
+                int j = i + 1;
+                while (j < expression.length() && expression.charAt(j) != c) {
+                    if (expression.charAt(j) == '\\' && j + 1 < expression.length()) {
+                        j++;
+                    }
+                    value.append(expression.charAt(j));
+                    j++;
+                }
+                if (j >= expression.length()) {
+                    throw new IllegalArgumentException("Unterminated string literal in filter");
+                }
+                tokens.add(new Token(TokenType.STRING, value.toString()));
+                i = j + 1;
+            } else if (Character.isDigit(c) || (c == '-' && i + 1 < expression.length()
+                    && Character.isDigit(expression.charAt(i + 1)))) {
+                int j = i + 1;
+                while (j < expression.length()
+                        && (Character.isDigit(expression.charAt(j)) || expression.charAt(j) == '.')) {
+                    j++;
+                }
+                tokens.add(new Token(TokenType.NUMBER, expression.substring(i, j)));
+                i = j;
+            } else if (Character.isLetter(c) || c == '_') {
+                int j = i + 1;
+                while (j < expression.length()
+                        && (Character.isLetterOrDigit(expression.charAt(j)) || expression.charAt(j) == '_')) {
+                    j++;
+                }
+                tokens.add(new Token(TokenType.IDENTIFIER, expression.substring(i, j)));
+                i = j;
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.LPAREN, "("));
+                i++;
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.RPAREN, ")"));
+                i++;
+            } else if (c == '[') {
+                tokens.add(new Token(TokenType.LBRACKET, "["));
+                i++;
+            } else if (c == ']') {
+                tokens.add(new Token(TokenType.RBRACKET, "]"));
+                i++;
+            } else if (c == ',') {
+                tokens.add(new Token(TokenType.COMMA, ","));
+                i++;
+            } else {
+                String two = i + 1 < expression.length() ? expression.substring(i, i + 2) : "";
+                if (List.of("==", "!=", ">=", "<=", "&&", "||").contains(two)) {
+                    tokens.add(new Token(TokenType.OPERATOR, two));
+                    i += 2;
+                } else if (c == '>' || c == '<' || c == '!') {
+                    tokens.add(new Token(TokenType.OPERATOR, String.valueOf(c)));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("Unsupported character in filter: " + c);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Parser {
+
+        private final List<Token> tokens;
+        private int position;
+
+        private Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        boolean atEnd() {
+            return position >= tokens.size();
+        }
+
+        Predicate<RetrievalDocument> parseOr() {
+            Predicate<RetrievalDocument> left = parseAnd();
+            while (matchKeyword("or") || matchOperator("||")) {
+                left = left.or(parseAnd());
+            }
+            return left;
+        }
+
+        Predicate<RetrievalDocument> parseAnd() {
+            Predicate<RetrievalDocument> left = parseUnary();
+            while (matchKeyword("and") || matchOperator("&&")) {
+                left = left.and(parseUnary());
+            }
+            return left;
+        }
+
+        Predicate<RetrievalDocument> parseUnary() {
+            if (matchKeyword("not") || matchOperator("!")) {
+                return parseUnary().negate();
+            }
+            if (peek(TokenType.LPAREN)) {
+                position++;
+                Predicate<RetrievalDocument> inner = parseOr();
+                expect(TokenType.RPAREN);
+                return inner;
+            }
+            return parseComparison();
+        }
+
+        Predicate<RetrievalDocument> parseComparison() {
+            FieldRef field = parseField();
+            if (matchKeyword("like")) {
+                Pattern pattern = likePattern(expect(TokenType.STRING).text());
+                return document -> {
+                    JsonPrimitive value = field.resolve(document);
+                    return value != null && value.isString() && pattern.matcher(value.getAsString()).matches();
+                };
+            }
+            if (matchKeyword("in")) {
+                List<Token> values = parseList();
+                return document -> containsValue(field.resolve(document), values);
+            }
+            if (matchKeyword("not")) {
+                if (!matchKeyword("in")) {
+                    throw new IllegalArgumentException("Expected 'in' after 'not' in filter");
+                }
+                List<Token> values = parseList();
+                return document -> {
+                    JsonPrimitive value = field.resolve(document);
+                    return value != null && !containsValue(value, values);
+                };
+            }
+            Token operator = expect(TokenType.OPERATOR);
+            Token literal = parseLiteral();
+            String op = operator.text();
+            return document -> compare(field.resolve(document), op, literal);
+        }
+
+        List<Token> parseList() {
+            expect(TokenType.LBRACKET);
+            List<Token> values = new ArrayList<>();
+            if (!peek(TokenType.RBRACKET)) {
+                values.add(parseLiteral());
+                while (peek(TokenType.COMMA)) {
+                    position++;
+                    values.add(parseLiteral());
+                }
+            }
+            expect(TokenType.RBRACKET);
+            return values;
+        }
+
+        FieldRef parseField() {
+            String name = expect(TokenType.IDENTIFIER).text();
+            if (peek(TokenType.LBRACKET)) {
+                position++;
+                String key = expect(TokenType.STRING).text();
+                expect(TokenType.RBRACKET);
+                return new FieldRef(name, key);
+            }
+            return new FieldRef(name, null);
+        }
+
+        Token parseLiteral() {
+            if (peek(TokenType.STRING) || peek(TokenType.NUMBER)) {
+                return tokens.get(position++);
+            }
+            if (peek(TokenType.IDENTIFIER)) {
+                String text = tokens.get(position).text().toLowerCase(Locale.ROOT);
+                if ("true".equals(text) || "false".equals(text)) {
+                    position++;
+                    return new Token(TokenType.IDENTIFIER, text);
+                }
+            }
+            throw new IllegalArgumentException("Expected literal in filter at " + position);
+        }
+
+        boolean matchKeyword(String keyword) {
+            if (peek(TokenType.IDENTIFIER) && tokens.get(position).text().equalsIgnoreCase(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean matchOperator(String operator) {
+            if (peek(TokenType.OPERATOR) && tokens.get(position).text().equals(operator)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean peek(TokenType type) {
+            return position < tokens.size() && tokens.get(position).type() == type;
+        }
+
+        Token expect(TokenType type) {
+            if (!peek(type)) {
+                throw new IllegalArgumentException("Expected " + type + " in filter at " + position);
+            }
+            return tokens.get(position++);
+        }
+    }
+
+    private record FieldRef(String name, String key) {
+
+        JsonPrimitive resolve(RetrievalDocument document) {
+            if (key == null) {
+                return switch (name) {
+                    case "id" -> document.id() == null ? null : new JsonPrimitive(document.id());
+                    case "text" -> document.text() == null ? null : new JsonPrimitive(document.text());
+                    default -> null;
+                };
+            }
+            if (!"metadata".equals(name)) {
+                return null;
+            }
+            JsonObject metadata = document.metadata();
+            if (metadata == null || !metadata.has(key)) {
+                return null;
+            }
+            JsonElement value = metadata.get(key);
+            return value.isJsonPrimitive() ? value.getAsJsonPrimitive() : null;
+        }
+    }
+
+    private static boolean containsValue(JsonPrimitive value, List<Token> literals) {
+        if (value == null) {
+            return false;
+        }
+        for (Token literal : literals) {
+            if (compare(value, "==", literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean compare(JsonPrimitive value, String operator, Token literal) {
+        if (value == null) {
+            return false;
+        }
+        int comparison;
+        if (literal.type() == TokenType.NUMBER) {
+            if (!value.isNumber()) {
+                return false;
+            }
+            comparison = Double.compare(value.getAsDouble(), Double.parseDouble(literal.text()));
+        } else if (literal.type() == TokenType.STRING) {
+            if (!value.isString()) {
+                return false;
+            }
+            comparison = value.getAsString().compareTo(literal.text());
+        } else {
+            if (!value.isBoolean()) {
+                return false;
+            }
+            comparison = Boolean.compare(value.getAsBoolean(), Boolean.parseBoolean(literal.text()));
+        }
+        return switch (operator) {
+            case "==" -> comparison == 0;
+            case "!=" -> comparison != 0;
+            case ">" -> comparison > 0;
+            case ">=" -> comparison >= 0;
+            case "<" -> comparison < 0;
+            case "<=" -> comparison <= 0;
+            default -> throw new IllegalArgumentException("Unsupported operator in filter: " + operator);
+        };
+    }
+
+    private static Pattern likePattern(String like) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (!literal.isEmpty()) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (!literal.isEmpty()) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
@@ -0,0 +1,170 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonObject;
+import io.milvus.v2.client.MilvusClientV2;
+import io.milvus.v2.service.collection.response.ListCollectionsResp;
+import io.milvus.v2.service.vector.request.AnnSearchReq;
+import io.milvus.v2.service.vector.request.DeleteReq;
+import io.milvus.v2.service.vector.request.HybridSearchReq;
+import io.milvus.v2.service.vector.request.InsertReq;
+import io.milvus.v2.service.vector.request.QueryReq;
+import io.milvus.v2.service.vector.request.data.EmbeddedText;
+import io.milvus.v2.service.vector.request.data.FloatVec;
+import io.milvus.v2.service.vector.request.ranker.RRFRanker;
+import io.milvus.v2.service.vector.response.QueryResp;
+import io.milvus.v2.service.vector.response.SearchResp;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 Milvus 原生混合检索的后端：稠密向量 COSINE + 内置 BM25 函数，服务端 RRF 融合。
+ */
+@Component
+@ConditionalOnProperty(name = "yusi.retrieval.backend", havingValue = "milvus", matchIfMissing = true)
+public class MilvusHybridRetrievalBackend implements HybridRetrievalBackend {
+
+    /** 单次按主键查询的 id 数，避免过长的 in 表达式 */
+    private static final int FETCH_BATCH_SIZE = 1000;
+
+    private final MilvusClientV2 milvusClientV2;
+
+    public MilvusHybridRetrievalBackend(MilvusClientV2 milvusClientV2) {
+        this.milvusClientV2 = milvusClientV2;
+    }
+
+    @Override
+    public List<SearchResp.SearchResult> hybridSearch(HybridSearchQuery query) {
+        // 1. 构建稠密向量搜索请求
+        AnnSearchReq denseReq = AnnSearchReq.builder()
+                .vectorFieldName("vector")
+                .vectors(Collections.singletonList(new FloatVec(query.denseVector())))
+                .params("{\"metric_type\": \"COSINE\"}")
+                .limit(query.candidateLimit())
+                .filter(query.filter())
+                .build();
+
+        // 2. 构建稀疏向量搜索请求 (使用Milvus直接文本搜索能力进行BM25检索)
+        AnnSearchReq sparseReq = AnnSearchReq.builder()
+                .vectorFieldName("text_sparse")
+                .vectors(Collections.singletonList(new EmbeddedText(query.text())))
+                .params("{\"metric_type\": \"BM25\"}")
+                .limit(query.candidateLimit())
+                .filter(query.filter())
+                .build();
+
+        // 3. 构建混合搜索请求
+        HybridSearchReq hybridSearchReq = HybridSearchReq.builder()
+                .collectionName(query.collectionName())
+                .searchRequests(Arrays.asList(denseReq, sparseReq))
+                .ranker(RRFRanker.builder().k(query.rrfK()).build())
+                .limit(query.limit())
+                .outFields(query.outputFields())
+                .build();
+
+        SearchResp searchResp = milvusClientV2.hybridSearch(hybridSearchReq);
+        List<List<SearchResp.SearchResult>> searchResults = searchResp == null ? null : searchResp.getSearchResults();
+        if (searchResults == null || searchResults.isEmpty() || searchResults.get(0) == null) {
+            return List.of();
+        }
+        return searchResults.get(0);
+    }
+
+    @Override
+    public void insert(String collectionName, List<JsonObject> rows) {
+        milvusClientV2.insert(InsertReq.builder()
+                .collectionName(collectionName)
+                .data(rows)
+                .build());
+    }
+
+    @Override
+    public void delete(String collectionName, String filter) {
+        milvusClientV2.delete(DeleteReq.builder()
+                .collectionName(collectionName)
+                .filter(filter)
+                .build());
+    }
+
+    @Override
+    public void deleteByIds(String collectionName, Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        milvusClientV2.delete(DeleteReq.builder()
+                .collectionName(collectionName)
+                .ids(new ArrayList<>(ids))
+                .build());
+    }
+
+    @Override
+    public List<Map<String, Object>> query(String collectionName, String filter, List<String> outputFields) {
+        QueryResp response = milvusClientV2.query(QueryReq.builder()
+                .collectionName(collectionName)
+                .filter(filter)
+                .outputFields(outputFields)
+                .build());
+        if (response == null || response.getQueryResults() == null) {
+            return List.of();
+        }
+        return response.getQueryResults().stream().map(QueryResp.QueryResult::getEntity).toList();
+    }
+
+    @Override
+    public List<String> listCollections() {
+        ListCollectionsResp response = milvusClientV2.listCollections();
+        if (response == null || response.getCollectionNames() == null) {
+            return List.of();
+        }
+        return response.getCollectionNames();
+    }
+
+    @Override
+    public Map<String, float[]> fetchVectors(String collectionName, Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Map.of();
+        }
+        List<Object> pending = new ArrayList<>(ids);
+        Map<String, float[]> vectors = new HashMap<>();
+        for (int from = 0; from < pending.size(); from += FETCH_BATCH_SIZE) {
+            QueryResp response = milvusClientV2.query(QueryReq.builder()
+                    .collectionName(collectionName)
+                    .ids(pending.subList(from, Math.min(pending.size(), from + FETCH_BATCH_SIZE)))
+                    .outputFields(List.of("id", "vector"))
+                    .build());
+            if (response == null || response.getQueryResults() == null) {
+                continue;
+            }
+            for (QueryResp.QueryResult result : response.getQueryResults()) {
+                Map<String, Object> entity = result.getEntity();
+                Object id = entity.get("id");
+                float[] vector = toVector(entity.get("vector"));
+                if (id != null && vector != null) {
+                    vectors.put(id.toString(), vector);
+                }
+            }
+        }
+        return vectors;
+    }
+
+    private float[] toVector(Object value) {
+        if (!(value instanceof List<?> list) || list.isEmpty()) {
+            return null;
+        }
+        float[] vector = new float[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            if (!(list.get(i) instanceof Number number)) {
+                return null;
+            }
+            vector[i] = number.floatValue();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,9 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonObject;
+
+/**
+ * 进程内检索后端中的一行数据，字段与 Milvus 混合检索集合一致。
+ */
+public record RetrievalDocument(String id, String text, JsonObject metadata, float[] vector) {
+}
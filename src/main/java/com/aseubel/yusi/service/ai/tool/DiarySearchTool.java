@@ -7,6 +7,10 @@ import com.aseubel.yusi.pojo.constant.KeyMode;
 import com.aseubel.yusi.repository.UserRepository;
 import com.aseubel.yusi.service.ai.rag.DiaryRetrievalAssembler;
 import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.service.ai.embedding.QueryEmbeddingCache;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.ai.retrieval.HybridSearchQuery;
+import com.aseubel.yusi.service.ai.retrieval.MilvusHybridRetrievalBackend;
 
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
@@ -18,15 +22,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.service.vector.request.AnnSearchReq;
-import io.milvus.v2.service.vector.request.HybridSearchReq;
-import io.milvus.v2.service.vector.request.data.EmbeddedText;
-import io.milvus.v2.service.vector.request.data.FloatVec;
-import io.milvus.v2.service.vector.request.ranker.RRFRanker;
 import io.milvus.v2.service.vector.response.SearchResp;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -47,30 +45,34 @@ import java.util.List;
 @Component
 public class DiarySearchTool {
 
-    private final MilvusClientV2 milvusClientV2;
+    private final HybridRetrievalBackend retrievalBackend;
     private final EmbeddingModel embeddingModel;
     private final UserRepository userRepository;
     private final DiaryRetrievalAssembler retrievalAssembler;
     private final YusiMetrics metrics;
+    private final QueryEmbeddingCache queryEmbeddingCache;
 
     public DiarySearchTool(MilvusClientV2 milvusClientV2,
             EmbeddingModel embeddingModel,
             UserRepository userRepository,
             DiaryRetrievalAssembler retrievalAssembler) {
-        this(milvusClientV2, embeddingModel, userRepository, retrievalAssembler, null);
+        this(new MilvusHybridRetrievalBackend(milvusClientV2), embeddingModel, userRepository, retrievalAssembler,
+                null, null);
     }
 
     @Autowired
-    public DiarySearchTool(MilvusClientV2 milvusClientV2,
+    public DiarySearchTool(HybridRetrievalBackend retrievalBackend,
             EmbeddingModel embeddingModel,
             UserRepository userRepository,
             DiaryRetrievalAssembler retrievalAssembler,
-            YusiMetrics metrics) {
-        this.milvusClientV2 = milvusClientV2;
+            YusiMetrics metrics,
+            QueryEmbeddingCache queryEmbeddingCache) {
+        this.retrievalBackend = retrievalBackend;
         this.embeddingModel = embeddingModel;
         this.userRepository = userRepository;
         this.retrievalAssembler = retrievalAssembler;
         this.metrics = metrics;
+        this.queryEmbeddingCache = queryEmbeddingCache;
     }
 
     /**
@@ -124,6 +126,17 @@ public class DiarySearchTool {
             @P("搜索查询，描述要查找的日记内容主题") String query,
             @P("开始日期，格式 YYYY-MM-DD，不指定时间范围则传 null") String startDate,
             @P("结束日期，格式 YYYY-MM-DD，不指定时间范围则传 null") String endDate) {
+        return searchDiary(memoryId, query, null, startDate, endDate);
+    }
+
+    /**
+     * 使用调用方预先生成的查询向量检索日记。
+     * 
+     * 供 MemorySearchTool 并行扇出时复用同一个查询 Embedding，避免同一轮检索重复调用向量模型；
+     * queryEmbedding 为 null 时退化为自行生成。
+     */
+    public List<String> searchDiary(String memoryId, String query, Embedding queryEmbedding,
+            String startDate, String endDate) {
 
         String currentUserId = memoryId;
         if (StrUtil.isEmpty(currentUserId)) {
@@ -146,41 +159,22 @@ public class DiarySearchTool {
             // 构建过滤条件字符串 (Milvus expr 格式)
             String expr = buildMilvusExpr(currentUserId, startDate, endDate);
 
-            // 生成查询的 Embedding
-            Embedding queryEmbedding = embeddingModel.embed(query).content();
-
-            // 1. 构建稠密向量搜索请求
-            AnnSearchReq denseReq = AnnSearchReq.builder()
-                    .vectorFieldName("vector")
-                    .vectors(Collections.singletonList(new FloatVec(queryEmbedding.vector())))
-                    .params("{\"metric_type\": \"COSINE\"}")
-                    .limit(20)
-                    .filter(expr)
-                    .build();
+            // 生成查询的 Embedding（调用方已生成时直接复用）
+            Embedding embedding = queryEmbedding != null ? queryEmbedding : embedQuery(query);
 
-            // 2. 构建稀疏向量搜索请求 (使用Milvus直接文本搜索能力进行BM25检索)
-            AnnSearchReq sparseReq = AnnSearchReq.builder()
-                    .vectorFieldName("text_sparse")
-                    .vectors(Collections.singletonList(new EmbeddedText(query)))
-                    .params("{\"metric_type\": \"BM25\"}")
-                    .limit(20)
-                    .filter(expr)
-                    .build();
-
-            // 3. 构建混合搜索请求
-            HybridSearchReq hybridSearchReq = HybridSearchReq.builder()
+            // 稠密向量 + BM25 混合检索，RRF 重排序（60 为常用的平滑参数 k）
+            List<SearchResp.SearchResult> hits = retrievalBackend.hybridSearch(HybridSearchQuery.builder()
                     .collectionName("yusi_embedding_collection")
-                    .searchRequests(Arrays.asList(denseReq, sparseReq))
-                    .ranker(RRFRanker.builder().k(60).build()) // RRF重排序，60为常用的平滑参数k
+                    .denseVector(embedding.vector())
+                    .text(query)
+                    .filter(expr)
+                    .candidateLimit(20)
                     .limit(20)
-                    .outFields(Arrays.asList("text", "metadata"))
-                    .build();
+                    .outputFields(Arrays.asList("text", "metadata"))
+                    .rrfK(60)
+                    .build());
 
-            // 4. 执行混合搜索
-            SearchResp searchResp = milvusClientV2.hybridSearch(hybridSearchReq);
-            List<List<SearchResp.SearchResult>> searchResults = searchResp.getSearchResults();
-
-            if (searchResults == null || searchResults.isEmpty() || searchResults.get(0).isEmpty()) {
+            if (hits.isEmpty()) {
                 log.info("DiarySearchTool: 未找到匹配的日记内容");
                 recordSearch("empty", 0, startedAt);
                 if (startDate != null || endDate != null) {
@@ -189,7 +183,7 @@ public class DiarySearchTool {
                 return List.of("没有找到与该主题相关的日记记录。现在请直接用你的语气回答用户的问题。");
             }
 
-            List<String> results = retrievalAssembler.assemble(searchResults.get(0), 5);
+            List<String> results = retrievalAssembler.assemble(hits, 5);
 
             log.info("DiarySearchTool: 找到 {} 条匹配结果", results.size());
             recordSearch(results.isEmpty() ? "empty" : "success", results.size(), startedAt);
@@ -212,6 +206,13 @@ public class DiarySearchTool {
                 elapsedMillis(startedAt), resultCount);
     }
 
+    private Embedding embedQuery(String query) {
+        if (queryEmbeddingCache != null) {
+            return queryEmbeddingCache.embed(query);
+        }
+        return embeddingModel.embed(query).content();
+    }
+
     private long elapsedMillis(long startedAt) {
         return java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
     }
@@ -1,25 +1,58 @@
 package com.aseubel.yusi.service.ai.tool;
 
 import cn.hutool.core.util.StrUtil;
+import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
+import com.aseubel.yusi.service.ai.embedding.QueryEmbeddingCache;
 import com.aseubel.yusi.service.memory.MidTermMemorySearchService;
 import com.aseubel.yusi.service.lifegraph.LifeGraphQueryService;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
-import lombok.RequiredArgsConstructor;
+import dev.langchain4j.data.embedding.Embedding;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+/**
+ * 统一记忆检索工具
+ *
+ * 图谱、日记、中期记忆三路检索在有界线程池上并行执行，查询向量只生成一次并在日记与中期记忆之间共享。
+ * 每一路都受同一截止时间约束，超时或失败的来源以"部分结果"形式返回，不会拖住整个工具调用。
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class MemorySearchTool {
 
     private final DiarySearchTool diarySearchTool;
     private final LifeGraphQueryService lifeGraphQueryService;
     private final MidTermMemorySearchService midTermMemorySearchService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final Executor executor;
+    private final long sourceTimeoutMillis;
+
+    public MemorySearchTool(DiarySearchTool diarySearchTool,
+            LifeGraphQueryService lifeGraphQueryService,
+            MidTermMemorySearchService midTermMemorySearchService,
+            QueryEmbeddingCache queryEmbeddingCache,
+            @Qualifier("memorySearchExecutor") Executor executor,
+            @Value("${yusi.memory.search.source-timeout-ms:3000}") long sourceTimeoutMillis) {
+        this.diarySearchTool = diarySearchTool;
+        this.lifeGraphQueryService = lifeGraphQueryService;
+        this.midTermMemorySearchService = midTermMemorySearchService;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.executor = executor;
+        this.sourceTimeoutMillis = Math.max(1L, sourceTimeoutMillis);
+    }
 
     @Tool(name = "searchMemories", value = """
             统一的"记忆检索"工具：内部会结合图谱检索（精准事实/关系路径）与向量检索（日记片段、压缩后的中期对话记忆）并进行合并排序。
@@ -49,24 +82,48 @@ public class MemorySearchTool {
         }
 
         try {
-            String graph = lifeGraphQueryService.localSearch(userId, query, 5, 20, 10);
-            List<String> diary = diarySearchTool.searchDiary(memoryId, query, startDate, endDate);
-            List<String> conversationMemories = midTermMemorySearchService.searchMidTermMemory(userId, query, 3);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sourceTimeoutMillis);
+
+            // 图谱检索不依赖向量，立即启动；日记与中期记忆共享同一个查询向量
+            CompletableFuture<String> graphFuture = submit(
+                    () -> lifeGraphQueryService.localSearch(userId, query, 5, 20, 10));
+            CompletableFuture<Embedding> embeddingFuture = submit(() -> queryEmbeddingCache.embed(query))
+                    .exceptionally(e -> {
+                        log.warn("MemorySearchTool query embedding failed, sources will embed on their own: userId={}, exceptionType={}",
+                                userId, LowSensitivityLogSummary.exceptionType(e));
+                        return null;
+                    });
+            CompletableFuture<List<String>> diaryFuture = embeddingFuture.thenApplyAsync(
+                    embedding -> diarySearchTool.searchDiary(memoryId, query, embedding, startDate, endDate), executor);
+            CompletableFuture<List<String>> conversationFuture = embeddingFuture.thenApplyAsync(
+                    embedding -> midTermMemorySearchService.searchMidTermMemory(userId, query, embedding, 3), executor);
+
+            String graph = await(graphFuture, "graph", userId, deadline);
+            List<String> diary = await(diaryFuture, "diary", userId, deadline);
+            List<String> conversationMemories = await(conversationFuture, "mid_term_memory", userId, deadline);
 
             StringBuilder sb = new StringBuilder();
             if (StrUtil.isNotBlank(graph)) {
                 sb.append("GRAPH:\n").append(graph).append("\n");
+            } else if (graph == null) {
+                sb.append("GRAPH:\n").append("图谱检索暂不可用。\n\n");
             } else {
                 sb.append("GRAPH:\n").append("无匹配图谱结果。\n\n");
             }
 
             sb.append("DIARY:\n");
-            for (String s : diary) {
-                sb.append("- ").append(s).append("\n");
+            if (diary == null) {
+                sb.append("日记检索暂不可用。\n");
+            } else {
+                for (String s : diary) {
+                    sb.append("- ").append(s).append("\n");
+                }
             }
 
             sb.append("\nCONVERSATION_MEMORY:\n");
-            if (conversationMemories.isEmpty()) {
+            if (conversationMemories == null) {
+                sb.append("对话记忆检索暂不可用。\n");
+            } else if (conversationMemories.isEmpty()) {
                 sb.append("无匹配对话记忆。\n");
             } else {
                 for (String s : conversationMemories) {
@@ -74,9 +131,11 @@ public class MemorySearchTool {
                 }
             }
 
-            log.info("MemorySearchTool: userId={}, graphLen={}, diaryCount={}, convMemCount={}", userId, graph.length(),
-                    diary.size(), conversationMemories.size());
-            
+            log.info("MemorySearchTool: userId={}, graphLen={}, diaryCount={}, convMemCount={}", userId,
+                    graph == null ? -1 : graph.length(),
+                    diary == null ? -1 : diary.size(),
+                    conversationMemories == null ? -1 : conversationMemories.size());
+
             sb.append("\n\n请根据以上检索到的记忆，用你的语气回答用户的问题。");
             return sb.toString();
         } catch (Exception e) {
@@ -84,4 +143,34 @@ public class MemorySearchTool {
             return "检索记忆失败。现在请直接用你的语气回答用户的问题。";
         }
     }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 在共享截止时间内等待单路检索结果；超时或失败返回 null，由调用方按"部分结果"渲染
+     */
+    private <T> T await(CompletableFuture<T> future, String source, String userId, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        try {
+            return future.get(Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("MemorySearchTool source timed out: userId={}, source={}, timeoutMs={}",
+                    userId, source, sourceTimeoutMillis);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            log.warn("MemorySearchTool source failed: userId={}, source={}, exceptionType={}",
+                    userId, source, LowSensitivityLogSummary.exceptionType(e.getCause()));
+            return null;
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.aseubel.yusi.service.cognition;
 
 import cn.hutool.core.util.StrUtil;
 import com.aseubel.yusi.common.constant.PromptKey;
+import com.aseubel.yusi.common.task.BatchJobEngine;
 import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
 import com.aseubel.yusi.service.cognition.constant.MidMemoryConflictAction;
 import com.aseubel.yusi.pojo.entity.MidTermMemory;
@@ -22,9 +23,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 跨源记忆融合服务（F11.4）。
@@ -44,6 +47,10 @@ public class MidMemoryFusionService {
     private final MidTermMemoryRepository memoryRepository;
     private final UserService userService;
     private final ObjectMapper objectMapper;
+    private final BatchJobEngine batchJobEngine;
+
+    /** 与调度锁同名，断点和指标都按此归档 */
+    public static final String JOB_NAME = "memory-fusion";
 
     /** 触发融合的最小条目数 */
     private static final int MIN_ENTRIES_TO_FUSE = 3;
@@ -59,21 +66,17 @@ public class MidMemoryFusionService {
         log.info("开始跨源记忆融合...");
         try {
             List<User> users = userService.getMatchEnabledUsers();
-            int processed = 0;
-            int totalMerged = 0;
-
-            for (User user : users) {
-                if (processed >= MAX_BATCH_USERS) { break; }
-                try {
-                    int merged = fuseUserMemories(user.getUserId());
-                    if (merged > 0) { processed++; totalMerged += merged; }
-                } catch (Exception e) {
-                    log.warn("Mid-memory fusion failed: userId={}, operation=fuse_user_memories, exceptionType={}",
-                            user.getUserId(), LowSensitivityLogSummary.exceptionType(e));
-                }
-            }
+            AtomicInteger totalMerged = new AtomicInteger();
+
+            // 单个用户的异常由引擎按退避重试，重试用尽后记为失败并继续后面的用户
+            int processed = batchJobEngine.run(JOB_NAME, LocalDate.now().toString(), users, User::getUserId,
+                    MAX_BATCH_USERS, user -> {
+                        int merged = fuseUserMemories(user.getUserId());
+                        totalMerged.addAndGet(merged);
+                        return merged > 0;
+                    }).processed();
 
-            log.info("跨源记忆融合完成: 处理{}人, 合并{}对", processed, totalMerged);
+            log.info("跨源记忆融合完成: 处理{}人, 合并{}对", processed, totalMerged.get());
         } catch (Exception e) {
             log.error("Mid-memory fusion batch failed: operation=run_fusion, exceptionType={}",
                     LowSensitivityLogSummary.exceptionType(e));
@@ -230,7 +230,7 @@ public class DiaryServiceImpl implements DiaryService {
     }
 
     @Override
-    @QueryCache(key = "'diary:detail:v4:' + #diaryId + ':' + #userId", ttl = 3600, compress = true)
+    @QueryCache(cacheNames = "diaryDetail", key = "'diary:detail:v4:' + #diaryId + ':' + #userId", ttl = 3600, compress = true, localMaxSize = 2000, localTtl = 30)
     public Diary getCachedDiary(String diaryId, String userId) {
         Diary diary = diaryRepository.findByDiaryIdAndUserId(diaryId, userId);
         if (diary == null) {
@@ -0,0 +1,281 @@
+package com.aseubel.yusi.service.lifegraph;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个用户人生图谱的紧凑邻接结构（CSR）。
+ * <p>
+ * 节点按实体 ID 升序存放，关系按关系 ID 升序存放，全部是基本类型数组；
+ * offsets[i]..offsets[i + 1] 是节点 i 的邻接段，段内是关系下标，出边和入边都在，
+ * 按权重降序、更新时间降序排列，遍历预算不够时优先保留更强、更近的关系。
+ * 实例不可变，增量变更通过 {@link #apply} 生成新实例，读取方无需加锁。
+ * 端点不在节点表中的关系在构建时丢弃。
+ */
+public final class LifeGraphAdjacency {
+
+    private final long[] entityIds;
+    private final boolean[] hidden;
+    private final LocalDateTime[] validUntil;
+    private final int[] mentionCounts;
+
+    private final long[] relationIds;
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] weights;
+    private final long[] updatedAt;
+    private final boolean[] searchable;
+
+    private final int[] offsets;
+    private final int[] adjacent;
+
+    private LifeGraphAdjacency(List<Node> nodes, List<Edge> edges) {
+        int nodeCount = nodes.size();
+        entityIds = new long[nodeCount];
+        hidden = new boolean[nodeCount];
+        validUntil = new LocalDateTime[nodeCount];
+        mentionCounts = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            Node node = nodes.get(i);
+            entityIds[i] = node.id();
+            hidden[i] = node.hidden();
+            validUntil[i] = node.validUntil();
+            mentionCounts[i] = node.mentionCount();
+        }
+
+        List<Edge> connected = new ArrayList<>(edges.size());
+        for (Edge edge : edges) {
+            if (indexOf(edge.sourceId()) >= 0 && indexOf(edge.targetId()) >= 0) {
+                connected.add(edge);
+            }
+        }
+        int relationCount = connected.size();
+        relationIds = new long[relationCount];
+        sources = new int[relationCount];
+        targets = new int[relationCount];
+        weights = new int[relationCount];
+        updatedAt = new long[relationCount];
+        searchable = new boolean[relationCount];
+        offsets = new int[nodeCount + 1];
+        for (int r = 0; r < relationCount; r++) {
+            Edge edge = connected.get(r);
+            relationIds[r] = edge.id();
+            sources[r] = indexOf(edge.sourceId());
+            targets[r] = indexOf(edge.targetId());
+            weights[r] = edge.weight();
+            updatedAt[r] = toEpochSecond(edge.updatedAt());
+            searchable[r] = edge.searchable();
+            offsets[sources[r] + 1]++;
+            if (targets[r] != sources[r]) {
+                offsets[targets[r] + 1]++;
+            }
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        // 全局排好序后按序填充，每个节点的邻接段自然有序
+        Integer[] order = new Integer[relationCount];
+        for (int r = 0; r < relationCount; r++) {
+            order[r] = r;
+        }
+        Arrays.sort(order, Comparator.comparingInt((Integer r) -> weights[r]).reversed()
+                .thenComparing((Integer r) -> updatedAt[r], Comparator.reverseOrder())
+                .thenComparingLong(r -> relationIds[r]));
+        adjacent = new int[offsets[nodeCount]];
+        int[] fill = Arrays.copyOf(offsets, nodeCount);
+        for (int r : order) {
+            adjacent[fill[sources[r]]++] = r;
+            if (targets[r] != sources[r]) {
+                adjacent[fill[targets[r]]++] = r;
+            }
+        }
+    }
+
+    /**
+     * 由节点与关系构建，ID 重复时以后出现的为准
+     */
+    public static LifeGraphAdjacency build(Collection<Node> nodes, Collection<Edge> edges) {
+        Map<Long, Node> nodeById = new LinkedHashMap<>();
+        nodes.forEach(node -> nodeById.put(node.id(), node));
+        Map<Long, Edge> edgeById = new LinkedHashMap<>();
+        edges.forEach(edge -> edgeById.put(edge.id(), edge));
+        List<Node> sortedNodes = new ArrayList<>(nodeById.values());
+        sortedNodes.sort(Comparator.comparingLong(Node::id));
+        List<Edge> sortedEdges = new ArrayList<>(edgeById.values());
+        sortedEdges.sort(Comparator.comparingLong(Edge::id));
+        return new LifeGraphAdjacency(sortedNodes, sortedEdges);
+    }
+
+    /**
+     * 应用一批行级变更，返回新实例；删除实体时与其相连的关系一并移除
+     */
+    public LifeGraphAdjacency apply(Collection<Node> upsertedNodes, Collection<Long> removedNodeIds,
+            Collection<Edge> upsertedEdges, Collection<Long> removedEdgeIds) {
+        Map<Long, Node> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < entityIds.length; i++) {
+            nodes.put(entityIds[i], new Node(entityIds[i], hidden[i], validUntil[i], mentionCounts[i]));
+        }
+        removedNodeIds.forEach(nodes::remove);
+        upsertedNodes.forEach(node -> nodes.put(node.id(), node));
+
+        Map<Long, Edge> edges = new LinkedHashMap<>();
+        for (int r = 0; r < relationIds.length; r++) {
+            edges.put(relationIds[r], new Edge(relationIds[r], entityIds[sources[r]], entityIds[targets[r]],
+                    weights[r], fromEpochSecond(updatedAt[r]), searchable[r]));
+        }
+        removedEdgeIds.forEach(edges::remove);
+        upsertedEdges.forEach(edge -> edges.put(edge.id(), edge));
+        return build(nodes.values(), edges.values());
+    }
+
+    public int nodeCount() {
+        return entityIds.length;
+    }
+
+    public int relationCount() {
+        return relationIds.length;
+    }
+
+    /**
+     * 实体 ID 对应的节点下标，不存在时返回 -1
+     */
+    public int indexOf(long entityId) {
+        int index = Arrays.binarySearch(entityIds, entityId);
+        return index >= 0 ? index : -1;
+    }
+
+    public long entityId(int node) {
+        return entityIds[node];
+    }
+
+    public boolean isVisible(int node, LocalDateTime now) {
+        return !hidden[node] && (validUntil[node] == null || validUntil[node].isAfter(now));
+    }
+
+    public int adjacencyStart(int node) {
+        return offsets[node];
+    }
+
+    public int adjacencyEnd(int node) {
+        return offsets[node + 1];
+    }
+
+    /**
+     * 邻接段中某个位置上的关系下标
+     */
+    public int relationAt(int position) {
+        return adjacent[position];
+    }
+
+    public long relationId(int relation) {
+        return relationIds[relation];
+    }
+
+    public int source(int relation) {
+        return sources[relation];
+    }
+
+    public int target(int relation) {
+        return targets[relation];
+    }
+
+    public int neighbor(int relation, int node) {
+        return sources[relation] == node ? targets[relation] : sources[relation];
+    }
+
+    public int weight(int relation) {
+        return weights[relation];
+    }
+
+    /**
+     * 关系能否参与 GraphRAG 检索：非纯语言关系，且手动关系或有可用证据的高置信自动关系
+     */
+    public boolean isSearchable(int relation) {
+        return searchable[relation];
+    }
+
+    public long countVisible(LocalDateTime now) {
+        long count = 0;
+        for (int i = 0; i < entityIds.length; i++) {
+            if (isVisible(i, now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 可见实体按提及次数降序分页
+     */
+    public List<Long> visibleEntityIdsByMentionCount(LocalDateTime now, int page, int size) {
+        List<Integer> visible = new ArrayList<>();
+        for (int i = 0; i < entityIds.length; i++) {
+            if (isVisible(i, now)) {
+                visible.add(i);
+            }
+        }
+        visible.sort(Comparator.comparingInt((Integer i) -> mentionCounts[i]).reversed()
+                .thenComparingLong(i -> entityIds[i]));
+        long from = (long) Math.max(0, page) * Math.max(0, size);
+        if (from >= visible.size()) {
+            return List.of();
+        }
+        int to = (int) Math.min(visible.size(), from + Math.max(0, size));
+        List<Long> ids = new ArrayList<>(to - (int) from);
+        for (int i = (int) from; i < to; i++) {
+            ids.add(entityIds[visible.get(i)]);
+        }
+        return ids;
+    }
+
+    /**
+     * 两端都在给定实体集合内的关系 ID，按关系 ID 升序
+     */
+    public List<Long> relationIdsWithin(Collection<Long> entityIdSet) {
+        boolean[] member = new boolean[entityIds.length];
+        for (Long id : entityIdSet) {
+            int node = id == null ? -1 : indexOf(id);
+            if (node >= 0) {
+                member[node] = true;
+            }
+        }
+        Set<Integer> selected = new HashSet<>();
+        for (int node = 0; node < member.length; node++) {
+            if (!member[node]) {
+                continue;
+            }
+            for (int position = offsets[node]; position < offsets[node + 1]; position++) {
+                int relation = adjacent[position];
+                if (sources[relation] == node && member[targets[relation]]) {
+                    selected.add(relation);
+                }
+            }
+        }
+        return selected.stream().sorted().map(relation -> relationIds[relation]).toList();
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time == null ? Long.MIN_VALUE : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSecond(long epochSecond) {
+        return epochSecond == Long.MIN_VALUE ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    public record Node(long id, boolean hidden, LocalDateTime validUntil, int mentionCount) {
+    }
+
+    public record Edge(long id, long sourceId, long targetId, int weight, LocalDateTime updatedAt,
+            boolean searchable) {
+    }
+}
@@ -0,0 +1,324 @@
+package com.aseubel.yusi.service.lifegraph;
+
+import com.aseubel.yusi.common.event.LifeGraphChangedEvent;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.repository.LifeGraphEntityRepository;
+import com.aseubel.yusi.repository.LifeGraphRelationEvidenceRepository;
+import com.aseubel.yusi.repository.LifeGraphRelationRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 按用户缓存的人生图谱邻接结构（{@link LifeGraphAdjacency}），供局部检索、BFS 子图与全图分页在内存中遍历。
+ * <p>
+ * 首次访问时用投影查询整图加载一次；之后实体、关系、关系证据的写入经 {@link LifeGraphChangedEvent}
+ * 在事务提交后登记为脏 ID，下次读取时只按 ID 回查这些行并生成新的邻接结构，脏 ID 过多时直接整图重载。
+ * 变更 ID 与整用户失效同时通过 Redis 频道广播，其他实例收到后同样登记或丢弃；
+ * 广播是尽力而为的，丢失时由写入后 TTL 到期整图重载兜底。用户数按 LRU 淘汰。
+ */
+@Slf4j
+@Component
+public class LifeGraphAdjacencyCache {
+
+    static final String CHANGE_CHANNEL = "lifegraph:graph-cache:changed";
+    /** 频道消息里表示整用户失效的类型，其余为 {@link LifeGraphChangedEvent.Kind} */
+    private static final String INVALIDATE_USER = "USER";
+
+    private static final int BULK_QUERY_SIZE = 1000;
+    /** 待回查的脏 ID 超过该数量且超过图规模的四分之一时，整图重载比逐行回查更省 */
+    private static final int MIN_FULL_RELOAD_CHANGES = 256;
+    private static final BigDecimal MIN_EVIDENCE_CONFIDENCE =
+            BigDecimal.valueOf(LifeGraphQueryService.MIN_EVIDENCE_CONFIDENCE);
+
+    private final LifeGraphEntityRepository entityRepository;
+    private final LifeGraphRelationRepository relationRepository;
+    private final LifeGraphRelationEvidenceRepository evidenceRepository;
+    private final YusiMetrics metrics;
+    private final RedissonClient redissonClient;
+    private final String channel;
+    private final boolean enabled;
+    private final Cache<String, UserGraph> cache;
+
+    public LifeGraphAdjacencyCache(LifeGraphEntityRepository entityRepository,
+            LifeGraphRelationRepository relationRepository,
+            LifeGraphRelationEvidenceRepository evidenceRepository) {
+        this(entityRepository, relationRepository, evidenceRepository, null, true, 2000, 60);
+    }
+
+    public LifeGraphAdjacencyCache(LifeGraphEntityRepository entityRepository,
+            LifeGraphRelationRepository relationRepository,
+            LifeGraphRelationEvidenceRepository evidenceRepository,
+            YusiMetrics metrics, boolean enabled, long maxUsers, long ttlMinutes) {
+        this(entityRepository, relationRepository, evidenceRepository, metrics, (RedissonClient) null, "yusi:",
+                enabled, maxUsers, ttlMinutes);
+    }
+
+    @Autowired
+    public LifeGraphAdjacencyCache(LifeGraphEntityRepository entityRepository,
+            LifeGraphRelationRepository relationRepository,
+            LifeGraphRelationEvidenceRepository evidenceRepository,
+            YusiMetrics metrics,
+            ObjectProvider<RedissonClient> redissonClient,
+            @Value("${spring.cache.redis.key-prefix:yusi:}") String keyPrefix,
+            @Value("${yusi.lifegraph.graph-cache.enabled:true}") boolean enabled,
+            @Value("${yusi.lifegraph.graph-cache.max-users:2000}") long maxUsers,
+            @Value("${yusi.lifegraph.graph-cache.ttl-minutes:60}") long ttlMinutes) {
+        this(entityRepository, relationRepository, evidenceRepository, metrics, redissonClient.getIfAvailable(),
+                keyPrefix, enabled, maxUsers, ttlMinutes);
+    }
+
+    LifeGraphAdjacencyCache(LifeGraphEntityRepository entityRepository,
+            LifeGraphRelationRepository relationRepository,
+            LifeGraphRelationEvidenceRepository evidenceRepository,
+            YusiMetrics metrics, RedissonClient redissonClient, String keyPrefix,
+            boolean enabled, long maxUsers, long ttlMinutes) {
+        this.entityRepository = entityRepository;
+        this.relationRepository = relationRepository;
+        this.evidenceRepository = evidenceRepository;
+        this.metrics = metrics;
+        this.redissonClient = redissonClient;
+        this.channel = keyPrefix + CHANGE_CHANNEL;
+        this.enabled = enabled && maxUsers > 0;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1L, maxUsers))
+                .expireAfterWrite(Duration.ofMinutes(Math.max(1L, ttlMinutes)))
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || redissonClient == null) {
+            return;
+        }
+        redissonClient.getTopic(channel, StringCodec.INSTANCE)
+                .addListener(String.class, (ignored, message) -> onRemoteChange(message));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取用户当前的邻接结构，缺失时整图加载，有待回查的变更时先增量合并
+     */
+    public LifeGraphAdjacency get(String userId) {
+        if (!enabled) {
+            return load(userId);
+        }
+        UserGraph graph;
+        try {
+            graph = cache.get(userId, UserGraph::new);
+        } catch (ExecutionException e) {
+            return load(userId);
+        }
+        return graph.current(userId);
+    }
+
+    /**
+     * 丢弃该用户在所有实例上的缓存，用于绕过实体写入路径的批量删除（如注销账号）
+     */
+    public void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        cache.invalidate(userId);
+        if (enabled) {
+            broadcast(INVALIDATE_USER, null, userId);
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * 图谱行变更：事务提交后在本实例登记脏 ID 并广播给其他实例，未缓存的用户直接忽略
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLifeGraphChanged(LifeGraphChangedEvent event) {
+        if (!enabled || event.getUserId() == null || event.getId() == null) {
+            return;
+        }
+        markDirty(event.getUserId(), event.getKind(), event.getId());
+        broadcast(event.getKind().name(), event.getId(), event.getUserId());
+    }
+
+    /**
+     * 其他实例（也包括本实例自己）广播的变更，格式为 {@code 类型:ID:用户ID}；重复登记是幂等的
+     */
+    void onRemoteChange(String message) {
+        String[] parts = message == null ? new String[0] : message.split(":", 3);
+        if (parts.length < 3 || parts[2].isEmpty()) {
+            return;
+        }
+        String userId = parts[2];
+        if (INVALIDATE_USER.equals(parts[0])) {
+            cache.invalidate(userId);
+            return;
+        }
+        try {
+            markDirty(userId, LifeGraphChangedEvent.Kind.valueOf(parts[0]), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException e) {
+            // 格式不对的消息直接丢弃，由 TTL 兜底
+        }
+    }
+
+    private void markDirty(String userId, LifeGraphChangedEvent.Kind kind, Long id) {
+        UserGraph graph = cache.getIfPresent(userId);
+        if (graph == null) {
+            return;
+        }
+        if (kind == LifeGraphChangedEvent.Kind.ENTITY) {
+            graph.dirtyEntities.add(id);
+        } else {
+            graph.dirtyRelations.add(id);
+        }
+    }
+
+    private void broadcast(String type, Long id, String userId) {
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            redissonClient.getTopic(channel, StringCodec.INSTANCE)
+                    .publish(type + ":" + (id == null ? "" : id) + ":" + userId);
+        } catch (RuntimeException e) {
+            log.warn("人生图谱缓存变更广播失败，其他实例按 TTL 兜底: type={}", type);
+        }
+    }
+
+    private LifeGraphAdjacency load(String userId) {
+        List<LifeGraphAdjacency.Node> nodes = entityRepository.findNodesByUserId(userId).stream()
+                .map(LifeGraphAdjacencyCache::toNode)
+                .toList();
+        List<LifeGraphRelationRepository.RelationEdge> rows = relationRepository.findEdgesByUserId(userId);
+        Set<Long> usable = new HashSet<>(evidenceRepository.findUsableRelationIds(userId,
+                LifeGraphQueryService.AUTOMATIC_SOURCE_TYPES, MIN_EVIDENCE_CONFIDENCE));
+        List<LifeGraphAdjacency.Edge> edges = rows.stream()
+                .map(row -> toEdge(row, usable.contains(row.getId())))
+                .toList();
+        LifeGraphAdjacency adjacency = LifeGraphAdjacency.build(nodes, edges);
+        log.debug("人生图谱邻接结构已加载: userId={}, nodes={}, relations={}", userId, adjacency.nodeCount(),
+                adjacency.relationCount());
+        return adjacency;
+    }
+
+    private LifeGraphAdjacency patch(String userId, LifeGraphAdjacency base, Set<Long> entityIds,
+            Set<Long> relationIds) {
+        List<LifeGraphAdjacency.Node> nodes = new ArrayList<>();
+        for (List<Long> chunk : chunks(entityIds)) {
+            entityRepository.findNodesByUserIdAndIdIn(userId, chunk).forEach(row -> nodes.add(toNode(row)));
+        }
+        Set<Long> removedEntities = new HashSet<>(entityIds);
+        nodes.forEach(node -> removedEntities.remove(node.id()));
+
+        List<LifeGraphAdjacency.Edge> edges = new ArrayList<>();
+        for (List<Long> chunk : chunks(relationIds)) {
+            Set<Long> usable = new HashSet<>(evidenceRepository.findUsableRelationIdsIn(userId, chunk,
+                    LifeGraphQueryService.AUTOMATIC_SOURCE_TYPES, MIN_EVIDENCE_CONFIDENCE));
+            relationRepository.findEdgesByUserIdAndIdIn(userId, chunk)
+                    .forEach(row -> edges.add(toEdge(row, usable.contains(row.getId()))));
+        }
+        Set<Long> removedRelations = new HashSet<>(relationIds);
+        edges.forEach(edge -> removedRelations.remove(edge.id()));
+        return base.apply(nodes, removedEntities, edges, removedRelations);
+    }
+
+    private static LifeGraphAdjacency.Node toNode(LifeGraphEntityRepository.EntityNode row) {
+        return new LifeGraphAdjacency.Node(row.getId(), Boolean.TRUE.equals(row.getHidden()), row.getValidUntil(),
+                row.getMentionCount() == null ? 0 : row.getMentionCount());
+    }
+
+    private static LifeGraphAdjacency.Edge toEdge(LifeGraphRelationRepository.RelationEdge row,
+            boolean hasUsableEvidence) {
+        return new LifeGraphAdjacency.Edge(row.getId(), row.getSourceId(), row.getTargetId(),
+                row.getWeight() == null ? 0 : row.getWeight(), row.getUpdatedAt(),
+                LifeGraphQueryService.isSearchableRelation(row.getType(), row.getOrigin(), row.getConfidence(),
+                        hasUsableEvidence));
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += BULK_QUERY_SIZE) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + BULK_QUERY_SIZE)));
+        }
+        return chunks;
+    }
+
+    private void record(String result) {
+        if (metrics != null) {
+            metrics.recordLifeGraphAdjacencyCache(result);
+        }
+    }
+
+    /**
+     * 缓存条目：当前邻接结构与提交后登记、尚未合并的脏 ID。
+     * 先放入缓存再加载，加载期间到达的变更也会被登记，之后按 ID 回查是幂等的
+     */
+    private final class UserGraph {
+
+        private final Set<Long> dirtyEntities = ConcurrentHashMap.newKeySet();
+        private final Set<Long> dirtyRelations = ConcurrentHashMap.newKeySet();
+        private volatile LifeGraphAdjacency adjacency;
+
+        private LifeGraphAdjacency current(String userId) {
+            LifeGraphAdjacency snapshot = adjacency;
+            if (snapshot != null && dirtyEntities.isEmpty() && dirtyRelations.isEmpty()) {
+                record("hit");
+                return snapshot;
+            }
+            synchronized (this) {
+                snapshot = adjacency;
+                Set<Long> entityIds = drain(dirtyEntities);
+                Set<Long> relationIds = drain(dirtyRelations);
+                int changes = entityIds.size() + relationIds.size();
+                try {
+                    if (snapshot == null || (changes > MIN_FULL_RELOAD_CHANGES
+                            && changes * 4 > snapshot.nodeCount() + snapshot.relationCount())) {
+                        record("miss");
+                        snapshot = load(userId);
+                    } else {
+                        record("hit");
+                        if (changes > 0) {
+                            snapshot = patch(userId, snapshot, entityIds, relationIds);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // 回查失败时把脏 ID 放回去，下次读取重试，不能让缓存停在漏掉变更的版本上
+                    dirtyEntities.addAll(entityIds);
+                    dirtyRelations.addAll(relationIds);
+                    throw e;
+                }
+                adjacency = snapshot;
+                return snapshot;
+            }
+        }
+
+        private Set<Long> drain(Set<Long> dirty) {
+            Set<Long> drained = new HashSet<>(dirty);
+            dirty.removeAll(drained);
+            return drained;
+        }
+    }
+}
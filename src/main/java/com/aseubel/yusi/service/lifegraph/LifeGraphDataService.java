@@ -11,8 +11,8 @@ import com.aseubel.yusi.repository.LifeGraphRelationEvidenceRepository;
 import com.aseubel.yusi.repository.LifeGraphRelationRepository;
 import com.aseubel.yusi.service.lifegraph.dto.GraphSnapshotDTO;
 import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -27,10 +27,11 @@ import java.util.stream.Collectors;
 
 /**
  * 图谱数据CRUD服务，为3D可视化前端提供数据查询和编辑能力。
+ * 注入 {@link LifeGraphAdjacencyCache} 时，全图分页与 BFS 子图在内存邻接结构上选点选边，
+ * 只按 ID 批量加载最终返回的实体和关系。
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class LifeGraphDataService {
 
     private final LifeGraphEntityRepository entityRepository;
@@ -38,6 +39,30 @@ public class LifeGraphDataService {
     private final LifeGraphRelationEvidenceRepository evidenceRepository;
     private final LifeGraphEntityAliasRepository aliasRepository;
     private final LifeGraphMentionRepository mentionRepository;
+    private final LifeGraphAdjacencyCache graphCache;
+
+    public LifeGraphDataService(LifeGraphEntityRepository entityRepository,
+                                LifeGraphRelationRepository relationRepository,
+                                LifeGraphRelationEvidenceRepository evidenceRepository,
+                                LifeGraphEntityAliasRepository aliasRepository,
+                                LifeGraphMentionRepository mentionRepository) {
+        this(entityRepository, relationRepository, evidenceRepository, aliasRepository, mentionRepository, null);
+    }
+
+    @Autowired
+    public LifeGraphDataService(LifeGraphEntityRepository entityRepository,
+                                LifeGraphRelationRepository relationRepository,
+                                LifeGraphRelationEvidenceRepository evidenceRepository,
+                                LifeGraphEntityAliasRepository aliasRepository,
+                                LifeGraphMentionRepository mentionRepository,
+                                LifeGraphAdjacencyCache graphCache) {
+        this.entityRepository = entityRepository;
+        this.relationRepository = relationRepository;
+        this.evidenceRepository = evidenceRepository;
+        this.aliasRepository = aliasRepository;
+        this.mentionRepository = mentionRepository;
+        this.graphCache = graphCache;
+    }
 
     // ======================== 查询 ========================
 
@@ -46,6 +71,11 @@ public class LifeGraphDataService {
      */
     public GraphSnapshotDTO getFullGraph(String userId, int page, int size) {
         LocalDateTime now = LocalDateTime.now();
+        if (useGraphCache()) {
+            LifeGraphAdjacency graph = graphCache.get(userId);
+            List<Long> entityIds = graph.visibleEntityIdsByMentionCount(now, page, size);
+            return snapshot(userId, graph, loadEntities(userId, entityIds), now);
+        }
         Page<LifeGraphEntity> entityPage = entityRepository.findVisibleByUserId(
                 userId, now, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "mentionCount")));
 
@@ -76,6 +106,9 @@ public class LifeGraphDataService {
      * BFS 从中心节点扩展，返回指定深度内的子图
      */
     public GraphSnapshotDTO getGraphBfs(String userId, Long centerId, int depth, int maxNodes) {
+        if (useGraphCache()) {
+            return getGraphBfsInMemory(userId, centerId, depth, maxNodes);
+        }
         Map<Long, LifeGraphEntity> visitedEntities = new LinkedHashMap<>();
         Set<Long> frontier = new HashSet<>();
         frontier.add(centerId);
@@ -127,6 +160,74 @@ public class LifeGraphDataService {
                 .build();
     }
 
+    /**
+     * 与 {@link #getGraphBfs} 相同的逐层扩展，邻居从内存邻接结构中取，按关系权重降序展开
+     */
+    private GraphSnapshotDTO getGraphBfsInMemory(String userId, Long centerId, int depth, int maxNodes) {
+        LocalDateTime now = LocalDateTime.now();
+        LifeGraphAdjacency graph = graphCache.get(userId);
+        Set<Long> visited = new LinkedHashSet<>();
+        Set<Integer> frontier = new LinkedHashSet<>();
+        int center = centerId == null ? -1 : graph.indexOf(centerId);
+        if (center >= 0) {
+            frontier.add(center);
+        }
+
+        for (int d = 0; d <= depth && visited.size() < maxNodes && !frontier.isEmpty(); d++) {
+            List<Integer> found = frontier.stream().filter(node -> graph.isVisible(node, now)).toList();
+            for (int node : found) {
+                if (visited.size() >= maxNodes) break;
+                visited.add(graph.entityId(node));
+            }
+
+            Set<Integer> nextFrontier = new LinkedHashSet<>();
+            if (d < depth) {
+                for (int node : found) {
+                    for (int position = graph.adjacencyStart(node); position < graph.adjacencyEnd(node); position++) {
+                        int neighbor = graph.neighbor(graph.relationAt(position), node);
+                        if (!visited.contains(graph.entityId(neighbor))) nextFrontier.add(neighbor);
+                    }
+                }
+            }
+            frontier = nextFrontier;
+        }
+        return snapshot(userId, graph, loadEntities(userId, visited), now);
+    }
+
+    private GraphSnapshotDTO snapshot(String userId, LifeGraphAdjacency graph, List<LifeGraphEntity> entities,
+                                      LocalDateTime now) {
+        List<Long> nodeIds = entities.stream().map(LifeGraphEntity::getId).toList();
+        List<Long> relationIds = graph.relationIdsWithin(nodeIds);
+        List<LifeGraphRelation> relations = relationIds.isEmpty() ? List.of()
+                : relationRepository.findAllById(relationIds).stream()
+                .filter(r -> userId.equals(r.getUserId()))
+                .sorted(Comparator.comparing(LifeGraphRelation::getId))
+                .toList();
+        return GraphSnapshotDTO.builder()
+                .nodes(entities.stream().map(this::toNodeDTO).toList())
+                .links(relations.stream().map(this::toLinkDTO).toList())
+                .totalNodeCount(graph.countVisible(now))
+                .build();
+    }
+
+    /**
+     * 按给定顺序批量加载实体，跳过已删除、不属于该用户或已不可见的
+     */
+    private List<LifeGraphEntity> loadEntities(String userId, Collection<Long> entityIds) {
+        if (entityIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, LifeGraphEntity> byId = entityRepository.findAllById(entityIds).stream()
+                .filter(e -> userId.equals(e.getUserId()))
+                .filter(this::isVisible)
+                .collect(Collectors.toMap(LifeGraphEntity::getId, e -> e, (a, b) -> a));
+        return entityIds.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    private boolean useGraphCache() {
+        return graphCache != null && graphCache.isEnabled();
+    }
+
     private boolean isVisible(LifeGraphEntity entity) {
         return !Boolean.TRUE.equals(entity.getHidden())
                 && (entity.getValidUntil() == null || entity.getValidUntil().isAfter(LocalDateTime.now()));
@@ -26,6 +26,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,8 +35,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -43,6 +46,10 @@ import java.util.stream.Collectors;
  *
  * <p>The traversal has runtime budgets but no product-level one-hop limit.
  * The one-hop rule belongs to source promotion, not retrieval.</p>
+ *
+ * <p>With a {@link LifeGraphAdjacencyCache} wired, expansion walks the cached
+ * per-user adjacency in memory and only the selected entities, relations and
+ * their evidence are loaded afterwards, in bulk.</p>
  */
 @Service
 public class LifeGraphQueryService {
@@ -50,9 +57,9 @@ public class LifeGraphQueryService {
     private static final Set<String> LANGUAGE_ONLY_RELATIONS = Set.of(
             LifeGraphRelationType.MENTIONED.code(), LifeGraphRelationType.MENTIONED_IN.code(),
             LifeGraphRelationType.SAID.code(), LifeGraphRelationType.RELATED_TO.code());
-    private static final Set<String> AUTOMATIC_SOURCE_TYPES = Set.of(
+    static final Set<String> AUTOMATIC_SOURCE_TYPES = Set.of(
             SourceType.DIARY.code(), SourceType.PLAZA.code());
-    private static final double MIN_EVIDENCE_CONFIDENCE = 0.6;
+    static final double MIN_EVIDENCE_CONFIDENCE = 0.6;
 
     private final LifeGraphEntityRepository entityRepository;
     private final LifeGraphEntityAliasRepository aliasRepository;
@@ -61,6 +68,7 @@ public class LifeGraphQueryService {
     private final LifeGraphRelationEvidenceRepository evidenceRepository;
     private final LifeGraphEntityEvidenceRepository entityEvidenceRepository;
     private final ObjectMapper objectMapper;
+    private final LifeGraphAdjacencyCache graphCache;
 
     @Autowired
     public LifeGraphQueryService(LifeGraphEntityRepository entityRepository,
@@ -69,7 +77,8 @@ public class LifeGraphQueryService {
                                  LifeGraphMentionRepository mentionRepository,
                                  LifeGraphRelationEvidenceRepository evidenceRepository,
                                  LifeGraphEntityEvidenceRepository entityEvidenceRepository,
-                                 ObjectMapper objectMapper) {
+                                 ObjectMapper objectMapper,
+                                 LifeGraphAdjacencyCache graphCache) {
         this.entityRepository = entityRepository;
         this.aliasRepository = aliasRepository;
         this.relationRepository = relationRepository;
@@ -77,6 +86,22 @@ public class LifeGraphQueryService {
         this.evidenceRepository = evidenceRepository;
         this.entityEvidenceRepository = entityEvidenceRepository;
         this.objectMapper = objectMapper;
+        this.graphCache = graphCache;
+    }
+
+    /**
+     * Constructor without the adjacency cache: expansion queries relations
+     * node by node.
+     */
+    public LifeGraphQueryService(LifeGraphEntityRepository entityRepository,
+                                 LifeGraphEntityAliasRepository aliasRepository,
+                                 LifeGraphRelationRepository relationRepository,
+                                 LifeGraphMentionRepository mentionRepository,
+                                 LifeGraphRelationEvidenceRepository evidenceRepository,
+                                 LifeGraphEntityEvidenceRepository entityEvidenceRepository,
+                                 ObjectMapper objectMapper) {
+        this(entityRepository, aliasRepository, relationRepository, mentionRepository, evidenceRepository,
+                entityEvidenceRepository, objectMapper, null);
     }
 
     /**
@@ -88,7 +113,7 @@ public class LifeGraphQueryService {
                                  LifeGraphRelationRepository relationRepository,
                                  LifeGraphMentionRepository mentionRepository,
                                  ObjectMapper objectMapper) {
-        this(entityRepository, aliasRepository, relationRepository, mentionRepository, null, null, objectMapper);
+        this(entityRepository, aliasRepository, relationRepository, mentionRepository, null, null, objectMapper, null);
     }
 
     public String localSearch(String userId, String query, int maxEntities, int maxRelations, int maxMentions) {
@@ -104,6 +129,9 @@ public class LifeGraphQueryService {
         if (entities.isEmpty()) {
             return "";
         }
+        if (graphCache != null && graphCache.isEnabled()) {
+            return searchAdjacency(userId, entities, entityBudget, relationBudget, mentionBudget, now);
+        }
 
         Set<Long> visited = new LinkedHashSet<>(entities.keySet());
         Queue<Long> frontier = new ArrayDeque<>(entities.keySet());
@@ -163,7 +191,110 @@ public class LifeGraphQueryService {
                 .toList();
 
         List<EntitySource> sources = collectSources(userId, visited, mentionBudget);
-        return render(entities, selectedRelations, sources);
+        return render(entities, selectedRelations, sources, this::relationSourceMetadata);
+    }
+
+    /**
+     * Same breadth-first expansion over the cached adjacency. The cached usability
+     * flags only steer the traversal; the relation rows reloaded for rendering are
+     * checked again, like the entities, so a stale adjacency never surfaces them.
+     */
+    private String searchAdjacency(String userId, Map<Long, LifeGraphEntity> seeds, int entityBudget,
+                                   int relationBudget, int mentionBudget, LocalDateTime now) {
+        LifeGraphAdjacency graph = graphCache.get(userId);
+        Set<Long> visited = new LinkedHashSet<>(seeds.keySet());
+        Queue<Long> frontier = new ArrayDeque<>(seeds.keySet());
+        Set<Long> relationIds = new LinkedHashSet<>();
+
+        while (!frontier.isEmpty() && visited.size() < entityBudget && relationIds.size() < relationBudget) {
+            int current = graph.indexOf(frontier.poll());
+            if (current < 0) {
+                continue;
+            }
+            List<Long> neighborIds = new ArrayList<>();
+            for (int position = graph.adjacencyStart(current); position < graph.adjacencyEnd(current); position++) {
+                int relation = graph.relationAt(position);
+                int neighbor = graph.neighbor(relation, current);
+                if (!graph.isSearchable(relation) || !graph.isVisible(current, now)
+                        || !graph.isVisible(neighbor, now)) {
+                    continue;
+                }
+                if (!relationIds.add(graph.relationId(relation))) {
+                    continue;
+                }
+                neighborIds.add(graph.entityId(neighbor));
+                if (relationIds.size() >= relationBudget) {
+                    break;
+                }
+            }
+            for (Long neighborId : neighborIds) {
+                if (visited.size() >= entityBudget) {
+                    break;
+                }
+                if (visited.add(neighborId)) {
+                    frontier.add(neighborId);
+                }
+            }
+        }
+
+        Set<Long> missing = new LinkedHashSet<>(visited);
+        missing.removeAll(seeds.keySet());
+        Map<Long, LifeGraphEntity> loaded = new HashMap<>();
+        if (!missing.isEmpty()) {
+            for (LifeGraphEntity entity : safeEntities(entityRepository.findAllById(missing))) {
+                if (userId.equals(entity.getUserId()) && isVisible(entity, now)) {
+                    loaded.put(entity.getId(), entity);
+                }
+            }
+        }
+        Map<Long, LifeGraphEntity> entities = new LinkedHashMap<>();
+        for (Long id : visited) {
+            LifeGraphEntity entity = seeds.containsKey(id) ? seeds.get(id) : loaded.get(id);
+            if (entity != null) {
+                entities.put(id, entity);
+            }
+        }
+
+        Map<Long, LifeGraphRelation> relationById = new HashMap<>();
+        if (!relationIds.isEmpty()) {
+            List<LifeGraphRelation> reloaded = safeRelations(relationRepository.findAllById(relationIds)).stream()
+                    .filter(relation -> userId.equals(relation.getUserId()))
+                    .toList();
+            Set<Long> evidenced = usableEvidenceRelationIds(userId, reloaded);
+            for (LifeGraphRelation relation : reloaded) {
+                if (isSearchableRelation(relation.getType(), relation.getOrigin(), relation.getConfidence(),
+                        evidenced.contains(relation.getId()))) {
+                    relationById.put(relation.getId(), relation);
+                }
+            }
+        }
+        List<LifeGraphRelation> selectedRelations = relationIds.stream()
+                .map(relationById::get)
+                .filter(relation -> relation != null
+                        && entities.containsKey(physicalSourceId(relation))
+                        && entities.containsKey(physicalTargetId(relation)))
+                .limit(relationBudget)
+                .toList();
+
+        Map<Long, String> sourceMetadata = relationSourceMetadata(userId, selectedRelations);
+        List<EntitySource> sources = collectSources(userId, entities.keySet(), mentionBudget);
+        return render(entities, selectedRelations, sources, relation -> sourceMetadata.get(relation.getId()));
+    }
+
+    /**
+     * Batched form of the evidence half of {@link #isUsableRelation}: ids of the
+     * automatic relations that still have at least one usable evidence row.
+     */
+    private Set<Long> usableEvidenceRelationIds(String userId, List<LifeGraphRelation> relations) {
+        List<Long> automaticIds = relations.stream()
+                .filter(relation -> relation.getOrigin() == LifeGraphRelation.Origin.AUTO && relation.getId() != null)
+                .map(LifeGraphRelation::getId)
+                .toList();
+        if (automaticIds.isEmpty() || evidenceRepository == null) {
+            return Set.of();
+        }
+        return new HashSet<>(evidenceRepository.findUsableRelationIdsIn(userId, automaticIds,
+                AUTOMATIC_SOURCE_TYPES, BigDecimal.valueOf(MIN_EVIDENCE_CONFIDENCE)));
     }
 
     private Map<Long, LifeGraphEntity> findSeedEntities(String userId, String query,
@@ -199,8 +330,7 @@ public class LifeGraphQueryService {
             return false;
         }
         if (relation.getOrigin() == LifeGraphRelation.Origin.AUTO) {
-            if (relation.getConfidence() == null
-                    || relation.getConfidence().compareTo(BigDecimal.valueOf(MIN_EVIDENCE_CONFIDENCE)) < 0) {
+            if (!isSearchableRelation(relation.getType(), relation.getOrigin(), relation.getConfidence(), true)) {
                 return false;
             }
             if (evidenceRepository == null || relation.getId() == null) {
@@ -212,6 +342,23 @@ public class LifeGraphQueryService {
         return true;
     }
 
+    /**
+     * Relation-level retrieval rule shared with the adjacency cache: language-only
+     * relations never expand, automatic ones need enough confidence and at least
+     * one usable diary/plaza evidence row.
+     */
+    static boolean isSearchableRelation(String type, LifeGraphRelation.Origin origin, BigDecimal confidence,
+                                        boolean hasUsableEvidence) {
+        if (type == null || LANGUAGE_ONLY_RELATIONS.contains(type.trim().toUpperCase(Locale.ROOT))) {
+            return false;
+        }
+        if (origin == LifeGraphRelation.Origin.AUTO) {
+            return hasUsableEvidence && confidence != null
+                    && confidence.compareTo(BigDecimal.valueOf(MIN_EVIDENCE_CONFIDENCE)) >= 0;
+        }
+        return true;
+    }
+
     private Long neighborId(LifeGraphRelation relation, Long currentId) {
         Long source = physicalSourceId(relation);
         Long target = physicalTargetId(relation);
@@ -226,7 +373,8 @@ public class LifeGraphQueryService {
 
     private String render(Map<Long, LifeGraphEntity> entities,
                           List<LifeGraphRelation> relations,
-                          List<EntitySource> sources) {
+                          List<EntitySource> sources,
+                          Function<LifeGraphRelation, String> sourceMetadataOf) {
         StringBuilder output = new StringBuilder("GRAPH_ENTITIES:\n");
         for (LifeGraphEntity entity : entities.values()) {
             output.append("- ").append(entity.getType()).append(": ")
@@ -257,7 +405,7 @@ public class LifeGraphQueryService {
                     .append(target.getDisplayName()).append(" [").append(relation.getType()).append("]")
                     .append(" conf=").append(relation.getConfidence())
                     .append(" weight=").append(relation.getWeight());
-            String sourceMetadata = relationSourceMetadata(relation);
+            String sourceMetadata = sourceMetadataOf.apply(relation);
             if (StrUtil.isNotBlank(sourceMetadata)) {
                 output.append(" evidence=").append(sourceMetadata);
             }
@@ -284,10 +432,28 @@ public class LifeGraphQueryService {
         if (evidenceRepository == null || relation.getId() == null) {
             return null;
         }
-        return safeEvidence(evidenceRepository.findByUserIdAndRelationId(
-                        relation.getUserId(), relation.getId())).stream()
+        return formatSourceMetadata(safeEvidence(evidenceRepository.findByUserIdAndRelationId(
+                relation.getUserId(), relation.getId())));
+    }
+
+    private Map<Long, String> relationSourceMetadata(String userId, Collection<LifeGraphRelation> relations) {
+        List<Long> relationIds = relations.stream().map(LifeGraphRelation::getId).filter(Objects::nonNull).toList();
+        if (evidenceRepository == null || relationIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<LifeGraphRelationEvidence>> byRelation = safeEvidence(
+                evidenceRepository.findByUserIdAndRelationIdIn(userId, relationIds)).stream()
+                .filter(evidence -> evidence.getRelationId() != null)
+                .collect(Collectors.groupingBy(LifeGraphRelationEvidence::getRelationId));
+        Map<Long, String> metadata = new HashMap<>();
+        byRelation.forEach((relationId, evidence) -> metadata.put(relationId, formatSourceMetadata(evidence)));
+        return metadata;
+    }
+
+    private String formatSourceMetadata(List<LifeGraphRelationEvidence> evidence) {
+        return evidence.stream()
                 .filter(this::isUsableAutomaticEvidence)
-                .map(evidence -> evidence.getSourceType() + ":" + evidence.getSourceId())
+                .map(row -> row.getSourceType() + ":" + row.getSourceId())
                 .distinct()
                 .limit(3)
                 .collect(Collectors.joining(","));
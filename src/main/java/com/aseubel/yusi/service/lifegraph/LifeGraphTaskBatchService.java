@@ -1,30 +1,38 @@
 package com.aseubel.yusi.service.lifegraph;
 
 import cn.hutool.core.util.StrUtil;
+import com.aseubel.yusi.common.task.PartitionedExecutor;
+import com.aseubel.yusi.common.task.TaskWakeup;
 import com.aseubel.yusi.config.security.CryptoService;
 import com.aseubel.yusi.common.utils.AesGcmCryptoUtils;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
 import com.aseubel.yusi.pojo.entity.Diary;
 import com.aseubel.yusi.pojo.entity.LifeGraphTask;
 import com.aseubel.yusi.pojo.entity.TaskExecution;
 import com.aseubel.yusi.pojo.entity.User;
 import com.aseubel.yusi.pojo.constant.KeyMode;
 import com.aseubel.yusi.pojo.constant.TaskFailureCategory;
+import com.aseubel.yusi.redis.service.IRedisService;
 import com.aseubel.yusi.repository.DiaryRepository;
 import com.aseubel.yusi.repository.LifeGraphTaskRepository;
 import com.aseubel.yusi.repository.UserRepository;
 import com.aseubel.yusi.service.task.TaskExecutionService;
 import com.aseubel.yusi.service.ai.runtime.AgentRunTraceService;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class LifeGraphTaskBatchService {
 
     private final LifeGraphTaskRepository taskRepository;
@@ -35,76 +43,214 @@ public class LifeGraphTaskBatchService {
     private final LifeGraphBuildService lifeGraphBuildService;
     private final TaskExecutionService taskExecutionService;
     private final AgentRunTraceService agentRunTraceService;
+    private final YusiMetrics metrics;
+    private final IRedisService redisService;
+    private final PartitionedExecutor partitions;
 
-    private static final int BATCH_SIZE = 10;
+    private static final int DEFAULT_CONCURRENCY = 4;
+    private static final int DEFAULT_QUEUE_DEPTH = 20;
     private static final long PROCESSING_TIMEOUT_MINUTES = 30;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
     private static final String WORKER_ID = "life-graph-batch";
+    static final String USER_LOCK_PREFIX = "yusi:lifegraph:user:";
+    private static final long USER_BUSY_RETRY_SECONDS = 5;
 
-    public void processPendingTasks() {
+    public LifeGraphTaskBatchService(LifeGraphTaskRepository taskRepository,
+            LifeGraphTaskClaimService taskClaimService, DiaryRepository diaryRepository,
+            UserRepository userRepository, CryptoService cryptoService, LifeGraphBuildService lifeGraphBuildService,
+            TaskExecutionService taskExecutionService, AgentRunTraceService agentRunTraceService) {
+        this(taskRepository, taskClaimService, diaryRepository, userRepository, cryptoService,
+                lifeGraphBuildService, taskExecutionService, agentRunTraceService, null);
+    }
+
+    public LifeGraphTaskBatchService(LifeGraphTaskRepository taskRepository,
+            LifeGraphTaskClaimService taskClaimService, DiaryRepository diaryRepository,
+            UserRepository userRepository, CryptoService cryptoService, LifeGraphBuildService lifeGraphBuildService,
+            TaskExecutionService taskExecutionService, AgentRunTraceService agentRunTraceService,
+            YusiMetrics metrics) {
+        this(taskRepository, taskClaimService, diaryRepository, userRepository, cryptoService,
+                lifeGraphBuildService, taskExecutionService, agentRunTraceService, metrics,
+                DEFAULT_CONCURRENCY, DEFAULT_QUEUE_DEPTH);
+    }
+
+    public LifeGraphTaskBatchService(LifeGraphTaskRepository taskRepository,
+            LifeGraphTaskClaimService taskClaimService, DiaryRepository diaryRepository,
+            UserRepository userRepository, CryptoService cryptoService, LifeGraphBuildService lifeGraphBuildService,
+            TaskExecutionService taskExecutionService, AgentRunTraceService agentRunTraceService,
+            YusiMetrics metrics, int concurrency, int queueDepth) {
+        this(taskRepository, taskClaimService, diaryRepository, userRepository, cryptoService,
+                lifeGraphBuildService, taskExecutionService, agentRunTraceService, metrics, null,
+                concurrency, queueDepth);
+    }
+
+    @Autowired
+    public LifeGraphTaskBatchService(LifeGraphTaskRepository taskRepository,
+            LifeGraphTaskClaimService taskClaimService, DiaryRepository diaryRepository,
+            UserRepository userRepository, CryptoService cryptoService, LifeGraphBuildService lifeGraphBuildService,
+            TaskExecutionService taskExecutionService, AgentRunTraceService agentRunTraceService,
+            YusiMetrics metrics, IRedisService redisService,
+            @Value("${yusi.lifegraph.worker.concurrency:4}") int concurrency,
+            @Value("${yusi.lifegraph.worker.queue-depth:20}") int queueDepth) {
+        this.taskRepository = taskRepository;
+        this.taskClaimService = taskClaimService;
+        this.diaryRepository = diaryRepository;
+        this.userRepository = userRepository;
+        this.cryptoService = cryptoService;
+        this.lifeGraphBuildService = lifeGraphBuildService;
+        this.taskExecutionService = taskExecutionService;
+        this.agentRunTraceService = agentRunTraceService;
+        this.metrics = metrics;
+        this.redisService = redisService;
+        this.partitions = new PartitionedExecutor("lifegraph", concurrency, queueDepth);
+    }
+
+    /**
+     * 抢占一批待处理任务并按用户分区派发：不同用户的抽取并行执行，同一用户的任务在同一分区内按创建顺序串行，
+     * 图谱写入不会交错。多实例之间再用按用户的分布式锁互斥：抢占查询对"该用户已有任务在处理"的判断读的是快照，
+     * 两个实例仍可能同时抢到同一用户的任务，拿不到锁的一方把任务放回队列稍后重试。
+     * 抢占数量受分区在途上限约束，本方法只负责派发，不等待抽取完成。
+     *
+     * @return 本次抢占到的任务数；分区已满时返回在途任务数，让调度器保持短间隔轮询
+     */
+    public int processPendingTasks() {
+        int capacity = partitions.available();
+        if (capacity == 0) {
+            return partitions.inFlight();
+        }
         LocalDateTime now = LocalDateTime.now();
-        List<LifeGraphTask> tasks = taskClaimService.claimPendingTasks(now, BATCH_SIZE);
+        List<LifeGraphTask> tasks = taskClaimService.claimPendingTasks(now, capacity);
         if (tasks.isEmpty()) {
-            return;
+            return 0;
         }
 
         for (LifeGraphTask task : tasks) {
-            TaskExecution execution = null;
-            AgentRunTraceService.RunScope scope = null;
+            if (metrics != null) {
+                metrics.recordTaskPickupLatency(TaskWakeup.LIFE_GRAPH,
+                        TaskWakeup.pickupLatencyMillis(task.getCreatedAt(), task.getNextRetryAt(), now));
+            }
             try {
-                execution = claimExecution(task, now);
-                scope = openScope(task, execution);
-                if (task.getTaskType() == LifeGraphTask.TaskType.DELETE) {
-                    Diary currentDiary = diaryRepository.findByDiaryIdAndUserId(
-                            task.getDiaryId(), task.getUserId());
-                    if (currentDiary != null
-                            && isSuperseded(task.getSourceRevision(), currentDiary.getSourceRevision())) {
-                        markCompleted(task, now);
-                        completeScope(scope);
-                        continue;
-                    }
-                    lifeGraphBuildService.deleteByDiary(task.getUserId(), task.getDiaryId());
-                    markCompleted(task, now);
-                    completeScope(scope);
-                    continue;
-                }
+                partitions.execute(task.getUserId(),
+                        () -> runWithUserLock(task.getId(), task.getUserId(), () -> processClaimedTask(task)));
+            } catch (RejectedExecutionException e) {
+                // 正在停机：已抢占的任务保持 PROCESSING，由超时回收重新派发
+                log.warn("LifeGraph 分区已关闭，任务等待超时回收: taskId={}", task.getId());
+            }
+        }
+        return tasks.size();
+    }
 
-                Diary diary = diaryRepository.findByDiaryIdAndUserId(task.getDiaryId(), task.getUserId());
-                if (diary == null) {
-                    lifeGraphBuildService.deleteByDiary(task.getUserId(), task.getDiaryId());
-                    markCompleted(task, now);
-                    completeScope(scope);
-                    continue;
-                }
+    /**
+     * 写入日记时可立即处理的任务走同一套用户分区与分布式锁，不会与 worker 抢占到的同用户任务并发写图谱
+     */
+    public void submitSingleTask(Long taskId, Diary diary, String plainContent) {
+        try {
+            partitions.execute(diary.getUserId(),
+                    () -> runWithUserLock(taskId, diary.getUserId(), () -> processSingleTask(taskId, diary, plainContent)));
+        } catch (RejectedExecutionException e) {
+            log.warn("LifeGraph 分区已关闭，任务等待超时回收: taskId={}", taskId);
+        }
+    }
 
-                if (isSuperseded(task.getSourceRevision(), diary.getSourceRevision())) {
-                    markCompleted(task, now);
-                    completeScope(scope);
-                    continue;
-                }
+    /**
+     * 等待已派发的任务全部处理完毕
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        return partitions.awaitIdle(timeout, unit);
+    }
 
-                String plain = decryptDiaryContent(diary);
-                if (StrUtil.isBlank(plain)) {
-                    lifeGraphBuildService.deleteByDiary(task.getUserId(), task.getDiaryId());
+    @PreDestroy
+    public void shutdown() {
+        partitions.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 持有该用户的分布式锁执行；锁被其他实例持有（或 Redis 不可用）时不等待，把任务放回 PENDING，
+     * 几秒后由下一轮抢占重新派发，不计入重试次数。未配置 Redis 时只靠本实例的用户分区串行
+     */
+    private void runWithUserLock(Long taskId, String userId, Runnable body) {
+        RLock lock = null;
+        if (redisService != null && userId != null) {
+            lock = redisService.getLock(USER_LOCK_PREFIX + userId);
+            boolean locked;
+            try {
+                locked = lock.tryLock();
+            } catch (RuntimeException e) {
+                locked = false;
+            }
+            if (!locked) {
+                LocalDateTime now = LocalDateTime.now();
+                taskRepository.deferProcessing(taskId, now.plusSeconds(USER_BUSY_RETRY_SECONDS), now);
+                log.info("LifeGraph 用户任务正由其他实例处理，稍后重试: taskId={}", taskId);
+                return;
+            }
+        }
+        try {
+            body.run();
+        } finally {
+            if (lock != null && lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void processClaimedTask(LifeGraphTask task) {
+        LocalDateTime now = LocalDateTime.now();
+        TaskExecution execution = null;
+        AgentRunTraceService.RunScope scope = null;
+        try {
+            execution = claimExecution(task, now);
+            scope = openScope(task, execution);
+            if (task.getTaskType() == LifeGraphTask.TaskType.DELETE) {
+                Diary currentDiary = diaryRepository.findByDiaryIdAndUserId(
+                        task.getDiaryId(), task.getUserId());
+                if (currentDiary != null
+                        && isSuperseded(task.getSourceRevision(), currentDiary.getSourceRevision())) {
                     markCompleted(task, now);
                     completeScope(scope);
-                    continue;
+                    return;
                 }
+                lifeGraphBuildService.deleteByDiary(task.getUserId(), task.getDiaryId());
+                markCompleted(task, now);
+                completeScope(scope);
+                return;
+            }
 
-                lifeGraphBuildService.upsertFromDiary(diary, plain);
+            Diary diary = diaryRepository.findByDiaryIdAndUserId(task.getDiaryId(), task.getUserId());
+            if (diary == null) {
+                lifeGraphBuildService.deleteByDiary(task.getUserId(), task.getDiaryId());
                 markCompleted(task, now);
                 completeScope(scope);
-            } catch (Exception e) {
-                TaskExecution retry = markRetry(task, e, now);
-                if (scope != null) {
-                    if (retry != null && retry.getStatus() == com.aseubel.yusi.pojo.constant.TaskExecutionStatus.FAILED) {
-                        scope.fail(com.aseubel.yusi.pojo.constant.TaskFailureCategory.DEPENDENCY.name().toLowerCase());
-                    } else {
-                        scope.retryWait();
-                    }
+                return;
+            }
+
+            if (isSuperseded(task.getSourceRevision(), diary.getSourceRevision())) {
+                markCompleted(task, now);
+                completeScope(scope);
+                return;
+            }
+
+            String plain = decryptDiaryContent(diary);
+            if (StrUtil.isBlank(plain)) {
+                lifeGraphBuildService.deleteByDiary(task.getUserId(), task.getDiaryId());
+                markCompleted(task, now);
+                completeScope(scope);
+                return;
+            }
+
+            lifeGraphBuildService.upsertFromDiary(diary, plain);
+            markCompleted(task, now);
+            completeScope(scope);
+        } catch (Exception e) {
+            TaskExecution retry = markRetry(task, e, now);
+            if (scope != null) {
+                if (retry != null && retry.getStatus() == com.aseubel.yusi.pojo.constant.TaskExecutionStatus.FAILED) {
+                    scope.fail(com.aseubel.yusi.pojo.constant.TaskFailureCategory.DEPENDENCY.name().toLowerCase());
+                } else {
+                    scope.retryWait();
                 }
-            } finally {
-                closeScope(scope);
             }
+        } finally {
+            closeScope(scope);
         }
     }
 
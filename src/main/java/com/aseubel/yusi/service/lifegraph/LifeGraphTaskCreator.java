@@ -2,6 +2,8 @@ package com.aseubel.yusi.service.lifegraph;
 
 import cn.hutool.core.util.IdUtil;
 import com.aseubel.yusi.common.event.DiaryChangedEvent;
+import com.aseubel.yusi.common.event.TaskEnqueuedEvent;
+import com.aseubel.yusi.common.task.TaskWakeup;
 import com.aseubel.yusi.pojo.constant.TaskExecutionKeys;
 import com.aseubel.yusi.pojo.constant.TaskExecutionSourceType;
 import com.aseubel.yusi.pojo.constant.TaskExecutionType;
@@ -14,13 +16,12 @@ import com.aseubel.yusi.service.task.TaskExecutionCommand;
 import com.aseubel.yusi.service.task.TaskExecutionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -30,9 +31,9 @@ public class LifeGraphTaskCreator {
 
     private final LifeGraphTaskRepository taskRepository;
     private final LifeGraphTaskBatchService batchService;
-    private final ThreadPoolTaskExecutor threadPoolExecutor;
     private final TaskExecutionService taskExecutionService;
     private final AgentRunTraceService agentRunTraceService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Async("threadPoolExecutor")
     @EventListener
@@ -99,15 +100,9 @@ public class LifeGraphTaskCreator {
         LifeGraphTask saved = taskRepository.save(task);
 
         if (canProcessImmediately) {
-            threadPoolExecutor.execute(() -> {
-                try {
-                    batchService.processSingleTask(saved.getId(), diary, plainContent);
-                } catch (Exception e) {
-                    LocalDateTime now = LocalDateTime.now();
-                    taskRepository.incrementRetryAndSetNextAttempt(saved.getId(), e.getMessage(),
-                            batchService.calculateNextRetry(saved.getRetryCount() + 1), now);
-                }
-            });
+            batchService.submitSingleTask(saved.getId(), diary, plainContent);
+        } else {
+            eventPublisher.publishEvent(new TaskEnqueuedEvent(this, TaskWakeup.LIFE_GRAPH));
         }
     }
 
@@ -137,6 +132,7 @@ public class LifeGraphTaskCreator {
                 sourceRevision, triggerEventId);
         task.setTaskExecutionId(execution.getTaskId());
         taskRepository.save(task);
+        eventPublisher.publishEvent(new TaskEnqueuedEvent(this, TaskWakeup.LIFE_GRAPH));
     }
 
     private boolean sameRevision(Long taskRevision, long sourceRevision) {
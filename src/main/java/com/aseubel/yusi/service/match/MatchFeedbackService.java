@@ -11,7 +11,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 匹配反馈服务。
@@ -25,6 +29,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MatchFeedbackService {
 
+    private static final List<String> STRONG_NEGATIVE_ACTIONS = List.of(MatchFeedbackAction.REPORT.code(),
+            MatchFeedbackAction.UNSAFE.code(), MatchFeedbackAction.BLOCK.code(),
+            MatchFeedbackAction.DO_NOT_CONTINUE.code());
+    private static final int BULK_QUERY_SIZE = 1000;
+
     private final MatchFeedbackRepository feedbackRepository;
 
     /**
@@ -143,9 +152,21 @@ public class MatchFeedbackService {
 
     /** 举报、拉黑或明确不继续时，后续不得重新推荐同一对象。 */
     public boolean hasStrongNegativeSignal(Long matchId) {
-        return matchId != null && feedbackRepository.countByMatchIdAndActionIn(matchId,
-                List.of(MatchFeedbackAction.REPORT.code(), MatchFeedbackAction.UNSAFE.code(),
-                        MatchFeedbackAction.BLOCK.code(), MatchFeedbackAction.DO_NOT_CONTINUE.code())) > 0;
+        return matchId != null && feedbackRepository.countByMatchIdAndActionIn(matchId, STRONG_NEGATIVE_ACTIONS) > 0;
+    }
+
+    /** 批量版本：返回出现过强负面信号的匹配 id，供周匹配一次性加载。 */
+    public Set<Long> findStrongNegativeMatchIds(Collection<Long> matchIds) {
+        if (matchIds == null || matchIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> result = new HashSet<>();
+        List<Long> ids = new ArrayList<>(matchIds);
+        for (int from = 0; from < ids.size(); from += BULK_QUERY_SIZE) {
+            result.addAll(feedbackRepository.findMatchIdsWithActions(
+                    ids.subList(from, Math.min(ids.size(), from + BULK_QUERY_SIZE)), STRONG_NEGATIVE_ACTIONS));
+        }
+        return result;
     }
 
     /** 只有双方都明确反馈互动很深，才进入双向共鸣状态。 */
@@ -2,9 +2,17 @@ package com.aseubel.yusi.service.match;
 
 import com.aseubel.yusi.pojo.entity.MatchProfile;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface MatchProfileAssembler {
 
     MatchProfile refreshProfile(String userId);
 
     MatchProfile ensureProfile(String userId);
+
+    /**
+     * 批量版本的 ensureProfile：已有画像一次查出，缺失的逐个生成
+     */
+    Map<String, MatchProfile> ensureProfiles(Collection<String> userIds);
 }
@@ -14,38 +14,69 @@ import com.aseubel.yusi.service.user.UserPersonaService;
 import com.aseubel.yusi.service.user.UserService;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.ai.retrieval.MilvusHybridRetrievalBackend;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.service.vector.request.DeleteReq;
-import io.milvus.v2.service.vector.request.InsertReq;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Locale;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MatchProfileAssemblerImpl implements MatchProfileAssembler {
 
     private static final String MATCH_PROFILE_COLLECTION = "yusi_match_profile";
+    private static final int PROFILE_BATCH_SIZE = 1000;
 
     private final LifeGraphEntityRepository lifeGraphEntityRepository;
     private final MidTermMemoryRepository midTermMemoryRepository;
     private final MatchProfileRepository matchProfileRepository;
     private final UserPersonaService userPersonaService;
     private final UserService userService;
-    private final MilvusClientV2 milvusClientV2;
+    private final HybridRetrievalBackend retrievalBackend;
     private final EmbeddingModel embeddingModel;
 
+    public MatchProfileAssemblerImpl(LifeGraphEntityRepository lifeGraphEntityRepository,
+            MidTermMemoryRepository midTermMemoryRepository,
+            MatchProfileRepository matchProfileRepository,
+            UserPersonaService userPersonaService,
+            UserService userService,
+            MilvusClientV2 milvusClientV2,
+            EmbeddingModel embeddingModel) {
+        this(lifeGraphEntityRepository, midTermMemoryRepository, matchProfileRepository, userPersonaService,
+                userService, new MilvusHybridRetrievalBackend(milvusClientV2), embeddingModel);
+    }
+
+    @Autowired
+    public MatchProfileAssemblerImpl(LifeGraphEntityRepository lifeGraphEntityRepository,
+            MidTermMemoryRepository midTermMemoryRepository,
+            MatchProfileRepository matchProfileRepository,
+            UserPersonaService userPersonaService,
+            UserService userService,
+            HybridRetrievalBackend retrievalBackend,
+            EmbeddingModel embeddingModel) {
+        this.lifeGraphEntityRepository = lifeGraphEntityRepository;
+        this.midTermMemoryRepository = midTermMemoryRepository;
+        this.matchProfileRepository = matchProfileRepository;
+        this.userPersonaService = userPersonaService;
+        this.userService = userService;
+        this.retrievalBackend = retrievalBackend;
+        this.embeddingModel = embeddingModel;
+    }
+
     @Override
     @Transactional
     public MatchProfile refreshProfile(String userId) {
@@ -89,7 +120,7 @@ public class MatchProfileAssemblerImpl implements MatchProfileAssembler {
         profile.setUpdatedAt(LocalDateTime.now());
 
         MatchProfile saved = matchProfileRepository.save(profile);
-        syncToMilvus(saved);
+        syncToRetrievalIndex(saved);
         return saved;
     }
 
@@ -102,6 +133,25 @@ public class MatchProfileAssemblerImpl implements MatchProfileAssembler {
                 .orElseGet(() -> refreshProfile(userId));
     }
 
+    @Override
+    // 每个缺失画像的生成各自落库，不把整批包进一个长事务
+    public Map<String, MatchProfile> ensureProfiles(Collection<String> userIds) {
+        List<String> ids = new ArrayList<>(userIds);
+        Map<String, MatchProfile> profiles = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += PROFILE_BATCH_SIZE) {
+            matchProfileRepository.findByUserIdIn(ids.subList(from, Math.min(ids.size(), from + PROFILE_BATCH_SIZE)))
+                    .stream()
+                    .filter(profile -> StrUtil.isNotBlank(profile.getProfileText()))
+                    .forEach(profile -> profiles.put(profile.getUserId(), profile));
+        }
+        for (String userId : ids) {
+            if (!profiles.containsKey(userId)) {
+                profiles.put(userId, refreshProfile(userId));
+            }
+        }
+        return profiles;
+    }
+
     private String buildLifeGraphSummary(String userId) {
         List<LifeGraphEntity> entities = lifeGraphEntityRepository.findMatchableTopByUserId(
                 userId, LocalDateTime.now(), PageRequest.of(0, 50));
@@ -256,15 +306,12 @@ public class MatchProfileAssemblerImpl implements MatchProfileAssembler {
         return text.substring(0, maxLength) + "...";
     }
 
-    private void syncToMilvus(MatchProfile profile) {
+    private void syncToRetrievalIndex(MatchProfile profile) {
         if (profile == null || StrUtil.isBlank(profile.getProfileText())) {
             return;
         }
         try {
-            milvusClientV2.delete(DeleteReq.builder()
-                    .collectionName(MATCH_PROFILE_COLLECTION)
-                    .filter("id == '" + profile.getUserId() + "'")
-                    .build());
+            retrievalBackend.delete(MATCH_PROFILE_COLLECTION, "id == '" + profile.getUserId() + "'");
         } catch (Exception e) {
             log.debug("删除旧匹配画像失败，将继续尝试写入: userId={}", profile.getUserId(), e);
         }
@@ -284,11 +331,6 @@ public class MatchProfileAssemblerImpl implements MatchProfileAssembler {
         }
         row.add("vector", vectorArray);
         row.add("metadata", metadata);
-
-        InsertReq insertReq = InsertReq.builder()
-                .collectionName(MATCH_PROFILE_COLLECTION)
-                .data(List.of(row))
-                .build();
-        milvusClientV2.insert(insertReq);
+        retrievalBackend.insert(MATCH_PROFILE_COLLECTION, List.of(row));
     }
 }
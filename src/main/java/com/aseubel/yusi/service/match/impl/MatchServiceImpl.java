@@ -36,45 +36,48 @@ import com.aseubel.yusi.service.match.MatchFeedbackService;
 import com.aseubel.yusi.service.match.MatchProfileAssembler;
 import com.aseubel.yusi.service.match.MatchService;
 import com.aseubel.yusi.service.match.SoulConnectionLifecycleService;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner;
 import com.aseubel.yusi.service.event.ProductEventCommand;
 import com.aseubel.yusi.service.event.ProductEventService;
 import com.aseubel.yusi.service.task.TaskExecutionCommand;
 import com.aseubel.yusi.service.task.TaskExecutionService;
 import com.aseubel.yusi.service.ai.prompt.PromptManager;
 import com.aseubel.yusi.service.ai.prompt.PromptSnapshot;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.ai.retrieval.HybridSearchQuery;
 import com.aseubel.yusi.service.user.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.service.vector.request.AnnSearchReq;
-import io.milvus.v2.service.vector.request.HybridSearchReq;
-import io.milvus.v2.service.vector.request.data.EmbeddedText;
-import io.milvus.v2.service.vector.request.data.FloatVec;
-import io.milvus.v2.service.vector.request.ranker.RRFRanker;
+import dev.langchain4j.model.output.Response;
 import io.milvus.v2.service.vector.response.SearchResp;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 
 /**
  * @author Aseubel
@@ -82,14 +85,18 @@ import java.util.concurrent.CompletableFuture;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MatchServiceImpl implements MatchService {
 
     private static final String MATCH_PROFILE_COLLECTION = "yusi_match_profile";
     private static final int RECALL_TOP_K = 8;
+    /** ANN 召回拿不到向量时，按召回名次折算相似度 */
+    private static final float RECALL_RANK_DECAY = 0.05f;
+    private static final int BULK_QUERY_SIZE = 1000;
+    private static final int EMBED_BATCH_SIZE = 64;
+    /** 分配权重 = 精排分 * 该系数 + 粗排分，粗排分只在精排同分时起作用 */
+    private static final int EDGE_WEIGHT_SCALE = 1000;
     private static final int MIN_RERANK_SCORE = 70;
     private static final int MIN_WEAK_SIGNAL_SCORE = 78;
-    private static final int STRONG_SIGNAL_SECTION_COUNT = 3;
     private static final int MEDIUM_SIGNAL_SECTION_COUNT = 2;
     private static final int RECENT_EXPOSURE_COOLDOWN_DAYS = 14;
     private static final int PENDING_RESPONSE_COOLDOWN_DAYS = 7;
@@ -107,14 +114,72 @@ public class MatchServiceImpl implements MatchService {
     private final SoulConnectionLifecycleService connectionLifecycleService;
     private final MatchFeedbackService matchFeedbackService;
     private final ProductEventService productEventService;
-    private final MilvusClientV2 milvusClientV2;
+    private final HybridRetrievalBackend retrievalBackend;
     private final EmbeddingModel embeddingModel;
     private final ChatModel chatModel;
     private final PromptManager promptManager;
     private final ObjectMapper objectMapper;
-    private final ThreadPoolTaskExecutor threadPoolExecutor;
+    private final ThreadPoolTaskExecutor ioFanoutExecutor;
     private final TaskExecutionService taskExecutionService;
+    private final WeeklyMatchPlanner planner;
+    private final int rerankConcurrency;
+    private final int rerankRounds;
+    private final int rerankBudget;
+    private final int annRecallMaxPool;
+
+    public MatchServiceImpl(UserService userService, SoulMatchRepository soulMatchRepository,
+            DiaryRepository diaryRepository, MatchProfileAssembler matchProfileAssembler,
+            ConnectionGuideService connectionGuideService, SoulConnectionLifecycleService connectionLifecycleService,
+            MatchFeedbackService matchFeedbackService, ProductEventService productEventService,
+            HybridRetrievalBackend retrievalBackend, EmbeddingModel embeddingModel, ChatModel chatModel,
+            PromptManager promptManager, ObjectMapper objectMapper, ThreadPoolTaskExecutor ioFanoutExecutor,
+            TaskExecutionService taskExecutionService) {
+        this(userService, soulMatchRepository, diaryRepository, matchProfileAssembler, connectionGuideService,
+                connectionLifecycleService, matchFeedbackService, productEventService, retrievalBackend,
+                embeddingModel, chatModel, promptManager, objectMapper, ioFanoutExecutor, taskExecutionService,
+                2, 4, 3, 20000, 2000);
+    }
+
+    @Autowired
+    public MatchServiceImpl(UserService userService, SoulMatchRepository soulMatchRepository,
+            DiaryRepository diaryRepository, MatchProfileAssembler matchProfileAssembler,
+            ConnectionGuideService connectionGuideService, SoulConnectionLifecycleService connectionLifecycleService,
+            MatchFeedbackService matchFeedbackService, ProductEventService productEventService,
+            HybridRetrievalBackend retrievalBackend, EmbeddingModel embeddingModel, ChatModel chatModel,
+            PromptManager promptManager, ObjectMapper objectMapper,
+            @Qualifier("ioFanoutExecutor") ThreadPoolTaskExecutor ioFanoutExecutor,
+            TaskExecutionService taskExecutionService,
+            @Value("${yusi.match.rerank-top-k:2}") int rerankTopK,
+            @Value("${yusi.match.rerank-concurrency:4}") int rerankConcurrency,
+            @Value("${yusi.match.rerank-rounds:3}") int rerankRounds,
+            @Value("${yusi.match.rerank-budget:20000}") int rerankBudget,
+            @Value("${yusi.match.ann-recall-max-pool:2000}") int annRecallMaxPool) {
+        this.userService = userService;
+        this.soulMatchRepository = soulMatchRepository;
+        this.diaryRepository = diaryRepository;
+        this.matchProfileAssembler = matchProfileAssembler;
+        this.connectionGuideService = connectionGuideService;
+        this.connectionLifecycleService = connectionLifecycleService;
+        this.matchFeedbackService = matchFeedbackService;
+        this.productEventService = productEventService;
+        this.retrievalBackend = retrievalBackend;
+        this.embeddingModel = embeddingModel;
+        this.chatModel = chatModel;
+        this.promptManager = promptManager;
+        this.objectMapper = objectMapper;
+        this.ioFanoutExecutor = ioFanoutExecutor;
+        this.taskExecutionService = taskExecutionService;
+        this.planner = new WeeklyMatchPlanner(6, 64, 16, rerankTopK, 42L);
+        this.rerankConcurrency = Math.max(1, rerankConcurrency);
+        this.rerankRounds = Math.max(1, rerankRounds);
+        this.rerankBudget = Math.max(0, rerankBudget);
+        this.annRecallMaxPool = Math.max(0, annRecallMaxPool);
+    }
 
+    /**
+     * 周匹配：批量加载画像、历史与日记数 → 向量分块召回（小规模候选池叠加混合 ANN 召回）→ 粗排 →
+     * 分轮有界并发精排 → 全局分配，最后为分配结果生成推荐信
+     */
     @Override
     public void runWeeklyMatching() {
         log.info("Starting weekly matching process...");
@@ -129,91 +194,59 @@ public class MatchServiceImpl implements MatchService {
                         generationRunId, generationRunId))
                 .build());
         try {
-            List<User> candidates = userService.getMatchEnabledUsers();
-            if (CollUtil.isEmpty(candidates) || candidates.size() < 2) {
+            List<User> users = userService.getMatchEnabledUsers();
+            if (CollUtil.isEmpty(users) || users.size() < 2) {
                 log.info("Not enough candidates for matching.");
                 taskExecutionService.succeed(execution.getTaskId(), null, LocalDateTime.now());
                 return;
             }
 
-            Collections.shuffle(candidates);
-            Map<String, User> candidateMap = new HashMap<>();
-            candidates.forEach(user -> candidateMap.put(user.getUserId(), user));
-            Map<String, MatchProfile> profileCache = new HashMap<>();
-            Map<String, Long> diaryCountCache = new HashMap<>();
-            Map<String, List<SoulMatch>> pairHistoryCache = new HashMap<>();
-
+            Map<String, User> userById = new LinkedHashMap<>();
+            users.stream()
+                    .filter(user -> user != null && StrUtil.isNotBlank(user.getUserId()))
+                    .forEach(user -> userById.putIfAbsent(user.getUserId(), user));
             LocalDateTime startOfDay = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0).withNano(0);
-            Set<String> processedUserIds = new HashSet<>();
-
-            for (User userA : candidates) {
-                if (processedUserIds.contains(userA.getUserId())) {
-                    continue;
-                }
-                if (soulMatchRepository.countMatchesSince(userA.getUserId(), startOfDay) >= 1) {
-                    processedUserIds.add(userA.getUserId());
-                    continue;
-                }
-
-                MatchProfile profileA = getOrLoadProfile(profileCache, userA.getUserId());
-                if (profileA == null || StrUtil.isBlank(profileA.getProfileText())) {
-                    continue;
-                }
-
-                User partner = null;
-                MatchRerankResult bestResult = null;
-                int bestScore = -1;
-
-                for (String candidateUserId : recallCandidateIds(userA, profileA, candidates, profileCache,
-                        diaryCountCache)) {
-                    User potential = candidateMap.get(candidateUserId);
-                    if (potential == null) {
-                        continue;
-                    }
-                    if (processedUserIds.contains(candidateUserId)) {
-                        continue;
-                    }
-                    PairHistoryFeedback pairHistoryFeedback = evaluatePairHistory(userA.getUserId(), candidateUserId,
-                            pairHistoryCache);
-                    if (pairHistoryFeedback.exclude()) {
-                        continue;
-                    }
-                    if (!isIntentCompatible(userA, potential)) {
-                        continue;
-                    }
-                    if (soulMatchRepository.countMatchesSince(candidateUserId, startOfDay) >= 1) {
-                        continue;
-                    }
-
-                    MatchProfile profileB = getOrLoadProfile(profileCache, candidateUserId);
-                    if (profileB == null || StrUtil.isBlank(profileB.getProfileText())) {
-                        continue;
-                    }
-
-                    MatchRerankResult rerankResult = rerank(profileA, profileB);
-                    if (rerankResult == null || !Boolean.TRUE.equals(rerankResult.getResonance())) {
-                        continue;
-                    }
-
-                    int score = rerankResult.getScore() != null ? rerankResult.getScore() : 0;
-                    score = applyHistoryPenalty(score, pairHistoryFeedback);
-                    if (!passesScoreThreshold(profileA, profileB, score)) {
-                        continue;
-                    }
-                    if (score > bestScore) {
-                        bestScore = score;
-                        rerankResult.setScore(score);
-                        bestResult = rerankResult;
-                        partner = potential;
-                    }
-                }
+            MatchHistory history = loadMatchHistory(userById.keySet(), startOfDay);
+            Map<String, MatchProfile> profiles = matchProfileAssembler.ensureProfiles(userById.keySet());
+
+            List<User> pool = userById.values().stream()
+                    .filter(user -> !history.matchedToday().contains(user.getUserId()))
+                    .filter(user -> profiles.get(user.getUserId()) != null
+                            && StrUtil.isNotBlank(profiles.get(user.getUserId()).getProfileText()))
+                    .toList();
+            if (pool.size() < 2) {
+                log.info("Not enough candidates for matching.");
+                taskExecutionService.succeed(execution.getTaskId(), null, LocalDateTime.now());
+                return;
+            }
 
-                if (partner != null && bestResult != null) {
-                    processedUserIds.add(userA.getUserId());
-                    processedUserIds.add(partner.getUserId());
-                    createMatch(userA, partner, profileA,
-                            getOrLoadProfile(profileCache, partner.getUserId()), bestResult, generationRunId);
-                }
+            List<String> poolIds = pool.stream().map(User::getUserId).toList();
+            Map<String, float[]> vectors = loadProfileVectors(poolIds, profiles);
+            Map<String, Long> diaryCounts = loadDiaryCounts(poolIds);
+            List<WeeklyMatchPlanner.MatchCandidate> candidates = pool.stream()
+                    .map(user -> new WeeklyMatchPlanner.MatchCandidate(user.getUserId(), user.getMatchIntent(),
+                            vectors.get(user.getUserId()),
+                            profileSignalSectionCount(profiles.get(user.getUserId())),
+                            diaryCounts.getOrDefault(user.getUserId(), 0L)))
+                    .toList();
+
+            List<WeeklyMatchPlanner.CandidatePair> blocked = planner.block(candidates);
+            if (candidates.size() <= annRecallMaxPool) {
+                blocked = WeeklyMatchPlanner.union(blocked, recallByAnn(candidates, profiles, vectors));
+            }
+            WeeklyMatchPlanner.RerankPlan plan = planner.prescore(candidates, blocked, (left, right) -> {
+                PairHistoryFeedback feedback = evaluatePairHistory(left.userId(), right.userId(), history);
+                return feedback.exclude() ? WeeklyMatchPlanner.EXCLUDED : feedback.penaltyScore();
+            });
+            log.info("Weekly matching planned: candidates={}, blockedPairs={}, prescoredPairs={}",
+                    candidates.size(), blocked.size(), plan.size());
+
+            List<RerankedPair> assignment = rerankAndAssign(candidates, profiles, history, plan);
+            for (RerankedPair pair : assignment) {
+                User userA = userById.get(candidates.get(pair.target()).userId());
+                User userB = userById.get(candidates.get(pair.candidate()).userId());
+                createMatch(userA, userB, profiles.get(userA.getUserId()), profiles.get(userB.getUserId()),
+                        pair.result(), generationRunId);
             }
             taskExecutionService.succeed(execution.getTaskId(), null, LocalDateTime.now());
         } catch (RuntimeException exception) {
@@ -225,6 +258,90 @@ public class MatchServiceImpl implements MatchService {
         log.info("Weekly matching process completed.");
     }
 
+    /**
+     * 分轮精排并全局分配：每轮只给当前仍未配对的用户取新候选，精排在 ioFanoutExecutor 上有界并发执行
+     */
+    private List<RerankedPair> rerankAndAssign(List<WeeklyMatchPlanner.MatchCandidate> candidates,
+            Map<String, MatchProfile> profiles, MatchHistory history, WeeklyMatchPlanner.RerankPlan plan) {
+        Map<Long, RerankedPair> accepted = new HashMap<>();
+        List<WeeklyMatchPlanner.Edge> matching = List.of();
+        Set<Integer> settled = new HashSet<>();
+        int remainingBudget = rerankBudget;
+        int rerankCalls = 0;
+        for (int round = 0; round < rerankRounds && remainingBudget > 0; round++) {
+            List<WeeklyMatchPlanner.RerankTask> tasks = plan.nextRound(settled::contains, remainingBudget);
+            if (tasks.isEmpty()) {
+                break;
+            }
+            remainingBudget -= tasks.size();
+            rerankCalls += tasks.size();
+            List<MatchRerankResult> results = runBounded(tasks, task -> rerank(
+                    profiles.get(candidates.get(task.target()).userId()),
+                    profiles.get(candidates.get(task.candidate()).userId())));
+            for (int i = 0; i < tasks.size(); i++) {
+                RerankedPair reranked = acceptRerank(tasks.get(i), results.get(i), candidates, profiles, history);
+                if (reranked != null) {
+                    accepted.merge(pairKey(reranked.target(), reranked.candidate()), reranked,
+                            (existing, incoming) -> incoming.weight() > existing.weight() ? incoming : existing);
+                }
+            }
+            matching = WeeklyMatchPlanner.assign(accepted.values().stream()
+                    .map(pair -> new WeeklyMatchPlanner.Edge(pair.target(), pair.candidate(), pair.weight()))
+                    .toList());
+            settled.clear();
+            matching.forEach(edge -> {
+                settled.add(edge.left());
+                settled.add(edge.right());
+            });
+        }
+        log.info("Weekly matching assigned: rerankCalls={}, acceptedPairs={}, matches={}",
+                rerankCalls, accepted.size(), matching.size());
+        return matching.stream()
+                .map(edge -> accepted.get(pairKey(edge.left(), edge.right())))
+                .toList();
+    }
+
+    private RerankedPair acceptRerank(WeeklyMatchPlanner.RerankTask task, MatchRerankResult rerankResult,
+            List<WeeklyMatchPlanner.MatchCandidate> candidates, Map<String, MatchProfile> profiles,
+            MatchHistory history) {
+        if (rerankResult == null || !Boolean.TRUE.equals(rerankResult.getResonance())) {
+            return null;
+        }
+        String targetUserId = candidates.get(task.target()).userId();
+        String candidateUserId = candidates.get(task.candidate()).userId();
+        int score = rerankResult.getScore() != null ? rerankResult.getScore() : 0;
+        score = applyHistoryPenalty(score, evaluatePairHistory(targetUserId, candidateUserId, history));
+        if (!passesScoreThreshold(profiles.get(targetUserId), profiles.get(candidateUserId), score)) {
+            return null;
+        }
+        rerankResult.setScore(score);
+        int tieBreak = Math.max(0, Math.min(EDGE_WEIGHT_SCALE - 1, task.preScore()));
+        return new RerankedPair(task.target(), task.candidate(), score * EDGE_WEIGHT_SCALE + tieBreak, rerankResult);
+    }
+
+    /**
+     * 在 ioFanoutExecutor 上并发执行，在途任务数不超过 rerankConcurrency；结果与输入一一对应
+     */
+    private <T, R> List<R> runBounded(List<T> items, Function<T, R> work) {
+        Semaphore permits = new Semaphore(rerankConcurrency);
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            permits.acquireUninterruptibly();
+            CompletableFuture<R> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> work.apply(item), ioFanoutExecutor);
+            } catch (RejectedExecutionException e) {
+                future = CompletableFuture.completedFuture(work.apply(item));
+            }
+            futures.add(future.whenComplete((ignored, error) -> permits.release()));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | (Math.max(a, b) & 0xffffffffL);
+    }
+
     private void createMatch(User userA, User userB, MatchProfile profileA, MatchProfile profileB,
             MatchRerankResult rerankResult, String generationRunId) {
         log.info("Creating match: userAId={}, userBId={}", userA.getUserId(), userB.getUserId());
@@ -325,7 +442,7 @@ public class MatchServiceImpl implements MatchService {
             } finally {
                 ModelRouteContextHolder.clear();
             }
-        }, threadPoolExecutor);
+        }, ioFanoutExecutor);
     }
 
     private String buildFallbackLetter(MatchRerankResult rerankResult) {
@@ -335,86 +452,62 @@ public class MatchServiceImpl implements MatchService {
         return "向你推荐一位'灵魂伙伴'。你们之间存在某种值得慢慢靠近的共鸣。";
     }
 
-    private List<String> recallCandidateIds(User currentUser, MatchProfile profile, List<User> allCandidates,
-            Map<String, MatchProfile> profileCache, Map<String, Long> diaryCountCache) {
-        List<String> recalled = new ArrayList<>();
-        if (profile != null && StrUtil.isNotBlank(profile.getProfileText())) {
-            recalled.addAll(recallByMilvus(currentUser.getUserId(), profile.getProfileText()));
-        }
-        Map<String, Integer> recallRankMap = new HashMap<>();
-        for (int i = 0; i < recalled.size(); i++) {
-            recallRankMap.putIfAbsent(recalled.get(i), i);
+    /**
+     * 小规模候选池沿用混合检索（稠密向量 + BM25）召回，与向量分块的结果合并；已有画像向量时不再重复 embed
+     */
+    private List<WeeklyMatchPlanner.CandidatePair> recallByAnn(List<WeeklyMatchPlanner.MatchCandidate> candidates,
+            Map<String, MatchProfile> profiles, Map<String, float[]> vectors) {
+        Map<String, Integer> indexByUserId = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            indexByUserId.put(candidates.get(i).userId(), i);
         }
-
-        List<String> prioritized = new ArrayList<>();
-        List<CandidatePriority> recalledCandidates = recalled.stream()
-                .distinct()
-                .filter(candidateUserId -> !currentUser.getUserId().equals(candidateUserId))
-                .map(candidateUserId -> findCandidate(allCandidates, candidateUserId))
-                .filter(candidate -> candidate != null && isIntentCompatible(currentUser, candidate))
-                .map(candidate -> buildCandidatePriority(currentUser, candidate,
-                        recallRankMap.getOrDefault(candidate.getUserId(), RECALL_TOP_K),
-                        profileCache, diaryCountCache))
-                .sorted(candidatePriorityComparator())
-                .toList();
-        recalledCandidates.stream()
-                .map(priority -> priority.user().getUserId())
-                .forEach(prioritized::add);
-
-        if (prioritized.size() < RECALL_TOP_K) {
-            Set<String> excludedUserIds = new LinkedHashSet<>(prioritized);
-            excludedUserIds.add(currentUser.getUserId());
-            for (User fallback : buildFallbackCandidates(currentUser, allCandidates, excludedUserIds, profileCache,
-                    diaryCountCache)) {
-                prioritized.add(fallback.getUserId());
-                if (prioritized.size() >= RECALL_TOP_K) {
-                    break;
+        List<List<String>> recalled = runBounded(candidates, candidate -> recallByMilvus(candidate.userId(),
+                profiles.get(candidate.userId()).getProfileText(), vectors.get(candidate.userId())));
+        List<WeeklyMatchPlanner.CandidatePair> pairs = new ArrayList<>();
+        for (int owner = 0; owner < candidates.size(); owner++) {
+            List<String> hits = recalled.get(owner);
+            for (int rank = 0; rank < hits.size(); rank++) {
+                Integer other = indexByUserId.get(hits.get(rank));
+                if (other == null || other == owner) {
+                    continue;
                 }
+                float[] ownerVector = candidates.get(owner).vector();
+                float[] otherVector = candidates.get(other).vector();
+                float similarity = ownerVector != null && otherVector != null
+                        ? WeeklyMatchPlanner.cosine(ownerVector, otherVector)
+                        : 1f - rank * RECALL_RANK_DECAY;
+                pairs.add(new WeeklyMatchPlanner.CandidatePair(Math.min(owner, other), Math.max(owner, other),
+                        similarity, 0));
             }
         }
-        return prioritized;
+        return WeeklyMatchPlanner.union(pairs, List.of());
     }
 
-    private List<String> recallByMilvus(String userId, String profileText) {
+    private List<String> recallByMilvus(String userId, String profileText, float[] profileVector) {
         if (StrUtil.isBlank(profileText)) {
             return List.of();
         }
         try {
             String expr = String.format("metadata[\"userId\"] != '%s'", userId);
-            Embedding queryEmbedding = embeddingModel.embed(profileText).content();
+            float[] queryVector = profileVector != null ? profileVector
+                    : embeddingModel.embed(profileText).content().vector();
 
-            AnnSearchReq denseReq = AnnSearchReq.builder()
-                    .vectorFieldName("vector")
-                    .vectors(List.of(new FloatVec(queryEmbedding.vector())))
-                    .params("{\"metric_type\": \"COSINE\"}")
-                    .limit(RECALL_TOP_K * 2)
-                    .filter(expr)
-                    .build();
-
-            AnnSearchReq sparseReq = AnnSearchReq.builder()
-                    .vectorFieldName("text_sparse")
-                    .vectors(List.of(new EmbeddedText(profileText)))
-                    .params("{\"metric_type\": \"BM25\"}")
-                    .limit(RECALL_TOP_K * 2)
-                    .filter(expr)
-                    .build();
-
-            HybridSearchReq hybridSearchReq = HybridSearchReq.builder()
+            List<SearchResp.SearchResult> hits = retrievalBackend.hybridSearch(HybridSearchQuery.builder()
                     .collectionName(MATCH_PROFILE_COLLECTION)
-                    .searchRequests(Arrays.asList(denseReq, sparseReq))
-                    .ranker(RRFRanker.builder().k(60).build())
+                    .denseVector(queryVector)
+                    .text(profileText)
+                    .filter(expr)
+                    .candidateLimit(RECALL_TOP_K * 2)
                     .limit(RECALL_TOP_K)
-                    .outFields(List.of("metadata"))
-                    .build();
-
-            SearchResp searchResp = milvusClientV2.hybridSearch(hybridSearchReq);
-            List<List<SearchResp.SearchResult>> searchResults = searchResp.getSearchResults();
-            if (searchResults == null || searchResults.isEmpty() || searchResults.get(0).isEmpty()) {
+                    .outputFields(List.of("metadata"))
+                    .rrfK(60)
+                    .build());
+            if (hits.isEmpty()) {
                 return List.of();
             }
 
             List<String> recalled = new ArrayList<>();
-            for (SearchResp.SearchResult result : searchResults.get(0)) {
+            for (SearchResp.SearchResult result : hits) {
                 String candidateUserId = extractUserId(result);
                 if (StrUtil.isNotBlank(candidateUserId) && !userId.equals(candidateUserId)) {
                     recalled.add(candidateUserId);
@@ -428,40 +521,72 @@ public class MatchServiceImpl implements MatchService {
         }
     }
 
-    private List<User> buildFallbackCandidates(User currentUser, List<User> allCandidates, Set<String> excludedUserIds,
-            Map<String, MatchProfile> profileCache, Map<String, Long> diaryCountCache) {
-        return allCandidates.stream()
-                .filter(candidate -> !candidate.getUserId().equals(currentUser.getUserId()))
-                .filter(candidate -> !excludedUserIds.contains(candidate.getUserId()))
-                .filter(candidate -> isIntentCompatible(currentUser, candidate))
-                .map(candidate -> buildCandidatePriority(currentUser, candidate, RECALL_TOP_K + 1,
-                        profileCache, diaryCountCache))
-                .sorted(candidatePriorityComparator())
-                .map(CandidatePriority::user)
-                .limit(RECALL_TOP_K)
-                .toList();
-    }
-
-    private User findCandidate(List<User> allCandidates, String userId) {
-        for (User candidate : allCandidates) {
-            if (candidate != null && StrUtil.equals(candidate.getUserId(), userId)) {
-                return candidate;
+    /**
+     * 批量读取画像向量；向量库缺失的画像（如同步失败）按批 embed 补齐，仍拿不到的用户只走 ANN 召回
+     */
+    private Map<String, float[]> loadProfileVectors(List<String> userIds, Map<String, MatchProfile> profiles) {
+        Map<String, float[]> vectors = new HashMap<>();
+        try {
+            vectors.putAll(retrievalBackend.fetchVectors(MATCH_PROFILE_COLLECTION, userIds));
+        } catch (Exception e) {
+            log.warn("Match profile vectors load failed: operation=fetch_vectors, exceptionType={}",
+                    LowSensitivityLogSummary.exceptionType(e));
+        }
+        List<String> missing = userIds.stream().filter(userId -> !vectors.containsKey(userId)).toList();
+        for (int from = 0; from < missing.size(); from += EMBED_BATCH_SIZE) {
+            List<String> batch = missing.subList(from, Math.min(missing.size(), from + EMBED_BATCH_SIZE));
+            try {
+                Response<List<Embedding>> response = embeddingModel.embedAll(batch.stream()
+                        .map(userId -> TextSegment.from(profiles.get(userId).getProfileText()))
+                        .toList());
+                List<Embedding> embeddings = response == null ? null : response.content();
+                if (embeddings == null || embeddings.size() != batch.size()) {
+                    continue;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    vectors.put(batch.get(i), embeddings.get(i).vector());
+                }
+            } catch (Exception e) {
+                log.warn("Match profile embedding failed: count={}, operation=embed_profiles, exceptionType={}",
+                        batch.size(), LowSensitivityLogSummary.exceptionType(e));
             }
         }
-        return null;
+        return vectors;
     }
 
-    private boolean isIntentCompatible(User userA, User userB) {
-        String intentA = normalizeIntent(userA != null ? userA.getMatchIntent() : null);
-        String intentB = normalizeIntent(userB != null ? userB.getMatchIntent() : null);
-        if (StrUtil.isBlank(intentA) || StrUtil.isBlank(intentB)) {
-            return true;
+    private Map<String, Long> loadDiaryCounts(List<String> userIds) {
+        Map<String, Long> counts = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += BULK_QUERY_SIZE) {
+            diaryRepository.countGroupByUserIdIn(userIds.subList(from, Math.min(userIds.size(), from + BULK_QUERY_SIZE)))
+                    .forEach(row -> counts.put(row.getUserId(), row.getDiaryCount()));
         }
-        return intentA.equals(intentB);
+        return counts;
     }
 
-    private String normalizeIntent(String intent) {
-        return StrUtil.blankToDefault(intent, "").trim().toLowerCase();
+    /**
+     * 一次性加载候选池的匹配历史与强负面反馈，替代逐对的历史查询与逐条反馈查询
+     */
+    private MatchHistory loadMatchHistory(Collection<String> userIds, LocalDateTime startOfDay) {
+        List<String> ids = new ArrayList<>(userIds);
+        Map<Long, SoulMatch> matches = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += BULK_QUERY_SIZE) {
+            soulMatchRepository.findAllInvolving(ids.subList(from, Math.min(ids.size(), from + BULK_QUERY_SIZE)))
+                    .forEach(match -> matches.putIfAbsent(match.getId(), match));
+        }
+        Map<String, List<SoulMatch>> byPair = new HashMap<>();
+        Set<String> matchedToday = new HashSet<>();
+        for (SoulMatch match : matches.values()) {
+            byPair.computeIfAbsent(buildPairCacheKey(match.getUserAId(), match.getUserBId()),
+                    ignored -> new ArrayList<>()).add(match);
+            if (match.getCreateTime() != null && !match.getCreateTime().isBefore(startOfDay)) {
+                matchedToday.add(match.getUserAId());
+                matchedToday.add(match.getUserBId());
+            }
+        }
+        byPair.values().forEach(list -> list.sort(Comparator.comparing(SoulMatch::getCreateTime,
+                Comparator.nullsLast(Comparator.reverseOrder()))));
+        return new MatchHistory(byPair, matchFeedbackService.findStrongNegativeMatchIds(matches.keySet()),
+                matchedToday);
     }
 
     private boolean passesScoreThreshold(MatchProfile profileA, MatchProfile profileB, int score) {
@@ -494,57 +619,8 @@ public class MatchServiceImpl implements MatchService {
         return StrUtil.isNotBlank(text) && !emptyMarker.equals(text.trim());
     }
 
-    private MatchProfile getOrLoadProfile(Map<String, MatchProfile> profileCache, String userId) {
-        if (StrUtil.isBlank(userId)) {
-            return null;
-        }
-        return profileCache.computeIfAbsent(userId, matchProfileAssembler::ensureProfile);
-    }
-
-    private long getOrLoadDiaryCount(Map<String, Long> diaryCountCache, String userId) {
-        if (StrUtil.isBlank(userId)) {
-            return 0L;
-        }
-        return diaryCountCache.computeIfAbsent(userId, diaryRepository::countByUserId);
-    }
-
-    private CandidatePriority buildCandidatePriority(User currentUser, User candidate, int recallRank,
-            Map<String, MatchProfile> profileCache, Map<String, Long> diaryCountCache) {
-        MatchProfile candidateProfile = getOrLoadProfile(profileCache, candidate.getUserId());
-        int signalSections = profileSignalSectionCount(candidateProfile);
-        long diaryCount = getOrLoadDiaryCount(diaryCountCache, candidate.getUserId());
-        boolean explicitSharedIntent = hasExplicitSharedIntent(currentUser, candidate);
-        return new CandidatePriority(candidate, signalSections, diaryCount, explicitSharedIntent, recallRank);
-    }
-
-    private Comparator<CandidatePriority> candidatePriorityComparator() {
-        return Comparator.comparingInt((CandidatePriority priority) -> candidateSignalTier(priority.signalSections()))
-                .thenComparing(CandidatePriority::explicitSharedIntent, Comparator.reverseOrder())
-                .thenComparing(Comparator.comparingInt(CandidatePriority::signalSections).reversed())
-                .thenComparing(Comparator.comparingLong(CandidatePriority::diaryCount).reversed())
-                .thenComparingInt(CandidatePriority::recallRank)
-                .thenComparing(priority -> priority.user().getUserId(), Comparator.nullsLast(String::compareTo));
-    }
-
-    private int candidateSignalTier(int signalSections) {
-        if (signalSections >= STRONG_SIGNAL_SECTION_COUNT) {
-            return 0;
-        }
-        if (signalSections >= MEDIUM_SIGNAL_SECTION_COUNT) {
-            return 1;
-        }
-        return 2;
-    }
-
-    private boolean hasExplicitSharedIntent(User userA, User userB) {
-        String intentA = normalizeIntent(userA != null ? userA.getMatchIntent() : null);
-        String intentB = normalizeIntent(userB != null ? userB.getMatchIntent() : null);
-        return StrUtil.isNotBlank(intentA) && intentA.equals(intentB);
-    }
-
-    private PairHistoryFeedback evaluatePairHistory(String userAId, String userBId,
-            Map<String, List<SoulMatch>> pairHistoryCache) {
-        List<SoulMatch> history = getPairHistory(userAId, userBId, pairHistoryCache);
+    private PairHistoryFeedback evaluatePairHistory(String userAId, String userBId, MatchHistory matchHistory) {
+        List<SoulMatch> history = matchHistory.byPair().get(buildPairCacheKey(userAId, userBId));
         if (CollUtil.isEmpty(history)) {
             return PairHistoryFeedback.allow(0);
         }
@@ -553,7 +629,7 @@ public class MatchServiceImpl implements MatchService {
         LocalDateTime now = LocalDateTime.now();
         if (history.stream()
                 .map(SoulMatch::getId)
-                .anyMatch(matchId -> matchFeedbackService.hasStrongNegativeSignal(matchId))) {
+                .anyMatch(matchHistory.strongNegativeMatchIds()::contains)) {
             return PairHistoryFeedback.exclude("strong_negative_signal", MAX_HISTORY_PENALTY);
         }
         if (history.stream().anyMatch(match -> Boolean.TRUE.equals(match.getIsMatched()))) {
@@ -590,12 +666,6 @@ public class MatchServiceImpl implements MatchService {
         return PairHistoryFeedback.allow(penalty);
     }
 
-    private List<SoulMatch> getPairHistory(String userAId, String userBId,
-            Map<String, List<SoulMatch>> pairHistoryCache) {
-        String cacheKey = buildPairCacheKey(userAId, userBId);
-        return pairHistoryCache.computeIfAbsent(cacheKey, key -> soulMatchRepository.findPairHistory(userAId, userBId));
-    }
-
     private String buildPairCacheKey(String userAId, String userBId) {
         if (StrUtil.compare(userAId, userBId, false) <= 0) {
             return userAId + "::" + userBId;
@@ -642,8 +712,11 @@ public class MatchServiceImpl implements MatchService {
         return Math.max(0, score - feedback.penaltyScore());
     }
 
-    private record CandidatePriority(User user, int signalSections, long diaryCount,
-            boolean explicitSharedIntent, int recallRank) {
+    private record MatchHistory(Map<String, List<SoulMatch>> byPair, Set<Long> strongNegativeMatchIds,
+            Set<String> matchedToday) {
+    }
+
+    private record RerankedPair(int target, int candidate, int weight, MatchRerankResult result) {
     }
 
     private record PairHistoryFeedback(boolean exclude, String reason, int penaltyScore) {
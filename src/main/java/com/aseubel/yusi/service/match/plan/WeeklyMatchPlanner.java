@@ -0,0 +1,665 @@
+package com.aseubel.yusi.service.match.plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * 周匹配的候选生成与全局分配
+ * <p>
+ * 1. 向量分块：用多棵随机投影树把画像向量切成不超过叶子上限的分片（每层沿随机方向按中位数二分），
+ *    分片内两两精确计算余弦相似度并行执行，每个用户只保留最相似的若干邻居；
+ *    最后做一轮"邻居的邻居"补充，找回被切分边界分开的近邻。
+ * 2. 粗排：用相似度 + 画像信号 + 意向 + 批量加载的历史惩罚给候选对打分，不调用模型；
+ *    之后分轮精排，每轮只给仍未配对的用户取粗排前 K 的候选送去 LLM，总量受预算约束。
+ * 3. 全局分配：精排通过的候选对按分数全局排序贪心选边，再用增广/交换做局部改进，求近似最大权匹配，
+ *    而不是按随机顺序逐个用户贪心占位。
+ * <p>
+ * 本类只依赖内存数据，便于在合成画像上做规模压测。
+ */
+public class WeeklyMatchPlanner {
+
+    /** 历史记录要求排除这一对 */
+    public static final int EXCLUDED = -1;
+
+    private static final int SHARED_INTENT_BONUS = 5;
+    private static final int SIGNAL_SECTION_BONUS = 2;
+    private static final int MAX_ACTIVITY_BONUS = 3;
+    private static final int MAX_IMPROVEMENT_PASSES = 8;
+
+    private final int trees;
+    private final int leafSize;
+    private final int neighborsPerUser;
+    private final int rerankTopK;
+    private final long seed;
+
+    public WeeklyMatchPlanner() {
+        this(6, 64, 16, 2, 42L);
+    }
+
+    public WeeklyMatchPlanner(int trees, int leafSize, int neighborsPerUser, int rerankTopK, long seed) {
+        this.trees = Math.max(1, trees);
+        this.leafSize = Math.max(2, leafSize);
+        this.neighborsPerUser = Math.max(1, neighborsPerUser);
+        this.rerankTopK = Math.max(1, rerankTopK);
+        this.seed = seed;
+    }
+
+    /**
+     * 向量分块召回：返回去重后的候选对（left &lt; right，下标对应 candidates），没有向量的候选人不参与分块
+     */
+    public List<CandidatePair> block(List<MatchCandidate> candidates) {
+        int size = candidates.size();
+        float[][] vectors = normalizedVectors(candidates);
+        int[] members = IntStream.range(0, size).filter(i -> vectors[i] != null).toArray();
+        if (members.length < 2) {
+            return List.of();
+        }
+        int dimension = vectors[members[0]].length;
+        Neighbors neighbors = new Neighbors(size, neighborsPerUser);
+        List<List<int[]>> forest = IntStream.range(0, trees).parallel()
+                .mapToObj(tree -> {
+                    List<int[]> leaves = new ArrayList<>();
+                    split(members, vectors, dimension, new Random(seed + tree), leaves);
+                    return leaves;
+                })
+                .toList();
+        for (List<int[]> leaves : forest) {
+            // 同一棵树内每个用户只属于一个叶子，各分片只写自己叶子内用户的邻居表，互不竞争
+            leaves.parallelStream().forEach(leaf -> compareWithinLeaf(leaf, vectors, neighbors));
+        }
+        refine(members, vectors, neighbors);
+        return neighbors.pairs();
+    }
+
+    /**
+     * 粗排：过滤意向不兼容与历史排除的候选对，按相似度、画像信号、意向与历史惩罚打分，
+     * 并为每个用户建立按粗排分降序的候选列表，之后按轮次从中取精排任务
+     *
+     * @param historyPenalty 返回历史惩罚分，返回 {@link #EXCLUDED} 表示这一对不可再推荐
+     */
+    public RerankPlan prescore(List<MatchCandidate> candidates, List<CandidatePair> blocked,
+            PairPolicy historyPenalty) {
+        List<CandidatePair> scored = new ArrayList<>(blocked.size());
+        for (CandidatePair pair : blocked) {
+            MatchCandidate left = candidates.get(pair.left());
+            MatchCandidate right = candidates.get(pair.right());
+            if (!intentCompatible(left, right)) {
+                continue;
+            }
+            int penalty = historyPenalty.penalty(left, right);
+            if (penalty == EXCLUDED) {
+                continue;
+            }
+            scored.add(pair.withPreScore(preScore(left, right, pair.similarity(), penalty)));
+        }
+        return new RerankPlan(candidates.size(), scored, rerankTopK);
+    }
+
+    /**
+     * 合并多路召回的候选对，同一对保留较高的相似度
+     */
+    public static List<CandidatePair> union(List<CandidatePair> first, List<CandidatePair> second) {
+        Map<Long, CandidatePair> merged = new HashMap<>();
+        for (List<CandidatePair> source : List.of(first, second)) {
+            for (CandidatePair pair : source) {
+                merged.merge(Edge.key(pair.left(), pair.right()), pair,
+                        (existing, incoming) -> incoming.similarity() > existing.similarity() ? incoming : existing);
+            }
+        }
+        List<CandidatePair> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparingInt(CandidatePair::left).thenComparingInt(CandidatePair::right));
+        return result;
+    }
+
+    /**
+     * 两个向量的余弦相似度，任一为空或维度不同时返回 0
+     */
+    public static float cosine(float[] a, float[] b) {
+        if (a == null || b == null || a.length != b.length) {
+            return 0f;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0f : (float) (dot / Math.sqrt(normA * normB));
+    }
+
+    /**
+     * 近似最大权匹配：全局按权重贪心选边，再反复应用两类改进直到收敛
+     * <ul>
+     *     <li>长度为 3 的增广：拆掉 a-b，改成 a-c、b-d（c、d 当前空闲）</li>
+     *     <li>交换：a-x、b-y 换成 a-b、x-y</li>
+     * </ul>
+     * 每次改进都严格增加总权重，因此一定收敛；结果不劣于全局贪心（1/2 近似）。
+     */
+    public static List<Edge> assign(List<Edge> edges) {
+        Map<Integer, List<Edge>> adjacency = new HashMap<>();
+        Map<Long, Edge> byKey = new HashMap<>();
+        for (Edge edge : edges) {
+            if (edge.left() == edge.right()) {
+                continue;
+            }
+            Edge existing = byKey.get(edge.key());
+            if (existing != null && existing.weight() >= edge.weight()) {
+                continue;
+            }
+            byKey.put(edge.key(), edge);
+        }
+        List<Edge> unique = new ArrayList<>(byKey.values());
+        unique.sort(Comparator.comparingInt(Edge::weight).reversed()
+                .thenComparingInt(Edge::left)
+                .thenComparingInt(Edge::right));
+        for (Edge edge : unique) {
+            adjacency.computeIfAbsent(edge.left(), ignored -> new ArrayList<>()).add(edge);
+            adjacency.computeIfAbsent(edge.right(), ignored -> new ArrayList<>()).add(edge);
+        }
+
+        Map<Integer, Edge> mate = new HashMap<>();
+        for (Edge edge : unique) {
+            if (!mate.containsKey(edge.left()) && !mate.containsKey(edge.right())) {
+                mate.put(edge.left(), edge);
+                mate.put(edge.right(), edge);
+            }
+        }
+
+        for (int pass = 0; pass < MAX_IMPROVEMENT_PASSES; pass++) {
+            boolean improved = false;
+            for (Edge matched : new ArrayList<>(new LinkedHashSet<>(mate.values()))) {
+                if (mate.get(matched.left()) != matched) {
+                    continue;
+                }
+                improved |= augment(matched, adjacency, mate);
+            }
+            for (Edge edge : unique) {
+                improved |= swap(edge, byKey, mate);
+            }
+            if (!improved) {
+                break;
+            }
+        }
+
+        List<Edge> result = new ArrayList<>();
+        for (Map.Entry<Integer, Edge> entry : mate.entrySet()) {
+            if (entry.getKey() == entry.getValue().left()) {
+                result.add(entry.getValue());
+            }
+        }
+        result.sort(Comparator.comparingInt(Edge::weight).reversed()
+                .thenComparingInt(Edge::left)
+                .thenComparingInt(Edge::right));
+        return result;
+    }
+
+    public static long totalWeight(List<Edge> matching) {
+        return matching.stream().mapToLong(Edge::weight).sum();
+    }
+
+    private static boolean augment(Edge matched, Map<Integer, List<Edge>> adjacency, Map<Integer, Edge> mate) {
+        int a = matched.left();
+        int b = matched.right();
+        Edge bestA = bestFreeEdge(a, b, -1, adjacency, mate);
+        Edge bestB = bestFreeEdge(b, a, -1, adjacency, mate);
+        if (bestA == null || bestB == null) {
+            return false;
+        }
+        if (bestA.other(a) == bestB.other(b)) {
+            // 两端最好的空闲邻居是同一个人时，各自退一步取次优
+            Edge altA = bestFreeEdge(a, b, bestB.other(b), adjacency, mate);
+            Edge altB = bestFreeEdge(b, a, bestA.other(a), adjacency, mate);
+            int withAltA = altA == null ? Integer.MIN_VALUE : altA.weight() + bestB.weight();
+            int withAltB = altB == null ? Integer.MIN_VALUE : bestA.weight() + altB.weight();
+            if (withAltA == Integer.MIN_VALUE && withAltB == Integer.MIN_VALUE) {
+                return false;
+            }
+            if (withAltA >= withAltB) {
+                bestA = altA;
+            } else {
+                bestB = altB;
+            }
+        }
+        if ((long) bestA.weight() + bestB.weight() <= matched.weight()) {
+            return false;
+        }
+        mate.put(a, bestA);
+        mate.put(bestA.other(a), bestA);
+        mate.put(b, bestB);
+        mate.put(bestB.other(b), bestB);
+        return true;
+    }
+
+    private static Edge bestFreeEdge(int node, int exclude, int alsoExclude, Map<Integer, List<Edge>> adjacency,
+            Map<Integer, Edge> mate) {
+        for (Edge edge : adjacency.getOrDefault(node, List.of())) {
+            int other = edge.other(node);
+            if (other != exclude && other != alsoExclude && !mate.containsKey(other)) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    private static boolean swap(Edge edge, Map<Long, Edge> byKey, Map<Integer, Edge> mate) {
+        int a = edge.left();
+        int b = edge.right();
+        Edge mateA = mate.get(a);
+        Edge mateB = mate.get(b);
+        if (mateA == edge) {
+            return false;
+        }
+        if (mateA == null && mateB == null) {
+            mate.put(a, edge);
+            mate.put(b, edge);
+            return true;
+        }
+        if (mateA == null || mateB == null) {
+            Edge current = mateA == null ? mateB : mateA;
+            int owner = mateA == null ? b : a;
+            if (edge.weight() <= current.weight()) {
+                return false;
+            }
+            mate.remove(current.other(owner));
+            mate.put(a, edge);
+            mate.put(b, edge);
+            return true;
+        }
+        int x = mateA.other(a);
+        int y = mateB.other(b);
+        Edge partners = byKey.get(Edge.key(x, y));
+        long before = (long) mateA.weight() + mateB.weight();
+        long after = (long) edge.weight() + (partners == null ? 0 : partners.weight());
+        if (after <= before) {
+            return false;
+        }
+        mate.remove(x);
+        mate.remove(y);
+        mate.put(a, edge);
+        mate.put(b, edge);
+        if (partners != null) {
+            mate.put(x, partners);
+            mate.put(y, partners);
+        }
+        return true;
+    }
+
+    /**
+     * 沿随机方向按投影中位数递归二分，直到分片不超过叶子上限
+     */
+    private void split(int[] ids, float[][] vectors, int dimension, Random random, List<int[]> leaves) {
+        if (ids.length <= leafSize) {
+            leaves.add(ids);
+            return;
+        }
+        float[] direction = gaussian(random, 1, dimension)[0];
+        // 投影值转成可排序的整型位并与下标拼成 long，避免装箱排序
+        long[] keyed = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            int bits = Float.floatToIntBits(dot(vectors[ids[i]], direction));
+            bits ^= (bits >> 31) & 0x7fffffff;
+            keyed[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(keyed);
+        int half = ids.length / 2;
+        int[] lower = new int[half];
+        int[] upper = new int[ids.length - half];
+        for (int i = 0; i < ids.length; i++) {
+            int member = ids[(int) keyed[i]];
+            if (i < half) {
+                lower[i] = member;
+            } else {
+                upper[i - half] = member;
+            }
+        }
+        split(lower, vectors, dimension, random, leaves);
+        split(upper, vectors, dimension, random, leaves);
+    }
+
+    private static void compareWithinLeaf(int[] leaf, float[][] vectors, Neighbors neighbors) {
+        for (int x = 0; x < leaf.length; x++) {
+            for (int y = x + 1; y < leaf.length; y++) {
+                offer(leaf[x], leaf[y], vectors, neighbors);
+            }
+        }
+    }
+
+    /**
+     * 用邻居的邻居补充近邻：基于当前邻居表的快照计算，每个用户只改写自己的邻居表，可以安全并行
+     */
+    private static void refine(int[] members, float[][] vectors, Neighbors neighbors) {
+        Neighbors snapshot = neighbors.copy();
+        // 按线程复用的访问标记：同一候选人经多个邻居重复出现时只算一次
+        ThreadLocal<int[]> visited = ThreadLocal.withInitial(() -> new int[vectors.length]);
+        Arrays.stream(members).parallel().forEach(owner -> {
+            int[] marks = visited.get();
+            int stamp = owner + 1;
+            marks[owner] = stamp;
+            for (int k = 0; k < snapshot.counts[owner]; k++) {
+                marks[snapshot.ids[owner][k]] = stamp;
+            }
+            for (int k = 0; k < snapshot.counts[owner]; k++) {
+                int neighbor = snapshot.ids[owner][k];
+                for (int j = 0; j < snapshot.counts[neighbor]; j++) {
+                    int candidate = snapshot.ids[neighbor][j];
+                    if (marks[candidate] != stamp) {
+                        marks[candidate] = stamp;
+                        neighbors.offer(owner, candidate, dot(vectors[owner], vectors[candidate]));
+                    }
+                }
+            }
+        });
+    }
+
+    private static void offer(int a, int b, float[][] vectors, Neighbors neighbors) {
+        float similarity = dot(vectors[a], vectors[b]);
+        neighbors.offer(a, b, similarity);
+        neighbors.offer(b, a, similarity);
+    }
+
+    private static boolean intentCompatible(MatchCandidate left, MatchCandidate right) {
+        String intentA = normalizeIntent(left.intent());
+        String intentB = normalizeIntent(right.intent());
+        return intentA.isEmpty() || intentB.isEmpty() || intentA.equals(intentB);
+    }
+
+    private static int preScore(MatchCandidate left, MatchCandidate right, float similarity, int penalty) {
+        int score = Math.round(similarity * 100);
+        String intentA = normalizeIntent(left.intent());
+        if (!intentA.isEmpty() && intentA.equals(normalizeIntent(right.intent()))) {
+            score += SHARED_INTENT_BONUS;
+        }
+        score += Math.min(left.signalSections(), right.signalSections()) * SIGNAL_SECTION_BONUS;
+        long activity = Math.min(left.diaryCount(), right.diaryCount());
+        score += (int) Math.min(MAX_ACTIVITY_BONUS, 63 - Long.numberOfLeadingZeros(activity + 1));
+        return score - Math.max(0, penalty);
+    }
+
+    private static String normalizeIntent(String intent) {
+        return intent == null ? "" : intent.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static float[][] normalizedVectors(List<MatchCandidate> candidates) {
+        float[][] vectors = new float[candidates.size()][];
+        int dimension = -1;
+        for (int i = 0; i < candidates.size(); i++) {
+            float[] source = candidates.get(i).vector();
+            if (source == null || source.length == 0 || (dimension > 0 && source.length != dimension)) {
+                continue;
+            }
+            dimension = source.length;
+            double norm = 0;
+            for (float value : source) {
+                norm += value * value;
+            }
+            float scale = norm == 0 ? 0f : (float) (1.0 / Math.sqrt(norm));
+            float[] normalized = new float[source.length];
+            for (int d = 0; d < source.length; d++) {
+                normalized[d] = source[d] * scale;
+            }
+            vectors[i] = normalized;
+        }
+        return vectors;
+    }
+
+    private static float[][] gaussian(Random random, int rows, int dimension) {
+        float[][] values = new float[rows][dimension];
+        for (int r = 0; r < rows; r++) {
+            for (int d = 0; d < dimension; d++) {
+                values[r][d] = (float) random.nextGaussian();
+            }
+        }
+        return values;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0f;
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @FunctionalInterface
+    public interface PairPolicy {
+
+        int penalty(MatchCandidate left, MatchCandidate right);
+    }
+
+    public record MatchCandidate(String userId, String intent, float[] vector, int signalSections,
+            long diaryCount) {
+    }
+
+    public record CandidatePair(int left, int right, float similarity, int preScore) {
+
+        CandidatePair withPreScore(int score) {
+            return new CandidatePair(left, right, similarity, score);
+        }
+    }
+
+    public record RerankTask(int target, int candidate, float similarity, int preScore) {
+    }
+
+    /**
+     * 分轮精排计划：每轮给尚未配对的用户各取接下来 K 个同样未配对的候选人，以该用户为目标方精排；
+     * 调用方每轮精排后重新做全局分配，只有仍未配对的用户才会在下一轮继续消耗模型调用。
+     * 精排提示词带目标方的偏好上下文，结果有方向性，双方都选中对方时各精排一次，分配时取较高分。
+     */
+    public static final class RerankPlan {
+
+        private final List<CandidatePair> pairs;
+        private final int[] offsets;
+        private final long[] ordered;
+        private final int[] cursors;
+        private final boolean[] issued;
+        private final int perRound;
+
+        private RerankPlan(int size, List<CandidatePair> pairs, int perRound) {
+            this.pairs = pairs;
+            this.perRound = perRound;
+            this.offsets = new int[size + 1];
+            for (CandidatePair pair : pairs) {
+                offsets[pair.left() + 1]++;
+                offsets[pair.right() + 1]++;
+            }
+            for (int i = 0; i < size; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            // 每个用户一段：高 32 位是取反的粗排分（升序即分数降序），低 32 位是候选对下标
+            this.ordered = new long[offsets[size]];
+            int[] fill = Arrays.copyOf(offsets, size);
+            for (int index = 0; index < pairs.size(); index++) {
+                CandidatePair pair = pairs.get(index);
+                long key = ((long) (Integer.MAX_VALUE - pair.preScore()) << 32) | index;
+                ordered[fill[pair.left()]++] = key;
+                ordered[fill[pair.right()]++] = key;
+            }
+            for (int i = 0; i < size; i++) {
+                Arrays.sort(ordered, offsets[i], offsets[i + 1]);
+            }
+            this.cursors = Arrays.copyOf(offsets, size);
+            this.issued = new boolean[pairs.size()];
+        }
+
+        /**
+         * 粗排后保留的候选对数量
+         */
+        public int size() {
+            return pairs.size();
+        }
+
+        /**
+         * 取下一轮精排任务，按粗排分降序截取预算
+         *
+         * @param settled 已在当前分配中配对的用户，不再作为目标方或候选人
+         */
+        public List<RerankTask> nextRound(IntPredicate settled, int budget) {
+            List<RerankTask> tasks = new ArrayList<>();
+            List<int[]> positions = new ArrayList<>();
+            for (int target = 0; target < cursors.length; target++) {
+                if (settled.test(target)) {
+                    continue;
+                }
+                int taken = 0;
+                for (int position = cursors[target]; position < offsets[target + 1] && taken < perRound; position++) {
+                    int pairIndex = (int) ordered[position];
+                    CandidatePair pair = pairs.get(pairIndex);
+                    int candidate = pair.left() == target ? pair.right() : pair.left();
+                    // 之前轮次已从任一方向精排过的对不再重复调用模型
+                    if (issued[pairIndex] || settled.test(candidate)) {
+                        continue;
+                    }
+                    tasks.add(new RerankTask(target, candidate, pair.similarity(), pair.preScore()));
+                    positions.add(new int[] {target, position, pairIndex});
+                    taken++;
+                }
+            }
+            Integer[] order = new Integer[tasks.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingInt((Integer i) -> tasks.get(i).preScore()).reversed()
+                    .thenComparing(i -> tasks.get(i).similarity(), Comparator.reverseOrder())
+                    .thenComparingInt(i -> tasks.get(i).target())
+                    .thenComparingInt(i -> tasks.get(i).candidate()));
+            List<RerankTask> selected = new ArrayList<>(Math.min(order.length, Math.max(0, budget)));
+            for (int i = 0; i < Math.min(order.length, Math.max(0, budget)); i++) {
+                selected.add(tasks.get(order[i]));
+                int[] position = positions.get(order[i]);
+                cursors[position[0]] = Math.max(cursors[position[0]], position[1] + 1);
+            }
+            for (int i = 0; i < selected.size(); i++) {
+                issued[positions.get(order[i])[2]] = true;
+            }
+            return selected;
+        }
+    }
+
+    public record Edge(int left, int right, int weight) {
+
+        public Edge {
+            if (left > right) {
+                int swap = left;
+                left = right;
+                right = swap;
+            }
+        }
+
+        int other(int node) {
+            return node == left ? right : left;
+        }
+
+        long key() {
+            return key(left, right);
+        }
+
+        static long key(int a, int b) {
+            return ((long) Math.min(a, b) << 32) | (Math.max(a, b) & 0xffffffffL);
+        }
+    }
+
+    /**
+     * 每个用户的近邻表：定长数组，满了替换相似度最低的一项；同一对在多张表里重复出现只记一次
+     */
+    private static final class Neighbors {
+
+        private final int[][] ids;
+        private final float[][] similarities;
+        private final int[] counts;
+        /** 邻居表满员后的最低相似度，低于它的候选人无需扫描即可丢弃 */
+        private final float[] floors;
+
+        private Neighbors(int size, int capacity) {
+            this.ids = new int[size][capacity];
+            this.similarities = new float[size][capacity];
+            this.counts = new int[size];
+            this.floors = new float[size];
+            Arrays.fill(floors, Float.NEGATIVE_INFINITY);
+        }
+
+        private void offer(int owner, int neighbor, float similarity) {
+            if (similarity <= floors[owner]) {
+                return;
+            }
+            int[] ownerIds = ids[owner];
+            float[] ownerSimilarities = similarities[owner];
+            int count = counts[owner];
+            int weakest = -1;
+            for (int k = 0; k < count; k++) {
+                if (ownerIds[k] == neighbor) {
+                    return;
+                }
+                if (weakest < 0 || ownerSimilarities[k] < ownerSimilarities[weakest]) {
+                    weakest = k;
+                }
+            }
+            if (count < ownerIds.length) {
+                ownerIds[count] = neighbor;
+                ownerSimilarities[count] = similarity;
+                counts[owner] = ++count;
+                if (count == ownerIds.length) {
+                    floors[owner] = min(ownerSimilarities);
+                }
+                return;
+            }
+            ownerIds[weakest] = neighbor;
+            ownerSimilarities[weakest] = similarity;
+            floors[owner] = min(ownerSimilarities);
+        }
+
+        private static float min(float[] values) {
+            float min = values[0];
+            for (float value : values) {
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+
+        private Neighbors copy() {
+            Neighbors copy = new Neighbors(counts.length, ids.length == 0 ? 1 : ids[0].length);
+            for (int owner = 0; owner < counts.length; owner++) {
+                System.arraycopy(ids[owner], 0, copy.ids[owner], 0, counts[owner]);
+                System.arraycopy(similarities[owner], 0, copy.similarities[owner], 0, counts[owner]);
+                copy.counts[owner] = counts[owner];
+                copy.floors[owner] = floors[owner];
+            }
+            return copy;
+        }
+
+        private boolean contains(int owner, int neighbor) {
+            for (int k = 0; k < counts[owner]; k++) {
+                if (ids[owner][k] == neighbor) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private List<CandidatePair> pairs() {
+            List<CandidatePair> pairs = new ArrayList<>();
+            IntStream.range(0, counts.length).forEach(owner -> {
+                for (int k = 0; k < counts[owner]; k++) {
+                    int neighbor = ids[owner][k];
+                    // 双方互为近邻时只从编号小的一侧输出
+                    if (owner < neighbor || !contains(neighbor, owner)) {
+                        pairs.add(new CandidatePair(Math.min(owner, neighbor), Math.max(owner, neighbor),
+                                similarities[owner][k], 0));
+                    }
+                }
+            });
+            return pairs;
+        }
+    }
+}
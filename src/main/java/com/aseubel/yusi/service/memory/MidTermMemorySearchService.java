@@ -4,14 +4,13 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.aseubel.yusi.common.utils.LowSensitivityLogSummary;
 import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.service.ai.embedding.QueryEmbeddingCache;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.ai.retrieval.HybridSearchQuery;
+import com.aseubel.yusi.service.ai.retrieval.MilvusHybridRetrievalBackend;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.service.vector.request.AnnSearchReq;
-import io.milvus.v2.service.vector.request.HybridSearchReq;
-import io.milvus.v2.service.vector.request.data.EmbeddedText;
-import io.milvus.v2.service.vector.request.data.FloatVec;
-import io.milvus.v2.service.vector.request.ranker.RRFRanker;
 import io.milvus.v2.service.vector.response.SearchResp;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,26 +30,29 @@ import com.aseubel.yusi.pojo.entity.MidTermMemory;
 @Service
 public class MidTermMemorySearchService {
 
-    private final MilvusClientV2 milvusClientV2;
+    private final HybridRetrievalBackend retrievalBackend;
     private final EmbeddingModel embeddingModel;
     private final MidTermMemoryRepository midTermMemoryRepository;
     private final YusiMetrics metrics;
+    private final QueryEmbeddingCache queryEmbeddingCache;
 
     public MidTermMemorySearchService(MilvusClientV2 milvusClientV2,
             EmbeddingModel embeddingModel,
             MidTermMemoryRepository midTermMemoryRepository) {
-        this(milvusClientV2, embeddingModel, midTermMemoryRepository, null);
+        this(new MilvusHybridRetrievalBackend(milvusClientV2), embeddingModel, midTermMemoryRepository, null, null);
     }
 
     @Autowired
-    public MidTermMemorySearchService(MilvusClientV2 milvusClientV2,
+    public MidTermMemorySearchService(HybridRetrievalBackend retrievalBackend,
             EmbeddingModel embeddingModel,
             MidTermMemoryRepository midTermMemoryRepository,
-            YusiMetrics metrics) {
-        this.milvusClientV2 = milvusClientV2;
+            YusiMetrics metrics,
+            QueryEmbeddingCache queryEmbeddingCache) {
+        this.retrievalBackend = retrievalBackend;
         this.embeddingModel = embeddingModel;
         this.midTermMemoryRepository = midTermMemoryRepository;
         this.metrics = metrics;
+        this.queryEmbeddingCache = queryEmbeddingCache;
     }
 
     /**
@@ -62,6 +64,19 @@ public class MidTermMemorySearchService {
      * @return 匹配的记忆文本列表
      */
     public List<String> searchMidTermMemory(String userId, String query, int topK) {
+        return searchMidTermMemory(userId, query, null, topK);
+    }
+
+    /**
+     * 使用调用方预先生成的查询向量搜索中期记忆，queryEmbedding 为 null 时自行生成
+     *
+     * @param userId         用户的 ID
+     * @param query          搜索的查询词（用于 BM25 稀疏检索）
+     * @param queryEmbedding 查询向量，可为 null
+     * @param topK           返回结果数量
+     * @return 匹配的记忆文本列表
+     */
+    public List<String> searchMidTermMemory(String userId, String query, Embedding queryEmbedding, int topK) {
         log.info("MidTermMemory search started: userId={}, queryLengthBucket={}, topK={}",
                 userId, LowSensitivityLogSummary.lengthBucket(query), topK);
         long startedAt = System.nanoTime();
@@ -69,48 +84,29 @@ public class MidTermMemorySearchService {
         try {
             String expr = String.format("metadata[\"userId\"] == '%s'", userId);
 
-            // 生成查询的 Embedding
-            Embedding queryEmbedding = embeddingModel.embed(query).content();
+            // 生成查询的 Embedding（调用方已生成时直接复用）
+            Embedding embedding = queryEmbedding != null ? queryEmbedding : embedQuery(query);
 
-            // 1. 构建稠密向量搜索请求
-            AnnSearchReq denseReq = AnnSearchReq.builder()
-                    .vectorFieldName("vector")
-                    .vectors(Collections.singletonList(new FloatVec(queryEmbedding.vector())))
-                    .params("{\"metric_type\": \"COSINE\"}")
-                    .limit(topK * 2) // 增加TopK以供Rerank
-                    .filter(expr)
-                    .build();
-
-            // 2. 构建稀疏向量搜索请求 (使用Milvus直接文本搜索能力进行BM25检索)
-            AnnSearchReq sparseReq = AnnSearchReq.builder()
-                    .vectorFieldName("text_sparse")
-                    .vectors(Collections.singletonList(new EmbeddedText(query)))
-                    .params("{\"metric_type\": \"BM25\"}")
-                    .limit(topK * 2)
-                    .filter(expr)
-                    .build();
-
-            // 3. 构建混合搜索请求
-            HybridSearchReq hybridSearchReq = HybridSearchReq.builder()
+            // 稠密向量 + BM25 混合检索，RRF 重排序（60 为常用的平滑参数 k）
+            List<SearchResp.SearchResult> hits = retrievalBackend.hybridSearch(HybridSearchQuery.builder()
                     .collectionName("yusi_mid_term_memory")
-                    .searchRequests(Arrays.asList(denseReq, sparseReq))
-                    .ranker(RRFRanker.builder().k(60).build()) // RRF重排序，60为常用的平滑参数k
+                    .denseVector(embedding.vector())
+                    .text(query)
+                    .filter(expr)
+                    .candidateLimit(topK * 2) // 增加TopK以供Rerank
                     .limit(Math.max(topK * 3, topK)) // 过滤隐藏/过期记忆后仍尽量填满结果
-                    .outFields(Arrays.asList("text", "metadata"))
-                    .build();
-
-            // 4. 执行混合搜索
-            SearchResp searchResp = milvusClientV2.hybridSearch(hybridSearchReq);
-            List<List<SearchResp.SearchResult>> searchResults = searchResp.getSearchResults();
+                    .outputFields(Arrays.asList("text", "metadata"))
+                    .rrfK(60)
+                    .build());
 
-            if (searchResults == null || searchResults.isEmpty() || searchResults.get(0).isEmpty()) {
+            if (hits.isEmpty()) {
                 log.info("No matching mid-term memory found.");
                 recordSearch("empty", 0, startedAt);
                 return Collections.emptyList();
             }
 
             LocalDateTime now = LocalDateTime.now();
-            List<String> results = searchResults.get(0).stream()
+            List<String> results = hits.stream()
                     .filter(result -> isAvailable(result, userId, now))
                     .map(result -> {
                         Map<String, Object> entity = result.getEntity();
@@ -211,6 +207,13 @@ public class MidTermMemorySearchService {
                 "failure".equals(result) ? "unknown" : "none", elapsedMillis(startedAt), resultCount);
     }
 
+    private Embedding embedQuery(String query) {
+        if (queryEmbeddingCache != null) {
+            return queryEmbeddingCache.embed(query);
+        }
+        return embeddingModel.embed(query).content();
+    }
+
     private long elapsedMillis(long startedAt) {
         return java.util.concurrent.TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
     }
@@ -5,27 +5,36 @@ import com.google.gson.JsonObject;
 import com.aseubel.yusi.pojo.entity.MidTermMemory;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.model.embedding.EmbeddingModel;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.ai.retrieval.MilvusHybridRetrievalBackend;
 import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.service.vector.request.DeleteReq;
-import io.milvus.v2.service.vector.request.InsertReq;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.UUID;
 
-/** 维护中期记忆在 Milvus 中的可检索副本。 */
+/** 维护中期记忆在检索后端（默认 Milvus）中的可检索副本。 */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MidTermMemoryVectorService {
 
     private static final String COLLECTION = "yusi_mid_term_memory";
 
-    private final MilvusClientV2 milvusClientV2;
+    private final HybridRetrievalBackend retrievalBackend;
     private final EmbeddingModel embeddingModel;
 
+    public MidTermMemoryVectorService(MilvusClientV2 milvusClientV2, EmbeddingModel embeddingModel) {
+        this(new MilvusHybridRetrievalBackend(milvusClientV2), embeddingModel);
+    }
+
+    @Autowired
+    public MidTermMemoryVectorService(HybridRetrievalBackend retrievalBackend, EmbeddingModel embeddingModel) {
+        this.retrievalBackend = retrievalBackend;
+        this.embeddingModel = embeddingModel;
+    }
+
     public void upsert(MidTermMemory memory) {
         if (memory == null || memory.getId() == null || memory.getSummary() == null
                 || memory.getSummary().isBlank()) {
@@ -52,19 +61,13 @@ public class MidTermMemoryVectorService {
         row.add("vector", vectorArray);
         row.add("metadata", metadata);
 
-        milvusClientV2.insert(InsertReq.builder()
-                .collectionName(COLLECTION)
-                .data(List.of(row))
-                .build());
+        retrievalBackend.insert(COLLECTION, List.of(row));
     }
 
     public void delete(Long memoryId) {
         if (memoryId == null) {
             return;
         }
-        milvusClientV2.delete(DeleteReq.builder()
-                .collectionName(COLLECTION)
-                .filter("metadata[\"memoryId\"] == '" + memoryId + "'")
-                .build());
+        retrievalBackend.delete(COLLECTION, "metadata[\"memoryId\"] == '" + memoryId + "'");
     }
 }
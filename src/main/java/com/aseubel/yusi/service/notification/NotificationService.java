@@ -57,7 +57,7 @@ public class NotificationService {
      * Creates a typed notification. Runtime producers should use this overload
      * so a new notification type cannot silently drift from the API contract.
      */
-    @UpdateCache(key = "'notifications:user:' + #userId + ':*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:' + #userId + ':'", evictOnly = true)
     public UserNotification createNotification(String userId, UserNotification.NotificationType type,
                                                 String title, String content, String refType, String refId,
                                                 String extraData) {
@@ -66,7 +66,7 @@ public class NotificationService {
     }
 
     /** Creates a notification linked to a durable product event. */
-    @UpdateCache(key = "'notifications:user:' + #userId + ':*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:' + #userId + ':'", evictOnly = true)
     public UserNotification createNotification(String userId, UserNotification.NotificationType type,
                                                 String title, String content, String refType, String refId,
                                                 String extraData, String sourceEventId) {
@@ -115,7 +115,7 @@ public class NotificationService {
     /**
      * 创建合并建议消息
      */
-    @UpdateCache(key = "'notifications:user:' + #userId + ':*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:' + #userId + ':'", evictOnly = true)
     public UserNotification createMergeSuggestionNotification(String userId, Long judgmentId,
                                                                String nameA, String nameB, String type) {
         String title = "发现可能重复的实体";
@@ -131,7 +131,7 @@ public class NotificationService {
     /**
      * 创建系统通知
      */
-    @UpdateCache(key = "'notifications:user:' + #userId + ':*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:' + #userId + ':'", evictOnly = true)
     public UserNotification createSystemNotification(String userId, String title, String content) {
         return createNotification(userId,
                 UserNotification.NotificationType.SYSTEM,
@@ -145,7 +145,7 @@ public class NotificationService {
      * from inbox state so read/delete actions never mutate the source content.
      */
     @Transactional(rollbackFor = Exception.class)
-    @UpdateCache(key = "'notifications:user:*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:'", evictOnly = true)
     public AnnouncementResponse publishAnnouncement(PublishAnnouncementRequest request, String publisherId) {
         if (request == null || request.getTitle() == null || request.getContent() == null) {
             throw new BusinessException(ErrorCode.PARAM_ERROR, "公告标题和内容不能为空");
@@ -243,7 +243,7 @@ public class NotificationService {
     /**
      * 获取用户消息列表（分页）
      */
-    @QueryCache(key = "'notifications:user:' + #userId + ':list:' + #page + ':' + #size + ':' + (#type == null || #type.isBlank() ? 'ALL' : #type.trim().toUpperCase())", ttl = 30)
+    @QueryCache(key = "'notifications:user:' + #userId + ':list:' + #page + ':' + #size + ':' + (#type == null || #type.isBlank() ? 'ALL' : #type.trim().toUpperCase())", ttl = 30, namespaces = {"'notifications:user:'", "'notifications:user:' + #userId + ':'"})
     public Page<UserNotification> getNotifications(String userId, int page, int size, String type) {
         Pageable pageable = PageRequest.of(normalizePage(page), normalizeSize(size));
         String normalizedType = normalizeType(type);
@@ -256,7 +256,7 @@ public class NotificationService {
     /**
      * 获取未读消息
      */
-    @QueryCache(key = "'notifications:user:' + #userId + ':unread'", ttl = 10)
+    @QueryCache(key = "'notifications:user:' + #userId + ':unread'", ttl = 10, namespaces = {"'notifications:user:'", "'notifications:user:' + #userId + ':'"})
     public List<UserNotification> getUnreadNotifications(String userId) {
         return notificationRepository.findByUserIdAndIsReadFalseOrderByCreatedAtDescIdDesc(userId);
     }
@@ -264,7 +264,7 @@ public class NotificationService {
     /**
      * 获取未读消息数量
      */
-    @QueryCache(key = "'notifications:user:' + #userId + ':unread-count'", ttl = 10)
+    @QueryCache(key = "'notifications:user:' + #userId + ':unread-count'", ttl = 10, namespaces = {"'notifications:user:'", "'notifications:user:' + #userId + ':'"})
     public long getUnreadCount(String userId) {
         return notificationRepository.countByUserIdAndIsReadFalse(userId);
     }
@@ -273,7 +273,7 @@ public class NotificationService {
      * 标记消息为已读
      */
     @Transactional
-    @UpdateCache(key = "'notifications:user:' + #userId + ':*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:' + #userId + ':'", evictOnly = true)
     public boolean markAsRead(String userId, Long notificationId) {
         boolean result = notificationRepository.markAsRead(notificationId, userId) > 0;
         return result;
@@ -283,7 +283,7 @@ public class NotificationService {
      * 标记所有消息为已读
      */
     @Transactional
-    @UpdateCache(key = "'notifications:user:' + #userId + ':*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:' + #userId + ':'", evictOnly = true)
     public int markAllAsRead(String userId) {
         return notificationRepository.markAllAsRead(userId);
     }
@@ -292,7 +292,7 @@ public class NotificationService {
      * 删除消息
      */
     @Transactional
-    @UpdateCache(key = "'notifications:user:' + #userId + ':*'", evictOnly = true)
+    @UpdateCache(namespace = "'notifications:user:' + #userId + ':'", evictOnly = true)
     public void deleteNotification(String userId, Long notificationId) {
         notificationRepository.deleteByIdAndUserId(notificationId, userId);
     }
@@ -59,7 +59,7 @@ public class SoulPlazaServiceImpl implements SoulPlazaService {
     private final TaskExecutionService taskExecutionService;
 
     @Override
-    @UpdateCache(key = "'plaza:feed:*'", evictOnly = true)
+    @UpdateCache(namespace = "'plaza:feed:'", evictOnly = true)
     @UpdateCache(key = "'plaza:my:' + #userId + ':*'", evictOnly = true)
     @Transactional
     public SoulCard submitToPlaza(String userId, String content, String originId, CardType type) {
@@ -151,7 +151,7 @@ public class SoulPlazaServiceImpl implements SoulPlazaService {
     }
 
     @Override
-    @QueryCache(key = "'plaza:feed:' + (#userId == null ? 'anonymous' : #userId) + ':' + #page + ':' + #size + ':' + (#emotion == null ? 'All' : #emotion)", ttl = 60)
+    @QueryCache(cacheNames = "plazaFeed", key = "'plaza:feed:' + (#userId == null ? 'anonymous' : #userId) + ':' + #page + ':' + #size + ':' + (#emotion == null ? 'All' : #emotion)", ttl = 60, namespaces = "'plaza:feed:'", localMaxSize = 1000, localTtl = 10)
     public Page<SoulCard> getFeed(String userId, int page, int size, String emotion) {
         PageRequest pageRequest = PageRequest.of(page - 1, size);
         Page<SoulCard> result;
@@ -252,7 +252,7 @@ public class SoulPlazaServiceImpl implements SoulPlazaService {
 
     @Override
     @Transactional
-    @UpdateCache(key = "'plaza:feed:*'", evictOnly = true)
+    @UpdateCache(namespace = "'plaza:feed:'", evictOnly = true)
     @UpdateCache(key = "'plaza:my:' + #userId + ':*'", evictOnly = true)
     public SoulResonance resonate(String userId, Long cardId, ResonanceType type) {
         SoulCard card = cardRepository.findById(cardId)
@@ -291,7 +291,7 @@ public class SoulPlazaServiceImpl implements SoulPlazaService {
 
     @Override
     @Transactional
-    @UpdateCache(key = "'plaza:feed:*'", evictOnly = true)
+    @UpdateCache(namespace = "'plaza:feed:'", evictOnly = true)
     @UpdateCache(key = "'plaza:my:' + #userId + ':*'", evictOnly = true)
     public SoulCard updateCard(String userId, Long cardId, String content) {
         SoulCard card = cardRepository.findById(cardId)
@@ -321,7 +321,7 @@ public class SoulPlazaServiceImpl implements SoulPlazaService {
 
     @Override
     @Transactional
-    @UpdateCache(key = "'plaza:feed:*'", evictOnly = true)
+    @UpdateCache(namespace = "'plaza:feed:'", evictOnly = true)
     @UpdateCache(key = "'plaza:my:' + #userId + ':*'", evictOnly = true)
     public void deleteCard(String userId, Long cardId) {
         SoulCard card = cardRepository.findById(cardId)
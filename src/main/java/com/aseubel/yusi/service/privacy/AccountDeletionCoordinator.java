@@ -98,6 +98,7 @@ public class AccountDeletionCoordinator {
             } else {
                 new TransactionTemplate(transactionManager).executeWithoutResult(status -> deletion.run());
             }
+            evictLocalCaches(targetUserId);
             return DeletionResult.completed(requestId);
         } catch (AccountDeletionFailure failure) {
             markRetry(request, failure.category());
@@ -111,6 +112,15 @@ public class AccountDeletionCoordinator {
         }
     }
 
+    private void evictLocalCaches(String targetUserId) {
+        try {
+            externalPort.evictLocalCaches(targetUserId);
+        } catch (RuntimeException exception) {
+            // The rows are already gone; stale local entries still expire on their own TTL.
+            log.warn("Account deletion cache eviction failed: operation=account_delete_cache_evict");
+        }
+    }
+
     private AccountDeletionRequest createRequest(String requestId, String targetUserId, String adminUserId) {
         AccountDeletionRequest request = AccountDeletionRequest.builder()
                 .requestId(requestId)
@@ -367,6 +377,9 @@ public class AccountDeletionCoordinator {
                 "yusi:match:list:" + userId,
                 "yusi:notifications:user:" + userId + ":unread",
                 "yusi:notifications:user:" + userId + ":unread-count",
+                // Notification caches are keyed by namespace generation; drop the
+                // user's counter and let the versioned entries expire with their TTL.
+                "yusi:cache:ns:notifications:user:" + userId + ":",
                 "yusi:diary:footprints:" + userId)) {
             inventory.addExactRedisKey(key);
         }
@@ -8,4 +8,11 @@ public interface AccountDeletionExternalPort {
     void deleteRedis(AccountDeletionInventory inventory);
 
     void deleteObjects(AccountDeletionInventory inventory);
+
+    /**
+     * Drops in-memory caches derived from the user's data, broadcasting to other instances
+     * where they hold copies; runs after the deletion has committed.
+     */
+    default void evictLocalCaches(String targetUserId) {
+    }
 }
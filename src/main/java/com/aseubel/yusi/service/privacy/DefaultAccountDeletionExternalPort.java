@@ -3,8 +3,12 @@ package com.aseubel.yusi.service.privacy;
 import com.aseubel.yusi.redis.service.IRedisService;
 import com.aseubel.yusi.service.oss.OssService;
 import com.aseubel.yusi.service.user.TokenService;
+import com.aseubel.yusi.service.ai.chat.ChatContextSnapshotCache;
+import com.aseubel.yusi.service.ai.mask.ConversationMaskCache;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.ai.retrieval.MilvusHybridRetrievalBackend;
+import com.aseubel.yusi.service.lifegraph.LifeGraphAdjacencyCache;
 import io.milvus.v2.client.MilvusClientV2;
-import io.milvus.v2.service.vector.request.DeleteReq;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -28,31 +32,72 @@ public class DefaultAccountDeletionExternalPort implements AccountDeletionExtern
     private static final String MID_TERM_COLLECTION = "yusi_mid_term_memory";
     private static final String MATCH_PROFILE_COLLECTION = "yusi_match_profile";
 
-    private final MilvusClientV2 milvusClientV2;
+    private final HybridRetrievalBackend retrievalBackend;
     private final IRedisService redisService;
     private final TokenService tokenService;
     private final OssService ossService;
+    private final ConversationMaskCache conversationMaskCache;
+    private final LifeGraphAdjacencyCache lifeGraphAdjacencyCache;
+    private final ChatContextSnapshotCache chatContextSnapshotCache;
 
     @Autowired
-    public DefaultAccountDeletionExternalPort(MilvusClientV2 milvusClientV2,
+    public DefaultAccountDeletionExternalPort(HybridRetrievalBackend retrievalBackend,
             IRedisService redisService, TokenService tokenService,
-            ObjectProvider<OssService> ossServiceProvider) {
-        this(milvusClientV2, redisService, tokenService,
-                ossServiceProvider == null ? null : ossServiceProvider.getIfAvailable());
+            ObjectProvider<OssService> ossServiceProvider,
+            ObjectProvider<ConversationMaskCache> conversationMaskCacheProvider,
+            ObjectProvider<LifeGraphAdjacencyCache> lifeGraphAdjacencyCacheProvider,
+            ObjectProvider<ChatContextSnapshotCache> chatContextSnapshotCacheProvider) {
+        this(retrievalBackend, redisService, tokenService,
+                ossServiceProvider == null ? null : ossServiceProvider.getIfAvailable(),
+                conversationMaskCacheProvider == null ? null : conversationMaskCacheProvider.getIfAvailable(),
+                lifeGraphAdjacencyCacheProvider == null ? null : lifeGraphAdjacencyCacheProvider.getIfAvailable(),
+                chatContextSnapshotCacheProvider == null ? null : chatContextSnapshotCacheProvider.getIfAvailable());
     }
 
     public DefaultAccountDeletionExternalPort(MilvusClientV2 milvusClientV2,
             IRedisService redisService, TokenService tokenService, OssService ossService) {
-        this.milvusClientV2 = milvusClientV2;
+        this(new MilvusHybridRetrievalBackend(milvusClientV2), redisService, tokenService, ossService);
+    }
+
+    public DefaultAccountDeletionExternalPort(HybridRetrievalBackend retrievalBackend,
+            IRedisService redisService, TokenService tokenService, OssService ossService) {
+        this(retrievalBackend, redisService, tokenService, ossService, null);
+    }
+
+    public DefaultAccountDeletionExternalPort(HybridRetrievalBackend retrievalBackend,
+            IRedisService redisService, TokenService tokenService, OssService ossService,
+            ConversationMaskCache conversationMaskCache) {
+        this(retrievalBackend, redisService, tokenService, ossService, conversationMaskCache, null);
+    }
+
+    public DefaultAccountDeletionExternalPort(HybridRetrievalBackend retrievalBackend,
+            IRedisService redisService, TokenService tokenService, OssService ossService,
+            ConversationMaskCache conversationMaskCache, LifeGraphAdjacencyCache lifeGraphAdjacencyCache) {
+        this(retrievalBackend, redisService, tokenService, ossService, conversationMaskCache,
+                lifeGraphAdjacencyCache, null);
+    }
+
+    public DefaultAccountDeletionExternalPort(HybridRetrievalBackend retrievalBackend,
+            IRedisService redisService, TokenService tokenService, OssService ossService,
+            ConversationMaskCache conversationMaskCache, LifeGraphAdjacencyCache lifeGraphAdjacencyCache,
+            ChatContextSnapshotCache chatContextSnapshotCache) {
+        this.retrievalBackend = retrievalBackend;
         this.redisService = redisService;
         this.tokenService = tokenService;
         this.ossService = ossService;
+        this.conversationMaskCache = conversationMaskCache;
+        this.lifeGraphAdjacencyCache = lifeGraphAdjacencyCache;
+        this.chatContextSnapshotCache = chatContextSnapshotCache;
     }
 
     @Override
     public void deleteMilvus(AccountDeletionInventory inventory) {
         String targetUserId = escapeFilterValue(inventory.targetUserId());
         deleteCollection(EMBEDDING_COLLECTION, "metadata[\"userId\"] == \"" + targetUserId + "\"");
+        // Rebuild shadows and the rollback generation behind the alias hold the same user rows.
+        for (String generation : embeddingGenerations()) {
+            deleteCollection(generation, "metadata[\"userId\"] == \"" + targetUserId + "\"");
+        }
         deleteCollection(MID_TERM_COLLECTION, "metadata[\"userId\"] == \"" + targetUserId + "\"");
         deleteCollection(MATCH_PROFILE_COLLECTION,
                 "id == \"" + targetUserId + "\" || metadata[\"userId\"] == \"" + targetUserId + "\"");
@@ -64,6 +109,8 @@ public class DefaultAccountDeletionExternalPort implements AccountDeletionExtern
         tokenService.deleteRefreshToken(targetUserId);
         tokenService.removeAllDeviceTokens(targetUserId);
         redisService.remove("yusi:langchain:" + targetUserId);
+        redisService.remove("yusi:langchain:" + targetUserId + ":messages");
+        redisService.remove("yusi:langchain:" + targetUserId + ":hashes");
         redisService.remove(VIOLATION_KEY_PREFIX + targetUserId);
 
         for (AccountDeletionInventory.UsageField usageField : inventory.usageFields()) {
@@ -74,6 +121,21 @@ public class DefaultAccountDeletionExternalPort implements AccountDeletionExtern
         }
     }
 
+    @Override
+    public void evictLocalCaches(String targetUserId) {
+        if (conversationMaskCache != null) {
+            conversationMaskCache.invalidateUser(targetUserId);
+        }
+        // life_graph 表由原生 SQL 批量删除，不经过图谱变更事件，需显式丢弃各实例的邻接缓存
+        if (lifeGraphAdjacencyCache != null) {
+            lifeGraphAdjacencyCache.invalidate(targetUserId);
+        }
+        // 用户画像、中期记忆等快照同样来自被原生 SQL 删除的行，不会收到上下文变更事件
+        if (chatContextSnapshotCache != null) {
+            chatContextSnapshotCache.invalidate(targetUserId);
+        }
+    }
+
     @Override
     public void deleteObjects(AccountDeletionInventory inventory) {
         if (ossService == null) {
@@ -129,11 +191,14 @@ public class DefaultAccountDeletionExternalPort implements AccountDeletionExtern
         }
     }
 
+    private List<String> embeddingGenerations() {
+        return retrievalBackend.listCollections().stream()
+                .filter(name -> name.startsWith(EMBEDDING_COLLECTION + "_"))
+                .toList();
+    }
+
     private void deleteCollection(String collectionName, String filter) {
-        milvusClientV2.delete(DeleteReq.builder()
-                .collectionName(collectionName)
-                .filter(filter)
-                .build());
+        retrievalBackend.delete(collectionName, filter);
     }
 
     private String escapeFilterValue(String value) {
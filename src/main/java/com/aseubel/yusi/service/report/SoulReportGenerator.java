@@ -3,6 +3,7 @@ package com.aseubel.yusi.service.report;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.aseubel.yusi.common.constant.PromptKey;
+import com.aseubel.yusi.common.task.BatchJobEngine;
 import com.aseubel.yusi.pojo.constant.TaskExecutionKeys;
 import com.aseubel.yusi.pojo.constant.TaskExecutionSourceType;
 import com.aseubel.yusi.pojo.constant.TaskFailureCategory;
@@ -49,6 +50,8 @@ public class SoulReportGenerator {
     private static final String WORKER_ID = "weekly-report";
     private static final String RUN_SCENE = "weekly_report";
     private static final String REPORT_SOURCE_ID = "weekly";
+    /** 与调度锁同名，断点和指标都按此归档 */
+    public static final String JOB_NAME = "weekly-report";
 
     private final SoulReportRepository reportRepository;
     @Qualifier("chatModel")
@@ -63,12 +66,14 @@ public class SoulReportGenerator {
     private final NotificationService notificationService;
     private final TaskExecutionService taskExecutionService;
     private final AgentRunTraceService agentRunTraceService;
+    private final BatchJobEngine batchJobEngine;
 
     /** 单次扫描最大处理用户数 */
     private static final int MAX_BATCH_SIZE = 50;
 
     /**
      * 每周日晚上 22:00 执行周报生成。
+     * 用户按 userId 升序交给 {@link BatchJobEngine} 并发处理，leader 宕机后从断点继续。
      */
     public void generateWeeklyReports() {
         log.info("开始生成灵魂周报...");
@@ -77,91 +82,97 @@ public class SoulReportGenerator {
             LocalDate periodEnd = LocalDate.now();
             String batchId = IdUtil.fastSimpleUUID();
             List<User> matchEnabledUsers = userService.getMatchEnabledUsers();
-            int processed = 0;
 
-            for (User user : matchEnabledUsers) {
-                if (processed >= MAX_BATCH_SIZE) {
-                    break;
-                }
-                String userId = user.getUserId();
-                if (!isWeeklyReportEnabled(userId)) {
-                    continue;
-                }
-                if (reportRepository.existsByUserIdAndReportTypeAndPeriodStart(
-                        userId, SoulReportType.WEEKLY.code(), periodStart)) {
-                    continue;
-                }
+            BatchJobEngine.Result result = batchJobEngine.run(JOB_NAME, periodStart.toString(), matchEnabledUsers,
+                    User::getUserId, MAX_BATCH_SIZE, user -> generateForUser(user, periodStart, periodEnd));
 
-                TaskExecution execution = null;
-                AgentRunTraceService.RunScope scope = null;
-                try {
-                    String sourceId = userId + ":" + periodStart;
-                    String requestedRunId = IdUtil.fastSimpleUUID();
-                    execution = taskExecutionService.createOrGet(TaskExecutionCommand.builder()
-                            .taskType(TaskExecutionType.WEEKLY_REPORT)
-                            .ownerUserId(userId)
-                            .sourceType(TaskExecutionSourceType.WEEKLY_REPORT.code())
-                            .sourceId(sourceId)
-                            .sourceVersion(periodEnd.toString())
-                            .runId(requestedRunId)
-                            .idempotencyKey(TaskExecutionKeys.daily(TaskExecutionType.WEEKLY_REPORT,
-                                    userId, REPORT_SOURCE_ID, periodStart))
-                            .build());
+            log.info("灵魂周报生成完成，共生成 {} 份，batchId={}", result.processed(), batchId);
+        } catch (Exception e) {
+            log.error("灵魂周报批量生成异常", e);
+        }
+    }
+
+    /**
+     * 为单个用户生成周报，返回是否实际生成了一份
+     */
+    private boolean generateForUser(User user, LocalDate periodStart, LocalDate periodEnd) {
+        String userId = user.getUserId();
+        if (!isWeeklyReportEnabled(userId)) {
+            return false;
+        }
+        if (reportRepository.existsByUserIdAndReportTypeAndPeriodStart(
+                userId, SoulReportType.WEEKLY.code(), periodStart)) {
+            return false;
+        }
 
-                    if (execution == null || taskExecutionService.isTerminal(execution.getStatus())) {
-                        continue;
-                    }
-                    if (StrUtil.isBlank(execution.getRunId())) {
-                        execution = taskExecutionService.ensureRunId(execution.getTaskId(), requestedRunId);
-                    }
-                    String runId = StrUtil.blankToDefault(
-                            execution == null ? null : execution.getRunId(), requestedRunId);
-                    execution = taskExecutionService.claim(
-                            execution.getTaskId(), WORKER_ID, LocalDateTime.now()).orElse(null);
-                    if (execution == null) {
-                        continue;
-                    }
-                    runId = StrUtil.blankToDefault(execution.getRunId(), runId);
-                    scope = agentRunTraceService.open(userId, runId, RUN_SCENE);
+        TaskExecution execution = null;
+        AgentRunTraceService.RunScope scope = null;
+        try {
+            String sourceId = userId + ":" + periodStart;
+            String requestedRunId = IdUtil.fastSimpleUUID();
+            execution = taskExecutionService.createOrGet(TaskExecutionCommand.builder()
+                    .taskType(TaskExecutionType.WEEKLY_REPORT)
+                    .ownerUserId(userId)
+                    .sourceType(TaskExecutionSourceType.WEEKLY_REPORT.code())
+                    .sourceId(sourceId)
+                    .sourceVersion(periodEnd.toString())
+                    .runId(requestedRunId)
+                    .idempotencyKey(TaskExecutionKeys.daily(TaskExecutionType.WEEKLY_REPORT,
+                            userId, REPORT_SOURCE_ID, periodStart))
+                    .build());
 
-                    // Check if there is any activity this week (diaries or chats)
-                    LocalDateTime start = periodStart.atStartOfDay();
-                    LocalDateTime end = periodEnd.plusDays(1).atStartOfDay();
-                    long diaryCount = diaryRepository.countByUserIdAndDateRange(userId, start, end);
-                    long chatCount = chatMemoryMessageRepository.countByMemoryIdAndCreatedAtBetween(userId, start, end);
-                    if (diaryCount == 0 && chatCount == 0) {
-                        log.info("用户 {} 本周无任何活动，跳过周报生成", userId);
-                        taskExecutionService.succeed(execution.getTaskId(), null, LocalDateTime.now());
-                        scope.complete();
-                        continue;
-                    }
+            if (execution == null || taskExecutionService.isTerminal(execution.getStatus())) {
+                return false;
+            }
+            if (StrUtil.isBlank(execution.getRunId())) {
+                execution = taskExecutionService.ensureRunId(execution.getTaskId(), requestedRunId);
+            }
+            String runId = StrUtil.blankToDefault(
+                    execution == null ? null : execution.getRunId(), requestedRunId);
+            execution = taskExecutionService.claim(
+                    execution.getTaskId(), WORKER_ID, LocalDateTime.now()).orElse(null);
+            if (execution == null) {
+                return false;
+            }
+            runId = StrUtil.blankToDefault(execution.getRunId(), runId);
+            scope = agentRunTraceService.open(userId, runId, RUN_SCENE);
 
-                    SoulReport report = generateReport(user, periodStart, periodEnd,
-                            runId, execution.getTaskId());
-                    reportRepository.save(report);
-                    notifyUser(userId, report);
-                    taskExecutionService.succeed(execution.getTaskId(), null, LocalDateTime.now());
-                    scope.complete();
-                    processed++;
-                } catch (Exception e) {
-                    if (execution != null) {
-                        taskExecutionService.fail(execution.getTaskId(), TaskFailureCategory.DEPENDENCY,
-                                null, LocalDateTime.now());
-                    }
-                    if (scope != null) {
-                        scope.fail(TaskFailureCategory.DEPENDENCY.name().toLowerCase());
-                    }
-                    log.warn("为用户 {} 生成周报失败", userId, e);
-                } finally {
-                    if (scope != null) {
-                        scope.close();
-                    }
-                }
+            // Check if there is any activity this week (diaries or chats)
+            LocalDateTime start = periodStart.atStartOfDay();
+            LocalDateTime end = periodEnd.plusDays(1).atStartOfDay();
+            long diaryCount = diaryRepository.countByUserIdAndDateRange(userId, start, end);
+            long chatCount = chatMemoryMessageRepository.countByMemoryIdAndCreatedAtBetween(userId, start, end);
+            if (diaryCount == 0 && chatCount == 0) {
+                log.info("用户 {} 本周无任何活动，跳过周报生成", userId);
+                taskExecutionService.succeed(execution.getTaskId(), null, LocalDateTime.now());
+                scope.complete();
+                return false;
             }
 
-            log.info("灵魂周报生成完成，共生成 {} 份，batchId={}", processed, batchId);
+            // 任务已被本节点抢占，只重试可重放的模型调用，避免重复抢占
+            String generationRunId = runId;
+            String taskExecutionId = execution.getTaskId();
+            SoulReport report = batchJobEngine.withRetry(JOB_NAME,
+                    () -> generateReport(user, periodStart, periodEnd, generationRunId, taskExecutionId));
+            reportRepository.save(report);
+            notifyUser(userId, report);
+            taskExecutionService.succeed(execution.getTaskId(), null, LocalDateTime.now());
+            scope.complete();
+            return true;
         } catch (Exception e) {
-            log.error("灵魂周报批量生成异常", e);
+            if (execution != null) {
+                taskExecutionService.fail(execution.getTaskId(), TaskFailureCategory.DEPENDENCY,
+                        null, LocalDateTime.now());
+            }
+            if (scope != null) {
+                scope.fail(TaskFailureCategory.DEPENDENCY.name().toLowerCase());
+            }
+            log.warn("为用户 {} 生成周报失败", userId, e);
+            return false;
+        } finally {
+            if (scope != null) {
+                scope.close();
+            }
         }
     }
 
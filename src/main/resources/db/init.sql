@@ -643,6 +643,7 @@ CREATE TABLE `life_graph_task` (
     `next_retry_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '下次重试时间',
     PRIMARY KEY (`id`),
     KEY `idx_life_graph_task_status` (`status`),
+    KEY `idx_life_graph_task_user_status` (`user_id`, `status`),
     KEY `idx_life_graph_task_diary_id` (`diary_id`),
     KEY `idx_life_graph_task_trigger_event` (`trigger_event_id`),
     KEY `idx_life_graph_task_execution` (`task_execution_id`),
@@ -0,0 +1,2 @@
+ALTER TABLE `life_graph_task`
+    ADD KEY `idx_life_graph_task_user_status` (`user_id`, `status`);
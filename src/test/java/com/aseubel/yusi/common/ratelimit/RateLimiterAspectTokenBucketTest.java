@@ -0,0 +1,228 @@
+package com.aseubel.yusi.common.ratelimit;
+
+import com.aseubel.yusi.common.exception.RateLimitException;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.redis.service.IRedisService;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimiterAspectTokenBucketTest {
+
+    private final FakeRedis redis = new FakeRedis();
+    private final YusiMetrics metrics = mock(YusiMetrics.class);
+    private final RateLimiterAspect aspect = new RateLimiterAspect();
+    private final JoinPoint point = joinPoint();
+
+    RateLimiterAspectTokenBucketTest() {
+        ReflectionTestUtils.setField(aspect, "redisService", redis.service);
+        ReflectionTestUtils.setField(aspect, "metrics", metrics);
+    }
+
+    @Test
+    void burstIsCappedAtCountWithOneRoundTripPerRequest() {
+        RateLimiter annotation = annotation(10, 1);
+
+        int admitted = admit(annotation, 15);
+
+        assertThat(admitted).isEqualTo(10);
+        assertThat(redis.scriptCalls.get()).isEqualTo(15);
+        verify(metrics, times(5)).recordRateLimited("burst", "limit_exceeded");
+    }
+
+    @Test
+    void steadyStateAdmitsConfiguredRate() {
+        RateLimiter annotation = annotation(10, 1);
+        admit(annotation, 10);
+
+        // 按限流速率到达：每 100ms 补一个令牌，全部放行
+        int paced = 0;
+        for (int i = 0; i < 50; i++) {
+            redis.advance(100);
+            paced += admit(annotation, 1);
+        }
+        // 两倍速率到达：只放行一半
+        int doubled = 0;
+        for (int i = 0; i < 40; i++) {
+            redis.advance(50);
+            doubled += admit(annotation, 1);
+        }
+
+        assertThat(paced).isEqualTo(50);
+        assertThat(doubled).isEqualTo(20);
+    }
+
+    @Test
+    void overloadedLongRunStaysWithinOnePermitOfBucketBound() {
+        RateLimiter annotation = annotation(30, 60);
+        Random random = new Random(42);
+        long elapsed = 0;
+        int admitted = 0;
+        // 平均每 200ms 一次请求，约为限流速率（0.5/s）的 10 倍，持续 10 分钟
+        while (elapsed < 600_000) {
+            long gap = random.nextInt(400);
+            redis.advance(gap);
+            elapsed += gap;
+            admitted += admit(annotation, 1);
+        }
+
+        double bound = 30 + elapsed * 30.0 / 60_000;
+        assertThat((double) admitted).isLessThanOrEqualTo(bound).isCloseTo(bound, within(1.0));
+    }
+
+    @Test
+    void idleBucketExpiresAfterRefillWindow() {
+        RateLimiter annotation = annotation(5, 2);
+        admit(annotation, 5);
+
+        assertThat(redis.expireMillis).containsValue(2000L);
+        redis.advance(2000);
+
+        assertThat(admit(annotation, 6)).isEqualTo(5);
+    }
+
+    @Test
+    void redisFailureDegradesToBoundedLocalLimiter() {
+        RateLimiter annotation = annotation(2, 1);
+        redis.down = true;
+
+        int admitted = admit(annotation, 5);
+
+        assertThat(admitted).isBetween(1, 2);
+        // 降级期间不再每次请求都访问 Redis
+        assertThat(redis.scriptCalls.get()).isEqualTo(1);
+        verify(metrics, atLeastOnce()).recordRateLimited("burst", "dependency");
+    }
+
+    private int admit(RateLimiter annotation, int requests) {
+        int admitted = 0;
+        for (int i = 0; i < requests; i++) {
+            try {
+                aspect.doBefore(point, annotation);
+                admitted++;
+            } catch (RateLimitException ignored) {
+                // 被限流
+            }
+        }
+        return admitted;
+    }
+
+    private static RateLimiter annotation(int count, int time) {
+        return new RateLimiter() {
+            @Override
+            public String key() {
+                return "burst";
+            }
+
+            @Override
+            public int time() {
+                return time;
+            }
+
+            @Override
+            public int count() {
+                return count;
+            }
+
+            @Override
+            public LimitType limitType() {
+                return LimitType.DEFAULT;
+            }
+
+            @Override
+            public Class<? extends java.lang.annotation.Annotation> annotationType() {
+                return RateLimiter.class;
+            }
+        };
+    }
+
+    private static JoinPoint joinPoint() {
+        MethodSignature signature = mock(MethodSignature.class);
+        Method method = SampleController.class.getDeclaredMethods()[0];
+        when(signature.getMethod()).thenReturn(method);
+        JoinPoint point = mock(JoinPoint.class);
+        when(point.getSignature()).thenReturn(signature);
+        return point;
+    }
+
+    private static final class SampleController {
+        @SuppressWarnings("unused")
+        private void operation() {
+        }
+    }
+
+    /**
+     * 按 {@link RateLimiterAspect#TOKEN_BUCKET_SH} 的语义模拟 Redis，时间由测试推进
+     */
+    private static final class FakeRedis {
+
+        private final Map<String, double[]> buckets = new HashMap<>();
+        private final Map<String, Long> expireAt = new HashMap<>();
+        private final Map<String, Long> expireMillis = new HashMap<>();
+        private final AtomicInteger scriptCalls = new AtomicInteger();
+        private final IRedisService service = mock(IRedisService.class);
+        private long now = 1_700_000_000_000L;
+        private boolean down;
+
+        private FakeRedis() {
+            when(service.execute(anyString(), eq(RateLimiterAspect.TOKEN_BUCKET_SH), eq(RScript.ReturnType.INTEGER),
+                    anyList(), any(Object[].class))).thenAnswer(invocation -> {
+                        scriptCalls.incrementAndGet();
+                        if (down) {
+                            throw new IllegalStateException("redis down");
+                        }
+                        Object[] arguments = invocation.getArguments();
+                        Object[] args = arguments.length == 5 && arguments[4] instanceof Object[] array
+                                ? array : Arrays.copyOfRange(arguments, 4, arguments.length);
+                        List<Object> keys = invocation.getArgument(3);
+                        return acquire((String) keys.get(0), Double.parseDouble(String.valueOf(args[0])),
+                                Long.parseLong(String.valueOf(args[1])));
+                    });
+        }
+
+        private void advance(long millis) {
+            now += millis;
+        }
+
+        private long acquire(String key, double capacity, long windowMillis) {
+            Long deadline = expireAt.get(key);
+            if (deadline != null && now >= deadline) {
+                buckets.remove(key);
+            }
+            double[] state = buckets.get(key);
+            double tokens = state == null ? capacity
+                    : Math.min(capacity, state[0] + Math.max(0, now - state[1]) * capacity / windowMillis);
+            long allowed = 0;
+            if (tokens >= 1) {
+                tokens -= 1;
+                allowed = 1;
+            }
+            buckets.put(key, new double[] { tokens, now });
+            expireAt.put(key, now + windowMillis);
+            expireMillis.put(key, windowMillis);
+            return allowed;
+        }
+    }
+}
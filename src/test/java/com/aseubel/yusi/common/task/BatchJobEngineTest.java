@@ -0,0 +1,245 @@
+package com.aseubel.yusi.common.task;
+
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.redis.service.IRedisService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchJobEngineTest {
+
+    private static final String JOB = "weekly-report";
+
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+    private final IRedisService redisService = mock(IRedisService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    BatchJobEngineTest() {
+        when(redisService.getValue(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> {
+            redis.put(invocation.getArgument(0), copy(invocation.getArgument(1)));
+            return null;
+        }).when(redisService).setValue(anyString(), any(), anyLong());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void runsItemsInParallelUpToTheConcurrencyLimit() {
+        BatchJobEngine engine = engine(3, 1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        BatchJobEngine.Result result = engine.run(JOB, "2026-10-11", users(20), Function.identity(), 100, user -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            TimeUnit.MILLISECONDS.sleep(10);
+            running.decrementAndGet();
+            return true;
+        });
+
+        assertThat(result.processed()).isEqualTo(20);
+        assertThat(peak.get()).isBetween(2, 3);
+        BatchJobCheckpoint checkpoint = engine.currentCheckpoint(JOB);
+        assertThat(checkpoint.getStatus()).isEqualTo(BatchJobCheckpoint.Status.DONE);
+        assertThat(checkpoint.getCursor()).isEqualTo("u19");
+        assertThat(registry.get("batch_job_item_latency").tag("operation", JOB).tag("result", "success").timer()
+                .count()).isEqualTo(20);
+        assertThat(registry.get("batch_job_run_items").tag("operation", JOB).summary().totalAmount())
+                .isEqualTo(20.0);
+    }
+
+    @Test
+    void failingItemIsRetriedAndExhaustedRetriesDoNotStopTheRun() {
+        BatchJobEngine engine = engine(2, 3);
+        Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+        BatchJobEngine.Result result = engine.run(JOB, "2026-10-11", List.of("flaky", "broken", "ok"),
+                Function.identity(), 100, user -> {
+                    int attempt = attempts.computeIfAbsent(user, ignored -> new AtomicInteger()).incrementAndGet();
+                    if ("broken".equals(user) || ("flaky".equals(user) && attempt < 3)) {
+                        throw new IllegalStateException("model unavailable");
+                    }
+                    return true;
+                });
+
+        assertThat(result.processed()).isEqualTo(2);
+        assertThat(result.failed()).isEqualTo(1);
+        assertThat(attempts.get("flaky")).hasValue(3);
+        assertThat(attempts.get("broken")).hasValue(3);
+        assertThat(attempts.get("ok")).hasValue(1);
+        assertThat(registry.get("batch_job_item_retries_total").tag("operation", JOB).counter().count())
+                .isEqualTo(4.0);
+        // 失败的条目同样推进游标，续跑时不会反复卡在同一个用户上
+        assertThat(engine.currentCheckpoint(JOB).getCursor()).isEqualTo("ok");
+    }
+
+    @Test
+    void unfinishedRunResumesAfterTheCursorInsteadOfRestarting() {
+        BatchJobCheckpoint crashed = new BatchJobCheckpoint();
+        crashed.setRunKey("2026-10-11");
+        crashed.setStatus(BatchJobCheckpoint.Status.RUNNING);
+        crashed.setCursor("u04");
+        crashed.setProcessed(3);
+        crashed.setSkipped(2);
+        crashed.setFailed(0);
+        redis.put(BatchJobEngine.CHECKPOINT_PREFIX + JOB, crashed);
+        BatchJobEngine engine = engine(2, 1);
+        assertThat(engine.hasUnfinishedRun(JOB)).isTrue();
+        Set<String> handled = ConcurrentHashMap.newKeySet();
+
+        BatchJobEngine.Result result = engine.run(JOB, "2026-10-11", padded(8), Function.identity(), 100, user -> {
+            handled.add(user);
+            return true;
+        });
+
+        assertThat(result.resumed()).isTrue();
+        assertThat(handled).containsExactlyInAnyOrder("u05", "u06", "u07");
+        assertThat(result.processed()).isEqualTo(6);
+        assertThat(engine.hasUnfinishedRun(JOB)).isFalse();
+
+        // 批次变化后旧断点作废，从头开始
+        handled.clear();
+        BatchJobEngine.Result nextWeek = engine.run(JOB, "2026-10-18", padded(8), Function.identity(), 100,
+                user -> handled.add(user));
+        assertThat(nextWeek.resumed()).isFalse();
+        assertThat(handled).hasSize(8);
+    }
+
+    @Test
+    void cursorOnlyAdvancesPastContiguouslyCompletedItems() throws Exception {
+        BatchJobEngine engine = engine(2, 1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+        List<String> cursorWhileFirstBlocked = new ArrayList<>();
+
+        Thread runner = new Thread(() -> engine.run(JOB, "2026-10-11", List.of("a", "b"), Function.identity(), 100,
+                user -> {
+                    if ("a".equals(user)) {
+                        releaseFirst.await(5, TimeUnit.SECONDS);
+                    } else {
+                        secondDone.countDown();
+                    }
+                    return true;
+                }));
+        runner.start();
+        assertThat(secondDone.await(5, TimeUnit.SECONDS)).isTrue();
+        TimeUnit.MILLISECONDS.sleep(50);
+        cursorWhileFirstBlocked.add(String.valueOf(engine.currentCheckpoint(JOB).getCursor()));
+        releaseFirst.countDown();
+        runner.join(5000);
+
+        assertThat(cursorWhileFirstBlocked).containsExactly("null");
+        assertThat(engine.currentCheckpoint(JOB).getCursor()).isEqualTo("b");
+    }
+
+    @Test
+    void limitCountsOnlyProducedItemsAndIsNeverExceededByInFlightWork() {
+        BatchJobEngine engine = engine(4, 1);
+        AtomicInteger produced = new AtomicInteger();
+
+        BatchJobEngine.Result result = engine.run(JOB, "2026-10-11", users(30), Function.identity(), 5, user -> {
+            // 偶数用户条件不满足被跳过，不占单轮上限
+            if (Integer.parseInt(user.substring(1)) % 2 == 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(5);
+            produced.incrementAndGet();
+            return true;
+        });
+
+        assertThat(result.processed()).isEqualTo(5);
+        assertThat(produced.get()).isEqualTo(5);
+        assertThat(engine.currentCheckpoint(JOB).getStatus()).isEqualTo(BatchJobCheckpoint.Status.DONE);
+    }
+
+    @Test
+    void everyConcurrencySlotIsFilledWhileModelCallsAreInFlight() throws Exception {
+        BatchJobEngine engine = engine(4, 1);
+        CountDownLatch allStarted = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicReference<BatchJobEngine.Result> result = new AtomicReference<>();
+
+        Thread runner = new Thread(() -> result.set(engine.run(JOB, "2026-10-11", users(12), Function.identity(),
+                100, user -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    allStarted.countDown();
+                    boolean released = release.await(5, TimeUnit.SECONDS);
+                    running.decrementAndGet();
+                    return released;
+                })));
+        runner.start();
+        // 4 个条目都卡在模型调用里时仍能同时开始，说明串行等待已被并发槽位取代
+        assertThat(allStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        runner.join(5000);
+
+        assertThat(peak.get()).isEqualTo(4);
+        assertThat(result.get().processed()).isEqualTo(12);
+    }
+
+    private BatchJobEngine engine(int concurrency, int maxAttempts) {
+        return new BatchJobEngine(redisService, pool, new YusiMetrics(registry), concurrency, maxAttempts, 0L);
+    }
+
+    private static List<String> users(int count) {
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(String.format("u%02d", i));
+        }
+        return users;
+    }
+
+    private static List<String> padded(int count) {
+        List<String> users = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            users.add(String.format("u%02d", i));
+        }
+        return users;
+    }
+
+    /**
+     * 模拟 Redis 序列化：保存的是当时的快照，而不是引擎持有的可变对象
+     */
+    private static Object copy(Object value) {
+        if (!(value instanceof BatchJobCheckpoint source)) {
+            return value;
+        }
+        BatchJobCheckpoint copy = new BatchJobCheckpoint();
+        copy.setRunKey(source.getRunKey());
+        copy.setStatus(source.getStatus());
+        copy.setCursor(source.getCursor());
+        copy.setProcessed(source.getProcessed());
+        copy.setSkipped(source.getSkipped());
+        copy.setFailed(source.getFailed());
+        copy.setStartedAt(source.getStartedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+}
@@ -0,0 +1,178 @@
+package com.aseubel.yusi.common.task;
+
+import com.aseubel.yusi.common.event.TaskEnqueuedEvent;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TaskWakeupTest {
+
+    private static final long TICK = 100;
+
+    private final List<MessageListener<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Test
+    void emptyQueueBacksOffUntilMaxInterval() {
+        TaskWakeup wakeup = new TaskWakeup(null, "yusi:", 1000, 8000);
+        long now = 0;
+
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, now)).isTrue();
+        wakeup.completed(TaskWakeup.EMBEDDING, 0, now);
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, now + 999)).isFalse();
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, now + 1000)).isTrue();
+
+        for (int i = 0; i < 6; i++) {
+            wakeup.completed(TaskWakeup.EMBEDDING, 0, now);
+        }
+        assertThat(wakeup.interval(TaskWakeup.EMBEDDING)).isEqualTo(8000);
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, now + 7999)).isFalse();
+
+        // 抢到任务后立即继续取，间隔回到下限
+        wakeup.completed(TaskWakeup.EMBEDDING, 3, now);
+        assertThat(wakeup.interval(TaskWakeup.EMBEDDING)).isEqualTo(1000);
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, now)).isTrue();
+    }
+
+    @Test
+    void enqueueWakesBackedOffWorkerOnTheNextTick() {
+        TaskWakeup wakeup = new TaskWakeup(null, "yusi:", 1000, 30_000);
+        for (int i = 0; i < 10; i++) {
+            wakeup.completed(TaskWakeup.LIFE_GRAPH, 0, 0);
+        }
+        assertThat(wakeup.shouldPoll(TaskWakeup.LIFE_GRAPH, 5000)).isFalse();
+
+        wakeup.onTaskEnqueued(new TaskEnqueuedEvent(this, TaskWakeup.LIFE_GRAPH));
+
+        assertThat(wakeup.shouldPoll(TaskWakeup.LIFE_GRAPH, 5000)).isTrue();
+        assertThat(wakeup.interval(TaskWakeup.LIFE_GRAPH)).isEqualTo(1000);
+        // 另一个队列不受影响
+        wakeup.completed(TaskWakeup.EMBEDDING, 0, 0);
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, 500)).isFalse();
+    }
+
+    @Test
+    void signalDuringRunningPollIsNotLost() {
+        TaskWakeup wakeup = new TaskWakeup(null, "yusi:", 1000, 30_000);
+
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, 0)).isTrue();
+        // 抢占查询已经返回空，通知在本轮结束前到达
+        wakeup.signal(TaskWakeup.EMBEDDING);
+        wakeup.completed(TaskWakeup.EMBEDDING, 0, 50);
+
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, 150)).isTrue();
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, 250)).isFalse();
+    }
+
+    @Test
+    void enqueueOnOneNodeWakesWorkersOnOtherNodes() {
+        TaskWakeup producer = node();
+        TaskWakeup consumer = node();
+        for (TaskWakeup node : List.of(producer, consumer)) {
+            for (int i = 0; i < 10; i++) {
+                node.completed(TaskWakeup.EMBEDDING, 0, 0);
+            }
+        }
+
+        producer.onTaskEnqueued(new TaskEnqueuedEvent(this, TaskWakeup.EMBEDDING));
+
+        assertThat(producer.shouldPoll(TaskWakeup.EMBEDDING, 1)).isTrue();
+        assertThat(consumer.shouldPoll(TaskWakeup.EMBEDDING, 1)).isTrue();
+    }
+
+    @Test
+    void unknownQueuesFromTheChannelAreIgnored() {
+        TaskWakeup wakeup = node();
+        wakeup.completed(TaskWakeup.EMBEDDING, 0, 0);
+
+        listeners.forEach(listener -> listener.onMessage("yusi:task:wakeup", "bogus"));
+        listeners.forEach(listener -> listener.onMessage("yusi:task:wakeup", null));
+        wakeup.onTaskEnqueued(new TaskEnqueuedEvent(this, null));
+
+        assertThat(wakeup.shouldPoll(TaskWakeup.EMBEDDING, 1)).isFalse();
+    }
+
+    @Test
+    void pickupLatencyStartsWhenTheTaskBecomesDue() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 7, 1, 12, 0);
+
+        assertThat(TaskWakeup.pickupLatencyMillis(createdAt, createdAt, createdAt.plusNanos(80_000_000)))
+                .isEqualTo(80);
+        // 重试任务不把退避等待算进取件延迟
+        assertThat(TaskWakeup.pickupLatencyMillis(createdAt, createdAt.plusMinutes(5),
+                createdAt.plusMinutes(5).plusSeconds(2))).isEqualTo(2000);
+        assertThat(TaskWakeup.pickupLatencyMillis(null, null, createdAt)).isZero();
+    }
+
+    @Test
+    void simulatedHourPicksUpWithinATickUsingAThirdOfFixedPolling() {
+        long hour = 3_600_000;
+        Random random = new Random(7);
+        long[] arrivals = new long[120];
+        for (int i = 0; i < arrivals.length; i++) {
+            arrivals[i] = (long) (random.nextDouble() * hour);
+        }
+        Arrays.sort(arrivals);
+
+        // 旧实现：每秒固定查一次库
+        long fixedPolls = hour / 1000;
+
+        TaskWakeup wakeup = new TaskWakeup(null, "yusi:", 1000, 30_000);
+        long wakeupPolls = 0;
+        long wakeupLatency = 0;
+        int next = 0;
+        int pending = 0;
+        long[] queued = new long[arrivals.length];
+        for (long now = 0; now < hour; now += TICK) {
+            while (next < arrivals.length && arrivals[next] <= now) {
+                queued[pending++] = arrivals[next++];
+                wakeup.onTaskEnqueued(new TaskEnqueuedEvent(this, TaskWakeup.EMBEDDING));
+            }
+            if (!wakeup.shouldPoll(TaskWakeup.EMBEDDING, now)) {
+                continue;
+            }
+            wakeupPolls++;
+            for (int i = 0; i < pending; i++) {
+                wakeupLatency += now - queued[i];
+            }
+            wakeup.completed(TaskWakeup.EMBEDDING, pending, now);
+            pending = 0;
+        }
+
+        // 时间由循环推进，不依赖真实时钟：任务入队后平均在一个 tick 内被取走
+        assertThat(wakeupLatency).isLessThanOrEqualTo(TICK * arrivals.length);
+        assertThat(wakeupPolls).isLessThan(fixedPolls / 3);
+    }
+
+    @SuppressWarnings("unchecked")
+    private TaskWakeup node() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        RTopic topic = mock(RTopic.class);
+        when(redissonClient.getTopic(anyString(), eq(StringCodec.INSTANCE))).thenReturn(topic);
+        when(topic.addListener(eq(String.class), any(MessageListener.class))).thenAnswer(invocation -> {
+            listeners.add(invocation.getArgument(1));
+            return 1;
+        });
+        when(topic.publish(any())).thenAnswer(invocation -> {
+            listeners.forEach(listener -> listener.onMessage("yusi:task:wakeup", invocation.getArgument(0)));
+            return (long) listeners.size();
+        });
+        TaskWakeup wakeup = new TaskWakeup(redissonClient);
+        wakeup.init();
+        return wakeup;
+    }
+}
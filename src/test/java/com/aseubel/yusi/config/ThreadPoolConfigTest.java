@@ -0,0 +1,116 @@
+package com.aseubel.yusi.config;
+
+import com.aseubel.yusi.common.auth.UserContext;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.observability.trace.TraceIdSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThreadPoolConfigTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ThreadPoolConfig config = new ThreadPoolConfig();
+    private final List<ThreadPoolTaskExecutor> executors = new ArrayList<>();
+
+    ThreadPoolConfigTest() {
+        ReflectionTestUtils.setField(config, "metrics", new YusiMetrics(registry));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executors.forEach(ThreadPoolTaskExecutor::shutdown);
+        MDC.clear();
+        UserContext.clear();
+    }
+
+    @Test
+    void saturatedChatStreamPoolDoesNotDelayCacheRefresh() throws Exception {
+        ThreadPoolConfigProperties properties = new ThreadPoolConfigProperties();
+        properties.getChatStream().setCorePoolSize(2);
+        properties.getChatStream().setMaxPoolSize(2);
+        properties.getChatStream().setQueueCapacity(2);
+        ThreadPoolTaskExecutor chatStream = track(config.chatStreamExecutor(properties));
+        ThreadPoolTaskExecutor cacheRefresh = track(config.cacheRefreshExecutor(properties));
+        CountDownLatch release = new CountDownLatch(1);
+
+        for (int i = 0; i < 4; i++) {
+            chatStream.execute(() -> awaitQuietly(release));
+        }
+        assertThatThrownBy(() -> chatStream.execute(() -> awaitQuietly(release)))
+                .isInstanceOf(TaskRejectedException.class);
+
+        Future<String> refresh = cacheRefresh.submit(() -> Thread.currentThread().getName());
+        assertThat(refresh.get(1, TimeUnit.SECONDS)).startsWith("yusi-cache-refresh-");
+        assertThat(registry.get("executor_rejected_total").tag("operation", "chat-stream").counter().count())
+                .isEqualTo(1.0);
+        release.countDown();
+    }
+
+    @Test
+    void virtualThreadOptionRunsTasksOnVirtualThreads() throws Exception {
+        ThreadPoolConfigProperties properties = new ThreadPoolConfigProperties();
+        properties.getIoFanout().setVirtualThreads(true);
+        ThreadPoolTaskExecutor ioFanout = track(config.ioFanoutExecutor(properties));
+        ThreadPoolTaskExecutor batch = track(config.batchJobExecutor(properties));
+
+        assertThat(ioFanout.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+        assertThat(ioFanout.submit(() -> Thread.currentThread().getName()).get()).startsWith("yusi-io-fanout-v");
+        assertThat(batch.submit(() -> Thread.currentThread().isVirtual()).get()).isFalse();
+    }
+
+    @Test
+    void everyBulkheadPropagatesTraceAndUserContext() throws Exception {
+        ThreadPoolConfigProperties properties = new ThreadPoolConfigProperties();
+        properties.getChatStream().setVirtualThreads(true);
+        List<ThreadPoolTaskExecutor> bulkheads = List.of(
+                track(config.threadPoolExecutor(properties)),
+                track(config.chatStreamExecutor(properties)),
+                track(config.ioFanoutExecutor(properties)),
+                track(config.memorySearchExecutor(properties)),
+                track(config.cacheRefreshExecutor(properties)),
+                track(config.batchJobExecutor(properties)));
+
+        MDC.put(TraceIdSupport.MDC_KEY, "bulkhead-trace");
+        UserContext.setUserId("bulkhead-user");
+        for (ThreadPoolTaskExecutor executor : bulkheads) {
+            Future<String> context = executor.submit(
+                    () -> MDC.get(TraceIdSupport.MDC_KEY) + "/" + UserContext.getUserId());
+            assertThat(context.get()).isEqualTo("bulkhead-trace/bulkhead-user");
+        }
+
+        MDC.clear();
+        UserContext.clear();
+        for (ThreadPoolTaskExecutor executor : bulkheads) {
+            Future<String> context = executor.submit(
+                    () -> MDC.get(TraceIdSupport.MDC_KEY) + "/" + UserContext.getUserId());
+            assertThat(context.get()).isEqualTo("null/null");
+        }
+    }
+
+    private ThreadPoolTaskExecutor track(ThreadPoolTaskExecutor executor) {
+        executors.add(executor);
+        return executor;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.aseubel.yusi.config.ai;
+
+import com.aseubel.yusi.pojo.entity.ChatMemoryMessage;
+import com.aseubel.yusi.redis.service.RedissonService;
+import com.aseubel.yusi.repository.ChatMemoryMessageRepository;
+import com.aseubel.yusi.service.ai.chat.ContextBuilderService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.config.Config;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static dev.langchain4j.data.message.ChatMessageDeserializer.messagesFromJson;
+import static dev.langchain4j.data.message.ChatMessageSerializer.messagesToJson;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * append 模式的对齐、分叉与裁剪测试。Lua 脚本在真实 Redis（Testcontainers）上执行，没有 Docker 时跳过。
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@ExtendWith(MockitoExtension.class)
+class PersistentChatMemoryStoreAppendOnlyTest {
+
+    private static final String MEMORY_ID = "user-1";
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    private static RedissonClient redissonClient;
+
+    @Mock
+    private ChatMemoryMessageRepository messageRepository;
+    @Mock
+    private ContextBuilderService contextBuilderService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private RedissonService redisService;
+    private PersistentChatMemoryStore store;
+
+    @BeforeAll
+    static void connect() {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://" + REDIS.getHost() + ":" + REDIS.getMappedPort(6379));
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        redissonClient.getKeys().flushall();
+        RedissonService service = new RedissonService();
+        ReflectionTestUtils.setField(service, "redissonClient", redissonClient);
+        redisService = spy(service);
+        lenient().when(contextBuilderService.buildSystemMessage(any())).thenReturn(SystemMessage.from("system"));
+        store = new PersistentChatMemoryStore(messageRepository, redisService, contextBuilderService, eventPublisher,
+                PersistentChatMemoryStore.STORAGE_APPEND);
+    }
+
+    @Test
+    void windowedConversationAppendsOnlyNewMessagesAndTrimsEvictedHead() {
+        ChatMemory memory = MessageWindowChatMemory.builder().id(MEMORY_ID).maxMessages(8)
+                .chatMemoryStore(store).build();
+
+        for (int turn = 0; turn < 15; turn++) {
+            memory.add(UserMessage.from(PersistentChatMemoryStore.SANDWITCH_TEMPLATE.formatted("question " + turn)));
+            memory.add(AiMessage.from("answer " + turn));
+        }
+
+        List<ChatMessage> cached = cachedMessages();
+        assertEquals(7, cached.size());
+        assertEquals("answer 11", ((AiMessage) cached.get(0)).text());
+        assertEquals("question 14", ((UserMessage) cached.get(5)).singleText());
+        assertEquals(cached.size(), redisList(hashKey()).size());
+        verify(messageRepository, times(30)).save(any(ChatMemoryMessage.class));
+        // 只有首次加载会查库，对齐成功后落库不再读取最后一条
+        verify(messageRepository, times(1)).findByMemoryIdOrderByCreatedAtDesc(eq(MEMORY_ID), any(Pageable.class));
+        assertEquals(0L, rewrites());
+    }
+
+    @Test
+    void identicalConsecutiveMessagesAreBothAppended() {
+        store.updateMessages(MEMORY_ID, List.of(SystemMessage.from("system"), UserMessage.from("ok")));
+        store.updateMessages(MEMORY_ID, List.of(SystemMessage.from("system"), UserMessage.from("ok"),
+                UserMessage.from("ok")));
+
+        assertEquals(2, cachedMessages().size());
+        verify(messageRepository, times(2)).save(any(ChatMemoryMessage.class));
+        verify(messageRepository, never()).findByMemoryIdOrderByCreatedAtDesc(anyString(), any(Pageable.class));
+    }
+
+    @Test
+    void rewrittenHistoryIsDetectedAndFullyRewritten() {
+        store.updateMessages(MEMORY_ID, List.of(UserMessage.from("hello")));
+        store.updateMessages(MEMORY_ID, List.of(UserMessage.from("hello"), AiMessage.from("hi")));
+
+        store.updateMessages(MEMORY_ID, List.of(UserMessage.from("hello"), AiMessage.from("summarized"),
+                UserMessage.from("next")));
+
+        List<ChatMessage> cached = cachedMessages();
+        assertEquals(3, cached.size());
+        assertEquals("summarized", ((AiMessage) cached.get(1)).text());
+        assertEquals(1L, rewrites());
+        verify(messageRepository).findByMemoryIdOrderByCreatedAtDesc(MEMORY_ID, PageRequest.of(0, 1));
+        ArgumentCaptor<ChatMemoryMessage> saved = ArgumentCaptor.forClass(ChatMemoryMessage.class);
+        verify(messageRepository, times(3)).save(saved.capture());
+        assertEquals("USER", saved.getAllValues().get(2).getRole());
+    }
+
+    @Test
+    void expiredCacheIsReloadedFromDatabaseAndThenAppended() {
+        ChatMemoryMessage first = ChatMemoryMessage.builder().memoryId(MEMORY_ID).role("USER")
+                .content(messagesToJson(
+                        List.of(UserMessage.from("hello"))))
+                .createdAt(LocalDateTime.of(2026, 10, 1, 8, 0))
+                .build();
+        lenient().when(messageRepository.findByMemoryIdOrderByCreatedAtDesc(eq(MEMORY_ID), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(first)));
+
+        List<ChatMessage> loaded = store.getMessages(MEMORY_ID);
+        List<ChatMessage> next = new ArrayList<>(loaded);
+        next.add(AiMessage.from("hi"));
+        store.updateMessages(MEMORY_ID, next);
+
+        assertEquals(2, cachedMessages().size());
+        assertTrue(((UserMessage) cachedMessages().get(0)).singleText().contains("[Time]:"));
+        assertEquals(1L, rewrites());
+        verify(messageRepository, times(1)).save(any(ChatMemoryMessage.class));
+    }
+
+    private List<ChatMessage> cachedMessages() {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (String json : redisList(logKey())) {
+            messages.addAll(messagesFromJson(json));
+        }
+        return messages;
+    }
+
+    private static List<String> redisList(String key) {
+        return redissonClient.<String>getList(key, StringCodec.INSTANCE).readAll();
+    }
+
+    /** 分叉时整体重写的次数，按 REWRITE 脚本的调用数统计 */
+    private long rewrites() {
+        return mockingDetails(redisService).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("execute")
+                        && invocation.getArguments().length > 1
+                        && PersistentChatMemoryStore.REWRITE_SH.equals(invocation.getArguments()[1]))
+                .count();
+    }
+
+    private static String logKey() {
+        return "yusi:langchain:" + MEMORY_ID + ":messages";
+    }
+
+    private static String hashKey() {
+        return "yusi:langchain:" + MEMORY_ID + ":hashes";
+    }
+}
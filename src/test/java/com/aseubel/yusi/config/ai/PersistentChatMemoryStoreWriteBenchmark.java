@@ -0,0 +1,129 @@
+package com.aseubel.yusi.config.ai;
+
+import com.aseubel.yusi.redis.service.RedissonService;
+import com.aseubel.yusi.repository.ChatMemoryMessageRepository;
+import com.aseubel.yusi.service.ai.chat.ContextBuilderService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.invocation.Invocation;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.spy;
+
+/**
+ * blob 与 append 两种存储每轮写给 Redis 的字节数对比，默认构建不执行：./mvnw test -Dtest.excludedGroups= -Dgroups=benchmark
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@ExtendWith(MockitoExtension.class)
+class PersistentChatMemoryStoreWriteBenchmark {
+
+    private static final int SHORT_HISTORY = 20;
+    private static final int LONG_HISTORY = 500;
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+
+    private static RedissonClient redissonClient;
+
+    @Mock
+    private ChatMemoryMessageRepository messageRepository;
+    @Mock
+    private ContextBuilderService contextBuilderService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @BeforeAll
+    static void connect() {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://" + REDIS.getHost() + ":" + REDIS.getMappedPort(6379));
+        redissonClient = Redisson.create(config);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+        }
+    }
+
+    @Test
+    void perTurnWriteVolumeAtShortAndLongHistories() {
+        redissonClient.getKeys().flushall();
+        RedissonService service = new RedissonService();
+        ReflectionTestUtils.setField(service, "redissonClient", redissonClient);
+        RedissonService redisService = spy(service);
+        PersistentChatMemoryStore appendStore = new PersistentChatMemoryStore(messageRepository, redisService,
+                contextBuilderService, eventPublisher, PersistentChatMemoryStore.STORAGE_APPEND);
+        PersistentChatMemoryStore blobStore = new PersistentChatMemoryStore(messageRepository, redisService,
+                contextBuilderService, eventPublisher, PersistentChatMemoryStore.STORAGE_BLOB);
+
+        long[] appendBytes = new long[LONG_HISTORY + 1];
+        long[] blobBytes = new long[LONG_HISTORY + 1];
+        long appendNanos = 0;
+        long blobNanos = 0;
+        List<ChatMessage> history = new ArrayList<>();
+        for (int i = 1; i <= LONG_HISTORY; i++) {
+            history.add(i % 2 == 1 ? UserMessage.from("message body " + "x".repeat(200) + i)
+                    : AiMessage.from("reply body " + "y".repeat(200) + i));
+
+            clearInvocations(redisService);
+            long startedAt = System.nanoTime();
+            appendStore.updateMessages("append-user", history);
+            appendNanos += System.nanoTime() - startedAt;
+            appendBytes[i] = bytesWritten(redisService);
+
+            clearInvocations(redisService);
+            startedAt = System.nanoTime();
+            blobStore.updateMessages("blob-user", history);
+            blobNanos += System.nanoTime() - startedAt;
+            blobBytes[i] = bytesWritten(redisService);
+        }
+
+        System.out.printf("chat memory write benchmark: append bytes/turn @%d=%d @%d=%d, blob bytes/turn @%d=%d @%d=%d,"
+                        + " append avg=%dus, blob avg=%dus%n",
+                SHORT_HISTORY, appendBytes[SHORT_HISTORY], LONG_HISTORY, appendBytes[LONG_HISTORY],
+                SHORT_HISTORY, blobBytes[SHORT_HISTORY], LONG_HISTORY, blobBytes[LONG_HISTORY],
+                appendNanos / LONG_HISTORY / 1000, blobNanos / LONG_HISTORY / 1000);
+        assertThat(redissonClient.getList("yusi:langchain:append-user:messages").size()).isEqualTo(LONG_HISTORY);
+    }
+
+    /** 本轮写给 Redis 的参数字节数：脚本参数与整段 JSON */
+    private static long bytesWritten(RedissonService redisService) {
+        long bytes = 0;
+        for (Invocation invocation : mockingDetails(redisService).getInvocations()) {
+            String method = invocation.getMethod().getName();
+            if (method.equals("execute") && invocation.getRawArguments().length == 5) {
+                for (Object arg : (Object[]) invocation.getRawArguments()[4]) {
+                    bytes += arg.toString().length();
+                }
+            } else if (method.equals("setValue")) {
+                bytes += invocation.getArgument(1).toString().length();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,71 @@
+package com.aseubel.yusi.monitor;
+
+import com.aseubel.yusi.redis.service.IRedisService;
+import com.aseubel.yusi.repository.InterfaceDailyUsageRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 热点接口并发记录的单次耗时，默认构建不执行：./mvnw test -Dtest.excludedGroups= -Dgroups=benchmark
+ */
+@Tag("benchmark")
+class InterfaceUsageMonitorBenchmark {
+
+    private static final int PER_THREAD = 500_000;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 8})
+    void recordUsageUnderContention(int threads) throws Exception {
+        IRedisService redisService = mock(IRedisService.class);
+        when(redisService.incrMapsPipelined(anyMap(), any(Duration.class))).thenReturn(Map.of());
+        InterfaceUsageMonitor monitor = new InterfaceUsageMonitor(redisService,
+                mock(InterfaceDailyUsageRepository.class));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    long startedAt = System.nanoTime();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        // 热点接口：所有线程集中在少量 key 上
+                        monitor.recordUsage("u" + (i & 7), "127.0.0.1", "diary.list");
+                    }
+                    return System.nanoTime() - startedAt;
+                }));
+            }
+            start.countDown();
+            long nanos = 0;
+            for (Future<Long> result : results) {
+                nanos += result.get(60, TimeUnit.SECONDS);
+            }
+            monitor.flushBuffer();
+
+            System.out.printf("usage record benchmark (%d threads, %d records/thread): %.0fns/record%n",
+                    threads, PER_THREAD, (double) nanos / threads / PER_THREAD);
+            // 记录路径不访问 Redis，整轮只有 flush 时的一次 pipeline
+            verify(redisService, times(1)).incrMapsPipelined(anyMap(), any(Duration.class));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.aseubel.yusi.monitor;
+
+import com.aseubel.yusi.pojo.entity.InterfaceDailyUsage;
+import com.aseubel.yusi.redis.service.IRedisService;
+import com.aseubel.yusi.repository.InterfaceDailyUsageRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InterfaceUsageMonitorTest {
+
+    private final Map<String, Map<String, Long>> redisHashes = new HashMap<>();
+    private final AtomicInteger pipelines = new AtomicInteger();
+    private final AtomicBoolean redisDown = new AtomicBoolean();
+    private final List<InterfaceDailyUsage> upserts = new ArrayList<>();
+    private final IRedisService redisService = mock(IRedisService.class);
+    private final InterfaceDailyUsageRepository repository = mock(InterfaceDailyUsageRepository.class);
+    private final InterfaceUsageMonitor monitor = new InterfaceUsageMonitor(redisService, repository);
+
+    InterfaceUsageMonitorTest() {
+        when(redisService.incrMapsPipelined(anyMap(), any(Duration.class))).thenAnswer(invocation -> {
+            if (redisDown.get()) {
+                throw new IllegalStateException("redis down");
+            }
+            pipelines.incrementAndGet();
+            Map<String, Map<String, Long>> increments = invocation.getArgument(0);
+            Map<String, Map<String, Long>> totals = new HashMap<>();
+            synchronized (redisHashes) {
+                increments.forEach((key, fields) -> fields.forEach((field, delta) -> {
+                    long total = redisHashes.computeIfAbsent(key, k -> new HashMap<>()).merge(field, delta, Long::sum);
+                    totals.computeIfAbsent(key, k -> new HashMap<>()).put(field, total);
+                }));
+            }
+            return totals;
+        });
+        doAnswer(invocation -> {
+            synchronized (upserts) {
+                upserts.addAll(invocation.getArgument(0));
+            }
+            return null;
+        }).when(repository).batchUpsertUsage(any());
+    }
+
+    @Test
+    void recordingOnlyTouchesLocalBufferUntilFlush() {
+        for (int i = 0; i < 500; i++) {
+            monitor.recordUsage("u1", "127.0.0.1", "diary.list");
+        }
+
+        verify(redisService, never()).incrMapsPipelined(anyMap(), any(Duration.class));
+
+        monitor.flushBuffer();
+
+        assertThat(pipelines.get()).isEqualTo(1);
+        assertThat(totalInRedis()).isEqualTo(500);
+        assertThat(upserts).singleElement().satisfies(usage -> {
+            assertThat(usage.getUserId()).isEqualTo("u1");
+            assertThat(usage.getInterfaceName()).isEqualTo("diary.list");
+            assertThat(usage.getRequestCount()).isEqualTo(500L);
+        });
+    }
+
+    @Test
+    void databaseReceivesCumulativeTotalsNotDeltas() {
+        monitor.recordUsage("u1", "ip", "chat.send");
+        monitor.flushBuffer();
+        monitor.recordUsage("u1", "ip", "chat.send");
+        monitor.recordUsage("u1", "ip", "chat.send");
+        monitor.flushBuffer();
+
+        assertThat(upserts).extracting(InterfaceDailyUsage::getRequestCount).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void failedPipelineKeepsDeltasForNextFlush() {
+        monitor.recordUsage(null, null, "plaza.feed");
+        redisDown.set(true);
+        monitor.flushBuffer();
+        redisDown.set(false);
+        monitor.recordUsage(null, null, "plaza.feed");
+        monitor.flushBuffer();
+
+        assertThat(totalInRedis()).isEqualTo(2);
+        assertThat(upserts).extracting(InterfaceDailyUsage::getUserId).containsExactly("anonymous");
+    }
+
+    @Test
+    void concurrentFlushesNeitherLoseNorDoubleCountRecords() throws Exception {
+        int threads = 8;
+        int perThread = 200_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean recording = new AtomicBoolean(true);
+        try {
+            Future<?> flusher = pool.submit(() -> {
+                while (recording.get()) {
+                    monitor.flushBuffer();
+                }
+            });
+            List<Future<?>> recorders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                recorders.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        monitor.recordUsage("u" + (i & 15), "ip" + thread, "api" + (i & 3));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> recorder : recorders) {
+                recorder.get(60, TimeUnit.SECONDS);
+            }
+            recording.set(false);
+            flusher.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        monitor.flushOnShutdown();
+
+        assertThat(totalInRedis()).isEqualTo((long) threads * perThread);
+    }
+
+    @Test
+    void contendedRecordingStaysLocalUntilTheFlushPipeline() throws Exception {
+        int threads = 8;
+        int perThread = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> recorders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                recorders.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        // 热点接口：所有线程集中在少量 key 上
+                        monitor.recordUsage("u" + (i & 7), "127.0.0.1", "diary.list");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> recorder : recorders) {
+                recorder.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 记录路径不访问 Redis，一次刷写只有一次 pipeline
+        assertThat(pipelines.get()).isZero();
+        monitor.flushBuffer();
+        assertThat(pipelines.get()).isEqualTo(1);
+        assertThat(totalInRedis()).isEqualTo((long) threads * perThread);
+    }
+
+    private long totalInRedis() {
+        synchronized (redisHashes) {
+            return redisHashes.values().stream()
+                    .flatMap(fields -> fields.values().stream())
+                    .mapToLong(Long::longValue)
+                    .sum();
+        }
+    }
+}
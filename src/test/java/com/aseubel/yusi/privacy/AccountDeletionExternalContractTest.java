@@ -9,6 +9,9 @@ import com.aseubel.yusi.repository.SituationScenarioRepository;
 import com.aseubel.yusi.repository.SuggestionRepository;
 import com.aseubel.yusi.repository.UserRepository;
 import com.aseubel.yusi.redis.service.IRedisService;
+import com.aseubel.yusi.service.ai.chat.ChatContextSnapshotCache;
+import com.aseubel.yusi.service.ai.retrieval.HybridRetrievalBackend;
+import com.aseubel.yusi.service.lifegraph.LifeGraphAdjacencyCache;
 import com.aseubel.yusi.service.security.SecurityAuditService;
 import com.aseubel.yusi.service.privacy.AccountDeletionInventory;
 import com.aseubel.yusi.service.privacy.DefaultAccountDeletionExternalPort;
@@ -123,6 +126,19 @@ class AccountDeletionExternalContractTest {
         verify(oss, times(1)).deleteOwnedChunkObject("fixture-chunk-object-b", TARGET_USER);
     }
 
+    @Test
+    void evictingLocalCachesDropsTheTargetUsersLifeGraphAndChatContext() {
+        LifeGraphAdjacencyCache graphCache = mock(LifeGraphAdjacencyCache.class);
+        ChatContextSnapshotCache snapshotCache = mock(ChatContextSnapshotCache.class);
+
+        new DefaultAccountDeletionExternalPort(mock(HybridRetrievalBackend.class), mock(IRedisService.class),
+                mock(TokenService.class), null, null, graphCache, snapshotCache)
+                .evictLocalCaches(TARGET_USER);
+
+        verify(graphCache).invalidate(TARGET_USER);
+        verify(snapshotCache).invalidate(TARGET_USER);
+    }
+
     @Test
     void currentDeregisterImplementationMustNotReportSuccessAfterSwallowedFailure() throws Exception {
         String source = implementationSource();
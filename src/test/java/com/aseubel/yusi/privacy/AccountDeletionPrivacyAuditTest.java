@@ -239,6 +239,11 @@ class AccountDeletionPrivacyAuditTest {
             public void deleteObjects(com.aseubel.yusi.service.privacy.AccountDeletionInventory inventory) {
                 order.add("objects");
             }
+
+            @Override
+            public void evictLocalCaches(String targetUserId) {
+                order.add("local-caches:" + targetUserId);
+            }
         };
 
         DeletionResult result = new AccountDeletionCoordinator(
@@ -246,8 +251,9 @@ class AccountDeletionPrivacyAuditTest {
                 .requestDeletion(TARGET_USER, ADMIN_USER);
 
         assertEquals(DeletionResult.Status.COMPLETED, result.status());
-        assertEquals(List.of("milvus", "objects", "redis"), order,
-                "chunk object references must be read before Redis session keys are removed");
+        assertEquals(List.of("milvus", "objects", "redis", "local-caches:" + TARGET_USER), order,
+                "chunk object references must be read before Redis session keys are removed, "
+                        + "and local caches are dropped only after the rows are gone");
     }
 
     private void createSchema() {
@@ -0,0 +1,123 @@
+package com.aseubel.yusi.redis.aspect;
+
+import com.aseubel.yusi.redis.annotation.QueryCache;
+import com.aseubel.yusi.redis.service.CacheLoadSignals;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.aseubel.yusi.redis.aspect.CacheAspectSingleFlightTest.LOAD_MILLIS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 缓存击穿时跨节点等待方的延迟：加载完成通知对比旧实现的 100ms 轮询，
+ * 默认构建不执行：./mvnw test -Dtest.excludedGroups= -Dgroups=benchmark
+ */
+@Tag("benchmark")
+class CacheAspectSingleFlightBenchmark {
+
+    private static final long POLL_MILLIS = 100;
+    private static final int NODES = 4;
+    private static final int CALLERS = 64;
+    private static final int ROUNDS = 10;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+    private final List<CacheAspectSingleFlightTest.FakeRedis> redisInstances = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        redisInstances.forEach(redis -> redis.delivery.shutdownNow());
+    }
+
+    @Test
+    void waiterLatencyWithPublishWakeupAgainstPolling() throws Throwable {
+        report("publish", herd(false));
+        report("poll " + POLL_MILLIS + "ms", herd(true));
+    }
+
+    private List<Long> herd(boolean polling) throws Throwable {
+        CacheAspectSingleFlightTest.FakeRedis redis = new CacheAspectSingleFlightTest.FakeRedis();
+        redisInstances.add(redis);
+        List<CacheAspect> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(CacheAspectSingleFlightTest.node(redis, polling ? pollingSignals(redis) : publishSignals(redis)));
+        }
+        AtomicInteger sourceLoads = new AtomicInteger();
+        ProceedingJoinPoint joinPoint = CacheAspectSingleFlightTest.joinPoint(() -> {
+            sourceLoads.incrementAndGet();
+            Thread.sleep(LOAD_MILLIS);
+            return "loaded";
+        });
+        QueryCache annotation = CacheAspectSingleFlightTest.annotation();
+
+        List<Long> latencies = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            redis.reset();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                CacheAspect node = nodes.get(i % nodes.size());
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    long startedAt = System.nanoTime();
+                    Object value;
+                    try {
+                        value = node.queryCache(joinPoint, annotation);
+                    } catch (Throwable e) {
+                        throw new IllegalStateException(e);
+                    }
+                    assertThat(value).isEqualTo("loaded");
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+                }));
+            }
+            start.countDown();
+            for (Future<Long> future : futures) {
+                latencies.add(future.get(10, TimeUnit.SECONDS));
+            }
+        }
+        assertThat(sourceLoads.get()).isEqualTo(ROUNDS);
+        return latencies;
+    }
+
+    private static CacheLoadSignals publishSignals(CacheAspectSingleFlightTest.FakeRedis redis) {
+        CacheLoadSignals signals = new CacheLoadSignals(CacheAspectSingleFlightTest.redisson(redis), "yusi:");
+        signals.init();
+        return signals;
+    }
+
+    /** 不订阅通知，每次等待固定间隔后重新读取，等价于旧实现的 sleep 轮询 */
+    private static CacheLoadSignals pollingSignals(CacheAspectSingleFlightTest.FakeRedis redis) {
+        return new CacheLoadSignals(CacheAspectSingleFlightTest.redisson(redis), "yusi:") {
+            @Override
+            public CompletableFuture<Void> expect(String key) {
+                return CompletableFuture.runAsync(() -> {
+                }, CompletableFuture.delayedExecutor(POLL_MILLIS, TimeUnit.MILLISECONDS));
+            }
+        };
+    }
+
+    private static void report(String scenario, List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("cache herd (%s, %d nodes x %d callers x %d rounds, source %dms): p50=%dms p99=%dms max=%dms%n",
+                scenario, NODES, CALLERS / NODES, ROUNDS, LOAD_MILLIS, percentile(sorted, 0.5),
+                percentile(sorted, 0.99), sorted.get(sorted.size() - 1));
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(percentile * sorted.size()) - 1));
+    }
+}
@@ -0,0 +1,293 @@
+package com.aseubel.yusi.redis.aspect;
+
+import com.aseubel.yusi.common.utils.SpelResolverHelper;
+import com.aseubel.yusi.redis.annotation.QueryCache;
+import com.aseubel.yusi.redis.service.CacheLoadSignals;
+import com.aseubel.yusi.redis.service.CacheNamespaces;
+import com.aseubel.yusi.redis.service.IRedisService;
+import com.aseubel.yusi.redis.service.NearCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.aseubel.yusi.redis.common.CacheConstants.NEED_QUERY;
+import static com.aseubel.yusi.redis.common.CacheConstants.NEED_WAIT;
+import static com.aseubel.yusi.redis.common.CacheConstants.SUCCESS;
+import static com.aseubel.yusi.redis.common.CacheConstants.SUCCESS_NEED_QUERY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CacheAspectSingleFlightTest {
+
+    static final long LOAD_MILLIS = 120;
+
+    private final FakeRedis redis = new FakeRedis();
+    private final AtomicInteger sourceLoads = new AtomicInteger();
+    private final ExecutorService callers = Executors.newFixedThreadPool(64);
+    private final List<CompletableFuture<Void>> expectations = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        redis.delivery.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesOnOneNodeShareOneLoad() throws Throwable {
+        CacheAspect node = node();
+
+        herd(List.of(node), 64);
+
+        assertThat(sourceLoads.get()).isEqualTo(1);
+        // 一次加锁读取 + 一次写回，跟随者不再访问 Redis（个别晚到的请求会直接读到缓存）
+        assertThat(redis.scriptCalls.get()).isLessThan(8);
+    }
+
+    @Test
+    void waitersOnOtherNodesAreWokenByPublishInsteadOfPolling() throws Throwable {
+        List<CacheAspect> nodes = List.of(node(), node(), node(), node());
+
+        herd(nodes, 64);
+
+        assertThat(sourceLoads.get()).isEqualTo(1);
+        // 旧实现按 100ms 间隔轮询；这里其他节点登记的等待由持锁方写回后发布的通知完成
+        assertThat(expectations).anyMatch(CompletableFuture::isDone);
+        // 每个节点只有一个请求访问 Redis，同节点的其余请求等待这一次读取
+        assertThat(redis.scriptCalls.get()).isLessThan(4 * 4);
+    }
+
+    @Test
+    void followersReceiveTheLeadersFailure() throws Throwable {
+        CacheAspect node = node();
+        ProceedingJoinPoint failing = joinPoint(() -> {
+            Thread.sleep(LOAD_MILLIS);
+            throw new IllegalStateException("source down");
+        });
+        QueryCache annotation = annotation();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(callers.submit(() -> {
+                start.await();
+                try {
+                    return node.queryCache(failing, annotation);
+                } catch (Throwable e) {
+                    return e;
+                }
+            }));
+        }
+        start.countDown();
+
+        for (Future<Object> future : futures) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isInstanceOf(IllegalStateException.class);
+        }
+        assertThat(redis.hashes.get("yusi:herd:diary")).doesNotContainKey("owner");
+    }
+
+    private void herd(List<CacheAspect> nodes, int callersCount) throws Throwable {
+        ProceedingJoinPoint joinPoint = joinPoint(() -> {
+            sourceLoads.incrementAndGet();
+            Thread.sleep(LOAD_MILLIS);
+            return "loaded";
+        });
+        QueryCache annotation = annotation();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < callersCount; i++) {
+            CacheAspect node = nodes.get(i % nodes.size());
+            futures.add(callers.submit(() -> {
+                start.await();
+                try {
+                    return node.queryCache(joinPoint, annotation);
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<Object> future : futures) {
+            assertThat(future.get(10, TimeUnit.SECONDS)).isEqualTo("loaded");
+        }
+    }
+
+    private CacheAspect node() {
+        CacheLoadSignals signals = new CacheLoadSignals(redisson(redis), "yusi:") {
+            @Override
+            public CompletableFuture<Void> expect(String key) {
+                CompletableFuture<Void> waiter = super.expect(key);
+                expectations.add(waiter);
+                return waiter;
+            }
+        };
+        signals.init();
+        return node(redis, signals);
+    }
+
+    /** 订阅会登记到 FakeRedis 上，由它的 PUBLISH 投递 */
+    @SuppressWarnings("unchecked")
+    static RedissonClient redisson(FakeRedis redis) {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        RTopic topic = mock(RTopic.class);
+        when(redissonClient.getTopic(anyString(), eq(StringCodec.INSTANCE))).thenReturn(topic);
+        when(topic.addListener(eq(String.class), any(MessageListener.class))).thenAnswer(invocation -> {
+            redis.listeners.add(invocation.getArgument(1));
+            return 1;
+        });
+        return redissonClient;
+    }
+
+    static CacheAspect node(FakeRedis redis, CacheLoadSignals signals) {
+        CacheAspect aspect = new CacheAspect(mock(ThreadPoolTaskExecutor.class), new SpelResolverHelper(),
+                redis.service, new ObjectMapper(), new NearCache(null, null, false, "yusi:"),
+                new CacheNamespaces(redis.service), signals);
+        ReflectionTestUtils.setField(aspect, "keyPrefix", "yusi:");
+        ReflectionTestUtils.setField(aspect, "ttl", Duration.ofSeconds(60));
+        return aspect;
+    }
+
+    static ProceedingJoinPoint joinPoint(Source source) throws Throwable {
+        MethodSignature signature = mock(MethodSignature.class);
+        when(signature.getMethod()).thenReturn(target());
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getArgs()).thenReturn(new Object[0]);
+        when(joinPoint.proceed()).thenAnswer(invocation -> source.load());
+        return joinPoint;
+    }
+
+    static QueryCache annotation() throws NoSuchMethodException {
+        return target().getAnnotation(QueryCache.class);
+    }
+
+    private static Method target() throws NoSuchMethodException {
+        return HerdTarget.class.getDeclaredMethod("load");
+    }
+
+    @FunctionalInterface
+    interface Source {
+        Object load() throws Throwable;
+    }
+
+    static class HerdTarget {
+        @QueryCache(key = "'herd:diary'", ttl = 60)
+        public String load() {
+            return "loaded";
+        }
+    }
+
+    /**
+     * 按 CacheAspect 中三个脚本的语义模拟 Redis，PUBLISH 异步投递给所有节点
+     */
+    static final class FakeRedis {
+
+        final Map<String, Map<String, String>> hashes = new HashMap<>();
+        final List<MessageListener<String>> listeners = new CopyOnWriteArrayList<>();
+        final ExecutorService delivery = Executors.newSingleThreadExecutor();
+        final AtomicInteger scriptCalls = new AtomicInteger();
+        final IRedisService service = mock(IRedisService.class);
+
+        FakeRedis() {
+            when(service.execute(anyString(), anyString(), any(RScript.ReturnType.class), anyList(),
+                    any(Object[].class))).thenAnswer(invocation -> {
+                        Object[] arguments = invocation.getArguments();
+                        Object[] args = arguments.length == 5 && arguments[4] instanceof Object[] array
+                                ? array : Arrays.copyOfRange(arguments, 4, arguments.length);
+                        List<Object> keys = invocation.getArgument(3);
+                        scriptCalls.incrementAndGet();
+                        return run(invocation.getArgument(1), (String) keys.get(0), args);
+                    });
+        }
+
+        /** 清空缓存与锁，下一轮重新从未命中开始 */
+        synchronized void reset() {
+            hashes.clear();
+        }
+
+        private synchronized Object run(String script, String key, Object[] args) {
+            Map<String, String> hash = hashes.computeIfAbsent(key, ignored -> new HashMap<>());
+            if (script.contains("newUnlockTime")) {
+                String value = hash.get("value");
+                String unlockTime = hash.get("unlockTime");
+                String owner = hash.get("owner");
+                long now = Long.parseLong(String.valueOf(args[2]));
+                if (unlockTime != null && now > Long.parseLong(unlockTime)) {
+                    lock(hash, args);
+                    return result(value, SUCCESS_NEED_QUERY);
+                }
+                if (value == null || value.isEmpty()) {
+                    if (owner != null && !owner.equals(args[1])) {
+                        return result(value, NEED_WAIT);
+                    }
+                    lock(hash, args);
+                    return result(value, NEED_QUERY);
+                }
+                return result(value, SUCCESS);
+            }
+            if (script.contains("'unlocked'")) {
+                if (!String.valueOf(args[1]).equals(hash.get("owner"))) {
+                    return 1L;
+                }
+                hash.put("lockInfo", "unlocked");
+                hash.put("value", String.valueOf(args[0]));
+                hash.remove("unlockTime");
+                publish(key);
+                return 0L;
+            }
+            if (String.valueOf(args[0]).equals(hash.get("owner"))) {
+                hash.remove("owner");
+                hash.remove("unlockTime");
+                hash.remove("lockInfo");
+                publish(key);
+            }
+            return 0L;
+        }
+
+        private void lock(Map<String, String> hash, Object[] args) {
+            hash.put("lockInfo", "locked");
+            hash.put("unlockTime", String.valueOf(args[0]));
+            hash.put("owner", String.valueOf(args[1]));
+        }
+
+        private void publish(String key) {
+            CompletableFuture.runAsync(() -> listeners.forEach(listener -> listener.onMessage("yusi:cache:loaded", key)),
+                    delivery);
+        }
+
+        private static List<Object> result(String value, String sign) {
+            List<Object> result = new ArrayList<>(2);
+            result.add(value);
+            result.add(sign);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.aseubel.yusi.redis.service;
+
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScript;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CacheNamespacesTest {
+
+    private final Map<String, Long> generations = new HashMap<>();
+    private final IRedisService redisService = mock(IRedisService.class);
+    private final CacheNamespaces namespaces = new CacheNamespaces(redisService, "yusi:", 86400);
+
+    CacheNamespacesTest() {
+        when(redisService.execute(anyString(), anyString(), eq(RScript.ReturnType.MULTI), anyList()))
+                .thenAnswer(invocation -> {
+                    List<Object> keys = invocation.getArgument(3);
+                    List<Object> values = new ArrayList<>();
+                    keys.forEach(key -> {
+                        Long generation = generations.get((String) key);
+                        values.add(generation == null ? null : String.valueOf(generation));
+                    });
+                    return values;
+                });
+        when(redisService.execute(anyString(), anyString(), eq(RScript.ReturnType.INTEGER), anyList(), any()))
+                .thenAnswer(invocation -> {
+                    List<Object> keys = invocation.getArgument(3);
+                    return generations.merge((String) keys.get(0), 1L, Long::sum);
+                });
+    }
+
+    @Test
+    void versionedKeyFoldsEveryNamespaceGenerationInOneRead() {
+        String key = "yusi:notifications:user:u1:unread";
+        List<String> userNamespaces = List.of("notifications:user:", "notifications:user:u1:");
+
+        assertThat(namespaces.versionedKey(key, userNamespaces)).isEqualTo(key + "@g0.0");
+
+        namespaces.bump("notifications:user:u1:");
+        String afterUserEvict = namespaces.versionedKey(key, userNamespaces);
+        namespaces.bump("notifications:user:");
+        String afterGlobalEvict = namespaces.versionedKey(key, userNamespaces);
+
+        assertThat(afterUserEvict).isEqualTo(key + "@g0.1");
+        assertThat(afterGlobalEvict).isEqualTo(key + "@g1.1");
+        assertThat(generations).containsKeys("yusi:cache:ns:notifications:user:u1:", "yusi:cache:ns:notifications:user:");
+    }
+
+    @Test
+    void evictingOneUserLeavesOtherUsersOnTheirGeneration() {
+        List<String> otherUser = List.of("notifications:user:", "notifications:user:u2:");
+        String before = namespaces.versionedKey("yusi:notifications:user:u2:unread", otherUser);
+
+        namespaces.bump("notifications:user:u1:");
+
+        assertThat(namespaces.versionedKey("yusi:notifications:user:u2:unread", otherUser)).isEqualTo(before);
+        verify(redisService, never()).removeByPattern(anyString());
+    }
+
+    @Test
+    void keysWithoutNamespacesSkipRedis() {
+        IRedisService untouched = mock(IRedisService.class);
+
+        assertThat(new CacheNamespaces(untouched).versionedKey("yusi:user:data:u1", List.of()))
+                .isEqualTo("yusi:user:data:u1");
+        verifyNoInteractions(untouched);
+    }
+
+    @Test
+    void bumpReturnsNewGeneration() {
+        assertThat(namespaces.bump("plaza:feed:")).isEqualTo(1L);
+        assertThat(namespaces.bump("plaza:feed:")).isEqualTo(2L);
+        assertThat(namespaces.versionedKey("yusi:plaza:feed:u1:1:10:All", List.of("plaza:feed:")))
+                .endsWith("@g2");
+    }
+}
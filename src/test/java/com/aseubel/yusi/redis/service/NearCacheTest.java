@@ -0,0 +1,105 @@
+package com.aseubel.yusi.redis.service;
+
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NearCacheTest {
+
+    private RTopic topic;
+    private SimpleMeterRegistry registry;
+    private NearCache nearCache;
+    private MessageListener<String> remoteListener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        topic = mock(RTopic.class);
+        when(redissonClient.getTopic("yusi:" + NearCache.INVALIDATION_TOPIC)).thenReturn(topic);
+        registry = new SimpleMeterRegistry();
+        nearCache = new NearCache(redissonClient, new YusiMetrics(registry), true, "yusi:");
+        nearCache.init();
+
+        ArgumentCaptor<MessageListener<String>> captor = ArgumentCaptor.forClass(MessageListener.class);
+        verify(topic).addListener(eq(String.class), captor.capture());
+        remoteListener = captor.getValue();
+    }
+
+    @Test
+    void servesRepeatedReadsLocallyAndRecordsTierHitRatio() {
+        assertThat(nearCache.get("diaryDetail", "yusi:diary:detail:v4:d1:u1")).isNull();
+        nearCache.put("diaryDetail", 10, 30, "yusi:diary:detail:v4:d1:u1", "{\"diaryId\":\"d1\"}",
+                nearCache.stamp());
+        nearCache.recordRemote(true);
+
+        assertThat(nearCache.get("diaryDetail", "yusi:diary:detail:v4:d1:u1")).isEqualTo("{\"diaryId\":\"d1\"}");
+        assertThat(count("l1", "hit")).isEqualTo(1D);
+        assertThat(count("l1", "miss")).isEqualTo(1D);
+        assertThat(count("l2", "hit")).isEqualTo(1D);
+    }
+
+    @Test
+    void invalidateEvictsLocallyAndBroadcastsPatterns() {
+        nearCache.put("plazaFeed", 10, 30, "yusi:plaza:feed:u1:1:10:All", "[1]", nearCache.stamp());
+        nearCache.put("plazaFeed", 10, 30, "yusi:plaza:feed:u2:1:10:All", "[2]", nearCache.stamp());
+        nearCache.put("diaryDetail", 10, 30, "yusi:diary:detail:v4:d1:u1", "{}", nearCache.stamp());
+
+        nearCache.invalidate("yusi:plaza:feed:*");
+
+        verify(topic).publish("yusi:plaza:feed:*");
+        assertThat(nearCache.get("plazaFeed", "yusi:plaza:feed:u1:1:10:All")).isNull();
+        assertThat(nearCache.get("plazaFeed", "yusi:plaza:feed:u2:1:10:All")).isNull();
+        assertThat(nearCache.get("diaryDetail", "yusi:diary:detail:v4:d1:u1")).isEqualTo("{}");
+    }
+
+    @Test
+    void remoteInvalidationEvictsExactKey() {
+        nearCache.put("diaryDetail", 10, 30, "yusi:diary:detail:v4:d1:u1", "{}", nearCache.stamp());
+
+        remoteListener.onMessage("yusi:near", "yusi:diary:detail:v4:d1:u1");
+
+        assertThat(nearCache.get("diaryDetail", "yusi:diary:detail:v4:d1:u1")).isNull();
+    }
+
+    @Test
+    void valueReadBeforeAnInvalidationIsNotWrittenBack() {
+        long stamp = nearCache.stamp();
+        // 另一个节点在本次读 L2 期间更新了数据
+        remoteListener.onMessage("yusi:near", "yusi:diary:detail:v4:d1:u1");
+
+        nearCache.put("diaryDetail", 10, 30, "yusi:diary:detail:v4:d1:u1", "{\"stale\":true}", stamp);
+
+        assertThat(nearCache.get("diaryDetail", "yusi:diary:detail:v4:d1:u1")).isNull();
+    }
+
+    @Test
+    void disabledNearCacheNeitherStoresNorSubscribes() {
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        NearCache disabled = new NearCache(redissonClient, null, false, "yusi:");
+        disabled.init();
+
+        disabled.put("diaryDetail", 10, 30, "k", "v", disabled.stamp());
+        disabled.invalidate("k");
+
+        assertThat(disabled.get("diaryDetail", "k")).isNull();
+        verify(redissonClient, never()).getTopic(anyString());
+    }
+
+    private double count(String tier, String result) {
+        return registry.find("query_cache_total").tag("operation", tier).tag("result", result).counter().count();
+    }
+}
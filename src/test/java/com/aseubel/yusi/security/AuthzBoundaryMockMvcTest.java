@@ -29,10 +29,9 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
-import org.redisson.api.RRateLimiter;
-import org.redisson.api.RateIntervalUnit;
-import org.redisson.api.RateType;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -44,15 +43,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -145,7 +143,7 @@ class AuthzBoundaryMockMvcTest {
     @Autowired
     private RedissonClient redissonClient;
 
-    private RRateLimiter rateLimiter;
+    private RScript rateLimitScript;
 
     @BeforeEach
     void setUpFixtureBoundaries() {
@@ -157,12 +155,12 @@ class AuthzBoundaryMockMvcTest {
         when(tokenService.isValidDeviceToken(anyString(), anyString())).thenReturn(true);
         when(userService.checkAdmin(anyString())).thenReturn(false);
 
-        rateLimiter = org.mockito.Mockito.mock(RRateLimiter.class);
-        when(redissonClient.getRateLimiter(anyString())).thenReturn(rateLimiter);
-        when(rateLimiter.trySetRate(any(RateType.class), anyInt(), anyInt(), any(RateIntervalUnit.class)))
-                .thenReturn(true);
-        when(rateLimiter.expire(any(Duration.class))).thenReturn(true);
-        when(rateLimiter.tryAcquire()).thenReturn(true);
+        rateLimitScript = org.mockito.Mockito.mock(RScript.class);
+        when(redissonClient.getScript(any(Codec.class))).thenReturn(rateLimitScript);
+        when(rateLimitScript.evalSha(any(RScript.Mode.class), anyString(), eq(RScript.ReturnType.INTEGER),
+                org.mockito.ArgumentMatchers.<List<Object>>argThat(keys -> keys != null && keys.size() == 1
+                        && String.valueOf(keys.get(0)).endsWith(":bucket")),
+                any(Object[].class))).thenReturn(1L);
 
         saveFixtureUser(USER, 0);
         saveFixtureUser(OTHER_USER, 0);
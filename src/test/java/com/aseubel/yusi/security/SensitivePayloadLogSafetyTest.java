@@ -24,6 +24,7 @@ import com.aseubel.yusi.redis.service.IRedisService;
 import com.aseubel.yusi.service.ai.chat.ContextBuilderService;
 import com.aseubel.yusi.service.ai.prompt.PromptManager;
 import com.aseubel.yusi.service.ai.prompt.PromptSnapshot;
+import com.aseubel.yusi.service.ai.retrieval.MilvusHybridRetrievalBackend;
 import com.aseubel.yusi.service.cognition.CognitiveConflictDetector;
 import com.aseubel.yusi.service.cognition.MidMemoryFusionService;
 import com.aseubel.yusi.service.event.ProductEventService;
@@ -304,7 +305,7 @@ class SensitivePayloadLogSafetyTest {
                         + FUSION_SENTINEL + "\"}"))
                 .build());
         MidMemoryFusionService service = new MidMemoryFusionService(chatModel, promptManager,
-                midTermMemoryRepository, userService, new ObjectMapper());
+                midTermMemoryRepository, userService, new ObjectMapper(), null);
         ListAppender<ILoggingEvent> appender = attach(MidMemoryFusionService.class);
 
         assertEquals(1, service.fuseUserMemories(USER_ID));
@@ -335,7 +336,7 @@ class SensitivePayloadLogSafetyTest {
 
         MatchServiceImpl service = new MatchServiceImpl(userService, soulMatchRepository, diaryRepository,
                 matchProfileAssembler, connectionGuideService, connectionLifecycleService, matchFeedbackService,
-                productEventService, milvusClientV2, embeddingModel, chatModel, promptManager, new ObjectMapper(),
+                productEventService, new MilvusHybridRetrievalBackend(milvusClientV2), embeddingModel, chatModel, promptManager, new ObjectMapper(),
                 threadPoolExecutor, taskExecutionService);
         User userA = User.builder().userId("fixture-user-a").userName(NAME_SENTINEL).build();
         User userB = User.builder().userId("fixture-user-b").userName(NAME_SENTINEL).build();
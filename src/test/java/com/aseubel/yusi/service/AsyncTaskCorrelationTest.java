@@ -1,6 +1,8 @@
 package com.aseubel.yusi.service;
 
 import com.aseubel.yusi.common.event.DiaryChangedEvent;
+import com.aseubel.yusi.common.event.TaskEnqueuedEvent;
+import com.aseubel.yusi.common.task.TaskWakeup;
 import com.aseubel.yusi.pojo.entity.Diary;
 import com.aseubel.yusi.pojo.entity.EmbeddingTask;
 import com.aseubel.yusi.pojo.entity.LifeGraphTask;
@@ -18,7 +20,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 
@@ -43,15 +45,15 @@ class AsyncTaskCorrelationTest {
     @Mock
     private LifeGraphTaskBatchService lifeGraphTaskBatchService;
 
-    @Mock
-    private ThreadPoolTaskExecutor threadPoolTaskExecutor;
-
     @Mock
     private TaskExecutionService taskExecutionService;
 
     @Mock
     private AgentRunTraceService agentRunTraceService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Test
     void embeddingTaskKeepsDiaryChangeEventId() {
         when(taskExecutionService.createOrGet(org.mockito.ArgumentMatchers.any(TaskExecutionCommand.class)))
@@ -64,12 +66,15 @@ class AsyncTaskCorrelationTest {
         DiaryChangedEvent event = new DiaryChangedEvent(this, diary, DiaryChangedEvent.Type.MODIFY,
                 "diary-change-1");
 
-        new EmbeddingService(embeddingTaskRepository, taskExecutionService).onDiaryChanged(event);
+        new EmbeddingService(embeddingTaskRepository, taskExecutionService, eventPublisher).onDiaryChanged(event);
 
         ArgumentCaptor<EmbeddingTask> captor = ArgumentCaptor.forClass(EmbeddingTask.class);
         verify(embeddingTaskRepository).save(captor.capture());
         assertEquals("diary-change-1", captor.getValue().getTriggerEventId());
         assertEquals("execution-1", captor.getValue().getTaskExecutionId());
+        ArgumentCaptor<TaskEnqueuedEvent> wakeup = ArgumentCaptor.forClass(TaskEnqueuedEvent.class);
+        verify(eventPublisher).publishEvent(wakeup.capture());
+        assertEquals(TaskWakeup.EMBEDDING, wakeup.getValue().getQueue());
     }
 
     @Test
@@ -85,7 +90,7 @@ class AsyncTaskCorrelationTest {
         DiaryChangedEvent event = new DiaryChangedEvent(this, diary, DiaryChangedEvent.Type.MODIFY,
                 "diary-change-revision-1");
 
-        new EmbeddingService(embeddingTaskRepository, taskExecutionService).onDiaryChanged(event);
+        new EmbeddingService(embeddingTaskRepository, taskExecutionService, eventPublisher).onDiaryChanged(event);
 
         ArgumentCaptor<TaskExecutionCommand> commandCaptor = ArgumentCaptor.forClass(TaskExecutionCommand.class);
         verify(taskExecutionService).createOrGet(commandCaptor.capture());
@@ -109,8 +114,8 @@ class AsyncTaskCorrelationTest {
         when(taskExecutionService.createOrGet(org.mockito.ArgumentMatchers.any(TaskExecutionCommand.class)))
                 .thenReturn(TaskExecution.builder().taskId("execution-2").runId("run-2").build());
 
-        new LifeGraphTaskCreator(lifeGraphTaskRepository, lifeGraphTaskBatchService, threadPoolTaskExecutor,
-                taskExecutionService, agentRunTraceService)
+        new LifeGraphTaskCreator(lifeGraphTaskRepository, lifeGraphTaskBatchService, taskExecutionService,
+                agentRunTraceService, eventPublisher)
                 .onDiaryChanged(event);
 
         ArgumentCaptor<LifeGraphTask> captor = ArgumentCaptor.forClass(LifeGraphTask.class);
@@ -132,8 +137,8 @@ class AsyncTaskCorrelationTest {
         when(taskExecutionService.createOrGet(org.mockito.ArgumentMatchers.any(TaskExecutionCommand.class)))
                 .thenReturn(TaskExecution.builder().taskId("execution-revision-2").runId("run-revision-2").build());
 
-        new LifeGraphTaskCreator(lifeGraphTaskRepository, lifeGraphTaskBatchService, threadPoolTaskExecutor,
-                taskExecutionService, agentRunTraceService)
+        new LifeGraphTaskCreator(lifeGraphTaskRepository, lifeGraphTaskBatchService, taskExecutionService,
+                agentRunTraceService, eventPublisher)
                 .onDiaryChanged(event);
 
         ArgumentCaptor<TaskExecutionCommand> commandCaptor = ArgumentCaptor.forClass(TaskExecutionCommand.class);
@@ -171,13 +176,14 @@ class AsyncTaskCorrelationTest {
         when(taskExecutionService.createOrGet(org.mockito.ArgumentMatchers.any(TaskExecutionCommand.class)))
                 .thenReturn(TaskExecution.builder().taskId("execution-3").runId("run-3").build());
 
-        new LifeGraphTaskCreator(lifeGraphTaskRepository, lifeGraphTaskBatchService, threadPoolTaskExecutor,
-                taskExecutionService, agentRunTraceService)
+        new LifeGraphTaskCreator(lifeGraphTaskRepository, lifeGraphTaskBatchService, taskExecutionService,
+                agentRunTraceService, eventPublisher)
                 .onDiaryChanged(new DiaryChangedEvent(this, diary, DiaryChangedEvent.Type.MODIFY));
 
         ArgumentCaptor<LifeGraphTask> captor = ArgumentCaptor.forClass(LifeGraphTask.class);
         verify(lifeGraphTaskRepository).save(captor.capture());
         assertEquals(LifeGraphTask.TaskStatus.PENDING, captor.getValue().getStatus());
-        verify(threadPoolTaskExecutor, never()).execute(org.mockito.ArgumentMatchers.any(Runnable.class));
+        verify(lifeGraphTaskBatchService, never()).submitSingleTask(org.mockito.ArgumentMatchers.any(),
+                org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.any());
     }
 }
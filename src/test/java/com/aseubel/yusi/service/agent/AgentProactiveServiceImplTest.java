@@ -1,6 +1,7 @@
 package com.aseubel.yusi.service.agent;
 
 import com.aseubel.yusi.common.constant.PromptKey;
+import com.aseubel.yusi.common.task.BatchJobEngine;
 import com.aseubel.yusi.pojo.constant.AgentPersonaStyle;
 import com.aseubel.yusi.pojo.constant.ProactiveFrequency;
 import com.aseubel.yusi.pojo.constant.TaskExecutionKeys;
@@ -10,6 +11,7 @@ import com.aseubel.yusi.pojo.entity.AgentPersonaConfig;
 import com.aseubel.yusi.pojo.entity.MidTermMemory;
 import com.aseubel.yusi.pojo.entity.TaskExecution;
 import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.redis.service.IRedisService;
 import com.aseubel.yusi.pojo.entity.UserNotification;
 import com.aseubel.yusi.repository.AgentPersonaConfigRepository;
 import com.aseubel.yusi.repository.MidTermMemoryRepository;
@@ -29,6 +31,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 
@@ -42,6 +45,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -78,6 +82,9 @@ class AgentProactiveServiceImplTest {
     @Mock
     private AgentRunTraceService.RunScope runScope;
 
+    @Spy
+    private BatchJobEngine batchJobEngine = new BatchJobEngine(mock(IRedisService.class), Runnable::run, null, 1, 3, 0L);
+
     @InjectMocks
     private AgentProactiveServiceImpl service;
 
@@ -0,0 +1,152 @@
+package com.aseubel.yusi.service.ai.chat;
+
+import com.aseubel.yusi.common.constant.PromptKey;
+import com.aseubel.yusi.common.event.MessageSavedEvent;
+import com.aseubel.yusi.common.event.UserContextChangedEvent;
+import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.pojo.entity.UserPersona;
+import com.aseubel.yusi.repository.AgentPersonaConfigRepository;
+import com.aseubel.yusi.repository.ChatMemoryMessageRepository;
+import com.aseubel.yusi.repository.MidTermMemoryRepository;
+import com.aseubel.yusi.repository.UserRepository;
+import com.aseubel.yusi.service.ai.prompt.PromptManager;
+import com.aseubel.yusi.service.cognition.CognitiveConflictDetector;
+import com.aseubel.yusi.service.user.UserPersonaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ContextBuilderServiceTest {
+
+    private static final String USER_ID = "user-1";
+
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private PromptManager promptManager;
+    @Mock
+    private ChatMemoryMessageRepository chatMemoryMessageRepository;
+    @Mock
+    private UserPersonaService userPersonaService;
+    @Mock
+    private AgentPersonaConfigRepository agentPersonaConfigRepository;
+    @Mock
+    private MidTermMemoryRepository midTermMemoryRepository;
+    @Mock
+    private CognitiveConflictDetector conflictDetector;
+
+    private ChatContextSnapshotCache snapshotCache;
+    private ContextBuilderService service;
+
+    @BeforeEach
+    void setUp() {
+        snapshotCache = new ChatContextSnapshotCache(true, 100, 600);
+        service = new ContextBuilderService(userRepository, promptManager, chatMemoryMessageRepository,
+                userPersonaService, agentPersonaConfigRepository, midTermMemoryRepository, conflictDetector,
+                new ObjectMapper(), snapshotCache);
+        lenient().when(promptManager.getPrompt(PromptKey.CHAT)).thenReturn("你是小予。");
+        lenient().when(promptManager.getPrompt(PromptKey.AGENT_PERSONA))
+                .thenReturn("{\"gentle\":\"温柔的知己\",\"default\":\"默认风格\"}");
+        lenient().when(userRepository.findByUserId(USER_ID))
+                .thenReturn(User.builder().userId(USER_ID).userName("小明").build());
+        lenient().when(agentPersonaConfigRepository.findByUserId(USER_ID)).thenReturn(Optional.empty());
+        lenient().when(midTermMemoryRepository.findValidByUserId(eq(USER_ID), any(), any())).thenReturn(List.of());
+        lenient().when(chatMemoryMessageRepository.countByMemoryIdAndRole(USER_ID, "user")).thenReturn(9L);
+    }
+
+    @Test
+    void buildSystemMessageStr_reusesSnapshotAcrossTurnsAndKeepsTimeContextLive() {
+        String first = service.buildSystemMessageStr(USER_ID);
+        String second = service.buildSystemMessageStr(USER_ID);
+
+        assertTrue(first.contains("<nickname>小明</nickname>"));
+        assertTrue(first.contains("<style>温柔的知己</style>"));
+        assertTrue(second.contains("<time_context>"));
+        verify(userRepository, times(1)).findByUserId(USER_ID);
+        verify(agentPersonaConfigRepository, times(1)).findByUserId(USER_ID);
+        verify(midTermMemoryRepository, times(1)).findValidByUserId(eq(USER_ID), any(), any());
+        verify(conflictDetector, times(1)).getUnresolvedContext(USER_ID);
+        verify(chatMemoryMessageRepository, times(1)).countByMemoryIdAndRole(USER_ID, "user");
+        verify(promptManager, times(2)).getPrompt(PromptKey.AGENT_PERSONA);
+    }
+
+    @Test
+    void buildSystemMessageStr_rebuildsAfterContextChangedEvent() {
+        service.buildSystemMessageStr(USER_ID);
+        when(userPersonaService.getUserPersona(USER_ID))
+                .thenReturn(UserPersona.builder().userId(USER_ID).preferredName("阿明").build());
+
+        assertFalse(service.buildSystemMessageStr(USER_ID).contains("阿明"));
+
+        snapshotCache.onUserContextChanged(new UserContextChangedEvent(this, USER_ID, "UserPersona"));
+
+        assertTrue(service.buildSystemMessageStr(USER_ID).contains("<preferred_name>阿明</preferred_name>"));
+        verify(userRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void buildSystemMessageStr_rebuildsWhenAnotherInstancePublishesTheChange() {
+        List<MessageListener<String>> listeners = new CopyOnWriteArrayList<>();
+        RedissonClient redissonClient = mock(RedissonClient.class);
+        RTopic topic = mock(RTopic.class);
+        when(redissonClient.getTopic(anyString(), eq(StringCodec.INSTANCE))).thenReturn(topic);
+        when(topic.addListener(eq(String.class), any(MessageListener.class))).thenAnswer(invocation -> {
+            listeners.add(invocation.getArgument(1));
+            return 1;
+        });
+        when(topic.publish(any())).thenAnswer(invocation -> {
+            listeners.forEach(listener -> listener.onMessage("yusi:chat:context-snapshot:invalidate",
+                    invocation.getArgument(0)));
+            return (long) listeners.size();
+        });
+        ChatContextSnapshotCache local = new ChatContextSnapshotCache(true, 100, 600, null, redissonClient, "yusi:");
+        ChatContextSnapshotCache remote = new ChatContextSnapshotCache(true, 100, 600, null, redissonClient, "yusi:");
+        local.init();
+        remote.init();
+        ContextBuilderService localService = new ContextBuilderService(userRepository, promptManager,
+                chatMemoryMessageRepository, userPersonaService, agentPersonaConfigRepository,
+                midTermMemoryRepository, conflictDetector, new ObjectMapper(), local);
+        localService.buildSystemMessageStr(USER_ID);
+        when(userPersonaService.getUserPersona(USER_ID))
+                .thenReturn(UserPersona.builder().userId(USER_ID).preferredName("阿明").build());
+
+        remote.onUserContextChanged(new UserContextChangedEvent(this, USER_ID, "UserPersona"));
+
+        assertTrue(localService.buildSystemMessageStr(USER_ID).contains("<preferred_name>阿明</preferred_name>"));
+        verify(topic).publish(USER_ID);
+    }
+
+    @Test
+    void buildSystemMessageStr_advancesRelationshipStageFromSavedMessagesWithoutRecounting() {
+        assertTrue(service.buildSystemMessageStr(USER_ID).contains("你们刚刚认识"));
+
+        snapshotCache.onMessageSaved(new MessageSavedEvent(this, USER_ID));
+
+        assertTrue(service.buildSystemMessageStr(USER_ID).contains("你们已经比较熟悉了"));
+        verify(chatMemoryMessageRepository, times(1)).countByMemoryIdAndRole(USER_ID, "user");
+    }
+}
@@ -1,5 +1,6 @@
 package com.aseubel.yusi.service.ai.embedding;
 
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
 import com.aseubel.yusi.pojo.entity.Diary;
 import com.aseubel.yusi.pojo.entity.EmbeddingTask;
 import com.aseubel.yusi.pojo.entity.User;
@@ -11,8 +12,12 @@ import com.aseubel.yusi.service.ai.rag.DiaryChunker;
 import com.google.gson.JsonObject;
 import dev.langchain4j.data.segment.TextSegment;
 import io.milvus.v2.client.MilvusClientV2;
+import io.milvus.v2.service.vector.request.DeleteReq;
 import io.milvus.v2.service.vector.request.InsertReq;
+import io.milvus.v2.service.vector.request.QueryReq;
+import io.milvus.v2.service.vector.response.QueryResp;
 import com.aseubel.yusi.service.task.TaskExecutionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -21,11 +26,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
@@ -54,11 +62,14 @@ class EmbeddingBatchServiceTest {
     @Mock
     private TaskExecutionService taskExecutionService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final YusiMetrics metrics = new YusiMetrics(meterRegistry);
+
     @Test
     void processPendingTasks_writesDiaryChunkMetadataAndContextualText() {
         EmbeddingBatchService service = new EmbeddingBatchService(taskRepository, taskClaimService,
                 taskMaintenanceService, diaryRepository, userRepository, milvusClientV2, embeddingGateway,
-                diaryChunker, diaryService, taskExecutionService);
+                diaryChunker, diaryService, taskExecutionService, metrics);
         EmbeddingTask task = EmbeddingTask.createUpsertTask("diary-1", "user-1");
         task.setId(1L);
         Diary diary = Diary.builder().diaryId("diary-1").userId("user-1")
@@ -70,8 +81,10 @@ class EmbeddingBatchServiceTest {
                 new DiaryChunker.DiaryChunk("diary-1", 1, 2, "日期：2026-07-13\n标题：测试日记", "第二段。"));
 
         when(taskClaimService.claimPendingTasks(any(), anyInt())).thenReturn(List.of(task));
-        when(diaryRepository.findByDiaryIdAndUserId("diary-1", "user-1")).thenReturn(diary);
-        when(userRepository.findByUserId("user-1")).thenReturn(User.builder().keyMode("DEFAULT").build());
+        when(diaryRepository.findByUserIdInAndDiaryIdIn(Set.of("user-1"), Set.of("diary-1")))
+                .thenReturn(List.of(diary));
+        when(userRepository.findByUserIdIn(Set.of("user-1")))
+                .thenReturn(List.of(User.builder().userId("user-1").keyMode("DEFAULT").build()));
         when(diaryChunker.split(diary, diary.getPlainContent())).thenReturn(chunks);
         when(embeddingGateway.embedAll(any())).thenReturn(new EmbeddingGateway.EmbeddingBatchResult(
                 List.of(dev.langchain4j.data.embedding.Embedding.from(new float[] { 0.1f }),
@@ -88,13 +101,20 @@ class EmbeddingBatchServiceTest {
         assertEquals(0, rows.get(0).getAsJsonObject("metadata").get("chunkIndex").getAsInt());
         assertEquals(2, rows.get(1).getAsJsonObject("metadata").get("chunkCount").getAsInt());
         assertTrue(rows.get(0).get("text").getAsString().contains("标题：测试日记"));
+        verify(diaryRepository, never()).findByDiaryIdAndUserId(any(), any());
+        verify(userRepository, never()).findByUserId(any());
+        for (String stage : List.of("embedding-claim", "embedding-load", "embedding-chunk",
+                "embedding-embed", "embedding-write")) {
+            assertEquals(1L, meterRegistry.find("embedding_batch_stage_latency")
+                    .tag("operation", stage).timer().count());
+        }
     }
 
     @Test
     void processPendingTasks_skipsOlderDiaryRevision() {
         EmbeddingBatchService service = new EmbeddingBatchService(taskRepository, taskClaimService,
                 taskMaintenanceService, diaryRepository, userRepository, milvusClientV2, embeddingGateway,
-                diaryChunker, diaryService, taskExecutionService);
+                diaryChunker, diaryService, taskExecutionService, metrics);
         EmbeddingTask task = EmbeddingTask.createUpsertTask("diary-2", "user-1", "event-old");
         task.setId(2L);
         task.setSourceRevision(1L);
@@ -102,7 +122,8 @@ class EmbeddingBatchServiceTest {
                 .sourceRevision(2L).plainContent("new content").build();
 
         when(taskClaimService.claimPendingTasks(any(), anyInt())).thenReturn(List.of(task));
-        when(diaryRepository.findByDiaryIdAndUserId("diary-2", "user-1")).thenReturn(currentDiary);
+        when(diaryRepository.findByUserIdInAndDiaryIdIn(Set.of("user-1"), Set.of("diary-2")))
+                .thenReturn(List.of(currentDiary));
 
         service.processPendingTasks();
 
@@ -110,4 +131,140 @@ class EmbeddingBatchServiceTest {
         verify(milvusClientV2, never()).delete(any());
         verify(taskRepository).markAsCompleted(any(Long.class), any());
     }
+
+    @Test
+    void processPendingTasks_onlyEmbedsChangedChunksAndRewritesDocumentMetadata() {
+        EmbeddingBatchService service = new EmbeddingBatchService(taskRepository, taskClaimService,
+                taskMaintenanceService, diaryRepository, userRepository, milvusClientV2, embeddingGateway,
+                diaryChunker, diaryService, taskExecutionService, metrics);
+        EmbeddingTask task = EmbeddingTask.createUpsertTask("diary-3", "user-1");
+        task.setId(3L);
+        Diary diary = Diary.builder().diaryId("diary-3").userId("user-1")
+                .plainContent("第一段。\n\n第二段改了。")
+                .build();
+        DiaryChunker.DiaryChunk unchanged = new DiaryChunker.DiaryChunk("diary-3", 0, 2, "", "第一段。");
+        DiaryChunker.DiaryChunk changed = new DiaryChunker.DiaryChunk("diary-3", 1, 2, "", "第二段改了。");
+        DiaryChunker.DiaryChunk previousSecond = new DiaryChunker.DiaryChunk("diary-3", 1, 3, "", "第二段。");
+        QueryResp stored = QueryResp.builder().queryResults(List.of(
+                storedRow("diary-3_0", unchanged.contentHash(), 3),
+                storedRow("diary-3_1", previousSecond.contentHash(), 3),
+                storedRow("diary-3_2", "obsolete-hash", 3))).build();
+
+        when(taskClaimService.claimPendingTasks(any(), anyInt())).thenReturn(List.of(task));
+        when(diaryRepository.findByUserIdInAndDiaryIdIn(Set.of("user-1"), Set.of("diary-3")))
+                .thenReturn(List.of(diary));
+        when(userRepository.findByUserIdIn(Set.of("user-1")))
+                .thenReturn(List.of(User.builder().userId("user-1").keyMode("DEFAULT").build()));
+        when(diaryChunker.split(diary, diary.getPlainContent())).thenReturn(List.of(unchanged, changed));
+        when(milvusClientV2.query(any(QueryReq.class))).thenReturn(stored);
+        when(embeddingGateway.embedAll(any())).thenReturn(new EmbeddingGateway.EmbeddingBatchResult(
+                List.of(dev.langchain4j.data.embedding.Embedding.from(new float[] { 0.3f })),
+                "bge-m3", 6, 1, 1, 1));
+
+        service.processPendingTasks();
+
+        ArgumentCaptor<List<TextSegment>> segments = ArgumentCaptor.forClass(List.class);
+        verify(embeddingGateway).embedAll(segments.capture());
+        assertEquals(List.of("第二段改了。"), segments.getValue().stream().map(TextSegment::text).toList());
+
+        ArgumentCaptor<DeleteReq> deleteCaptor = ArgumentCaptor.forClass(DeleteReq.class);
+        verify(milvusClientV2).delete(deleteCaptor.capture());
+        assertEquals(List.of("diary-3_0", "diary-3_1", "diary-3_2"), deleteCaptor.getValue().getIds());
+
+        // 第一段内容没变，但整篇分片数从 3 变成 2：用旧向量重写元数据，不重新向量化
+        ArgumentCaptor<InsertReq> insertCaptor = ArgumentCaptor.forClass(InsertReq.class);
+        verify(milvusClientV2).insert(insertCaptor.capture());
+        List<JsonObject> rows = insertCaptor.getValue().getData();
+        assertEquals(2, rows.size());
+        assertEquals("diary-3_0", rows.get(0).get("id").getAsString());
+        assertEquals(2, rows.get(0).getAsJsonObject("metadata").get("chunkCount").getAsInt());
+        assertEquals(0.5f, rows.get(0).getAsJsonArray("vector").get(0).getAsFloat());
+        assertEquals("diary-3_1", rows.get(1).get("id").getAsString());
+        assertEquals(changed.contentHash(),
+                rows.get(1).getAsJsonObject("metadata").get("contentHash").getAsString());
+        verify(taskRepository).markAsCompleted(any(Long.class), any());
+    }
+
+    @Test
+    void processPendingTasks_skipsChunksWhoseContentAndDocumentMetadataAreUnchanged() {
+        EmbeddingBatchService service = new EmbeddingBatchService(taskRepository, taskClaimService,
+                taskMaintenanceService, diaryRepository, userRepository, milvusClientV2, embeddingGateway,
+                diaryChunker, diaryService, taskExecutionService, metrics);
+        EmbeddingTask task = EmbeddingTask.createUpsertTask("diary-3", "user-1");
+        task.setId(4L);
+        Diary diary = Diary.builder().diaryId("diary-3").userId("user-1")
+                .plainContent("第一段。\n\n第二段改了。")
+                .build();
+        DiaryChunker.DiaryChunk unchanged = new DiaryChunker.DiaryChunk("diary-3", 0, 2, "", "第一段。");
+        DiaryChunker.DiaryChunk changed = new DiaryChunker.DiaryChunk("diary-3", 1, 2, "", "第二段改了。");
+        QueryResp stored = QueryResp.builder().queryResults(List.of(
+                storedRow("diary-3_0", unchanged.contentHash(), 2),
+                storedRow("diary-3_1", "previous-hash", 2))).build();
+
+        when(taskClaimService.claimPendingTasks(any(), anyInt())).thenReturn(List.of(task));
+        when(diaryRepository.findByUserIdInAndDiaryIdIn(Set.of("user-1"), Set.of("diary-3")))
+                .thenReturn(List.of(diary));
+        when(userRepository.findByUserIdIn(Set.of("user-1")))
+                .thenReturn(List.of(User.builder().userId("user-1").keyMode("DEFAULT").build()));
+        when(diaryChunker.split(diary, diary.getPlainContent())).thenReturn(List.of(unchanged, changed));
+        when(milvusClientV2.query(any(QueryReq.class))).thenReturn(stored);
+        when(embeddingGateway.embedAll(any())).thenReturn(new EmbeddingGateway.EmbeddingBatchResult(
+                List.of(dev.langchain4j.data.embedding.Embedding.from(new float[] { 0.3f })),
+                "bge-m3", 6, 1, 1, 1));
+
+        service.processPendingTasks();
+
+        ArgumentCaptor<DeleteReq> deleteCaptor = ArgumentCaptor.forClass(DeleteReq.class);
+        verify(milvusClientV2).delete(deleteCaptor.capture());
+        assertEquals(List.of("diary-3_1"), deleteCaptor.getValue().getIds());
+        ArgumentCaptor<InsertReq> insertCaptor = ArgumentCaptor.forClass(InsertReq.class);
+        verify(milvusClientV2).insert(insertCaptor.capture());
+        assertEquals(List.of("diary-3_1"), insertCaptor.getValue().getData().stream()
+                .map(row -> row.get("id").getAsString()).toList());
+    }
+
+    @Test
+    void processPendingTasks_retriesInsteadOfInsertingWhenStaleChunksCannotBeDeleted() {
+        EmbeddingBatchService service = new EmbeddingBatchService(taskRepository, taskClaimService,
+                taskMaintenanceService, diaryRepository, userRepository, milvusClientV2, embeddingGateway,
+                diaryChunker, diaryService, taskExecutionService, metrics);
+        EmbeddingTask task = EmbeddingTask.createUpsertTask("diary-3", "user-1");
+        task.setId(5L);
+        Diary diary = Diary.builder().diaryId("diary-3").userId("user-1")
+                .plainContent("第一段。\n\n第二段改了。")
+                .build();
+        DiaryChunker.DiaryChunk unchanged = new DiaryChunker.DiaryChunk("diary-3", 0, 2, "", "第一段。");
+        DiaryChunker.DiaryChunk changed = new DiaryChunker.DiaryChunk("diary-3", 1, 2, "", "第二段改了。");
+        QueryResp stored = QueryResp.builder().queryResults(List.of(
+                storedRow("diary-3_0", unchanged.contentHash(), 2),
+                storedRow("diary-3_1", "previous-hash", 2))).build();
+
+        when(taskClaimService.claimPendingTasks(any(), anyInt())).thenReturn(List.of(task));
+        when(diaryRepository.findByUserIdInAndDiaryIdIn(Set.of("user-1"), Set.of("diary-3")))
+                .thenReturn(List.of(diary));
+        when(userRepository.findByUserIdIn(Set.of("user-1")))
+                .thenReturn(List.of(User.builder().userId("user-1").keyMode("DEFAULT").build()));
+        when(diaryChunker.split(diary, diary.getPlainContent())).thenReturn(List.of(unchanged, changed));
+        when(milvusClientV2.query(any(QueryReq.class))).thenReturn(stored);
+        when(embeddingGateway.embedAll(any())).thenReturn(new EmbeddingGateway.EmbeddingBatchResult(
+                List.of(dev.langchain4j.data.embedding.Embedding.from(new float[] { 0.3f })),
+                "bge-m3", 6, 1, 1, 1));
+        when(milvusClientV2.delete(any(DeleteReq.class))).thenThrow(new IllegalStateException("milvus down"));
+
+        service.processPendingTasks();
+
+        // diary-3_1 会以原 ID 重写，旧行没删掉就不能插入，否则检索会同时返回新旧内容
+        verify(milvusClientV2, never()).insert(any(InsertReq.class));
+        verify(taskRepository, never()).markAsCompleted(any(Long.class), any());
+        verify(taskRepository).incrementRetryAndSetNextAttempt(eq(5L), any(), any(), any());
+    }
+
+    private QueryResp.QueryResult storedRow(String id, String contentHash, int chunkCount) {
+        return QueryResp.QueryResult.builder()
+                .entity(Map.of("id", id,
+                        "metadata", Map.of("diaryId", "diary-3", "contentHash", contentHash,
+                                "chunkCount", chunkCount),
+                        "vector", List.of(0.5f)))
+                .build();
+    }
 }
@@ -0,0 +1,186 @@
+package com.aseubel.yusi.service.ai.embedding;
+
+import com.aseubel.yusi.config.ai.properties.EmbeddingModelConfigProperties;
+import com.aseubel.yusi.pojo.entity.Diary;
+import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.redis.service.IRedisService;
+import com.aseubel.yusi.repository.DiaryRepository;
+import com.aseubel.yusi.repository.UserRepository;
+import com.aseubel.yusi.service.ai.rag.DiaryChunker;
+import com.aseubel.yusi.service.diary.DiaryService;
+import dev.langchain4j.data.embedding.Embedding;
+import io.milvus.v2.client.MilvusClientV2;
+import io.milvus.v2.service.collection.request.RenameCollectionReq;
+import io.milvus.v2.service.collection.response.ListCollectionsResp;
+import io.milvus.v2.service.utility.request.AlterAliasReq;
+import io.milvus.v2.service.utility.request.CreateAliasReq;
+import io.milvus.v2.service.vector.request.DeleteReq;
+import io.milvus.v2.service.vector.request.InsertReq;
+import io.milvus.v2.service.vector.request.QueryReq;
+import io.milvus.v2.service.vector.response.QueryResp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RLock;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingReindexServiceTest {
+
+    @Mock
+    private MilvusClientV2 milvusClientV2;
+    @Mock
+    private DiaryRepository diaryRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private DiaryService diaryService;
+    @Mock
+    private DiaryChunker diaryChunker;
+    @Mock
+    private EmbeddingGateway embeddingGateway;
+    @Mock
+    private EmbeddingTaskMaintenanceService taskMaintenanceService;
+    @Mock
+    private IRedisService redisService;
+
+    private final AtomicReference<EmbeddingReindexCheckpoint> stored = new AtomicReference<>();
+    private EmbeddingReindexService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new EmbeddingReindexService(milvusClientV2, diaryRepository, userRepository, diaryService,
+                diaryChunker, embeddingGateway, taskMaintenanceService, redisService,
+                new EmbeddingModelConfigProperties(), 2, 10, 8);
+        RLock lock = mock(RLock.class);
+        lenient().when(lock.tryLock()).thenReturn(true);
+        lenient().when(lock.isHeldByCurrentThread()).thenReturn(true);
+        lenient().when(redisService.getLock(EmbeddingReindexService.LOCK_KEY)).thenReturn(lock);
+        lenient().when(redisService.<EmbeddingReindexCheckpoint>getValue(EmbeddingReindexService.CHECKPOINT_KEY))
+                .thenAnswer(invocation -> stored.get());
+        lenient().doAnswer(invocation -> {
+            stored.set(invocation.getArgument(1));
+            return null;
+        }).when(redisService).setValue(eq(EmbeddingReindexService.CHECKPOINT_KEY), any());
+        lenient().doAnswer(invocation -> {
+            stored.set(invocation.getArgument(1));
+            return null;
+        }).when(redisService).setValue(eq(EmbeddingReindexService.CHECKPOINT_KEY), any(), anyLong());
+        lenient().when(userRepository.findByUserIdIn(any()))
+                .thenReturn(List.of(User.builder().userId("user-1").keyMode("DEFAULT").build()));
+        lenient().when(embeddingGateway.embedAll(any())).thenAnswer(invocation -> {
+            List<?> segments = invocation.getArgument(0);
+            List<Embedding> embeddings = segments.stream()
+                    .map(ignored -> Embedding.from(new float[] { 0.1f }))
+                    .toList();
+            return new EmbeddingGateway.EmbeddingBatchResult(embeddings, "bge-m3", 1, segments.size(), 1, 1);
+        });
+    }
+
+    @Test
+    void resume_streamsAllPagesIntoShadowThenSwapsAliasAndReplaysTasks() {
+        Diary first = diary(1L, "diary-1");
+        Diary second = diary(2L, "diary-2");
+        Diary third = diary(3L, "diary-3");
+        stubChunks(first, second, third);
+        when(diaryRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(List.of(first, second));
+        when(diaryRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any())).thenReturn(List.of(third));
+        when(diaryRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), any())).thenReturn(List.of());
+        ListCollectionsResp collections = mock(ListCollectionsResp.class);
+        when(collections.getCollectionNames()).thenReturn(List.of("yusi_embedding_collection"));
+        when(milvusClientV2.listCollections()).thenReturn(collections);
+        when(milvusClientV2.query(any(QueryReq.class))).thenReturn(countResponse(3L));
+
+        service.start();
+        String shadow = stored.get().getShadowCollection();
+        assertTrue(shadow.startsWith("yusi_embedding_collection_v"));
+
+        service.resume();
+
+        ArgumentCaptor<InsertReq> inserts = ArgumentCaptor.forClass(InsertReq.class);
+        verify(milvusClientV2, times(2)).insert(inserts.capture());
+        assertTrue(inserts.getAllValues().stream().allMatch(request -> shadow.equals(request.getCollectionName())));
+        ArgumentCaptor<RenameCollectionReq> rename = ArgumentCaptor.forClass(RenameCollectionReq.class);
+        verify(milvusClientV2).renameCollection(rename.capture());
+        assertTrue(rename.getValue().getNewCollectionName().startsWith("yusi_embedding_collection_legacy_"));
+        ArgumentCaptor<CreateAliasReq> alias = ArgumentCaptor.forClass(CreateAliasReq.class);
+        verify(milvusClientV2).createAlias(alias.capture());
+        assertEquals("yusi_embedding_collection", alias.getValue().getAlias());
+        assertEquals(shadow, alias.getValue().getCollectionName());
+        assertEquals(EmbeddingReindexCheckpoint.Status.SWAPPED, stored.get().getStatus());
+        assertEquals(3L, stored.get().getInsertedRows());
+
+        service.resume();
+
+        verify(taskMaintenanceService, times(2)).replayTasksUpdatedSince(any(), any());
+        assertEquals(EmbeddingReindexCheckpoint.Status.DONE, stored.get().getStatus());
+    }
+
+    @Test
+    void resume_continuesFromCheckpointAndKeepsAliasWhenRowCountMismatches() {
+        EmbeddingReindexCheckpoint checkpoint = new EmbeddingReindexCheckpoint();
+        checkpoint.setShadowCollection("yusi_embedding_collection_v20261017000000");
+        checkpoint.setStatus(EmbeddingReindexCheckpoint.Status.RUNNING);
+        checkpoint.setLastDiaryPk(2L);
+        checkpoint.setScannedDiaries(2L);
+        checkpoint.setSkippedDiaries(0L);
+        checkpoint.setInsertedRows(2L);
+        checkpoint.setStartedAt(System.currentTimeMillis());
+        stored.set(checkpoint);
+        Diary third = diary(3L, "diary-3");
+        stubChunks(third);
+        when(diaryRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any())).thenReturn(List.of(third));
+        when(diaryRepository.findByIdGreaterThanOrderByIdAsc(eq(3L), any())).thenReturn(List.of());
+        when(milvusClientV2.query(any(QueryReq.class))).thenReturn(countResponse(2L));
+
+        service.resume();
+
+        verify(diaryRepository, never()).findByIdGreaterThanOrderByIdAsc(eq(0L), any());
+        ArgumentCaptor<DeleteReq> delete = ArgumentCaptor.forClass(DeleteReq.class);
+        verify(milvusClientV2).delete(delete.capture());
+        assertEquals("yusi_embedding_collection_v20261017000000", delete.getValue().getCollectionName());
+        assertEquals("id like 'diary-3_%'", delete.getValue().getFilter());
+        assertEquals(EmbeddingReindexCheckpoint.Status.FAILED, stored.get().getStatus());
+        verify(milvusClientV2, never()).createAlias(any(CreateAliasReq.class));
+        verify(milvusClientV2, never()).alterAlias(any(AlterAliasReq.class));
+        verify(taskMaintenanceService, never()).replayTasksUpdatedSince(any(), any());
+    }
+
+    private Diary diary(Long id, String diaryId) {
+        return Diary.builder().id(id).diaryId(diaryId).userId("user-1")
+                .entryDate(LocalDate.of(2026, 10, 1)).plainContent("内容 " + diaryId).build();
+    }
+
+    private void stubChunks(Diary... diaries) {
+        for (Diary diary : diaries) {
+            when(diaryChunker.split(diary, diary.getPlainContent())).thenReturn(List.of(
+                    new DiaryChunker.DiaryChunk(diary.getDiaryId(), 0, 1, "日期：2026-10-01", diary.getPlainContent())));
+        }
+    }
+
+    private QueryResp countResponse(long count) {
+        return QueryResp.builder().queryResults(List.of(QueryResp.QueryResult.builder()
+                .entity(Map.of("count(*)", count))
+                .build())).build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.aseubel.yusi.service.ai.embedding;
+
+import com.aseubel.yusi.config.ai.properties.EmbeddingModelConfigProperties;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryEmbeddingCacheTest {
+
+    @Test
+    void normalizedRepeatQueriesHitTheCacheAndAreCounted() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.modelName()).thenReturn("fixture-embedding");
+        when(embeddingModel.embed(anyString())).thenReturn(Response.from(Embedding.from(new float[] { 0.1f })));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(embeddingModel, new EmbeddingModelConfigProperties(),
+                new YusiMetrics(registry));
+
+        Embedding first = cache.embed("  Work   Stress ");
+        Embedding second = cache.embed("work stress");
+
+        assertThat(second).isSameAs(first);
+        verify(embeddingModel, times(1)).embed(anyString());
+        assertThat(registry.find("query_embedding_cache_total").tag("result", "miss").counter().count())
+                .isEqualTo(1D);
+        assertThat(registry.find("query_embedding_cache_total").tag("result", "hit").counter().count())
+                .isEqualTo(1D);
+    }
+
+    @Test
+    void sizeLimitEvictsOldEntries() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(anyString())).thenReturn(Response.from(Embedding.from(new float[] { 0.1f })));
+        EmbeddingModelConfigProperties properties = new EmbeddingModelConfigProperties();
+        properties.getQueryCache().setMaxSize(2);
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(embeddingModel, properties);
+
+        cache.embed("a");
+        cache.embed("b");
+        cache.embed("c");
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2L);
+    }
+
+    @Test
+    void concurrentIdenticalMissesShareOneEmbeddingCall() throws Exception {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return Response.from(Embedding.from(new float[] { 0.2f }));
+        });
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(embeddingModel, new EmbeddingModelConfigProperties());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Embedding>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> cache.embed("same query")));
+            }
+            Thread.sleep(100L);
+            release.countDown();
+            for (Future<Embedding> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS).vector()).containsExactly(0.2f);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(calls.get()).isEqualTo(1);
+    }
+}
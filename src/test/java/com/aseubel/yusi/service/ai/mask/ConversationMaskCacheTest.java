@@ -0,0 +1,128 @@
+package com.aseubel.yusi.service.ai.mask;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationMaskCacheTest {
+
+    private static final String FIRST = "我和张三去了北京";
+    private static final String REPLY = "北京好玩吗？";
+    private static final String SECOND = "李四也来了，还带了张三";
+
+    private SensitiveDataMaskService maskService;
+    private ConversationMaskCache cache;
+
+    @BeforeEach
+    void setUp() {
+        maskService = mock(SensitiveDataMaskService.class);
+        when(maskService.mask(anyString())).thenAnswer(invocation -> MaskResult.noMask(invocation.getArgument(0)));
+        // 单段识别的占位符编号都从 1 开始
+        when(maskService.mask(FIRST)).thenReturn(
+                new MaskResult("我和[人名_1]去了[地名_1]", mapping("[人名_1]", "张三", "[地名_1]", "北京"), true));
+        when(maskService.mask(REPLY)).thenReturn(
+                new MaskResult("[地名_1]好玩吗？", mapping("[地名_1]", "北京"), true));
+        when(maskService.mask(SECOND)).thenReturn(new MaskResult("[人名_1]也来了，还带了[人名_2]",
+                mapping("[人名_1]", "李四", "[人名_2]", "张三"), true));
+        cache = new ConversationMaskCache(maskService);
+    }
+
+    @Test
+    void analyze_onlyDetectsNewMessagesAndKeepsPlaceholdersStableAcrossTurns() {
+        ConversationMaskCache.MaskTurn first = cache.analyze("user-1:chat", List.of(FIRST));
+        String firstMasked = first.mask(FIRST);
+
+        ConversationMaskCache.MaskTurn second = cache.analyze("user-1:chat", List.of(FIRST, REPLY, SECOND));
+
+        verify(maskService, times(1)).mask(FIRST);
+        verify(maskService, times(1)).mask(REPLY);
+        verify(maskService, times(1)).mask(SECOND);
+        assertEquals(firstMasked, second.mask(FIRST));
+        assertEquals("[地名_1]好玩吗？", second.mask(REPLY));
+        assertEquals("[人名_2]也来了，还带了[人名_1]", second.mask(SECOND));
+        assertEquals("李四", second.getMappingTable().get("[人名_2]"));
+        assertEquals(2, first.getMappingTable().size(), "上一轮的映射表快照不受新实体影响");
+    }
+
+    @Test
+    void analyze_reusesTurnWhenNothingNewIsDetected() {
+        ConversationMaskCache.MaskTurn first = cache.analyze("user-1:chat", List.of(FIRST, REPLY));
+        ConversationMaskCache.MaskTurn second = cache.analyze("user-1:chat", List.of(FIRST, REPLY, "好的"));
+
+        assertEquals(first.getMappingTable(), second.getMappingTable());
+        assertSame(first.getMappingTable(), second.getMappingTable(), "映射表实例不变，还原自动机可以复用");
+    }
+
+    @Test
+    void analyze_withoutConversationIdDoesNotShareState() {
+        cache.analyze(null, List.of(FIRST));
+        ConversationMaskCache.MaskTurn turn = cache.analyze(null, List.of(SECOND));
+
+        verify(maskService, times(1)).mask(FIRST);
+        assertEquals("[人名_1]也来了，还带了[人名_2]", turn.mask(SECOND));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void analyze_separatesConversations() {
+        cache.analyze("user-1:chat", List.of(FIRST));
+        ConversationMaskCache.MaskTurn other = cache.analyze("user-2:chat", List.of(REPLY));
+
+        assertFalse(other.getMappingTable().containsValue("张三"));
+        verify(maskService, times(1)).mask(FIRST);
+    }
+
+    @Test
+    void invalidateUser_dropsEveryScenarioOfThatUserOnly() {
+        cache.analyze(ConversationMaskCache.conversationId("user-1", "chat"), List.of(FIRST));
+        cache.analyze(ConversationMaskCache.conversationId("user-1", "diary"), List.of(FIRST));
+        cache.analyze(ConversationMaskCache.conversationId("user-10", "chat"), List.of(FIRST));
+
+        cache.invalidateUser("user-1");
+
+        assertEquals(1, cache.size());
+        cache.analyze(ConversationMaskCache.conversationId("user-1", "chat"), List.of(FIRST));
+        verify(maskService, times(3)).mask(FIRST);
+    }
+
+    @Test
+    void analyze_resetsMappingsBetweenTurnsOnceTheCapIsExceeded() {
+        when(maskService.mask(org.mockito.ArgumentMatchers.startsWith("名字"))).thenAnswer(invocation -> {
+            String text = invocation.getArgument(0);
+            return new MaskResult("[人名_1]", mapping("[人名_1]", text), true);
+        });
+        List<String> names = new java.util.ArrayList<>();
+        for (int i = 0; i <= ConversationMaskCache.MAX_MAPPINGS_PER_CONVERSATION; i++) {
+            names.add("名字" + i);
+        }
+
+        ConversationMaskCache.MaskTurn crowded = cache.analyze("user-1:chat", names);
+        ConversationMaskCache.MaskTurn next = cache.analyze("user-1:chat", List.of(SECOND));
+
+        assertEquals(ConversationMaskCache.MAX_MAPPINGS_PER_CONVERSATION + 1, crowded.getMappingTable().size(),
+                "同一轮内不丢映射，否则会漏脱敏");
+        assertEquals(Map.of("[人名_1]", "李四", "[人名_2]", "张三"), next.getMappingTable());
+        assertEquals("[人名_1]也来了，还带了[人名_2]", next.mask(SECOND));
+    }
+
+    /** 与识别结果一致：映射表按文本中出现的顺序排列 */
+    private static Map<String, String> mapping(String... placeholderAndValues) {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 0; i < placeholderAndValues.length; i += 2) {
+            mapping.put(placeholderAndValues[i], placeholderAndValues[i + 1]);
+        }
+        return mapping;
+    }
+}
@@ -0,0 +1,80 @@
+package com.aseubel.yusi.service.ai.mask;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 脱敏替换与流式还原的耗时对比，默认构建不执行：./mvnw test -Dtest.excludedGroups= -Dgroups=benchmark
+ */
+@Tag("benchmark")
+class MaskAutomatonBenchmark {
+
+    @Test
+    void streamingUnmaskAgainstPerTokenUnmask() {
+        Map<String, String> mapping = MaskAutomatonTest.streamingMapping();
+        List<String> tokens = MaskAutomatonTest.streamingTokens(mapping, 400);
+        SensitiveDataMaskService service = new SensitiveDataMaskService();
+        MaskAutomaton automaton = MaskAutomaton.of(mapping);
+        String expected = automaton.replace(String.join("", tokens));
+
+        long perTokenNanos = 0;
+        long streamingNanos = 0;
+        for (int round = 0; round < 20; round++) {
+            long startedAt = System.nanoTime();
+            for (String token : tokens) {
+                service.unmask(mapping, token);
+            }
+            perTokenNanos += System.nanoTime() - startedAt;
+
+            startedAt = System.nanoTime();
+            MaskAutomaton.Streaming streaming = automaton.streaming();
+            StringBuilder out = new StringBuilder();
+            for (String token : tokens) {
+                out.append(streaming.feed(token));
+            }
+            out.append(streaming.flush());
+            streamingNanos += System.nanoTime() - startedAt;
+            assertEquals(expected, out.toString());
+        }
+
+        System.out.printf("streaming unmask benchmark (%d tokens): per-token unmask=%.0fns/token streaming=%.0fns/token%n",
+                tokens.size(), (double) perTokenNanos / 20 / tokens.size(), (double) streamingNanos / 20 / tokens.size());
+    }
+
+    @Test
+    void maskHundredMessageHistoryAgainstLegacyReplaceLoop() {
+        Map<String, String> mapping = MaskAutomatonTest.historyMapping();
+        Map<String, String> reverseMapping = MaskAutomatonTest.reverse(mapping);
+        List<String> history = MaskAutomatonTest.history(mapping, 100);
+
+        long legacyNanos = 0;
+        long automatonNanos = 0;
+        for (int round = 0; round < 30; round++) {
+            long startedAt = System.nanoTime();
+            List<String> legacyMasked = new ArrayList<>(history.size());
+            for (String message : history) {
+                legacyMasked.add(MaskAutomatonTest.legacyReplace(message, reverseMapping));
+            }
+            legacyNanos += System.nanoTime() - startedAt;
+
+            startedAt = System.nanoTime();
+            MaskAutomaton automaton = MaskAutomaton.of(reverseMapping);
+            List<String> masked = new ArrayList<>(history.size());
+            for (String message : history) {
+                masked.add(automaton.replace(message));
+            }
+            automatonNanos += System.nanoTime() - startedAt;
+
+            assertEquals(legacyMasked, masked);
+        }
+
+        System.out.printf("mask replace benchmark (100 messages x %d mappings): legacy=%.2fms automaton=%.2fms%n",
+                mapping.size(), legacyNanos / 30 / 1e6, automatonNanos / 30 / 1e6);
+    }
+}
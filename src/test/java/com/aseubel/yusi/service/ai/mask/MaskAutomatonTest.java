@@ -0,0 +1,200 @@
+package com.aseubel.yusi.service.ai.mask;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MaskAutomatonTest {
+
+    @Test
+    void replace_prefersLeftmostLongestRegardlessOfMappingOrder() {
+        Map<String, String> shortFirst = new LinkedHashMap<>();
+        shortFirst.put("张三", "[人名_1]");
+        shortFirst.put("张三丰", "[人名_2]");
+        Map<String, String> longFirst = new LinkedHashMap<>();
+        longFirst.put("张三丰", "[人名_2]");
+        longFirst.put("张三", "[人名_1]");
+
+        String text = "张三丰和张三在武当山见面";
+
+        assertEquals("[人名_2]和[人名_1]在武当山见面", MaskAutomaton.of(shortFirst).replace(text));
+        assertEquals("[人名_2]和[人名_1]在武当山见面", MaskAutomaton.of(longFirst).replace(text));
+    }
+
+    @Test
+    void replace_findsPatternsHiddenBehindFailedPrefixes() {
+        MaskAutomaton automaton = MaskAutomaton.of(Map.of("abcd", "X", "bc", "Y", "cde", "Z"));
+
+        assertEquals("aYe", automaton.replace("abce"));
+        assertEquals("Xe", automaton.replace("abcde"));
+        assertEquals("xYde", automaton.replace("xbcde"));
+        assertEquals("xxZ", automaton.replace("xxcde"));
+    }
+
+    @Test
+    void replace_returnsSameInstanceWhenNothingMatches() {
+        MaskAutomaton automaton = MaskAutomaton.of(Map.of("北京", "[地名_1]"));
+        String text = "今天天气不错";
+
+        assertSame(text, automaton.replace(text));
+        assertSame(text, MaskAutomaton.of(Map.of()).replace(text));
+        assertTrue(MaskAutomaton.of(Map.of("", "x")).isEmpty());
+    }
+
+    @Test
+    void unmask_doesNotConfusePlaceholderPrefixes() {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 1; i <= 12; i++) {
+            mapping.put("[人名_" + i + "]", "人" + i);
+        }
+        SensitiveDataMaskService service = new SensitiveDataMaskService();
+
+        assertEquals("人1见了人12和人2", service.unmask(mapping, "[人名_1]见了[人名_12]和[人名_2]"));
+        assertSame(service.unmaskAutomaton(mapping), service.unmaskAutomaton(mapping));
+    }
+
+    @Test
+    void streaming_restoresPlaceholdersSplitAtEveryOffset() {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 1; i <= 12; i++) {
+            mapping.put(SensitiveEntityType.PERSON.getPlaceholder(i), "人" + i);
+        }
+        mapping.put(SensitiveEntityType.PHONE.getPlaceholder(1), "13800001234");
+        MaskAutomaton automaton = MaskAutomaton.of(mapping);
+        String masked = "[人名_1]和[人名_12]约在[电话_1]旁边，[人名_]不是占位符[人名_2]";
+        String expected = automaton.replace(masked);
+
+        for (int first = 0; first <= masked.length(); first++) {
+            for (int second = first; second <= masked.length(); second++) {
+                MaskAutomaton.Streaming streaming = automaton.streaming();
+                String actual = streaming.feed(masked.substring(0, first))
+                        + streaming.feed(masked.substring(first, second))
+                        + streaming.feed(masked.substring(second))
+                        + streaming.flush();
+                assertEquals(expected, actual, "split at " + first + "/" + second);
+            }
+        }
+    }
+
+    @Test
+    void streaming_holdsOnlyPossiblePlaceholderPrefix() {
+        MaskAutomaton.Streaming streaming = MaskAutomaton.of(Map.of("[人名_1]", "张三")).streaming();
+
+        assertEquals("你好", streaming.feed("你好[人"));
+        assertEquals("张三，", streaming.feed("名_1]，"));
+        assertEquals("[地名", streaming.feed("[地名"));
+        assertEquals("", streaming.feed("["));
+        assertEquals("[", streaming.flush());
+    }
+
+    @Test
+    void streaming_matchesWholeTextReplaceAcrossThreeCharacterTokens() {
+        Map<String, String> mapping = streamingMapping();
+        List<String> tokens = streamingTokens(mapping, 400);
+        MaskAutomaton automaton = MaskAutomaton.of(mapping);
+
+        MaskAutomaton.Streaming streaming = automaton.streaming();
+        StringBuilder out = new StringBuilder();
+        for (String token : tokens) {
+            out.append(streaming.feed(token));
+        }
+        out.append(streaming.flush());
+
+        assertEquals(automaton.replace(String.join("", tokens)), out.toString());
+    }
+
+    static Map<String, String> streamingMapping() {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        for (int i = 1; i <= 20; i++) {
+            mapping.put(SensitiveEntityType.PERSON.getPlaceholder(i), "人" + i);
+        }
+        return mapping;
+    }
+
+    /** 模型回复按三个字符切成 token，占位符会被切断在相邻 token 之间 */
+    static List<String> streamingTokens(Map<String, String> mapping, int sentences) {
+        List<String> placeholders = new ArrayList<>(mapping.keySet());
+        StringBuilder response = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            response.append("我记得").append(placeholders.get(i % placeholders.size()))
+                    .append("上次提到的事情，今天感觉怎么样？");
+        }
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < response.length(); i += 3) {
+            tokens.add(response.substring(i, Math.min(response.length(), i + 3)));
+        }
+        return tokens;
+    }
+
+    @Test
+    void replace_agreesWithTheLegacyReplaceLoopOnAHundredMessageHistory() {
+        Map<String, String> mapping = historyMapping();
+        Map<String, String> reverseMapping = reverse(mapping);
+        SensitiveDataMaskService service = new SensitiveDataMaskService();
+        MaskAutomaton automaton = MaskAutomaton.of(reverseMapping);
+
+        for (String message : history(mapping, 100)) {
+            String masked = automaton.replace(message);
+            assertEquals(legacyReplace(message, reverseMapping), masked);
+            assertEquals(message, service.unmask(mapping, masked));
+        }
+    }
+
+    /** 人名（含"张三"/"张三丰"前缀冲突）、地名、手机号混合的占位符映射 */
+    static Map<String, String> historyMapping() {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        String[] names = { "张三", "张三丰", "李四", "王五", "赵六", "钱七", "孙八", "周九" };
+        for (int i = 0; i < names.length; i++) {
+            mapping.put(SensitiveEntityType.PERSON.getPlaceholder(i + 1), names[i]);
+        }
+        String[] places = { "北京", "上海", "杭州", "成都", "武汉", "南京" };
+        for (int i = 0; i < places.length; i++) {
+            mapping.put(SensitiveEntityType.LOCATION.getPlaceholder(i + 1), places[i]);
+        }
+        for (int i = 0; i < 6; i++) {
+            mapping.put(SensitiveEntityType.PHONE.getPlaceholder(i + 1), "1380000" + (1000 + i));
+        }
+        return mapping;
+    }
+
+    static Map<String, String> reverse(Map<String, String> mapping) {
+        Map<String, String> reverseMapping = new HashMap<>();
+        mapping.forEach((placeholder, value) -> reverseMapping.put(value, placeholder));
+        return reverseMapping;
+    }
+
+    static List<String> history(Map<String, String> mapping, int messages) {
+        Random random = new Random(42);
+        List<String> plainValues = new ArrayList<>(mapping.values());
+        List<String> history = new ArrayList<>();
+        for (int m = 0; m < messages; m++) {
+            StringBuilder sb = new StringBuilder();
+            for (int s = 0; s < 12; s++) {
+                sb.append("今天和").append(plainValues.get(random.nextInt(plainValues.size())))
+                        .append("聊了很久，心情好了一些。");
+            }
+            history.add(sb.toString());
+        }
+        return history;
+    }
+
+    /** 改造前的逐映射 String.replace，按长度倒序以避免"张三"截断"张三丰" */
+    static String legacyReplace(String text, Map<String, String> reverseMapping) {
+        String result = text;
+        List<Map.Entry<String, String>> entries = new ArrayList<>(reverseMapping.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
+        for (Map.Entry<String, String> entry : entries) {
+            result = result.replace(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+}
@@ -8,7 +8,18 @@ import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.StringCodec;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -16,6 +27,7 @@ import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -63,6 +75,107 @@ class ModelBudgetAdmissionTest {
         verify(redissonClient, org.mockito.Mockito.times(2)).getScript(any(StringCodec.class));
     }
 
+    @Test
+    void leaseModeServesAdmissionsLocallyAndReturnsUnusedBudgetOnExpiry() {
+        ModelGatewayAdmissionProperties properties = leaseProperties(1_000, 0);
+        FakeRedis redis = new FakeRedis();
+        AtomicLong clock = new AtomicLong(0L);
+        ModelBudgetAdmission admission = new ModelBudgetAdmission(properties, redis.client(), clock::get);
+
+        for (int i = 0; i < 20; i++) {
+            ModelBudgetPermit permit = admission.reserve(context(), candidate(), new ModelTokenBudget(20, 10));
+            assertThat(permit.granted()).isTrue();
+            admission.reconcile(permit, null);
+        }
+
+        // One lease of 5% (50 requests) covers all twenty admissions.
+        verify(redis.script, times(1)).eval(eq(RScript.Mode.READ_WRITE), anyString(),
+                eq(RScript.ReturnType.INTEGER), anyList(), any(Object[].class));
+        assertThat(redis.sum(":requests")).isEqualTo(50L);
+
+        clock.addAndGet(properties.getLease().getTtlMillis());
+        admission.returnExpiredLeases();
+
+        assertThat(redis.sum(":requests")).isEqualTo(20L);
+    }
+
+    @Test
+    void leaseModeNeverExceedsGlobalBudgetAcrossNodes() throws Exception {
+        long requestLimit = 200;
+        long tokenLimit = 4_000;
+        ModelGatewayAdmissionProperties properties = leaseProperties(requestLimit, tokenLimit);
+        FakeRedis redis = new FakeRedis();
+        List<ModelBudgetAdmission> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(new ModelBudgetAdmission(properties, redis.client(), () -> 0L));
+        }
+
+        AtomicLong admitted = new AtomicLong();
+        AtomicLong usedTokens = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        ModelBudgetAdmission node = nodes.get(ThreadLocalRandom.current().nextInt(nodes.size()));
+                        ModelBudgetPermit permit = node.reserve(context(), candidate(),
+                                new ModelTokenBudget(10, 10));
+                        assertThat(redis.sum(":requests")).isLessThanOrEqualTo(requestLimit);
+                        assertThat(redis.sum(":tokens")).isLessThanOrEqualTo(tokenLimit);
+                        if (!permit.granted()) {
+                            continue;
+                        }
+                        admitted.incrementAndGet();
+                        long actualOutput = ThreadLocalRandom.current().nextLong(11);
+                        usedTokens.addAndGet(10 + actualOutput);
+                        node.reconcile(permit, new ModelUsageSnapshot(10L, actualOutput, null,
+                                "STOP", null, "test", "test"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(admitted.get()).isPositive().isLessThanOrEqualTo(requestLimit);
+        long outstandingRequests = 0;
+        long outstandingTokens = 0;
+        for (ModelBudgetAdmission node : nodes) {
+            for (String key : redis.keys(":requests")) {
+                outstandingRequests += node.outstandingLease(key);
+            }
+            for (String key : redis.keys(":tokens")) {
+                outstandingTokens += node.outstandingLease(key);
+            }
+        }
+        // The shared counters run ahead of real usage by exactly what the
+        // nodes still hold in their leases.
+        assertThat(redis.sum(":requests")).isEqualTo(admitted.get() + outstandingRequests);
+        assertThat(redis.sum(":tokens")).isEqualTo(usedTokens.get() + outstandingTokens);
+
+        nodes.forEach(ModelBudgetAdmission::returnAllLeases);
+
+        assertThat(redis.sum(":requests")).isEqualTo(admitted.get());
+        assertThat(redis.sum(":tokens")).isEqualTo(usedTokens.get());
+    }
+
+    private ModelGatewayAdmissionProperties leaseProperties(long maxRequests, long maxTokens) {
+        ModelGatewayAdmissionProperties properties = new ModelGatewayAdmissionProperties();
+        properties.setKeyPrefix("test:admission:");
+        properties.setWindowSeconds(3_600);
+        properties.getUser().setMaxRequests(maxRequests);
+        properties.getUser().setMaxTokens(maxTokens);
+        properties.getLease().setEnabled(true);
+        properties.getLease().setSliceFraction(0.05);
+        properties.getLease().setTtlMillis(2_000L);
+        properties.validate();
+        return properties;
+    }
+
     private ModelRouteContext context() {
         return ModelRouteContext.builder().userId("user-1").build();
     }
@@ -78,4 +191,106 @@ class ModelBudgetAdmissionTest {
                 .build();
         return new ModelRouteCandidate("tier-1", instance, true, null);
     }
+
+    /**
+     * In-memory stand-in for the admission scripts. Each script runs under one
+     * lock, like a Lua script on a single Redis node.
+     */
+    private static final class FakeRedis {
+
+        private final Map<String, Long> counters = new ConcurrentHashMap<>();
+        private final Map<String, String> reservations = new ConcurrentHashMap<>();
+        private final RedissonClient client = mock(RedissonClient.class);
+        private final RScript script = mock(RScript.class);
+
+        private FakeRedis() {
+            when(client.getScript(any(StringCodec.class))).thenReturn(script);
+            when(script.eval(eq(RScript.Mode.READ_WRITE), anyString(), eq(RScript.ReturnType.INTEGER),
+                    anyList(), any(Object[].class))).thenAnswer(invocation -> {
+                        String source = invocation.getArgument(1);
+                        List<Object> keys = invocation.getArgument(3);
+                        // Mockito may hand the script arguments over expanded or as one array.
+                        Object[] arguments = invocation.getArguments();
+                        Object[] args = arguments.length == 5 && arguments[4] instanceof Object[] array
+                                ? array : Arrays.copyOfRange(arguments, 4, arguments.length);
+                        synchronized (this) {
+                            return run(source, keys, args);
+                        }
+                    });
+        }
+
+        private RedissonClient client() {
+            return client;
+        }
+
+        private Long run(String source, List<Object> keys, Object[] args) {
+            if (source.equals(ModelBudgetLeases.LEASE_SCRIPT)) {
+                String key = (String) keys.get(0);
+                long available = number(args[0]) - get(key);
+                long needed = number(args[1]);
+                if (available < needed) {
+                    return 0L;
+                }
+                long grant = Math.min(Math.max(number(args[2]), needed), available);
+                counters.merge(key, grant, Long::sum);
+                return grant;
+            }
+            if (source.equals(ModelBudgetLeases.ADJUST_SCRIPT)) {
+                String key = (String) keys.get(0);
+                long delta = number(args[0]);
+                long applied = delta > 0 ? delta : -Math.min(get(key), -delta);
+                counters.merge(key, applied, Long::sum);
+                return applied;
+            }
+            String reservationKey = (String) keys.get(0);
+            if (source.contains("'EXISTS'")) {
+                if (reservations.containsKey(reservationKey)) {
+                    return -2L;
+                }
+                for (int index = 1; index < keys.size(); index++) {
+                    long limit = number(args[2 * index]);
+                    long amount = number(args[2 * index + 1]);
+                    if (limit > 0 && get((String) keys.get(index)) + amount > limit) {
+                        return (long) index + 1;
+                    }
+                }
+                for (int index = 1; index < keys.size(); index++) {
+                    counters.merge((String) keys.get(index), number(args[2 * index + 1]), Long::sum);
+                }
+                reservations.put(reservationKey, "RESERVED");
+                return 1L;
+            }
+            if (!"RESERVED".equals(reservations.get(reservationKey))) {
+                return 0L;
+            }
+            for (int index = 1; index < keys.size(); index++) {
+                String key = (String) keys.get(index);
+                long delta = number(args[2 * index]) - number(args[2 * index - 1]);
+                counters.merge(key, delta > 0 ? delta : -Math.min(get(key), -delta), Long::sum);
+            }
+            reservations.put(reservationKey, String.valueOf(args[args.length - 2]));
+            return 1L;
+        }
+
+        private synchronized long sum(String suffix) {
+            return counters.entrySet().stream()
+                    .filter(entry -> entry.getKey().endsWith(suffix))
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+        }
+
+        private List<String> keys(String suffix) {
+            return counters.keySet().stream()
+                    .filter(key -> key.endsWith(suffix))
+                    .toList();
+        }
+
+        private long get(String key) {
+            return counters.getOrDefault(key, 0L);
+        }
+
+        private static long number(Object value) {
+            return Long.parseLong(String.valueOf(value));
+        }
+    }
 }
@@ -75,6 +75,23 @@ class ModelProxyFactoryTest {
         assertSame(streamingHandle, context.streamingHandle());
     }
 
+    @Test
+    void maskedResponseRestoresPlaceholderSplitAcrossTokensAndFlushesTailOnComplete() {
+        StreamingChatResponseHandler downstream = mock(StreamingChatResponseHandler.class);
+        StreamingChatResponseHandler wrapped = createWrappedHandler(downstream);
+        PartialResponseContext context = new PartialResponseContext(mock(StreamingHandle.class));
+
+        wrapped.onPartialResponse(new PartialResponse("你好 MA"), context);
+        wrapped.onPartialResponse(new PartialResponse("SK，再见 M"), context);
+        wrapped.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from("你好 MASK，再见 M")).build());
+
+        var partialCaptor = org.mockito.ArgumentCaptor.forClass(PartialResponse.class);
+        verify(downstream, times(3)).onPartialResponse(partialCaptor.capture(), eq(context));
+        assertThat(partialCaptor.getAllValues()).extracting(PartialResponse::text)
+                .containsExactly("你好 ", "plain，再见 ", "M");
+        verify(downstream).onCompleteResponse(any(ChatResponse.class));
+    }
+
     @Test
     void maskedProxyPreservesThinkingAndToolCallContexts() {
         StreamingChatResponseHandler downstream = mock(StreamingChatResponseHandler.class);
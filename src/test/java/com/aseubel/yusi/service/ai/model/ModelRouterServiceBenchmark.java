@@ -0,0 +1,44 @@
+package com.aseubel.yusi.service.ai.model;
+
+import com.aseubel.yusi.config.ai.properties.ModelRoutingProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 路由计划缓存前后 plan 的单次耗时对比，默认构建不执行：./mvnw test -Dtest.excludedGroups= -Dgroups=benchmark
+ */
+@Tag("benchmark")
+class ModelRouterServiceBenchmark {
+
+    @Test
+    void planCostWithAndWithoutRoutePlanCache() {
+        ModelRoutingProperties uncached = ModelRouterServiceTest.config();
+        uncached.setRoutePlanCacheEnabled(false);
+        ModelRouterService before = ModelRouterServiceTest.realConfigRouter(uncached);
+        ModelRouterService after = ModelRouterServiceTest.realConfigRouter(ModelRouterServiceTest.config());
+        ModelRouteContext context = ModelRouteContext.builder()
+                .scene("chat").estimatedInputTokens(512).reservedOutputTokens(256).build();
+
+        for (int i = 0; i < 2_000; i++) {
+            before.plan(context);
+            after.plan(context);
+        }
+        int iterations = 20_000;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            before.plan(context);
+        }
+        long beforeNanos = System.nanoTime() - startedAt;
+        startedAt = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            after.plan(context);
+        }
+        long afterNanos = System.nanoTime() - startedAt;
+
+        System.out.printf("route plan benchmark (%d iterations): uncached=%.0fns/op cached=%.0fns/op%n",
+                iterations, (double) beforeNanos / iterations, (double) afterNanos / iterations);
+        assertThat(after.plan(context).routeReason()).isEqualTo(before.plan(context).routeReason());
+    }
+}
@@ -6,6 +6,7 @@ import com.aseubel.yusi.config.ai.properties.RoutePolicyDefinition;
 import com.aseubel.yusi.service.ai.model.strategy.FailOverSelectionStrategy;
 import com.aseubel.yusi.service.ai.model.strategy.ModelSelectionStrategy;
 import com.aseubel.yusi.service.ai.model.strategy.RoundRobinSelectionStrategy;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -19,7 +20,10 @@ import static com.aseubel.yusi.service.ai.model.ModelSelectionStrategyType.ROUND
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ModelRouterServiceTest {
@@ -150,11 +154,88 @@ class ModelRouterServiceTest {
                 .containsExactly("vision");
     }
 
+    @Test
+    void planReusesRoutePlanUntilConfigRegistryOrHealthChanges() {
+        router.plan(context("chat"));
+        router.plan(context("chat"));
+        verify(configCenter, times(1)).getEffectiveConfig();
+        verify(instanceRegistry, times(1)).getTierMembers("balanced");
+        verify(stateCenter, times(1)).snapshot(anyCollection());
+
+        when(stateCenter.healthGeneration()).thenReturn(1L);
+        when(stateCenter.snapshot(anyCollection())).thenReturn(Map.of());
+        ModelRouteDecision recovered = router.plan(context("chat"));
+        verify(stateCenter, times(2)).snapshot(anyCollection());
+        verify(configCenter, times(1)).getEffectiveConfig();
+        assertThat(recovered.candidates()).anyMatch(candidate ->
+                candidate.modelId().equals("qwen") && candidate.available());
+
+        router.handleModelConfigUpdated(new ModelConfigUpdatedEvent(this, properties));
+        router.plan(context("chat"));
+        verify(configCenter, times(2)).getEffectiveConfig();
+
+        when(instanceRegistry.getGeneration()).thenReturn(1L);
+        router.plan(context("chat"));
+        verify(configCenter, times(3)).getEffectiveConfig();
+    }
+
+    @Test
+    void planIsRebuiltEveryTimeWhenCacheDisabled() {
+        properties.setRoutePlanCacheEnabled(false);
+
+        router.plan(context("chat"));
+        router.plan(context("chat"));
+
+        verify(configCenter, times(2)).getEffectiveConfig();
+    }
+
+    @Test
+    void cachedPlanMatchesTheRebuiltPlanWithTheRealConfigCenter() {
+        ModelRoutingProperties uncached = config();
+        uncached.setRoutePlanCacheEnabled(false);
+        ModelRouterService before = realConfigRouter(uncached);
+        ModelRouterService after = realConfigRouter(config());
+        ModelRouteContext context = ModelRouteContext.builder()
+                .scene("chat").estimatedInputTokens(512).reservedOutputTokens(256).build();
+
+        for (int i = 0; i < 3; i++) {
+            ModelRouteDecision rebuilt = before.plan(context);
+            ModelRouteDecision cached = after.plan(context);
+
+            assertThat(cached.routeReason()).isEqualTo(rebuilt.routeReason());
+            assertThat(cached.candidates()).extracting(ModelRouteCandidate::modelId)
+                    .containsExactlyElementsOf(rebuilt.candidates().stream()
+                            .map(ModelRouteCandidate::modelId).toList());
+        }
+    }
+
+    /** 使用真实配置中心：getEffectiveConfig 每次都会深拷贝配置，与线上开销一致 */
+    static ModelRouterService realConfigRouter(ModelRoutingProperties bootstrap) {
+        ModelConfigCenter center = new ModelConfigCenter(bootstrap, null, new ObjectMapper(), null);
+        ModelInstanceRegistry registry = mock(ModelInstanceRegistry.class);
+        Map<String, ModelInstance> instances = Map.of(
+                "qwen", instance("qwen", 1), "balanced-backup", instance("balanced-backup", 2),
+                "fast-primary", instance("fast-primary", 1), "fast-backup", instance("fast-backup", 2));
+        when(registry.getTierMembers(anyString())).thenAnswer(invocation -> {
+            ModelTierDefinition tier = center.getEffectiveConfig().getTiers().get(invocation.<String>getArgument(0));
+            return tier == null ? List.of() : tier.getMembers().stream().map(instances::get).toList();
+        });
+        ModelStrategyRegistry registryOfStrategies = mock(ModelStrategyRegistry.class);
+        when(registryOfStrategies.build()).thenReturn(Map.of(
+                ROUND_ROBIN, new RoundRobinSelectionStrategy(bootstrap),
+                FAIL_OVER, new FailOverSelectionStrategy(bootstrap)));
+        ModelStateCenter states = mock(ModelStateCenter.class);
+        when(states.snapshot(anyCollection())).thenReturn(Map.of());
+        ModelRouterService service = new ModelRouterService(center, registry, registryOfStrategies, states);
+        service.init();
+        return service;
+    }
+
     private ModelRouteContext context(String scene) {
         return ModelRouteContext.builder().scene(scene).build();
     }
 
-    private ModelRoutingProperties config() {
+    static ModelRoutingProperties config() {
         ModelRoutingProperties properties = new ModelRoutingProperties();
         properties.setDefaultTier("fast");
         properties.setDefaultRoute(route("default", "*", "fast", 0));
@@ -167,11 +248,11 @@ class ModelRouterServiceTest {
         return properties;
     }
 
-    private RoutePolicyDefinition route(String id, String scene, String tier, int priority) {
+    private static RoutePolicyDefinition route(String id, String scene, String tier, int priority) {
         return routeWithFallback(id, scene, tier, List.of(), priority);
     }
 
-    private RoutePolicyDefinition routeWithFallback(String id, String scene, String tier,
+    private static RoutePolicyDefinition routeWithFallback(String id, String scene, String tier,
             List<String> fallbackTiers, int priority) {
         RoutePolicyDefinition route = new RoutePolicyDefinition();
         route.setId(id);
@@ -182,18 +263,18 @@ class ModelRouterServiceTest {
         return route;
     }
 
-    private ModelTierDefinition tier(List<String> members, ModelSelectionStrategyType strategy) {
+    private static ModelTierDefinition tier(List<String> members, ModelSelectionStrategyType strategy) {
         ModelTierDefinition tier = new ModelTierDefinition();
         tier.setMembers(members);
         tier.setStrategy(strategy);
         return tier;
     }
 
-    private ModelInstance instance(String id, int priority) {
+    private static ModelInstance instance(String id, int priority) {
         return instance(id, priority, null);
     }
 
-    private ModelInstance instance(String id, int priority, Integer contextWindowTokens) {
+    private static ModelInstance instance(String id, int priority, Integer contextWindowTokens) {
         return ModelInstance.builder()
                 .id(id)
                 .modelName(id)
@@ -0,0 +1,96 @@
+package com.aseubel.yusi.service.ai.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingLatencyWindowTest {
+
+    private static final long WINDOW_MS = 300_000L;
+    private static final long BUCKET_MS = 10_000L;
+
+    @Test
+    void snapshotReportsPercentilesAndErrorRateWithinBucketPrecision() {
+        SlidingLatencyWindow window = new SlidingLatencyWindow(WINDOW_MS, BUCKET_MS, 0L);
+        for (int i = 1; i <= 100; i++) {
+            window.record(1_000L, i * 10L, i % 10 != 0);
+        }
+
+        SlidingLatencyWindow.Snapshot snapshot = window.snapshot(60_000L);
+
+        assertEquals(100, snapshot.requests());
+        assertEquals(0.1, snapshot.errorRate(), 1e-9);
+        assertEquals(505D, snapshot.avgLatencyMs(), 1e-9);
+        assertBetween(500, 625, snapshot.p50LatencyMs());
+        assertBetween(950, 1_188, snapshot.p95LatencyMs());
+        assertBetween(990, 1_238, snapshot.p99LatencyMs());
+        assertEquals(100 * 1000D / 60_000L, snapshot.qps(), 1e-9);
+    }
+
+    @Test
+    void oldBucketsFallOutOfTheWindow() {
+        SlidingLatencyWindow window = new SlidingLatencyWindow(WINDOW_MS, BUCKET_MS, 0L);
+        for (int i = 0; i < 50; i++) {
+            window.record(5_000L, 20L, true);
+        }
+        for (int i = 0; i < 50; i++) {
+            window.record(400_000L, 2_000L, false);
+        }
+
+        SlidingLatencyWindow.Snapshot snapshot = window.snapshot(400_000L);
+
+        assertEquals(50, snapshot.requests());
+        assertEquals(1.0, snapshot.errorRate(), 1e-9);
+        assertTrue(snapshot.p50LatencyMs() >= 2_000D);
+        assertEquals(SlidingLatencyWindow.Snapshot.EMPTY, window.snapshot(800_000L));
+    }
+
+    @Test
+    void bucketBoundsCoverEveryLatencyWithBoundedRelativeError() {
+        for (long latency = 0; latency < 1_000_000L; latency += latency < 100 ? 1 : 97) {
+            int bucket = SlidingLatencyWindow.bucketOf(latency);
+            long upper = SlidingLatencyWindow.upperBoundOf(bucket);
+            assertTrue(upper >= latency, "latency=" + latency);
+            assertTrue(upper <= Math.max(7, latency * 1.25), "latency=" + latency + " upper=" + upper);
+            assertTrue(bucket == 0 || SlidingLatencyWindow.upperBoundOf(bucket - 1) < latency);
+        }
+    }
+
+    @Test
+    void concurrentRecordsWithinOneBucketAreNotLost() throws Exception {
+        SlidingLatencyWindow window = new SlidingLatencyWindow(WINDOW_MS, BUCKET_MS, 0L);
+        // 先让时间桶完成轮转，只验证同一桶内的并发累加
+        window.record(1_000L, 1L, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        window.record(1_000L, i % 500, i % 100 != 0);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SlidingLatencyWindow.Snapshot snapshot = window.snapshot(2_000L);
+        assertEquals(80_001, snapshot.requests());
+        assertEquals(800, snapshot.failures());
+    }
+
+    private static void assertBetween(double low, double high, double actual) {
+        assertTrue(actual >= low && actual <= high, "expected [" + low + ", " + high + "] but was " + actual);
+    }
+}
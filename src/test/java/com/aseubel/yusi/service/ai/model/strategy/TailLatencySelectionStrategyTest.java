@@ -0,0 +1,71 @@
+package com.aseubel.yusi.service.ai.model.strategy;
+
+import com.aseubel.yusi.config.ai.properties.ModelRoutingProperties;
+import com.aseubel.yusi.service.ai.model.ModelInstance;
+import com.aseubel.yusi.service.ai.model.ModelRuntimeState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TailLatencySelectionStrategyTest {
+
+    private final TailLatencySelectionStrategy strategy = new TailLatencySelectionStrategy(new ModelRoutingProperties());
+
+    @Test
+    void prefersRecentTailLatencyOverLifetimeAverage() {
+        ModelInstance historicallyFast = instance("historically-fast", 1);
+        ModelInstance steady = instance("steady", 2);
+
+        List<ModelInstance> ordered = strategy.order("chat", List.of(historicallyFast, steady), Map.of(
+                "historically-fast", state("historically-fast", 200, 0.0, 3_000, 4_000),
+                "steady", state("steady", 200, 0.0, 900, 1_200)));
+
+        assertEquals(List.of("steady", "historically-fast"), ids(ordered));
+    }
+
+    @Test
+    void ranksOverBudgetAndUnsampledAfterHealthyInstances() {
+        List<ModelInstance> ordered = strategy.order("chat", List.of(
+                instance("flaky", 1),
+                instance("cold", 3),
+                instance("healthy", 5),
+                instance("down", 0)), Map.of(
+                        "flaky", state("flaky", 200, 0.2, 300, 400),
+                        "cold", state("cold", 3, 0.0, 100, 100),
+                        "healthy", state("healthy", 200, 0.01, 1_500, 2_000),
+                        "down", ModelRuntimeState.builder().instanceId("down").available(false).phase("DOWN")
+                                .build()));
+
+        assertEquals(List.of("healthy", "cold", "flaky", "down"), ids(ordered));
+    }
+
+    @Test
+    void instancesWithoutStateAreTreatedAsUnsampled() {
+        assertEquals("b", strategy.select("chat", List.of(instance("a", 2), instance("b", 1)), Map.of())
+                .orElseThrow().getId());
+    }
+
+    private static List<String> ids(List<ModelInstance> instances) {
+        return instances.stream().map(ModelInstance::getId).toList();
+    }
+
+    private static ModelInstance instance(String id, int priority) {
+        return ModelInstance.builder().id(id).weight(1).priority(priority).build();
+    }
+
+    private static ModelRuntimeState state(String id, long windowRequests, double errorRate, double p95, double p99) {
+        return ModelRuntimeState.builder()
+                .instanceId(id)
+                .available(true)
+                .phase("UP")
+                .avgLatencyMs(id.startsWith("historically") ? 50 : 800)
+                .windowRequests(windowRequests)
+                .errorRate(errorRate)
+                .p95LatencyMs(p95)
+                .p99LatencyMs(p99)
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.milvus.v2.service.vector.response.SearchResp;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InProcessHybridRetrievalBackendTest {
+
+    private static final String COLLECTION = "yusi_embedding_collection";
+
+    private final InProcessHybridRetrievalBackend backend = new InProcessHybridRetrievalBackend();
+
+    @Test
+    void hybridSearch_appliesFilterBeforeTopKAndReturnsRequestedFieldsOnly() {
+        backend.insert(COLLECTION, List.of(
+                row("diary-1_0", "u-1", "2026-10-01", "今天去海边散步", 1f, 0f),
+                row("diary-2_0", "u-2", "2026-10-01", "海边的日落", 1f, 0f),
+                row("diary-3_0", "u-1", "2026-09-01", "加班到很晚", 0f, 1f)));
+
+        List<SearchResp.SearchResult> hits = backend.hybridSearch(query(
+                "metadata[\"userId\"] == 'u-1' and metadata[\"entryDate\"] >= '2026-09-15'", "海边", 1f, 0f));
+
+        assertEquals(1, hits.size());
+        assertEquals("diary-1_0", hits.get(0).getId());
+        assertEquals("今天去海边散步", hits.get(0).getEntity().get("text"));
+        JsonObject metadata = assertInstanceOf(JsonObject.class, hits.get(0).getEntity().get("metadata"));
+        assertEquals("u-1", metadata.get("userId").getAsString());
+        assertFalse(hits.get(0).getEntity().containsKey("vector"));
+    }
+
+    @Test
+    void hybridSearch_fusesDenseAndBm25RanksWithReciprocalRankFusion() {
+        backend.insert(COLLECTION, List.of(
+                row("dense-only", "u-1", "2026-10-01", "工作汇报", 1f, 0f),
+                row("both", "u-1", "2026-10-01", "海边 工作", 0.9f, 0.1f),
+                row("sparse-only", "u-1", "2026-10-01", "海边 海边 海边", 0f, 1f)));
+
+        List<SearchResp.SearchResult> hits = backend.hybridSearch(query(null, "海边", 0.9f, 0.1f));
+
+        // dense: both > dense-only > sparse-only；BM25: sparse-only > both
+        assertEquals(List.of("both", "sparse-only", "dense-only"),
+                hits.stream().map(SearchResp.SearchResult::getId).toList());
+        float expected = (float) (1.0 / 61 + 1.0 / 62);
+        assertEquals(expected, hits.get(0).getScore(), 1e-6);
+    }
+
+    @Test
+    void insertAndDelete_replaceExistingIdsAndRemoveMatchingRows() {
+        backend.insert(COLLECTION, List.of(row("diary-1_0", "u-1", "2026-10-01", "旧内容", 1f, 0f)));
+        backend.insert(COLLECTION, List.of(
+                row("diary-1_0", "u-1", "2026-10-01", "新内容", 1f, 0f),
+                row("diary-2_0", "u-2", "2026-10-01", "别人的内容", 1f, 0f)));
+        assertEquals(2, backend.size(COLLECTION));
+        assertEquals("新内容", backend.hybridSearch(query("id == 'diary-1_0'", "内容", 1f, 0f))
+                .get(0).getEntity().get("text"));
+
+        backend.delete(COLLECTION, "id == \"u-2\" || metadata[\"userId\"] == \"u-2\"");
+
+        assertEquals(1, backend.size(COLLECTION));
+        assertTrue(backend.hybridSearch(query("metadata[\"userId\"] == 'u-2'", "内容", 1f, 0f)).isEmpty());
+        assertTrue(backend.hybridSearch(HybridSearchQuery.builder().collectionName("missing").limit(5).build())
+                .isEmpty());
+    }
+
+    private HybridSearchQuery query(String filter, String text, float... vector) {
+        return HybridSearchQuery.builder()
+                .collectionName(COLLECTION)
+                .denseVector(vector)
+                .text(text)
+                .filter(filter)
+                .candidateLimit(20)
+                .limit(20)
+                .outputFields(List.of("text", "metadata"))
+                .build();
+    }
+
+    private JsonObject row(String id, String userId, String entryDate, String text, float... vector) {
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("userId", userId);
+        metadata.addProperty("entryDate", entryDate);
+        JsonArray values = new JsonArray();
+        for (float value : vector) {
+            values.add(value);
+        }
+        JsonObject row = new JsonObject();
+        row.addProperty("id", id);
+        row.addProperty("text", text);
+        row.add("metadata", metadata);
+        row.add("vector", values);
+        return row;
+    }
+}
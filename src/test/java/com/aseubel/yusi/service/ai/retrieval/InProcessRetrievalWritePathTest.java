@@ -0,0 +1,136 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.pojo.entity.Diary;
+import com.aseubel.yusi.pojo.entity.EmbeddingTask;
+import com.aseubel.yusi.pojo.entity.MidTermMemory;
+import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.repository.DiaryRepository;
+import com.aseubel.yusi.repository.EmbeddingTaskRepository;
+import com.aseubel.yusi.repository.MidTermMemoryRepository;
+import com.aseubel.yusi.repository.UserRepository;
+import com.aseubel.yusi.service.ai.embedding.EmbeddingBatchService;
+import com.aseubel.yusi.service.ai.embedding.EmbeddingGateway;
+import com.aseubel.yusi.service.ai.embedding.EmbeddingTaskClaimService;
+import com.aseubel.yusi.service.ai.embedding.EmbeddingTaskMaintenanceService;
+import com.aseubel.yusi.service.ai.rag.DiaryChunker;
+import com.aseubel.yusi.service.diary.DiaryService;
+import com.aseubel.yusi.service.memory.MidTermMemorySearchService;
+import com.aseubel.yusi.service.memory.MidTermMemoryVectorService;
+import com.aseubel.yusi.service.task.TaskExecutionService;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.milvus.v2.service.vector.response.SearchResp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 写入方经 {@link HybridRetrievalBackend} 写入后，检索方能从同一个进程内后端读到数据。
+ */
+@ExtendWith(MockitoExtension.class)
+class InProcessRetrievalWritePathTest {
+
+    @Mock
+    private EmbeddingModel embeddingModel;
+    @Mock
+    private MidTermMemoryRepository midTermMemoryRepository;
+    @Mock
+    private EmbeddingTaskRepository taskRepository;
+    @Mock
+    private EmbeddingTaskClaimService taskClaimService;
+    @Mock
+    private EmbeddingTaskMaintenanceService taskMaintenanceService;
+    @Mock
+    private DiaryRepository diaryRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private EmbeddingGateway embeddingGateway;
+    @Mock
+    private DiaryChunker diaryChunker;
+    @Mock
+    private DiaryService diaryService;
+    @Mock
+    private TaskExecutionService taskExecutionService;
+
+    private final InProcessHybridRetrievalBackend backend = new InProcessHybridRetrievalBackend();
+
+    @Test
+    void midTermMemoryWrittenThroughBackendIsSearchableAndDeletable() {
+        MidTermMemory memory = MidTermMemory.builder().id(7L).userId("u-1")
+                .summary("周末和朋友去海边露营").hidden(false).matchAllowed(false).build();
+        when(embeddingModel.embed(anyString())).thenReturn(Response.from(Embedding.from(new float[] { 1f, 0f })));
+        when(midTermMemoryRepository.findByIdAndUserId(7L, "u-1")).thenReturn(Optional.of(memory));
+        MidTermMemoryVectorService writer = new MidTermMemoryVectorService(backend, embeddingModel);
+        MidTermMemorySearchService reader = new MidTermMemorySearchService(backend, embeddingModel,
+                midTermMemoryRepository, null, null);
+
+        writer.upsert(memory);
+        writer.upsert(memory);
+
+        assertThat(backend.size("yusi_mid_term_memory")).isEqualTo(1);
+        assertThat(reader.searchMidTermMemory("u-1", "海边", 3)).containsExactly("周末和朋友去海边露营");
+        assertThat(reader.searchMidTermMemory("u-2", "海边", 3)).isEmpty();
+
+        writer.delete(7L);
+
+        assertThat(reader.searchMidTermMemory("u-1", "海边", 3)).isEmpty();
+    }
+
+    @Test
+    void diaryChunksEmbeddedByBatchServiceAreSearchableAndSkippedWhenUnchanged() {
+        EmbeddingBatchService service = new EmbeddingBatchService(taskRepository, taskClaimService,
+                taskMaintenanceService, diaryRepository, userRepository, backend, embeddingGateway,
+                diaryChunker, diaryService, taskExecutionService, new YusiMetrics(new SimpleMeterRegistry()));
+        EmbeddingTask task = EmbeddingTask.createUpsertTask("diary-1", "u-1");
+        task.setId(1L);
+        Diary diary = Diary.builder().diaryId("diary-1").userId("u-1").entryDate(LocalDate.of(2026, 10, 1))
+                .plainContent("今天去海边散步。\n\n晚上加班。").build();
+        List<DiaryChunker.DiaryChunk> chunks = List.of(
+                new DiaryChunker.DiaryChunk("diary-1", 0, 2, "", "今天去海边散步。"),
+                new DiaryChunker.DiaryChunk("diary-1", 1, 2, "", "晚上加班。"));
+        when(taskClaimService.claimPendingTasks(any(), anyInt())).thenReturn(List.of(task));
+        when(diaryRepository.findByUserIdInAndDiaryIdIn(Set.of("u-1"), Set.of("diary-1")))
+                .thenReturn(List.of(diary));
+        when(userRepository.findByUserIdIn(Set.of("u-1")))
+                .thenReturn(List.of(User.builder().userId("u-1").keyMode("DEFAULT").build()));
+        when(diaryChunker.split(diary, diary.getPlainContent())).thenReturn(chunks);
+        when(embeddingGateway.embedAll(any())).thenReturn(new EmbeddingGateway.EmbeddingBatchResult(
+                List.of(Embedding.from(new float[] { 1f, 0f }), Embedding.from(new float[] { 0f, 1f })),
+                "bge-m3", 12, 2, 1, 1));
+
+        service.processPendingTasks();
+        service.processPendingTasks();
+
+        List<SearchResp.SearchResult> hits = backend.hybridSearch(HybridSearchQuery.builder()
+                .collectionName("yusi_embedding_collection")
+                .denseVector(new float[] { 1f, 0f })
+                .text("海边")
+                .filter("metadata[\"userId\"] == 'u-1'")
+                .candidateLimit(4)
+                .limit(1)
+                .outputFields(List.of("text"))
+                .build());
+        assertThat(hits).extracting(SearchResp.SearchResult::getId).containsExactly("diary-1_0");
+        assertThat(backend.size("yusi_embedding_collection")).isEqualTo(2);
+        // 第二次处理时分片内容与元数据都没变，从后端读到已有分片后不再向量化
+        verify(embeddingGateway, times(1)).embedAll(any());
+    }
+}
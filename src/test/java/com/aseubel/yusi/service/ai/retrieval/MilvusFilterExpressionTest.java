@@ -0,0 +1,69 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MilvusFilterExpressionTest {
+
+    @Test
+    void parse_matchesUserScopeAndEntryDateRangeUsedByDiarySearch() {
+        MilvusFilterExpression filter = MilvusFilterExpression.parse("metadata[\"userId\"] == 'u-1'"
+                + " and metadata[\"entryDate\"] >= '2026-10-01' and metadata[\"entryDate\"] <= '2026-10-07'");
+
+        assertTrue(filter.test(document("diary-1_0", "u-1", "2026-10-01")));
+        assertTrue(filter.test(document("diary-1_1", "u-1", "2026-10-07")));
+        assertFalse(filter.test(document("diary-2_0", "u-1", "2026-10-08")));
+        assertFalse(filter.test(document("diary-3_0", "u-2", "2026-10-03")));
+        assertFalse(filter.test(new RetrievalDocument("diary-4_0", "text", userOnly("u-1"), null)));
+    }
+
+    @Test
+    void parse_supportsNotEqualLikeAndOrUsedByMatchAndDeletionPaths() {
+        RetrievalDocument chunk = document("diary-1_0", "u-1", "2026-10-01");
+        RetrievalDocument otherChunk = document("diary-2_0", "u-2", "2026-10-01");
+
+        assertFalse(MilvusFilterExpression.parse("metadata[\"userId\"] != 'u-1'").test(chunk));
+        assertTrue(MilvusFilterExpression.parse("metadata[\"userId\"] != 'u-1'").test(otherChunk));
+        assertTrue(MilvusFilterExpression.parse("id like 'diary-1_%'").test(chunk));
+        assertFalse(MilvusFilterExpression.parse("id like 'diary-1_%'").test(otherChunk));
+        assertTrue(MilvusFilterExpression.parse("id != ''").test(chunk));
+        assertTrue(MilvusFilterExpression.parse("id == \"u-2\" || metadata[\"userId\"] == \"u-2\"")
+                .test(otherChunk));
+        assertTrue(MilvusFilterExpression.parse("id like 'x_%' or id like 'diary-1_%'").test(chunk));
+    }
+
+    @Test
+    void parse_supportsInListsNumbersNegationAndParentheses() {
+        JsonObject metadata = userOnly("u-1");
+        metadata.addProperty("chunkIndex", 2);
+        RetrievalDocument document = new RetrievalDocument("diary-1_2", "text", metadata, null);
+
+        assertTrue(MilvusFilterExpression.parse("metadata[\"chunkIndex\"] in [1, 2]").test(document));
+        assertTrue(MilvusFilterExpression.parse("metadata[\"userId\"] not in ['u-2', 'u-3']").test(document));
+        assertTrue(MilvusFilterExpression.parse("not (metadata[\"chunkIndex\"] > 2)").test(document));
+        assertFalse(MilvusFilterExpression.parse("metadata[\"chunkIndex\"] == '2'").test(document));
+        assertTrue(MilvusFilterExpression.parse(" ").isMatchAll());
+    }
+
+    @Test
+    void parse_rejectsUnsupportedSyntax() {
+        assertThrows(IllegalArgumentException.class, () -> MilvusFilterExpression.parse("metadata[\"userId\"] == "));
+        assertThrows(IllegalArgumentException.class, () -> MilvusFilterExpression.parse("id == 'a' extra"));
+    }
+
+    private RetrievalDocument document(String id, String userId, String entryDate) {
+        JsonObject metadata = userOnly(userId);
+        metadata.addProperty("entryDate", entryDate);
+        return new RetrievalDocument(id, "text", metadata, null);
+    }
+
+    private JsonObject userOnly(String userId) {
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("userId", userId);
+        return metadata;
+    }
+}
@@ -0,0 +1,76 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import io.milvus.v2.service.vector.response.SearchResp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对同一批查询分别调用基准后端与候选后端，统计候选后端的 recall@k 与两者的 p50/p95 延迟。
+ *
+ * 基准后端可以是精确检索的进程内后端，也可以是连接真实 Milvus 的 {@link MilvusHybridRetrievalBackend}。
+ */
+final class RetrievalComparisonHarness {
+
+    private RetrievalComparisonHarness() {
+    }
+
+    record Report(int queryCount, int k, double recallAtK,
+            double referenceP50Millis, double referenceP95Millis,
+            double candidateP50Millis, double candidateP95Millis) {
+    }
+
+    static Report compare(HybridRetrievalBackend reference, HybridRetrievalBackend candidate,
+            List<HybridSearchQuery> queries, int k) {
+        long[] referenceNanos = new long[queries.size()];
+        long[] candidateNanos = new long[queries.size()];
+        long matched = 0;
+        long expected = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            HybridSearchQuery query = queries.get(i);
+
+            long startedAt = System.nanoTime();
+            List<SearchResp.SearchResult> truth = reference.hybridSearch(query);
+            referenceNanos[i] = System.nanoTime() - startedAt;
+
+            startedAt = System.nanoTime();
+            List<SearchResp.SearchResult> actual = candidate.hybridSearch(query);
+            candidateNanos[i] = System.nanoTime() - startedAt;
+
+            Set<Object> truthIds = new HashSet<>(topIds(truth, k));
+            expected += truthIds.size();
+            matched += topIds(actual, k).stream().filter(truthIds::contains).count();
+        }
+        double recall = expected == 0 ? 1.0 : (double) matched / expected;
+        return new Report(queries.size(), k, recall,
+                percentileMillis(referenceNanos, 0.50), percentileMillis(referenceNanos, 0.95),
+                percentileMillis(candidateNanos, 0.50), percentileMillis(candidateNanos, 0.95));
+    }
+
+    private static List<Object> topIds(List<SearchResp.SearchResult> results, int k) {
+        List<Object> ids = new ArrayList<>(Math.min(results.size(), k));
+        for (SearchResp.SearchResult result : results) {
+            if (ids.size() >= k) {
+                break;
+            }
+            ids.add(Objects.requireNonNull(result.getId()));
+        }
+        return ids;
+    }
+
+    private static double percentileMillis(long[] nanos, double percentile) {
+        if (nanos.length == 0) {
+            return 0d;
+        }
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        long value = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        return value / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,97 @@
+package com.aseubel.yusi.service.ai.retrieval;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HNSW 近似检索与精确检索的召回率/延迟对比，数据为固定种子的合成向量。
+ */
+class RetrievalComparisonHarnessTest {
+
+    private static final String COLLECTION = "benchmark";
+    private static final int DOCUMENTS = 3000;
+    private static final int DIMENSION = 32;
+    private static final int USERS = 4;
+
+    @Test
+    void hnswBackendKeepsRecallAgainstExactBackend() {
+        Random random = new Random(7);
+        InProcessHybridRetrievalBackend exact = new InProcessHybridRetrievalBackend(16, 200, 64, Integer.MAX_VALUE);
+        InProcessHybridRetrievalBackend approximate = new InProcessHybridRetrievalBackend(16, 100, 64, 0);
+        List<JsonObject> rows = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            rows.add(row("doc-" + i, "u-" + (i % USERS), randomVector(random)));
+        }
+        exact.insert(COLLECTION, rows);
+        approximate.insert(COLLECTION, rows);
+
+        List<HybridSearchQuery> unfiltered = new ArrayList<>();
+        List<HybridSearchQuery> perUser = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            unfiltered.add(denseQuery(randomVector(random), null));
+            perUser.add(denseQuery(randomVector(random), "metadata[\"userId\"] == 'u-" + (i % USERS) + "'"));
+        }
+
+        RetrievalComparisonHarness.Report unfilteredReport = RetrievalComparisonHarness.compare(
+                exact, approximate, unfiltered, 10);
+        RetrievalComparisonHarness.Report perUserReport = RetrievalComparisonHarness.compare(
+                exact, approximate, perUser, 10);
+
+        assertEquals(100, unfilteredReport.queryCount());
+        assertTrue(unfilteredReport.recallAtK() >= 0.85, "unfiltered recall@10=" + unfilteredReport.recallAtK());
+        assertTrue(perUserReport.recallAtK() >= 0.85, "per-user recall@10=" + perUserReport.recallAtK());
+    }
+
+    @Test
+    void identicalBackendsHaveFullRecall() {
+        InProcessHybridRetrievalBackend backend = new InProcessHybridRetrievalBackend();
+        backend.insert(COLLECTION, List.of(row("doc-1", "u-1", new float[] { 1f, 0f })));
+
+        RetrievalComparisonHarness.Report report = RetrievalComparisonHarness.compare(backend, backend,
+                List.of(denseQuery(new float[] { 1f, 0f }, null)), 10);
+
+        assertEquals(1.0, report.recallAtK());
+    }
+
+    private HybridSearchQuery denseQuery(float[] vector, String filter) {
+        return HybridSearchQuery.builder()
+                .collectionName(COLLECTION)
+                .denseVector(vector)
+                .filter(filter)
+                .candidateLimit(10)
+                .limit(10)
+                .outputFields(List.of("metadata"))
+                .build();
+    }
+
+    private float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private JsonObject row(String id, String userId, float[] vector) {
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("userId", userId);
+        JsonArray values = new JsonArray();
+        for (float value : vector) {
+            values.add(value);
+        }
+        JsonObject row = new JsonObject();
+        row.addProperty("id", id);
+        row.addProperty("text", "");
+        row.add("metadata", metadata);
+        row.add("vector", values);
+        return row;
+    }
+}
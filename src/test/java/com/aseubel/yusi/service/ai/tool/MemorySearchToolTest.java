@@ -0,0 +1,92 @@
+package com.aseubel.yusi.service.ai.tool;
+
+import com.aseubel.yusi.config.ai.properties.EmbeddingModelConfigProperties;
+import com.aseubel.yusi.service.ai.embedding.QueryEmbeddingCache;
+import com.aseubel.yusi.service.lifegraph.LifeGraphQueryService;
+import com.aseubel.yusi.service.memory.MidTermMemorySearchService;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MemorySearchToolTest {
+
+    @Mock
+    private DiarySearchTool diarySearchTool;
+    @Mock
+    private LifeGraphQueryService lifeGraphQueryService;
+    @Mock
+    private MidTermMemorySearchService midTermMemorySearchService;
+    @Mock
+    private EmbeddingModel embeddingModel;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void searchMemories_embedsQueryOnceAndSharesItAcrossVectorSources() {
+        Embedding embedding = Embedding.from(new float[] { 0.1f, 0.2f });
+        when(embeddingModel.embed("海边")).thenReturn(Response.from(embedding));
+        when(lifeGraphQueryService.localSearch("u-1", "海边", 5, 20, 10)).thenReturn("图谱事实");
+        when(diarySearchTool.searchDiary(eq("u-1"), eq("海边"), same(embedding), any(), any()))
+                .thenReturn(List.of("日记片段"));
+        when(midTermMemorySearchService.searchMidTermMemory(eq("u-1"), eq("海边"), same(embedding), eq(3)))
+                .thenReturn(List.of("对话记忆"));
+
+        String result = newTool(2000L).searchMemories("u-1", "海边", null, null);
+
+        assertTrue(result.contains("图谱事实"));
+        assertTrue(result.contains("- 日记片段"));
+        assertTrue(result.contains("- 对话记忆"));
+        verify(embeddingModel, times(1)).embed("海边");
+    }
+
+    @Test
+    void searchMemories_returnsPartialResultsWhenOneSourceMissesDeadline() {
+        Embedding embedding = Embedding.from(new float[] { 0.1f });
+        when(embeddingModel.embed("海边")).thenReturn(Response.from(embedding));
+        when(lifeGraphQueryService.localSearch("u-1", "海边", 5, 20, 10)).thenAnswer(invocation -> {
+            Thread.sleep(5_000L);
+            return "迟到的图谱";
+        });
+        when(diarySearchTool.searchDiary(eq("u-1"), eq("海边"), same(embedding), any(), any()))
+                .thenReturn(List.of("日记片段"));
+        when(midTermMemorySearchService.searchMidTermMemory(eq("u-1"), eq("海边"), same(embedding), eq(3)))
+                .thenReturn(List.of());
+
+        long startedAt = System.nanoTime();
+        String result = newTool(300L).searchMemories("u-1", "海边", null, null);
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        assertTrue(elapsedMillis < 2_000L, "slow source must not stall the tool call");
+        assertTrue(result.contains("图谱检索暂不可用"));
+        assertTrue(result.contains("- 日记片段"));
+        assertTrue(result.contains("无匹配对话记忆"));
+    }
+
+    private MemorySearchTool newTool(long timeoutMillis) {
+        return new MemorySearchTool(diarySearchTool, lifeGraphQueryService, midTermMemorySearchService,
+                new QueryEmbeddingCache(embeddingModel, new EmbeddingModelConfigProperties()), executor, timeoutMillis);
+    }
+}
@@ -0,0 +1,341 @@
+package com.aseubel.yusi.service.lifegraph;
+
+import com.aseubel.yusi.common.event.LifeGraphChangedEvent;
+import com.aseubel.yusi.pojo.entity.LifeGraphEntity;
+import com.aseubel.yusi.pojo.entity.LifeGraphRelation;
+import com.aseubel.yusi.repository.LifeGraphEntityAliasRepository;
+import com.aseubel.yusi.repository.LifeGraphEntityEvidenceRepository;
+import com.aseubel.yusi.repository.LifeGraphEntityRepository;
+import com.aseubel.yusi.repository.LifeGraphMentionRepository;
+import com.aseubel.yusi.repository.LifeGraphRelationEvidenceRepository;
+import com.aseubel.yusi.repository.LifeGraphRelationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LifeGraphAdjacencyCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    @Mock
+    private LifeGraphEntityRepository entityRepository;
+
+    @Mock
+    private LifeGraphRelationRepository relationRepository;
+
+    @Mock
+    private LifeGraphRelationEvidenceRepository evidenceRepository;
+
+    @Mock
+    private LifeGraphEntityAliasRepository aliasRepository;
+
+    @Mock
+    private LifeGraphMentionRepository mentionRepository;
+
+    @Mock
+    private LifeGraphEntityEvidenceRepository entityEvidenceRepository;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RTopic topic;
+
+    @Test
+    void adjacencyOrdersNeighborsByWeightThenRecency() {
+        LifeGraphAdjacency graph = LifeGraphAdjacency.build(
+                List.of(node(1L), node(2L), node(3L), node(4L)),
+                List.of(edge(10L, 1L, 2L, 1, NOW.minusDays(1)),
+                        edge(11L, 3L, 1L, 5, NOW.minusDays(3)),
+                        edge(12L, 1L, 4L, 1, NOW),
+                        edge(13L, 1L, 99L, 9, NOW)));
+
+        assertThat(graph.relationCount()).isEqualTo(3);
+        assertThat(neighbors(graph, 1L)).containsExactly(3L, 4L, 2L);
+        assertThat(neighbors(graph, 2L)).containsExactly(1L);
+        assertThat(graph.relationIdsWithin(List.of(1L, 2L, 3L))).containsExactly(10L, 11L);
+    }
+
+    @Test
+    void applyReplacesUpsertedRowsAndDropsRelationsOfRemovedEntities() {
+        LifeGraphAdjacency graph = LifeGraphAdjacency.build(
+                List.of(node(1L), node(2L), node(3L)),
+                List.of(edge(10L, 1L, 2L, 1, NOW), edge(11L, 2L, 3L, 1, NOW)));
+
+        LifeGraphAdjacency next = graph.apply(
+                List.of(new LifeGraphAdjacency.Node(1L, true, null, 0), node(4L)),
+                List.of(3L),
+                List.of(edge(12L, 4L, 2L, 2, NOW)),
+                List.of());
+
+        assertThat(next.nodeCount()).isEqualTo(3);
+        assertThat(next.isVisible(next.indexOf(1L), NOW)).isFalse();
+        assertThat(next.indexOf(3L)).isEqualTo(-1);
+        assertThat(neighbors(next, 2L)).containsExactly(4L, 1L);
+        assertThat(graph.relationCount()).isEqualTo(2);
+        assertThat(neighbors(graph, 2L)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void committedChangesArePatchedWithoutReloadingTheGraph() {
+        when(entityRepository.findNodesByUserId("user-1")).thenReturn(List.of(nodeRow(1L), nodeRow(2L)));
+        when(relationRepository.findEdgesByUserId("user-1")).thenReturn(List.of());
+        when(evidenceRepository.findUsableRelationIds(eq("user-1"), any(), any())).thenReturn(List.of());
+        when(entityRepository.findNodesByUserIdAndIdIn(eq("user-1"), any())).thenReturn(List.of(nodeRow(3L)));
+        when(relationRepository.findEdgesByUserIdAndIdIn(eq("user-1"), any()))
+                .thenReturn(List.of(edgeRow(20L, 1L, 3L, "KNOWS", LifeGraphRelation.Origin.MANUAL)));
+        when(evidenceRepository.findUsableRelationIdsIn(eq("user-1"), any(), any(), any())).thenReturn(List.of());
+        LifeGraphAdjacencyCache cache = new LifeGraphAdjacencyCache(entityRepository, relationRepository,
+                evidenceRepository);
+
+        assertThat(cache.get("user-1").relationCount()).isZero();
+        cache.onLifeGraphChanged(new LifeGraphChangedEvent(this, "user-1", LifeGraphChangedEvent.Kind.ENTITY, 3L));
+        cache.onLifeGraphChanged(new LifeGraphChangedEvent(this, "user-1", LifeGraphChangedEvent.Kind.RELATION, 20L));
+        cache.onLifeGraphChanged(new LifeGraphChangedEvent(this, "user-2", LifeGraphChangedEvent.Kind.ENTITY, 9L));
+        LifeGraphAdjacency graph = cache.get("user-1");
+
+        assertThat(graph.nodeCount()).isEqualTo(3);
+        assertThat(neighbors(graph, 1L)).containsExactly(3L);
+        assertThat(graph.isSearchable(graph.relationAt(graph.adjacencyStart(graph.indexOf(1L))))).isTrue();
+        assertThat(cache.get("user-1")).isSameAs(graph);
+        verify(entityRepository, times(1)).findNodesByUserId("user-1");
+        verify(relationRepository, times(1)).findEdgesByUserId("user-1");
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void localSearchExpandsOverCachedAdjacencyWithoutPerNodeRelationQueries() {
+        LifeGraphEntity person = entity(2L, LifeGraphEntity.EntityType.Person, "xiaomei", "小美");
+        LifeGraphEntity trip = entity(3L, LifeGraphEntity.EntityType.Event, "trip", "第一次旅行");
+        LifeGraphEntity place = entity(4L, LifeGraphEntity.EntityType.Place, "kyoto", "京都");
+        LifeGraphRelation personTrip = relation(12L, 2L, 3L, "PARTICIPATED_IN");
+        LifeGraphRelation tripPlace = relation(13L, 3L, 4L, "HAPPENED_AT");
+
+        when(aliasRepository.findByUserIdAndAliasNorm("user-1", "xiaomei")).thenReturn(Optional.empty());
+        when(entityRepository.findVisibleByUserIdAndDisplayNameContainingOrderByMentionCountDesc(
+                eq("user-1"), eq("xiaomei"), any(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(person)));
+        when(entityRepository.findNodesByUserId("user-1"))
+                .thenReturn(List.of(nodeRow(2L), nodeRow(3L), nodeRow(4L)));
+        when(relationRepository.findEdgesByUserId("user-1")).thenReturn(List.of(
+                edgeRow(12L, 2L, 3L, "PARTICIPATED_IN", LifeGraphRelation.Origin.AUTO),
+                edgeRow(13L, 3L, 4L, "HAPPENED_AT", LifeGraphRelation.Origin.AUTO),
+                edgeRow(14L, 2L, 4L, "MENTIONED", LifeGraphRelation.Origin.AUTO),
+                edgeRow(15L, 2L, 4L, "VISITED", LifeGraphRelation.Origin.AUTO)));
+        when(evidenceRepository.findUsableRelationIds(eq("user-1"), any(), any()))
+                .thenReturn(List.of(12L, 13L, 14L));
+        when(entityRepository.findAllById(any())).thenReturn(List.of(trip, place));
+        when(relationRepository.findAllById(any())).thenReturn(List.of(personTrip, tripPlace));
+        when(evidenceRepository.findUsableRelationIdsIn(eq("user-1"), any(), any(), any()))
+                .thenReturn(List.of(12L, 13L));
+        LifeGraphQueryService service = new LifeGraphQueryService(entityRepository, aliasRepository,
+                relationRepository, mentionRepository, evidenceRepository, entityEvidenceRepository,
+                new ObjectMapper(), new LifeGraphAdjacencyCache(entityRepository, relationRepository,
+                evidenceRepository));
+
+        String result = service.localSearch("user-1", "xiaomei", 10, 20, 0);
+
+        assertThat(result).contains("Event: 第一次旅行", "Place: 京都",
+                "小美 -> 第一次旅行 [PARTICIPATED_IN]", "第一次旅行 -> 京都 [HAPPENED_AT]");
+        assertThat(result).doesNotContain("[MENTIONED]", "[VISITED]");
+        verify(relationRepository, never()).findTop200ByUserIdAndSourceIdOrderByUpdatedAtDesc(anyString(), anyLong());
+        verify(relationRepository, never()).findTop200ByUserIdAndTargetIdOrderByUpdatedAtDesc(anyString(), anyLong());
+        verify(entityRepository, never()).findByIdAndUserId(anyLong(), anyString());
+        verify(evidenceRepository, never()).findByUserIdAndRelationId(anyString(), anyLong());
+    }
+
+    @Test
+    void reloadedRelationsAreCheckedAgainBeforeRendering() {
+        LifeGraphEntity person = entity(2L, LifeGraphEntity.EntityType.Person, "xiaomei", "小美");
+        LifeGraphEntity trip = entity(3L, LifeGraphEntity.EntityType.Event, "trip", "第一次旅行");
+        LifeGraphEntity place = entity(4L, LifeGraphEntity.EntityType.Place, "kyoto", "京都");
+
+        when(aliasRepository.findByUserIdAndAliasNorm("user-1", "xiaomei")).thenReturn(Optional.empty());
+        when(entityRepository.findVisibleByUserIdAndDisplayNameContainingOrderByMentionCountDesc(
+                eq("user-1"), eq("xiaomei"), any(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(person)));
+        when(entityRepository.findNodesByUserId("user-1"))
+                .thenReturn(List.of(nodeRow(2L), nodeRow(3L), nodeRow(4L)));
+        when(relationRepository.findEdgesByUserId("user-1")).thenReturn(List.of(
+                edgeRow(12L, 2L, 3L, "PARTICIPATED_IN", LifeGraphRelation.Origin.AUTO),
+                edgeRow(13L, 3L, 4L, "HAPPENED_AT", LifeGraphRelation.Origin.AUTO)));
+        when(evidenceRepository.findUsableRelationIds(eq("user-1"), any(), any()))
+                .thenReturn(List.of(12L, 13L));
+        when(entityRepository.findAllById(any())).thenReturn(List.of(trip, place));
+        when(relationRepository.findAllById(any())).thenReturn(List.of(relation(12L, 2L, 3L, "PARTICIPATED_IN"),
+                relation(13L, 3L, 4L, "HAPPENED_AT")));
+        // 缓存建好之后关系 13 的证据已被删除，而本实例还没收到变更
+        when(evidenceRepository.findUsableRelationIdsIn(eq("user-1"), any(), any(), any()))
+                .thenReturn(List.of(12L));
+        LifeGraphQueryService service = new LifeGraphQueryService(entityRepository, aliasRepository,
+                relationRepository, mentionRepository, evidenceRepository, entityEvidenceRepository,
+                new ObjectMapper(), new LifeGraphAdjacencyCache(entityRepository, relationRepository,
+                evidenceRepository));
+
+        String result = service.localSearch("user-1", "xiaomei", 10, 20, 0);
+
+        assertThat(result).contains("小美 -> 第一次旅行 [PARTICIPATED_IN]");
+        assertThat(result).doesNotContain("[HAPPENED_AT]");
+    }
+
+    @Test
+    void changesArePublishedAndMarkTheGraphDirtyOnOtherInstances() {
+        when(redissonClient.getTopic(anyString(), any(Codec.class))).thenReturn(topic);
+        when(entityRepository.findNodesByUserId("user-1")).thenReturn(List.of(nodeRow(1L), nodeRow(3L)));
+        when(relationRepository.findEdgesByUserId("user-1")).thenReturn(List.of());
+        when(evidenceRepository.findUsableRelationIds(eq("user-1"), any(), any())).thenReturn(List.of());
+        when(relationRepository.findEdgesByUserIdAndIdIn(eq("user-1"), any()))
+                .thenReturn(List.of(edgeRow(20L, 1L, 3L, "KNOWS", LifeGraphRelation.Origin.MANUAL)));
+        when(evidenceRepository.findUsableRelationIdsIn(eq("user-1"), any(), any(), any())).thenReturn(List.of());
+        LifeGraphAdjacencyCache writer = new LifeGraphAdjacencyCache(entityRepository, relationRepository,
+                evidenceRepository, null, redissonClient, "yusi:", true, 100, 60);
+        LifeGraphAdjacencyCache reader = new LifeGraphAdjacencyCache(entityRepository, relationRepository,
+                evidenceRepository);
+        assertThat(reader.get("user-1").relationCount()).isZero();
+
+        writer.onLifeGraphChanged(new LifeGraphChangedEvent(this, "user-1", LifeGraphChangedEvent.Kind.RELATION, 20L));
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(redissonClient).getTopic(eq("yusi:" + LifeGraphAdjacencyCache.CHANGE_CHANNEL), any(Codec.class));
+        verify(topic).publish(message.capture());
+        reader.onRemoteChange(message.getValue());
+
+        assertThat(neighbors(reader.get("user-1"), 1L)).containsExactly(3L);
+        verify(entityRepository, times(1)).findNodesByUserId("user-1");
+    }
+
+    @Test
+    void invalidationIsPublishedAndDropsTheUserOnOtherInstances() {
+        when(redissonClient.getTopic(anyString(), any(Codec.class))).thenReturn(topic);
+        when(entityRepository.findNodesByUserId(anyString())).thenReturn(List.of(nodeRow(1L)));
+        when(relationRepository.findEdgesByUserId(anyString())).thenReturn(List.of());
+        when(evidenceRepository.findUsableRelationIds(anyString(), any(), any())).thenReturn(List.of());
+        LifeGraphAdjacencyCache deleter = new LifeGraphAdjacencyCache(entityRepository, relationRepository,
+                evidenceRepository, null, redissonClient, "yusi:", true, 100, 60);
+        LifeGraphAdjacencyCache other = new LifeGraphAdjacencyCache(entityRepository, relationRepository,
+                evidenceRepository);
+        other.get("user-1");
+        other.get("user-2");
+
+        deleter.invalidate("user-1");
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(topic).publish(message.capture());
+        other.onRemoteChange(message.getValue());
+        other.onRemoteChange("garbage");
+
+        assertThat(other.size()).isEqualTo(1);
+        other.get("user-1");
+        verify(entityRepository, times(2)).findNodesByUserId("user-1");
+    }
+
+    private static List<Long> neighbors(LifeGraphAdjacency graph, long entityId) {
+        int node = graph.indexOf(entityId);
+        List<Long> ids = new ArrayList<>();
+        for (int position = graph.adjacencyStart(node); position < graph.adjacencyEnd(node); position++) {
+            ids.add(graph.entityId(graph.neighbor(graph.relationAt(position), node)));
+        }
+        return ids;
+    }
+
+    private static LifeGraphAdjacency.Node node(long id) {
+        return new LifeGraphAdjacency.Node(id, false, null, 1);
+    }
+
+    private static LifeGraphAdjacency.Edge edge(long id, long sourceId, long targetId, int weight,
+                                                LocalDateTime updatedAt) {
+        return new LifeGraphAdjacency.Edge(id, sourceId, targetId, weight, updatedAt, true);
+    }
+
+    private static LifeGraphEntityRepository.EntityNode nodeRow(Long id) {
+        return new LifeGraphEntityRepository.EntityNode() {
+            public Long getId() {
+                return id;
+            }
+
+            public Boolean getHidden() {
+                return false;
+            }
+
+            public LocalDateTime getValidUntil() {
+                return null;
+            }
+
+            public Integer getMentionCount() {
+                return 1;
+            }
+        };
+    }
+
+    private static LifeGraphRelationRepository.RelationEdge edgeRow(Long id, Long sourceId, Long targetId,
+                                                                    String type, LifeGraphRelation.Origin origin) {
+        return new LifeGraphRelationRepository.RelationEdge() {
+            public Long getId() {
+                return id;
+            }
+
+            public Long getSourceId() {
+                return sourceId;
+            }
+
+            public Long getTargetId() {
+                return targetId;
+            }
+
+            public String getType() {
+                return type;
+            }
+
+            public LifeGraphRelation.Origin getOrigin() {
+                return origin;
+            }
+
+            public BigDecimal getConfidence() {
+                return BigDecimal.valueOf(0.9);
+            }
+
+            public Integer getWeight() {
+                return 1;
+            }
+
+            public LocalDateTime getUpdatedAt() {
+                return NOW;
+            }
+        };
+    }
+
+    private static LifeGraphEntity entity(Long id, LifeGraphEntity.EntityType type, String norm, String displayName) {
+        return LifeGraphEntity.builder().id(id).userId("user-1").type(type).nameNorm(norm)
+                .displayName(displayName).mentionCount(1).hidden(false).build();
+    }
+
+    private static LifeGraphRelation relation(Long id, Long sourceId, Long targetId, String type) {
+        return LifeGraphRelation.builder().id(id).userId("user-1").sourceId(sourceId).targetId(targetId)
+                .semanticSourceId(sourceId).semanticTargetId(targetId).type(type)
+                .origin(LifeGraphRelation.Origin.AUTO).weight(1).confidence(BigDecimal.valueOf(0.9))
+                .build();
+    }
+}
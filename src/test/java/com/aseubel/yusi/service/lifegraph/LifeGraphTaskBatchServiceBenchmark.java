@@ -0,0 +1,96 @@
+package com.aseubel.yusi.service.lifegraph;
+
+import com.aseubel.yusi.config.security.CryptoService;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
+import com.aseubel.yusi.pojo.entity.LifeGraphTask;
+import com.aseubel.yusi.repository.DiaryRepository;
+import com.aseubel.yusi.repository.LifeGraphTaskRepository;
+import com.aseubel.yusi.repository.UserRepository;
+import com.aseubel.yusi.service.ai.runtime.AgentRunTraceService;
+import com.aseubel.yusi.service.task.TaskExecutionService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 分区 worker 对固定耗时抽取模型的吞吐，默认构建不执行：./mvnw test -Dtest.excludedGroups= -Dgroups=benchmark
+ */
+@Tag("benchmark")
+@ExtendWith(MockitoExtension.class)
+class LifeGraphTaskBatchServiceBenchmark {
+
+    private static final int USERS = 20;
+    private static final int TASKS_PER_USER = 2;
+    private static final long MODEL_MILLIS = 50;
+
+    @Mock
+    private LifeGraphTaskRepository taskRepository;
+
+    @Mock
+    private LifeGraphTaskClaimService taskClaimService;
+
+    @Mock
+    private DiaryRepository diaryRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CryptoService cryptoService;
+
+    @Mock
+    private LifeGraphBuildService lifeGraphBuildService;
+
+    @Mock
+    private TaskExecutionService taskExecutionService;
+
+    @Mock
+    private AgentRunTraceService agentRunTraceService;
+
+    @Mock
+    private YusiMetrics metrics;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4, 8})
+    void partitionedWorkersAgainstStubExtractionModel(int concurrency) throws Exception {
+        Deque<LifeGraphTask> queue = new ArrayDeque<>();
+        for (int round = 0; round < TASKS_PER_USER; round++) {
+            for (int user = 0; user < USERS; user++) {
+                queue.add(LifeGraphTaskBatchServiceTest.upsertTask(queue.size() + 1L, "bench-user-" + user,
+                        "diary-" + user + "-" + round));
+            }
+        }
+        LifeGraphTaskBatchServiceTest.StubExtractionModel model = LifeGraphTaskBatchServiceTest.stubPipeline(
+                taskClaimService, diaryRepository, lifeGraphBuildService, queue, MODEL_MILLIS);
+        LifeGraphTaskBatchService service = new LifeGraphTaskBatchService(taskRepository, taskClaimService,
+                diaryRepository, userRepository, cryptoService, lifeGraphBuildService, taskExecutionService,
+                agentRunTraceService, metrics, concurrency, 64);
+
+        long startedAt = System.nanoTime();
+        try {
+            while (!queue.isEmpty()) {
+                service.processPendingTasks();
+                Thread.sleep(5);
+            }
+            assertThat(service.awaitIdle(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            service.shutdown();
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+        System.out.printf("lifegraph worker benchmark (%d users x %d diaries, stub model %dms, concurrency %d): "
+                        + "%dms, %.1f diaries/s, max concurrent %d%n", USERS, TASKS_PER_USER, MODEL_MILLIS,
+                concurrency, millis, USERS * TASKS_PER_USER * 1000.0 / Math.max(1, millis),
+                model.maxConcurrent.get());
+        assertThat(model.maxPerUser.get()).isEqualTo(1);
+    }
+}
@@ -1,9 +1,11 @@
 package com.aseubel.yusi.service.lifegraph;
 
 import com.aseubel.yusi.config.security.CryptoService;
+import com.aseubel.yusi.observability.metrics.YusiMetrics;
 import com.aseubel.yusi.pojo.entity.Diary;
 import com.aseubel.yusi.pojo.entity.LifeGraphTask;
 import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.redis.service.IRedisService;
 import com.aseubel.yusi.repository.DiaryRepository;
 import com.aseubel.yusi.repository.LifeGraphTaskRepository;
 import com.aseubel.yusi.repository.UserRepository;
@@ -11,12 +13,25 @@ import com.aseubel.yusi.service.ai.runtime.AgentRunTraceService;
 import com.aseubel.yusi.service.task.TaskExecutionService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RLock;
 
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
@@ -54,8 +69,14 @@ class LifeGraphTaskBatchServiceTest {
     @Mock
     private AgentRunTraceService.RunScope runScope;
 
+    @Mock
+    private YusiMetrics metrics;
+
+    @Mock
+    private IRedisService redisService;
+
     @Test
-    void loadsDiaryWithTheTaskUserAndRetriesWhenExtractionFails() {
+    void loadsDiaryWithTheTaskUserAndRetriesWhenExtractionFails() throws Exception {
         LifeGraphTask task = LifeGraphTask.createUpsertTask("diary-1", "user-a");
         task.setId(7L);
         task.setStatus(LifeGraphTask.TaskStatus.PROCESSING);
@@ -70,7 +91,7 @@ class LifeGraphTaskBatchServiceTest {
         org.mockito.Mockito.doThrow(new IllegalStateException("invalid extraction"))
                 .when(lifeGraphBuildService).upsertFromDiary(diary, "content");
 
-        service().processPendingTasks();
+        processPending(service());
 
         verify(diaryRepository).findByDiaryIdAndUserId("diary-1", "user-a");
         verify(diaryRepository, never()).findByDiaryId("diary-1");
@@ -80,7 +101,7 @@ class LifeGraphTaskBatchServiceTest {
     }
 
     @Test
-    void removesExistingDiarySourceWhenCurrentContentIsBlank() {
+    void removesExistingDiarySourceWhenCurrentContentIsBlank() throws Exception {
         LifeGraphTask task = LifeGraphTask.createUpsertTask("diary-1", "user-a");
         task.setId(8L);
         when(taskClaimService.claimPendingTasks(any(LocalDateTime.class), any(Integer.class)))
@@ -92,14 +113,14 @@ class LifeGraphTaskBatchServiceTest {
                 .build();
         when(diaryRepository.findByDiaryIdAndUserId("diary-1", "user-a")).thenReturn(diary);
 
-        service().processPendingTasks();
+        processPending(service());
 
         verify(lifeGraphBuildService).deleteByDiary("user-a", "diary-1");
         verify(taskRepository).markAsCompleted(any(Long.class), any(LocalDateTime.class));
     }
 
     @Test
-    void skipsOlderDiaryRevisionWithoutReplacingCurrentLifeGraph() {
+    void skipsOlderDiaryRevisionWithoutReplacingCurrentLifeGraph() throws Exception {
         LifeGraphTask task = LifeGraphTask.createUpsertTask("diary-1", "user-a", "event-old");
         task.setId(9L);
         task.setSourceRevision(1L);
@@ -113,7 +134,7 @@ class LifeGraphTaskBatchServiceTest {
                 .build();
         when(diaryRepository.findByDiaryIdAndUserId("diary-1", "user-a")).thenReturn(currentDiary);
 
-        service().processPendingTasks();
+        processPending(service());
 
         verify(lifeGraphBuildService, never()).upsertFromDiary(any(Diary.class), anyString());
         verify(lifeGraphBuildService, never()).deleteByDiary(anyString(), anyString());
@@ -121,7 +142,7 @@ class LifeGraphTaskBatchServiceTest {
     }
 
     @Test
-    void skipsOlderDeleteRevisionWithoutRemovingCurrentLifeGraph() {
+    void skipsOlderDeleteRevisionWithoutRemovingCurrentLifeGraph() throws Exception {
         LifeGraphTask task = LifeGraphTask.createDeleteTask("diary-1", "user-a", "event-old-delete");
         task.setId(11L);
         task.setSourceRevision(1L);
@@ -134,7 +155,7 @@ class LifeGraphTaskBatchServiceTest {
                         .sourceRevision(2L)
                         .build());
 
-        service().processPendingTasks();
+        processPending(service());
 
         verify(lifeGraphBuildService, never()).deleteByDiary(anyString(), anyString());
         verify(taskRepository).markAsCompleted(eq(11L), any(LocalDateTime.class));
@@ -163,7 +184,7 @@ class LifeGraphTaskBatchServiceTest {
     }
 
     @Test
-    void completesTheAgentRunForAProcessedTask() {
+    void completesTheAgentRunForAProcessedTask() throws Exception {
         LifeGraphTask task = LifeGraphTask.createUpsertTask("diary-1", "user-a");
         task.setId(10L);
         task.setTaskExecutionId("execution-1");
@@ -186,15 +207,225 @@ class LifeGraphTaskBatchServiceTest {
                         .plainContent("content")
                         .build());
 
-        service().processPendingTasks();
+        processPending(service());
 
         verify(agentRunTraceService).open("user-a", "life-run-1", "life_graph");
         verify(runScope).complete();
     }
 
+    @Test
+    void differentUsersRunConcurrentlyWhileEachUserStaysOrdered() throws Exception {
+        Deque<LifeGraphTask> queue = new ArrayDeque<>();
+        for (int round = 0; round < 5; round++) {
+            for (int user = 0; user < 4; user++) {
+                queue.add(upsertTask(queue.size() + 1L, "user-" + user, "diary-" + user + "-" + round));
+            }
+        }
+        StubExtractionModel model = stubPipeline(queue, 30);
+
+        processPending(service(4, 64));
+
+        assertThat(queue).isEmpty();
+        assertThat(model.maxPerUser.get()).isEqualTo(1);
+        assertThat(model.maxConcurrent.get()).isGreaterThan(1);
+        for (int user = 0; user < 4; user++) {
+            int u = user;
+            assertThat(model.order.get("user-" + user)).containsExactlyElementsOf(
+                    IntStream.range(0, 5).mapToObj(round -> "diary-" + u + "-" + round).toList());
+        }
+        verify(taskRepository, org.mockito.Mockito.times(20))
+                .markAsCompleted(any(Long.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void claimsNoMoreThanTheQueueDepthAndKeepsPollingWhileFull() throws Exception {
+        Deque<LifeGraphTask> queue = new ArrayDeque<>();
+        for (int i = 0; i < 10; i++) {
+            queue.add(upsertTask(i + 1L, "user-" + i, "diary-" + i));
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        stubPipeline(queue, 0);
+        org.mockito.Mockito.doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(lifeGraphBuildService).upsertFromDiary(any(Diary.class), anyString());
+        LifeGraphTaskBatchService service = service(2, 4);
+        try {
+            assertThat(service.processPendingTasks()).isEqualTo(4);
+            // 分区已满：不再抢占，但返回非零让调度器保持短间隔
+            assertThat(service.processPendingTasks()).isEqualTo(4);
+            assertThat(queue).hasSize(6);
+            verify(taskClaimService).claimPendingTasks(any(LocalDateTime.class), eq(4));
+            release.countDown();
+            assertThat(service.awaitIdle(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void everyPartitionExtractsForADifferentUserAtTheSameTime() throws Exception {
+        Deque<LifeGraphTask> queue = new ArrayDeque<>();
+        for (int user = 0; user < 4; user++) {
+            queue.add(upsertTask(user + 1L, "user-" + user, "diary-" + user));
+        }
+        CountDownLatch started = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        stubPipeline(queue, 0);
+        org.mockito.Mockito.doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(lifeGraphBuildService).upsertFromDiary(any(Diary.class), anyString());
+        LifeGraphTaskBatchService service = service(4, 16);
+        try {
+            service.processPendingTasks();
+            // 四个用户的抽取都已开始而尚未放行，说明各分区在同时处理
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            release.countDown();
+            assertThat(service.awaitIdle(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+        verify(taskRepository, org.mockito.Mockito.times(4))
+                .markAsCompleted(any(Long.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void defersTheTaskWhenAnotherInstanceHoldsTheUserLock() throws Exception {
+        LifeGraphTask task = upsertTask(7L, "user-a", "diary-1");
+        when(taskClaimService.claimPendingTasks(any(LocalDateTime.class), any(Integer.class)))
+                .thenReturn(List.of(task));
+        RLock lock = org.mockito.Mockito.mock(RLock.class);
+        when(redisService.getLock(LifeGraphTaskBatchService.USER_LOCK_PREFIX + "user-a")).thenReturn(lock);
+        when(lock.tryLock()).thenReturn(false);
+
+        processPending(service(redisService));
+
+        verify(taskRepository).deferProcessing(eq(7L), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(diaryRepository, never()).findByDiaryIdAndUserId(anyString(), anyString());
+        verify(lifeGraphBuildService, never()).upsertFromDiary(any(Diary.class), anyString());
+        verify(taskRepository, never()).incrementRetryAndSetNextAttempt(
+                any(Long.class), anyString(), any(LocalDateTime.class), any(LocalDateTime.class));
+        verify(lock, never()).unlock();
+    }
+
+    @Test
+    void immediateTaskRunsInsideTheUserLockAndReleasesIt() throws Exception {
+        RLock lock = org.mockito.Mockito.mock(RLock.class);
+        when(redisService.getLock(LifeGraphTaskBatchService.USER_LOCK_PREFIX + "user-a")).thenReturn(lock);
+        when(lock.tryLock()).thenReturn(true);
+        when(lock.isHeldByCurrentThread()).thenReturn(true);
+        Diary diary = Diary.builder().diaryId("diary-1").userId("user-a").plainContent("content").build();
+        LifeGraphTaskBatchService service = service(redisService);
+        try {
+            service.submitSingleTask(12L, diary, "content");
+            assertThat(service.awaitIdle(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            service.shutdown();
+        }
+
+        InOrder inOrder = org.mockito.Mockito.inOrder(lock, lifeGraphBuildService, taskRepository);
+        inOrder.verify(lock).tryLock();
+        inOrder.verify(lifeGraphBuildService).upsertFromDiary(diary, "content");
+        inOrder.verify(taskRepository).markAsCompleted(eq(12L), any(LocalDateTime.class));
+        inOrder.verify(lock).unlock();
+    }
+
+    private StubExtractionModel stubPipeline(Deque<LifeGraphTask> queue, long modelMillis) {
+        return stubPipeline(taskClaimService, diaryRepository, lifeGraphBuildService, queue, modelMillis);
+    }
+
+    /** 抢占从 queue 中取任务，日记按 ID 现造，抽取交给固定耗时的模型 */
+    static StubExtractionModel stubPipeline(LifeGraphTaskClaimService taskClaimService,
+            DiaryRepository diaryRepository, LifeGraphBuildService lifeGraphBuildService,
+            Deque<LifeGraphTask> queue, long modelMillis) {
+        StubExtractionModel model = new StubExtractionModel(modelMillis);
+        org.mockito.Mockito.lenient().doAnswer(invocation -> {
+            int limit = invocation.getArgument(1);
+            List<LifeGraphTask> claimed = new ArrayList<>();
+            synchronized (queue) {
+                while (claimed.size() < limit && !queue.isEmpty()) {
+                    claimed.add(queue.poll());
+                }
+            }
+            return claimed;
+        }).when(taskClaimService).claimPendingTasks(any(LocalDateTime.class), any(Integer.class));
+        org.mockito.Mockito.lenient().doAnswer(invocation -> Diary.builder()
+                .diaryId(invocation.getArgument(0))
+                .userId(invocation.getArgument(1))
+                .plainContent("content")
+                .build()).when(diaryRepository).findByDiaryIdAndUserId(anyString(), anyString());
+        org.mockito.Mockito.lenient().doAnswer(invocation -> {
+            model.extract(invocation.getArgument(0));
+            return null;
+        }).when(lifeGraphBuildService).upsertFromDiary(any(Diary.class), anyString());
+        return model;
+    }
+
+    static LifeGraphTask upsertTask(long id, String userId, String diaryId) {
+        LifeGraphTask task = LifeGraphTask.createUpsertTask(diaryId, userId);
+        task.setId(id);
+        return task;
+    }
+
+    private static void processPending(LifeGraphTaskBatchService service) throws InterruptedException {
+        try {
+            service.processPendingTasks();
+            assertThat(service.awaitIdle(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            service.shutdown();
+        }
+    }
+
     private LifeGraphTaskBatchService service() {
         return new LifeGraphTaskBatchService(taskRepository, taskClaimService, diaryRepository,
                 userRepository, cryptoService, lifeGraphBuildService, taskExecutionService,
-                agentRunTraceService);
+                agentRunTraceService, metrics);
+    }
+
+    private LifeGraphTaskBatchService service(IRedisService redis) {
+        return new LifeGraphTaskBatchService(taskRepository, taskClaimService, diaryRepository,
+                userRepository, cryptoService, lifeGraphBuildService, taskExecutionService,
+                agentRunTraceService, metrics, redis, 4, 20);
+    }
+
+    private LifeGraphTaskBatchService service(int concurrency, int queueDepth) {
+        return new LifeGraphTaskBatchService(taskRepository, taskClaimService, diaryRepository,
+                userRepository, cryptoService, lifeGraphBuildService, taskExecutionService,
+                agentRunTraceService, metrics, concurrency, queueDepth);
+    }
+
+    /**
+     * 模拟固定耗时的抽取模型，记录每个用户的处理顺序和并发度
+     */
+    static final class StubExtractionModel {
+
+        private final long latencyMillis;
+        private final Map<String, List<String>> order = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> runningPerUser = new ConcurrentHashMap<>();
+        private final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxPerUser = new AtomicInteger();
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        private StubExtractionModel(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        private void extract(Diary diary) throws InterruptedException {
+            AtomicInteger perUser = runningPerUser.computeIfAbsent(diary.getUserId(), ignored -> new AtomicInteger());
+            maxPerUser.accumulateAndGet(perUser.incrementAndGet(), Math::max);
+            maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                order.computeIfAbsent(diary.getUserId(), ignored -> new CopyOnWriteArrayList<>())
+                        .add(diary.getDiaryId());
+                Thread.sleep(latencyMillis);
+            } finally {
+                running.decrementAndGet();
+                perUser.decrementAndGet();
+            }
+        }
     }
 }
@@ -13,7 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 import java.util.Optional;
@@ -22,6 +22,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,15 +35,15 @@ class LifeGraphTaskCreatorTest {
     @Mock
     private LifeGraphTaskBatchService batchService;
 
-    @Mock
-    private ThreadPoolTaskExecutor threadPoolExecutor;
-
     @Mock
     private TaskExecutionService taskExecutionService;
 
     @Mock
     private AgentRunTraceService agentRunTraceService;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Test
     void createsLifeGraphTaskWithAStableRunId() {
         when(taskRepository.findByUserIdAndDiaryIdAndStatusIn(any(), any(), any()))
@@ -66,8 +67,8 @@ class LifeGraphTaskCreatorTest {
                 .sourceRevision(4L)
                 .plainContent(" ")
                 .build();
-        new LifeGraphTaskCreator(taskRepository, batchService, threadPoolExecutor,
-                taskExecutionService, agentRunTraceService)
+        new LifeGraphTaskCreator(taskRepository, batchService, taskExecutionService,
+                agentRunTraceService, eventPublisher)
                 .onDiaryChanged(new DiaryChangedEvent(this, diary, DiaryChangedEvent.Type.WRITE));
 
         ArgumentCaptor<TaskExecutionCommand> captor = ArgumentCaptor.forClass(TaskExecutionCommand.class);
@@ -76,4 +77,33 @@ class LifeGraphTaskCreatorTest {
         assertFalse(captor.getValue().getRunId().isBlank());
         verify(agentRunTraceService).start(eq("user-1"), eq(captor.getValue().getRunId()), eq("life_graph"));
     }
+
+    @Test
+    void immediateTaskIsSubmittedToTheUserPartitionOfTheBatchService() {
+        when(taskRepository.findByUserIdAndDiaryIdAndStatusIn(any(), any(), any()))
+                .thenReturn(List.of());
+        when(taskExecutionService.createOrGet(any(TaskExecutionCommand.class)))
+                .thenReturn(TaskExecution.builder().taskId("execution-1").runId("run-1").build());
+        when(taskRepository.findByTaskExecutionId("execution-1"))
+                .thenReturn(Optional.empty());
+        when(taskRepository.save(any(LifeGraphTask.class)))
+                .thenAnswer(invocation -> {
+                    LifeGraphTask task = invocation.getArgument(0);
+                    task.setId(5L);
+                    return task;
+                });
+
+        Diary diary = Diary.builder()
+                .diaryId("diary-1")
+                .userId("user-1")
+                .sourceRevision(4L)
+                .plainContent("content")
+                .build();
+        new LifeGraphTaskCreator(taskRepository, batchService, taskExecutionService,
+                agentRunTraceService, eventPublisher)
+                .onDiaryChanged(new DiaryChangedEvent(this, diary, DiaryChangedEvent.Type.WRITE));
+
+        verify(batchService).submitSingleTask(5L, diary, "content");
+        verify(batchService, never()).processSingleTask(any(), any(), any());
+    }
 }
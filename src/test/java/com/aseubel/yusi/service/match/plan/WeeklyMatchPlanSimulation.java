@@ -0,0 +1,184 @@
+package com.aseubel.yusi.service.match.plan;
+
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.CandidatePair;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.Edge;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.MatchCandidate;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.RerankPlan;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.RerankTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 周匹配规划的离线模拟：聚类画像 → 向量分块 → 分轮精排 + 全局分配，并与旧的逐人贪心流程对比。
+ * 单测用小规模跑行为断言，{@link WeeklyMatchPlannerBenchmark} 用大规模输出基准数据。
+ */
+final class WeeklyMatchPlanSimulation {
+
+    static final int DIMENSION = 64;
+    static final int ROUNDS = 3;
+    static final int OLD_CANDIDATE_LIMIT = 8;
+    private static final int SCORE_THRESHOLD = 70;
+
+    private WeeklyMatchPlanSimulation() {
+    }
+
+    static Result run(int size) {
+        List<MatchCandidate> candidates = profiles(size, 7L);
+        WeeklyMatchPlanner planner = new WeeklyMatchPlanner();
+        long startedAt = System.nanoTime();
+        List<CandidatePair> blocked = planner.block(candidates);
+        long blockMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+        RerankPlan plan = planner.prescore(candidates, blocked, (left, right) -> 0);
+
+        // 分轮精排 + 全局分配，模型打分用余弦相似度加确定性噪声模拟
+        Map<Long, Edge> accepted = new HashMap<>();
+        List<Edge> matching = List.of();
+        boolean[] settled = new boolean[size];
+        long calls = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<RerankTask> tasks = plan.nextRound(user -> settled[user], Integer.MAX_VALUE);
+            if (tasks.isEmpty()) {
+                break;
+            }
+            calls += tasks.size();
+            for (RerankTask task : tasks) {
+                int score = simulatedScore(candidates, task.target(), task.candidate());
+                if (score >= SCORE_THRESHOLD) {
+                    Edge edge = new Edge(task.target(), task.candidate(), score);
+                    accepted.merge(Edge.key(edge.left(), edge.right()), edge,
+                            (existing, incoming) -> existing.weight() >= incoming.weight() ? existing : incoming);
+                }
+            }
+            matching = WeeklyMatchPlanner.assign(new ArrayList<>(accepted.values()));
+            Arrays.fill(settled, false);
+            for (Edge edge : matching) {
+                settled[edge.left()] = true;
+                settled[edge.right()] = true;
+            }
+        }
+
+        // 旧流程：按随机顺序逐人精排前 8 个未配对候选，取最高分立即配对
+        Map<Integer, List<CandidatePair>> adjacency = new HashMap<>();
+        for (CandidatePair pair : blocked) {
+            adjacency.computeIfAbsent(pair.left(), ignored -> new ArrayList<>()).add(pair);
+            adjacency.computeIfAbsent(pair.right(), ignored -> new ArrayList<>()).add(pair);
+        }
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(3L));
+        boolean[] used = new boolean[size];
+        long greedyCalls = 0;
+        long greedyWeight = 0;
+        int greedyMatches = 0;
+        for (int user : order) {
+            if (used[user]) {
+                continue;
+            }
+            List<CandidatePair> neighbours = adjacency.getOrDefault(user, List.of());
+            neighbours.sort((a, b) -> Float.compare(b.similarity(), a.similarity()));
+            int best = -1;
+            int bestScore = -1;
+            for (int i = 0; i < Math.min(OLD_CANDIDATE_LIMIT, neighbours.size()); i++) {
+                CandidatePair pair = neighbours.get(i);
+                int other = pair.left() == user ? pair.right() : pair.left();
+                if (used[other]) {
+                    continue;
+                }
+                greedyCalls++;
+                int score = simulatedScore(candidates, user, other);
+                if (score >= SCORE_THRESHOLD && score > bestScore) {
+                    best = other;
+                    bestScore = score;
+                }
+            }
+            if (best >= 0) {
+                used[user] = true;
+                used[best] = true;
+                greedyWeight += bestScore;
+                greedyMatches++;
+            }
+        }
+
+        double recall = recallAtFive(candidates, blocked);
+        return new Result(size, blockMillis, blocked.size(), recall, calls, greedyCalls, matching.size(),
+                greedyMatches, WeeklyMatchPlanner.totalWeight(matching), greedyWeight);
+    }
+
+    private static double recallAtFive(List<MatchCandidate> candidates, List<CandidatePair> blocked) {
+        Map<Integer, Set<Integer>> neighbours = new HashMap<>();
+        for (CandidatePair pair : blocked) {
+            neighbours.computeIfAbsent(pair.left(), ignored -> new HashSet<>()).add(pair.right());
+            neighbours.computeIfAbsent(pair.right(), ignored -> new HashSet<>()).add(pair.left());
+        }
+        Random random = new Random(1L);
+        int hits = 0;
+        int total = 0;
+        for (int sample = 0; sample < 200; sample++) {
+            int query = random.nextInt(candidates.size());
+            PriorityQueue<float[]> nearest = new PriorityQueue<>((a, b) -> Float.compare(a[0], b[0]));
+            for (int other = 0; other < candidates.size(); other++) {
+                if (other == query) {
+                    continue;
+                }
+                nearest.add(new float[] {WeeklyMatchPlanner.cosine(candidates.get(query).vector(),
+                        candidates.get(other).vector()), other});
+                if (nearest.size() > 5) {
+                    nearest.poll();
+                }
+            }
+            for (float[] exact : nearest) {
+                total++;
+                if (neighbours.getOrDefault(query, Set.of()).contains((int) exact[1])) {
+                    hits++;
+                }
+            }
+        }
+        return hits / (double) total;
+    }
+
+    /**
+     * 约 25 人一簇的聚类画像向量，模拟相近兴趣人群
+     */
+    private static List<MatchCandidate> profiles(int size, long seed) {
+        Random random = new Random(seed);
+        float[][] centers = new float[Math.max(1, size / 25)][DIMENSION];
+        for (float[] center : centers) {
+            for (int d = 0; d < DIMENSION; d++) {
+                center[d] = (float) random.nextGaussian();
+            }
+        }
+        List<MatchCandidate> candidates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            float[] center = centers[random.nextInt(centers.length)];
+            float[] vector = new float[DIMENSION];
+            for (int d = 0; d < DIMENSION; d++) {
+                vector[d] = center[d] + 0.6f * (float) random.nextGaussian();
+            }
+            candidates.add(new MatchCandidate("u" + i, random.nextInt(10) == 0 ? "friend" : null, vector,
+                    random.nextInt(4), random.nextInt(20)));
+        }
+        return candidates;
+    }
+
+    private static int simulatedScore(List<MatchCandidate> candidates, int a, int b) {
+        float similarity = WeeklyMatchPlanner.cosine(candidates.get(a).vector(), candidates.get(b).vector());
+        int noise = (int) Math.floorMod((long) Math.min(a, b) * 31 + Math.max(a, b), 11) - 5;
+        return Math.max(0, Math.min(100, Math.round(similarity * 100) + noise));
+    }
+
+    record Result(int size, long blockMillis, int pairs, double recall, long calls, long greedyCalls,
+                  int matches, int greedyMatches, long weight, long greedyWeight) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.aseubel.yusi.service.match.plan;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 周匹配规划的规模基准，默认构建不执行：./mvnw test -Dtest.excludedGroups= -Dgroups=benchmark
+ */
+@Tag("benchmark")
+class WeeklyMatchPlannerBenchmark {
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 100_000})
+    void blockingAndRoundsAtScale(int size) {
+        WeeklyMatchPlanSimulation.Result result = WeeklyMatchPlanSimulation.run(size);
+
+        System.out.printf("weekly match planner (%d profiles, dim %d): block %dms, pairs=%d, recall@5=%.3f, "
+                        + "llm calls=%d (sequential greedy %d, worst case %d), matches=%d (greedy %d), "
+                        + "weight=%d (greedy %d)%n",
+                size, WeeklyMatchPlanSimulation.DIMENSION, result.blockMillis(), result.pairs(), result.recall(),
+                result.calls(), result.greedyCalls(), (long) size * WeeklyMatchPlanSimulation.OLD_CANDIDATE_LIMIT,
+                result.matches(), result.greedyMatches(), result.weight(), result.greedyWeight());
+        assertThat(result.recall()).isGreaterThanOrEqualTo(size <= 10_000 ? 0.9 : 0.6);
+        assertThat(result.weight()).isGreaterThanOrEqualTo(result.greedyWeight());
+    }
+}
@@ -0,0 +1,138 @@
+package com.aseubel.yusi.service.match.plan;
+
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.CandidatePair;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.Edge;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.MatchCandidate;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.RerankPlan;
+import com.aseubel.yusi.service.match.plan.WeeklyMatchPlanner.RerankTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class WeeklyMatchPlannerTest {
+
+    @Test
+    void assignmentTradesOneHeavyEdgeForTwoThatWeighMore() {
+        List<Edge> matching = WeeklyMatchPlanner.assign(List.of(
+                new Edge(0, 1, 10), new Edge(0, 2, 9), new Edge(1, 3, 9)));
+
+        assertThat(matching).containsExactlyInAnyOrder(new Edge(0, 2, 9), new Edge(1, 3, 9));
+        assertThat(WeeklyMatchPlanner.totalWeight(matching)).isEqualTo(18);
+    }
+
+    @Test
+    void assignmentIsAValidMatchingAndCloseToTheOptimumOnSmallGraphs() {
+        Random random = new Random(11);
+        long total = 0;
+        long optimum = 0;
+        for (int trial = 0; trial < 200; trial++) {
+            int nodes = 4 + random.nextInt(7);
+            List<Edge> edges = new ArrayList<>();
+            for (int a = 0; a < nodes; a++) {
+                for (int b = a + 1; b < nodes; b++) {
+                    if (random.nextInt(3) == 0) {
+                        edges.add(new Edge(a, b, 1 + random.nextInt(100)));
+                    }
+                }
+            }
+            List<Edge> matching = WeeklyMatchPlanner.assign(edges);
+
+            Set<Integer> used = new HashSet<>();
+            for (Edge edge : matching) {
+                assertThat(used.add(edge.left())).isTrue();
+                assertThat(used.add(edge.right())).isTrue();
+            }
+            // 贪心 + 局部改进后不会留下两端都空闲的正权边
+            assertThat(edges).noneMatch(edge -> !used.contains(edge.left()) && !used.contains(edge.right()));
+            long best = bruteForce(edges, 0, new boolean[nodes]);
+            assertThat(WeeklyMatchPlanner.totalWeight(matching)).isLessThanOrEqualTo(best);
+            total += WeeklyMatchPlanner.totalWeight(matching);
+            optimum += best;
+        }
+        assertThat(total).isGreaterThanOrEqualTo(optimum * 95 / 100);
+    }
+
+    @Test
+    void prescoreDropsExcludedAndIntentIncompatiblePairs() {
+        List<MatchCandidate> candidates = List.of(
+                new MatchCandidate("a", "friend", new float[] {1, 0}, 3, 7),
+                new MatchCandidate("b", "friend", new float[] {1, 0.1f}, 1, 100),
+                new MatchCandidate("c", "romance", new float[] {1, 0.2f}, 0, 0),
+                new MatchCandidate("d", null, new float[] {1, 0.3f}, 0, 0));
+        List<CandidatePair> blocked = List.of(
+                new CandidatePair(0, 1, 0.9f, 0), new CandidatePair(0, 2, 0.8f, 0),
+                new CandidatePair(0, 3, 0.7f, 0), new CandidatePair(1, 3, 0.6f, 0));
+        WeeklyMatchPlanner planner = new WeeklyMatchPlanner(2, 8, 4, 4, 1L);
+
+        RerankPlan plan = planner.prescore(candidates, blocked,
+                (left, right) -> "d".equals(right.userId()) && "b".equals(left.userId())
+                        ? WeeklyMatchPlanner.EXCLUDED : 0);
+        List<RerankTask> tasks = plan.nextRound(user -> false, Integer.MAX_VALUE);
+
+        assertThat(plan.size()).isEqualTo(2);
+        assertThat(tasks).extracting(RerankTask::target, RerankTask::candidate)
+                .containsExactlyInAnyOrder(
+                        tuple(0, 1), tuple(1, 0),
+                        tuple(0, 3), tuple(3, 0));
+        // 相似度 90 + 共同意向 5 + 信号段 1×2 + 活跃度 min(3, log2(8)) = 100
+        assertThat(tasks).filteredOn(task -> task.target() == 0 && task.candidate() == 1)
+                .singleElement().extracting(RerankTask::preScore).isEqualTo(100);
+    }
+
+    @Test
+    void laterRoundsSkipSettledUsersAndPairsAlreadyReranked() {
+        List<MatchCandidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            candidates.add(new MatchCandidate("u" + i, null, new float[] {1, i}, 0, 0));
+        }
+        List<CandidatePair> blocked = List.of(
+                new CandidatePair(0, 1, 0.9f, 0), new CandidatePair(0, 2, 0.8f, 0),
+                new CandidatePair(1, 2, 0.7f, 0), new CandidatePair(2, 3, 0.6f, 0));
+        RerankPlan plan = new WeeklyMatchPlanner(2, 8, 4, 1, 1L).prescore(candidates, blocked, (left, right) -> 0);
+
+        List<RerankTask> first = plan.nextRound(user -> false, 3);
+        assertThat(first).hasSize(3);
+        assertThat(first.get(0).preScore()).isGreaterThanOrEqualTo(first.get(2).preScore());
+
+        Set<Long> seen = new HashSet<>();
+        first.forEach(task -> seen.add(Edge.key(task.target(), task.candidate())));
+        List<RerankTask> second = plan.nextRound(user -> user == 0, Integer.MAX_VALUE);
+        assertThat(second).isNotEmpty().allSatisfy(task -> {
+            assertThat(task.target()).isNotZero();
+            assertThat(task.candidate()).isNotZero();
+            assertThat(seen).doesNotContain(Edge.key(task.target(), task.candidate()));
+        });
+    }
+
+    @Test
+    void blockingRecallsNearestNeighboursAndRoundsBeatTheSequentialGreedyLoop() {
+        WeeklyMatchPlanSimulation.Result result = WeeklyMatchPlanSimulation.run(2_000);
+
+        assertThat(result.recall()).isGreaterThanOrEqualTo(0.9);
+        assertThat(result.weight()).isGreaterThanOrEqualTo(result.greedyWeight());
+        assertThat(result.calls()).isLessThanOrEqualTo((long) result.size() * 2 * WeeklyMatchPlanSimulation.ROUNDS);
+    }
+
+    private static long bruteForce(List<Edge> edges, int from, boolean[] used) {
+        long best = 0;
+        for (int i = from; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            if (used[edge.left()] || used[edge.right()]) {
+                continue;
+            }
+            used[edge.left()] = true;
+            used[edge.right()] = true;
+            best = Math.max(best, edge.weight() + bruteForce(edges, i + 1, used));
+            used[edge.left()] = false;
+            used[edge.right()] = false;
+        }
+        return best;
+    }
+}
@@ -1,6 +1,7 @@
 package com.aseubel.yusi.service.report;
 
 import com.aseubel.yusi.common.constant.PromptKey;
+import com.aseubel.yusi.common.task.BatchJobEngine;
 import com.aseubel.yusi.pojo.constant.TaskExecutionKeys;
 import com.aseubel.yusi.pojo.constant.TaskExecutionStatus;
 import com.aseubel.yusi.pojo.constant.TaskExecutionType;
@@ -8,6 +9,7 @@ import com.aseubel.yusi.pojo.entity.AgentPersonaConfig;
 import com.aseubel.yusi.pojo.entity.SoulReport;
 import com.aseubel.yusi.pojo.entity.TaskExecution;
 import com.aseubel.yusi.pojo.entity.User;
+import com.aseubel.yusi.redis.service.IRedisService;
 import com.aseubel.yusi.repository.AgentPersonaConfigRepository;
 import com.aseubel.yusi.repository.ChatMemoryMessageRepository;
 import com.aseubel.yusi.repository.DiaryRepository;
@@ -30,6 +32,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
@@ -41,6 +44,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -86,6 +90,9 @@ class SoulReportGeneratorTest {
     @Mock
     private AgentRunTraceService.RunScope runScope;
 
+    @Spy
+    private BatchJobEngine batchJobEngine = new BatchJobEngine(mock(IRedisService.class), Runnable::run, null, 1, 3, 0L);
+
     @InjectMocks
     private SoulReportGenerator generator;
 